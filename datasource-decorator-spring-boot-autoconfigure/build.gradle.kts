@@ -1,5 +1,6 @@
 plugins {
     `java-library`
+    id("me.champeau.gradle.jmh").version("0.5.0")
 }
 
 dependencies {
@@ -39,6 +40,7 @@ dependencies {
     testImplementation("com.vladmihalcea.flexy-pool:flexy-tomcatcp:${project.extra["flexyPoolVersion"]}")
     testImplementation("com.vladmihalcea.flexy-pool:flexy-micrometer-metrics:${project.extra["flexyPoolVersion"]}")
 
+    testImplementation("org.springframework.boot:spring-boot-starter-actuator:${project.extra["springBootVersion"]}")
     testImplementation("org.springframework.cloud:spring-cloud-sleuth-core:${project.extra["sleuthVersion"]}")
 
     testImplementation("commons-dbcp:commons-dbcp:1.4")
@@ -48,6 +50,12 @@ dependencies {
 
     testAnnotationProcessor("org.projectlombok:lombok:1.18.8")
     testCompileOnly("org.projectlombok:lombok:1.18.8")
+
+    jmh("com.h2database:h2:1.4.199")
+}
+
+jmh {
+    jmhVersion = "1.23"
 }
 
 tasks {
@@ -62,5 +70,7 @@ tasks {
 
     test {
         useJUnitPlatform()
+        // reports virtual threads pinned while holding a monitor, see VirtualThreadPinningTests
+        systemProperty("jdk.tracePinnedThreads", "full")
     }
 }
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.sql.DataSource;
+
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Compares dispatching of {@link DataSource} calls through CGLIB proxy with {@link DataSourceDecoratorInterceptor}
+ * and through {@link DelegatingDecoratedDataSource}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecoratedDataSourceDispatchBenchmark {
+
+    private DataSource cglibProxy;
+    private DataSource delegating;
+
+    @Setup
+    public void setUp() {
+        Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> null);
+        DataSource realDataSource = new StubDataSource(connection);
+        DataSource decoratedDataSource = new StubDataSource(connection);
+        delegating = new DelegatingDecoratedDataSource("dataSource", realDataSource, decoratedDataSource, Collections.emptyList());
+        cglibProxy = DataSourceDecoratorBeanPostProcessor.createProxy(
+                new DelegatingDecoratedDataSource("dataSource", realDataSource, decoratedDataSource, Collections.emptyList()));
+    }
+
+    @Benchmark
+    public Connection getConnectionCglibProxy() throws SQLException {
+        return cglibProxy.getConnection();
+    }
+
+    @Benchmark
+    public Connection getConnectionDelegating() throws SQLException {
+        return delegating.getConnection();
+    }
+
+    @Benchmark
+    public boolean isWrapperForCglibProxy() throws SQLException {
+        return cglibProxy.isWrapperFor(StubDataSource.class);
+    }
+
+    @Benchmark
+    public boolean isWrapperForDelegating() throws SQLException {
+        return delegating.isWrapperFor(StubDataSource.class);
+    }
+
+    @Benchmark
+    public DataSource unwrapCglibProxy() throws SQLException {
+        return cglibProxy.unwrap(StubDataSource.class);
+    }
+
+    @Benchmark
+    public DataSource unwrapDelegating() throws SQLException {
+        return delegating.unwrap(StubDataSource.class);
+    }
+
+    public static class StubDataSource implements DataSource {
+
+        private final Connection connection;
+
+        public StubDataSource(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Connection getConnection() {
+            return connection;
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) {
+            return connection;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            if (iface.isInstance(this)) {
+                return (T) this;
+            }
+            throw new SQLException("Not a wrapper for " + iface);
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) {
+            return iface.isInstance(this);
+        }
+
+        @Override
+        public PrintWriter getLogWriter() {
+            return null;
+        }
+
+        @Override
+        public void setLogWriter(PrintWriter out) {
+        }
+
+        @Override
+        public void setLoginTimeout(int seconds) {
+        }
+
+        @Override
+        public int getLoginTimeout() {
+            return 0;
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return null;
+        }
+    }
+}
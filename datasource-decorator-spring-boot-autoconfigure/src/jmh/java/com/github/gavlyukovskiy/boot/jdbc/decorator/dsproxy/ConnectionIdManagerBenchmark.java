@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy;
+
+import net.ttddyy.dsproxy.ConnectionIdManager;
+import net.ttddyy.dsproxy.proxy.GlobalConnectionIdManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares opening and closing of connection ids by {@link GlobalConnectionIdManager}
+ * and {@link StripedConnectionIdManager} shared by all benchmark threads.
+ * <p>
+ * Contention shows only when benchmark threads run in parallel, results on a machine with a single CPU
+ * compare only the single-threaded cost of both managers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+@Fork(1)
+public class ConnectionIdManagerBenchmark {
+
+    @Param({ "GLOBAL", "STRIPED" })
+    private DataSourceProxyProperties.ConnectionIdManagerType type;
+
+    private ConnectionIdManager connectionIdManager;
+
+    @Setup
+    public void setUp() {
+        connectionIdManager = type == DataSourceProxyProperties.ConnectionIdManagerType.STRIPED
+                ? new StripedConnectionIdManager()
+                : new GlobalConnectionIdManager();
+    }
+
+    @Benchmark
+    public String openAndClose() {
+        String id = connectionIdManager.getId(null);
+        connectionIdManager.addClosedId(id);
+        return id;
+    }
+}
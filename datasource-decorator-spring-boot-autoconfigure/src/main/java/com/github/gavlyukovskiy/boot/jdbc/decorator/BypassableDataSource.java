@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator;
+
+import javax.sql.DataSource;
+
+/**
+ * Interface that implicitly added to the CGLIB proxy of {@link DataSource} along with {@link DecoratedDataSource}
+ * or implemented by delegating {@link DataSource} if proxying target class is disabled.
+ *
+ * Allows to bypass decorating chain at runtime, in this case connections are acquired directly from the real data source.
+ *
+ * @see DataSourceDecoratorInterceptor
+ * @see DelegatingDecoratedDataSource
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public interface BypassableDataSource {
+
+    /**
+     * Returns whether decorating chain is bypassed and connections are acquired directly from the real data source.
+     *
+     * @return {@code true} if decorating chain is bypassed
+     */
+    boolean isBypassed();
+
+    /**
+     * Enables or disables bypassing of decorating chain. Only connections acquired after the switch are affected,
+     * already opened connections remain decorated (or not decorated) until they are closed.
+     *
+     * @param bypassed {@code true} to acquire connections directly from the real data source
+     */
+    void setBypassed(boolean bypassed);
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator;
+
+import org.springframework.util.Assert;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether connection acquired from the data source is observed by decorators that are subject to sampling.
+ * <p>
+ * Decision is made once per acquisition by the outermost sampled decorator and is shared with the inner ones
+ * for the duration of the call, so connection is either observed by all of them or by none.
+ *
+ * @see DataSourceDecorator#isObserving()
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class ConnectionSampler {
+
+    private final double samplingRate;
+    private final ThreadLocal<Boolean> sampled = new ThreadLocal<>();
+
+    ConnectionSampler(String beanName, double samplingRate) {
+        Assert.isTrue(samplingRate >= 0.0 && samplingRate <= 1.0,
+                () -> "Sampling rate of data source '" + beanName + "' should be between 0.0 and 1.0, but was " + samplingRate);
+        this.samplingRate = samplingRate;
+    }
+
+    /**
+     * Returns whether some connections might be not sampled.
+     *
+     * @return {@code false} if every connection is sampled
+     */
+    boolean isSampling() {
+        return samplingRate < 1.0;
+    }
+
+    <T> T acquire(Acquisition<T> observed, Acquisition<T> notObserved) throws SQLException {
+        Boolean sampled = this.sampled.get();
+        if (sampled != null) {
+            return sampled ? observed.acquire() : notObserved.acquire();
+        }
+        sampled = ThreadLocalRandom.current().nextDouble() < samplingRate;
+        this.sampled.set(sampled);
+        try {
+            return sampled ? observed.acquire() : notObserved.acquire();
+        }
+        finally {
+            this.sampled.remove();
+        }
+    }
+
+    @FunctionalInterface
+    interface Acquisition<T> {
+        T acquire() throws SQLException;
+    }
+}
@@ -16,10 +16,13 @@
 
 package com.github.gavlyukovskiy.boot.jdbc.decorator;
 
+import javax.sql.ConnectionPoolDataSource;
 import javax.sql.DataSource;
+import javax.sql.XADataSource;
 
 /**
- * Decorator for context {@link DataSource} beans.
+ * Decorator for context {@link DataSource} beans, {@link XADataSource} and {@link ConnectionPoolDataSource} beans
+ * are decorated only by decorators that support them.
  *
  * @author Arthur Gavlyukovskiy
  */
@@ -35,4 +38,44 @@ public interface DataSourceDecorator {
      * @return decorated {@link DataSource} or given {@link DataSource} without changes.
      */
     DataSource decorate(String beanName, DataSource dataSource);
+
+    /**
+     * Decorates given {@link XADataSource} instance.
+     * Should either return wrapped {@link XADataSource} or same instance, by default returns same instance.
+     *
+     * @param beanName name of a bean
+     * @param xaDataSource bean instance
+     *
+     * @return decorated {@link XADataSource} or given {@link XADataSource} without changes.
+     * @since 1.7.0
+     */
+    default XADataSource decorateXADataSource(String beanName, XADataSource xaDataSource) {
+        return xaDataSource;
+    }
+
+    /**
+     * Decorates given {@link ConnectionPoolDataSource} instance.
+     * Should either return wrapped {@link ConnectionPoolDataSource} or same instance, by default returns same instance.
+     *
+     * @param beanName name of a bean
+     * @param connectionPoolDataSource bean instance
+     *
+     * @return decorated {@link ConnectionPoolDataSource} or given {@link ConnectionPoolDataSource} without changes.
+     * @since 1.7.0
+     */
+    default ConnectionPoolDataSource decorateConnectionPoolDataSource(String beanName, ConnectionPoolDataSource connectionPoolDataSource) {
+        return connectionPoolDataSource;
+    }
+
+    /**
+     * Returns whether decorator only observes connections (e.g. logs, traces or measures them) without changing
+     * their behaviour. Only observing decorators are subject to {@code decorator.datasource.sampling}, other
+     * decorators see every connection, by default decorator is not observing.
+     *
+     * @return {@code true} if not sampled connections may skip this decorator
+     * @since 1.7.0
+     */
+    default boolean isObserving() {
+        return false;
+    }
 }
@@ -16,9 +16,21 @@
 
 package com.github.gavlyukovskiy.boot.jdbc.decorator;
 
+import com.github.gavlyukovskiy.boot.jdbc.decorator.actuate.DataSourceDecoratorEndpointConfiguration;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.batching.AutoBatchingConfiguration;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.budget.QueryBudgetConfiguration;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.circuitbreaker.CircuitBreakerConfiguration;
 import com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy.DataSourceProxyConfiguration;
 import com.github.gavlyukovskiy.boot.jdbc.decorator.flexypool.FlexyPoolConfiguration;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.lease.LeaseProfilerConfiguration;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.limit.ConcurrencyLimitConfiguration;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.metrics.DataSourceDecoratorMetricsConfiguration;
 import com.github.gavlyukovskiy.boot.jdbc.decorator.p6spy.P6SpyConfiguration;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.replica.ReadWriteSplittingConfiguration;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.resultcache.ResultCacheConfiguration;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.statementcache.StatementCacheConfiguration;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.statistics.SqlStatisticsConfiguration;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.xa.XADataSourceConfiguration;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
@@ -31,7 +43,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 
-import javax.sql.DataSource;
+import javax.sql.CommonDataSource;
 
 /**
  * {@link EnableAutoConfiguration Auto-configuration} for proxying DataSource.
@@ -41,12 +53,28 @@ import javax.sql.DataSource;
 @Configuration
 @EnableConfigurationProperties(DataSourceDecoratorProperties.class)
 @ConditionalOnProperty(name = "decorator.datasource.enabled", havingValue = "true", matchIfMissing = true)
-@ConditionalOnBean(DataSource.class)
-@AutoConfigureAfter(DataSourceAutoConfiguration.class)
+@ConditionalOnBean(CommonDataSource.class)
+@AutoConfigureAfter(value = DataSourceAutoConfiguration.class, name = {
+        "org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration",
+        "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration",
+        "org.springframework.boot.actuate.autoconfigure.metrics.export.simple.SimpleMetricsExportAutoConfiguration"
+})
 @Import({
         P6SpyConfiguration.class,
         DataSourceProxyConfiguration.class,
         FlexyPoolConfiguration.Ordered.class,
+        StatementCacheConfiguration.class,
+        CircuitBreakerConfiguration.class,
+        DataSourceDecoratorMetricsConfiguration.class,
+        SqlStatisticsConfiguration.class,
+        LeaseProfilerConfiguration.class,
+        QueryBudgetConfiguration.class,
+        ResultCacheConfiguration.class,
+        AutoBatchingConfiguration.class,
+        ConcurrencyLimitConfiguration.class,
+        ReadWriteSplittingConfiguration.class,
+        DataSourceDecoratorEndpointConfiguration.class,
+        XADataSourceConfiguration.class,
 })
 public class DataSourceDecoratorAutoConfiguration {
 
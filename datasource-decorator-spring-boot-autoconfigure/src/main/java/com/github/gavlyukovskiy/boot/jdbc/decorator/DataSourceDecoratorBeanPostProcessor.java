@@ -16,23 +16,36 @@
 
 package com.github.gavlyukovskiy.boot.jdbc.decorator;
 
+import org.slf4j.Logger;
 import org.springframework.aop.framework.ProxyFactory;
 import org.springframework.aop.scope.ScopedProxyUtils;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.DirectFieldAccessor;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
 
+import javax.sql.CommonDataSource;
+import javax.sql.ConnectionPoolDataSource;
 import javax.sql.DataSource;
+import javax.sql.XADataSource;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.slf4j.LoggerFactory.getLogger;
 
 /**
  * {@link BeanPostProcessor} that wraps all data source beans in {@link DataSource}
@@ -42,8 +55,14 @@ import java.util.Objects;
  */
 public class DataSourceDecoratorBeanPostProcessor implements BeanPostProcessor, Ordered, ApplicationContextAware {
 
+    private static final Logger log = getLogger(DataSourceDecoratorBeanPostProcessor.class);
+
+    private final Map<String, Long> decorationTimes = new ConcurrentHashMap<>();
+
     private ApplicationContext applicationContext;
     private DataSourceDecoratorProperties dataSourceDecoratorProperties;
+    private Map<String, DataSourceDecorator> decorators;
+    private DataSourceNameResolver dataSourceNameResolver;
 
     @Override
     public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
@@ -55,36 +74,224 @@ public class DataSourceDecoratorBeanPostProcessor implements BeanPostProcessor,
         if (bean instanceof DataSource
                 && !ScopedProxyUtils.isScopedTarget(beanName)
                 && !getDataSourceDecoratorProperties().getExcludeBeans().contains(beanName)) {
-            DataSource dataSource = (DataSource) bean;
-            DataSource decoratedDataSource = dataSource;
-            Map<String, DataSourceDecorator> decorators = new LinkedHashMap<>();
+            if (bean instanceof AbstractRoutingDataSource && getDataSourceDecoratorProperties().isDecorateRoutingTargets()) {
+                decorateRoutingTargets(beanName, (AbstractRoutingDataSource) bean);
+                return bean;
+            }
+            return decorateDataSource(beanName, (DataSource) bean);
+        }
+        if ((bean instanceof XADataSource || bean instanceof ConnectionPoolDataSource)
+                && !ScopedProxyUtils.isScopedTarget(beanName)
+                && !getDataSourceDecoratorProperties().getExcludeBeans().contains(beanName)) {
+            return decorateCommonDataSource(beanName, (CommonDataSource) bean);
+        }
+        return bean;
+    }
+
+    /**
+     * Decorates {@link XADataSource} or {@link ConnectionPoolDataSource} that is not a {@link DataSource}.
+     * Decorated instance is returned as is, so such beans should be injected by interface type.
+     */
+    private CommonDataSource decorateCommonDataSource(String beanName, CommonDataSource dataSource) {
+        long decorationStartNanos = System.nanoTime();
+        DataSourceNameResolver dataSourceNameResolver = getDataSourceNameResolver();
+        if (dataSourceNameResolver != null) {
+            dataSourceNameResolver.registerDataSourceName(beanName, dataSource);
+        }
+        CommonDataSource decoratedDataSource = applyCommonDecorators(beanName, dataSource, getDecorators(), null, dataSourceNameResolver);
+        long decorationTimeNanos = System.nanoTime() - decorationStartNanos;
+        decorationTimes.put(beanName, decorationTimeNanos);
+        log.debug("Decorated data source '{}' in {} ms", beanName, TimeUnit.NANOSECONDS.toMillis(decorationTimeNanos));
+        return decoratedDataSource;
+    }
+
+    private CommonDataSource applyCommonDecorators(String beanName, CommonDataSource dataSource,
+                                                   Map<String, DataSourceDecorator> decorators,
+                                                   ConnectionSampler connectionSampler,
+                                                   DataSourceNameResolver dataSourceNameResolver) {
+        // decorated data source might implement both interfaces, so the type is determined by the original bean
+        boolean xaDataSource = dataSource instanceof XADataSource;
+        CommonDataSource decoratedDataSource = dataSource;
+        for (Entry<String, DataSourceDecorator> decoratorEntry : decorators.entrySet()) {
+            String decoratorBeanName = decoratorEntry.getKey();
+            DataSourceDecorator decorator = decoratorEntry.getValue();
+
+            CommonDataSource dataSourceBeforeDecorating = decoratedDataSource;
+            decoratedDataSource = Objects.requireNonNull(xaDataSource
+                            ? decorator.decorateXADataSource(beanName, (XADataSource) decoratedDataSource)
+                            : decorator.decorateConnectionPoolDataSource(beanName, (ConnectionPoolDataSource) decoratedDataSource),
+                    "DataSourceDecorator (" + decoratorBeanName + ", " + decorator + ") should not return null");
+            if (dataSourceNameResolver != null) {
+                dataSourceNameResolver.registerDataSourceName(beanName, decoratedDataSource);
+            }
+            if (xaDataSource && isSampled(decorator, connectionSampler) && dataSourceBeforeDecorating != decoratedDataSource) {
+                decoratedDataSource = new SampledXADataSource((XADataSource) decoratedDataSource,
+                        (XADataSource) dataSourceBeforeDecorating, connectionSampler);
+                if (dataSourceNameResolver != null) {
+                    dataSourceNameResolver.registerDataSourceName(beanName, decoratedDataSource);
+                }
+            }
+        }
+        return decoratedDataSource;
+    }
+
+    private DataSource decorateDataSource(String name, DataSource dataSource) {
+        Map<String, DataSourceDecorator> decorators = getDecorators();
+        DataSourceNameResolver dataSourceNameResolver = getDataSourceNameResolver();
+        if (dataSourceNameResolver != null) {
+            // registered before decorating, so decorators can resolve name of the data source being created
+            dataSourceNameResolver.registerDataSourceName(name, dataSource);
+        }
+        ConnectionSampler connectionSampler = new ConnectionSampler(name, getDataSourceDecoratorProperties().getSampling().getRate(name));
+        DelegatingDecoratedDataSource delegatingDecoratedDataSource;
+        if (getDataSourceDecoratorProperties().isLazy()) {
+            if (decorators.isEmpty()) {
+                return dataSource;
+            }
+            Supplier<DelegatingDecoratedDataSource.Decoration> decorationSupplier = () -> decorate(name, dataSource, decorators, connectionSampler, dataSourceNameResolver);
+            delegatingDecoratedDataSource = dataSource instanceof XADataSource
+                    ? new DelegatingDecoratedXADataSource(name, dataSource, decorationSupplier)
+                    : new DelegatingDecoratedDataSource(name, dataSource, decorationSupplier);
+        }
+        else {
+            DelegatingDecoratedDataSource.Decoration decoration = decorate(name, dataSource, decorators, connectionSampler, dataSourceNameResolver);
+            if (decoration.getDecoratedDataSource() == dataSource
+                    && (decoration.getDecoratedXADataSource() == null || decoration.getDecoratedXADataSource() == dataSource)) {
+                return dataSource;
+            }
+            delegatingDecoratedDataSource = dataSource instanceof XADataSource
+                    ? new DelegatingDecoratedXADataSource(name, dataSource, decoration)
+                    : new DelegatingDecoratedDataSource(name, dataSource, decoration);
+        }
+        DataSource decoratedDataSource = getDataSourceDecoratorProperties().isProxyTargetClass()
+                ? createProxy(delegatingDecoratedDataSource)
+                : delegatingDecoratedDataSource;
+        if (dataSourceNameResolver != null) {
+            dataSourceNameResolver.registerDataSourceName(name, decoratedDataSource);
+        }
+        return decoratedDataSource;
+    }
+
+    /**
+     * Decorates every target of the routing data source instead of the router itself, each target is named
+     * as '{@code routingDataSourceBeanName.lookupKey}'. Targets that are already decorated (e.g. beans) are left as is.
+     * <p>
+     * Only targets resolved at this point are decorated, targets set later via
+     * {@link AbstractRoutingDataSource#setTargetDataSources(Map)} and
+     * {@link AbstractRoutingDataSource#afterPropertiesSet()} are not.
+     */
+    @SuppressWarnings("unchecked")
+    private void decorateRoutingTargets(String beanName, AbstractRoutingDataSource routingDataSource) {
+        DirectFieldAccessor fieldAccessor = new DirectFieldAccessor(routingDataSource);
+        Map<Object, DataSource> resolvedDataSources = (Map<Object, DataSource>) fieldAccessor.getPropertyValue("resolvedDataSources");
+        DataSource resolvedDefaultDataSource = (DataSource) fieldAccessor.getPropertyValue("resolvedDefaultDataSource");
+        // the same data source might be registered with several lookup keys or as default one
+        Map<DataSource, DataSource> decoratedTargets = new IdentityHashMap<>();
+        if (resolvedDataSources != null) {
+            for (Entry<Object, DataSource> target : resolvedDataSources.entrySet()) {
+                String targetName = beanName + "." + target.getKey();
+                target.setValue(decoratedTargets.computeIfAbsent(target.getValue(), dataSource -> decorateRoutingTarget(targetName, dataSource)));
+            }
+        }
+        if (resolvedDefaultDataSource != null) {
+            String targetName = beanName + ".default";
+            fieldAccessor.setPropertyValue("resolvedDefaultDataSource",
+                    decoratedTargets.computeIfAbsent(resolvedDefaultDataSource, dataSource -> decorateRoutingTarget(targetName, dataSource)));
+        }
+    }
+
+    private DataSource decorateRoutingTarget(String name, DataSource dataSource) {
+        if (dataSource instanceof DecoratedDataSource || getDataSourceDecoratorProperties().getExcludeBeans().contains(name)) {
+            return dataSource;
+        }
+        return decorateDataSource(name, dataSource);
+    }
+
+    private DelegatingDecoratedDataSource.Decoration decorate(String beanName, DataSource dataSource,
+                                                              Map<String, DataSourceDecorator> decorators,
+                                                              ConnectionSampler connectionSampler,
+                                                              DataSourceNameResolver dataSourceNameResolver) {
+        long decorationStartNanos = System.nanoTime();
+        DataSource decoratedDataSource = dataSource;
+        List<DataSourceDecorationStage> decoratedDataSourceChainEntries = new ArrayList<>();
+        for (Entry<String, DataSourceDecorator> decoratorEntry : decorators.entrySet()) {
+            String decoratorBeanName = decoratorEntry.getKey();
+            DataSourceDecorator decorator = decoratorEntry.getValue();
+
+            DataSource dataSourceBeforeDecorating = decoratedDataSource;
+            decoratedDataSource = Objects.requireNonNull(decorator.decorate(beanName, decoratedDataSource),
+                    "DataSourceDecorator (" + decoratorBeanName + ", " + decorator + ") should not return null");
+
+            if (dataSourceBeforeDecorating != decoratedDataSource) {
+                if (dataSourceNameResolver != null) {
+                    dataSourceNameResolver.registerDataSourceName(beanName, decoratedDataSource);
+                }
+                decoratedDataSourceChainEntries.add(0, new DataSourceDecorationStage(decoratorBeanName, decorator, decoratedDataSource));
+                if (isSampled(decorator, connectionSampler)) {
+                    // outer decorators receive the sampling wrapper and might resolve its name as well
+                    decoratedDataSource = new SampledDataSource(decoratedDataSource, dataSourceBeforeDecorating, connectionSampler);
+                    if (dataSourceNameResolver != null) {
+                        dataSourceNameResolver.registerDataSourceName(beanName, decoratedDataSource);
+                    }
+                }
+            }
+        }
+        // XA connections of data sources implementing both interfaces are acquired through the separate XA chain
+        XADataSource decoratedXADataSource = dataSource instanceof XADataSource
+                ? (XADataSource) applyCommonDecorators(beanName, dataSource, decorators, connectionSampler, dataSourceNameResolver)
+                : null;
+        long decorationTimeNanos = System.nanoTime() - decorationStartNanos;
+        decorationTimes.put(beanName, decorationTimeNanos);
+        log.debug("Decorated data source '{}' in {} ms", beanName, TimeUnit.NANOSECONDS.toMillis(decorationTimeNanos));
+        return new DelegatingDecoratedDataSource.Decoration(decoratedDataSource, decoratedDataSourceChainEntries, decoratedXADataSource);
+    }
+
+    /**
+     * Not sampled connections skip only observing decorators, decorators that change behaviour of connections
+     * (e.g. routing or limiting) must see all of them.
+     */
+    private static boolean isSampled(DataSourceDecorator decorator, ConnectionSampler connectionSampler) {
+        return connectionSampler != null && connectionSampler.isSampling() && decorator.isObserving();
+    }
+
+    /**
+     * Returns time spent on decorating of each data source bean.
+     *
+     * @return data source bean name to decoration time in nanoseconds
+     * @since 1.7.0
+     */
+    public Map<String, Long> getDecorationTimes() {
+        return Collections.unmodifiableMap(decorationTimes);
+    }
+
+    static DataSource createProxy(DelegatingDecoratedDataSource delegatingDecoratedDataSource) {
+        ProxyFactory factory = new ProxyFactory(delegatingDecoratedDataSource.getRealDataSource());
+        factory.setProxyTargetClass(true);
+        factory.addInterface(DecoratedDataSource.class);
+        factory.addInterface(BypassableDataSource.class);
+        factory.addAdvice(new DataSourceDecoratorInterceptor(delegatingDecoratedDataSource));
+        return (DataSource) factory.getProxy();
+    }
+
+    private Map<String, DataSourceDecorator> getDecorators() {
+        if (decorators == null) {
+            // decorators are the same for all data sources, so they are resolved and sorted only once
+            Map<String, DataSourceDecorator> sortedDecorators = new LinkedHashMap<>();
             applicationContext.getBeansOfType(DataSourceDecorator.class)
                     .entrySet()
                     .stream()
                     .sorted(Entry.comparingByValue(AnnotationAwareOrderComparator.INSTANCE))
-                    .forEach(entry -> decorators.put(entry.getKey(), entry.getValue()));
-            List<DataSourceDecorationStage> decoratedDataSourceChainEntries = new ArrayList<>();
-            for (Entry<String, DataSourceDecorator> decoratorEntry : decorators.entrySet()) {
-                String decoratorBeanName = decoratorEntry.getKey();
-                DataSourceDecorator decorator = decoratorEntry.getValue();
-
-                DataSource dataSourceBeforeDecorating = decoratedDataSource;
-                decoratedDataSource = Objects.requireNonNull(decorator.decorate(beanName, decoratedDataSource),
-                        "DataSourceDecorator (" + decoratorBeanName + ", " + decorator + ") should not return null");
-
-                if (dataSourceBeforeDecorating != decoratedDataSource) {
-                    decoratedDataSourceChainEntries.add(0, new DataSourceDecorationStage(decoratorBeanName, decorator, decoratedDataSource));
-                }
-            }
-            if (dataSource != decoratedDataSource) {
-                ProxyFactory factory = new ProxyFactory(bean);
-                factory.setProxyTargetClass(true);
-                factory.addInterface(DecoratedDataSource.class);
-                factory.addAdvice(new DataSourceDecoratorInterceptor(beanName, dataSource, decoratedDataSource, decoratedDataSourceChainEntries));
-                return factory.getProxy();
-            }
+                    .forEach(entry -> sortedDecorators.put(entry.getKey(), entry.getValue()));
+            decorators = sortedDecorators;
         }
-        return bean;
+        return decorators;
+    }
+
+    private DataSourceNameResolver getDataSourceNameResolver() {
+        if (dataSourceNameResolver == null) {
+            dataSourceNameResolver = applicationContext.getBeanProvider(DataSourceNameResolver.class).getIfAvailable();
+        }
+        return dataSourceNameResolver;
     }
 
     private DataSourceDecoratorProperties getDataSourceDecoratorProperties() {
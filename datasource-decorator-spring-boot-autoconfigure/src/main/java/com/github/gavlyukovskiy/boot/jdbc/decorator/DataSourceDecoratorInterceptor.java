@@ -21,55 +21,67 @@ import org.aopalliance.intercept.MethodInvocation;
 
 import javax.sql.DataSource;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.lang.reflect.Method;
 
 /**
  * Interceptor that delegates all method calls to the decorated {@link DataSource}.
- * As well handles methods from {@link DecoratedDataSource}.
+ * As well handles methods from {@link DecoratedDataSource} and {@link BypassableDataSource}.
  *
  * @author Arthur Gavlyukovskiy
  * @since 1.2.2
  */
 class DataSourceDecoratorInterceptor implements MethodInterceptor {
 
-    private String beanName;
-    private final DataSource realDataSource;
-    private final DataSource decoratedDataSource;
-    private final List<DataSourceDecorationStage> decoratingChain;
+    private final DelegatingDecoratedDataSource delegate;
 
-    DataSourceDecoratorInterceptor(String beanName, DataSource realDataSource, DataSource decoratedDataSource, List<DataSourceDecorationStage> decoratingChain) {
-        this.beanName = beanName;
-        this.realDataSource = realDataSource;
-        this.decoratedDataSource = decoratedDataSource;
-        this.decoratingChain = decoratingChain;
+    DataSourceDecoratorInterceptor(DelegatingDecoratedDataSource delegate) {
+        this.delegate = delegate;
     }
 
     @Override
     public Object invoke(MethodInvocation invocation) throws Throwable {
-        if (invocation.getMethod().getName().equals("getConnection")) {
-            if (invocation.getMethod().getParameterCount() == 0) {
-                return decoratedDataSource.getConnection();
+        Method method = invocation.getMethod();
+        if (method.getName().equals("getConnection")) {
+            if (method.getParameterCount() == 0) {
+                return delegate.getConnection();
             }
-            else if (invocation.getMethod().getParameterCount() == 2) {
-                return decoratedDataSource.getConnection((String) invocation.getArguments()[0], (String) invocation.getArguments()[1]);
+            else if (method.getParameterCount() == 2) {
+                return delegate.getConnection((String) invocation.getArguments()[0], (String) invocation.getArguments()[1]);
             }
         }
-        if (invocation.getMethod().getName().equals("toString")) {
-            return decoratingChain.stream()
-                    .map(entry -> entry.getBeanName() + " [" + entry.getDataSource().getClass().getName() + "]")
-                    .collect(Collectors.joining(" -> ")) + " -> " + beanName + " [" + realDataSource.getClass().getName() + "]";
+        if (method.getName().equals("getXAConnection") && delegate instanceof DelegatingDecoratedXADataSource) {
+            DelegatingDecoratedXADataSource xaDelegate = (DelegatingDecoratedXADataSource) delegate;
+            if (method.getParameterCount() == 0) {
+                return xaDelegate.getXAConnection();
+            }
+            else if (method.getParameterCount() == 2) {
+                return xaDelegate.getXAConnection((String) invocation.getArguments()[0], (String) invocation.getArguments()[1]);
+            }
         }
-        if (invocation.getMethod().getDeclaringClass() == DecoratedDataSource.class) {
-            if (invocation.getMethod().getName().equals("getRealDataSource")) {
-                return realDataSource;
+        if (method.getName().equals("toString")) {
+            return delegate.toString();
+        }
+        if (method.getDeclaringClass() == DecoratedDataSource.class) {
+            if (method.getName().equals("getBeanName")) {
+                return delegate.getBeanName();
+            }
+            if (method.getName().equals("getRealDataSource")) {
+                return delegate.getRealDataSource();
             }
-            if (invocation.getMethod().getName().equals("getDecoratedDataSource")) {
-                return decoratedDataSource;
+            if (method.getName().equals("getDecoratedDataSource")) {
+                return delegate.getDecoratedDataSource();
+            }
+            if (method.getName().equals("getDecoratingChain")) {
+                return delegate.getDecoratingChain();
+            }
+        }
+        if (method.getDeclaringClass() == BypassableDataSource.class) {
+            if (method.getName().equals("isBypassed")) {
+                return delegate.isBypassed();
             }
-            if (invocation.getMethod().getName().equals("getDecoratingChain")) {
-                return Collections.unmodifiableList(decoratingChain);
+            if (method.getName().equals("setBypassed")) {
+                delegate.setBypassed((Boolean) invocation.getArguments()[0]);
+                return null;
             }
         }
         return invocation.proceed();
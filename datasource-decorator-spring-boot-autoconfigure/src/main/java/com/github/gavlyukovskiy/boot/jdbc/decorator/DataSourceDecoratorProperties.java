@@ -16,9 +16,19 @@
 
 package com.github.gavlyukovskiy.boot.jdbc.decorator;
 
+import com.github.gavlyukovskiy.boot.jdbc.decorator.batching.AutoBatchingProperties;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.budget.QueryBudgetProperties;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.circuitbreaker.CircuitBreakerProperties;
 import com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy.DataSourceProxyProperties;
 import com.github.gavlyukovskiy.boot.jdbc.decorator.flexypool.FlexyPoolProperties;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.lease.LeaseProfilerProperties;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.limit.ConcurrencyLimitProperties;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.metrics.MicrometerProperties;
 import com.github.gavlyukovskiy.boot.jdbc.decorator.p6spy.P6SpyProperties;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.replica.ReadWriteSplittingProperties;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.resultcache.ResultCacheProperties;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.statementcache.StatementCacheProperties;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.statistics.SqlStatisticsProperties;
 import com.github.gavlyukovskiy.cloud.sleuth.SleuthProperties;
 import lombok.Getter;
 import lombok.Setter;
@@ -27,6 +37,8 @@ import org.springframework.boot.context.properties.NestedConfigurationProperty;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Properties for configuring proxy providers.
@@ -46,6 +58,28 @@ public class DataSourceDecoratorProperties {
      * Beans that won't be decorated.
      */
     private Collection<String> excludeBeans = Collections.emptyList();
+    /**
+     * Creates CGLIB proxy of the original data source class, so decorated bean is still an instance of it.
+     * When disabled decorated bean implements only {@link javax.sql.DataSource} and {@link DecoratedDataSource},
+     * but all calls are dispatched directly without reflection.
+     * Disabled by default when running in a GraalVM native image, where CGLIB proxies cannot be generated.
+     */
+    private boolean proxyTargetClass = System.getProperty("org.graalvm.nativeimage.imagecode") == null;
+    /**
+     * Defers decorating of the data source until the first connection is requested, so data sources
+     * that are never used don't pay for creating and starting decorators during application startup.
+     */
+    private boolean lazy = false;
+    /**
+     * Decorates every target of {@link org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource}
+     * individually instead of the routing data source itself, targets are named as 'routingDataSourceBeanName.lookupKey'.
+     */
+    private boolean decorateRoutingTargets = false;
+
+    /**
+     * Sampling of connections, only sampled connections are observed by logging, tracing and metrics decorators.
+     */
+    private Sampling sampling = new Sampling();
 
     @NestedConfigurationProperty
     private DataSourceProxyProperties datasourceProxy = new DataSourceProxyProperties();
@@ -58,4 +92,58 @@ public class DataSourceDecoratorProperties {
 
     @NestedConfigurationProperty
     private SleuthProperties sleuth = new SleuthProperties();
+
+    @NestedConfigurationProperty
+    private MicrometerProperties micrometer = new MicrometerProperties();
+
+    @NestedConfigurationProperty
+    private SqlStatisticsProperties statistics = new SqlStatisticsProperties();
+
+    @NestedConfigurationProperty
+    private LeaseProfilerProperties leaseProfiler = new LeaseProfilerProperties();
+
+    @NestedConfigurationProperty
+    private QueryBudgetProperties queryBudget = new QueryBudgetProperties();
+
+    @NestedConfigurationProperty
+    private StatementCacheProperties statementCache = new StatementCacheProperties();
+
+    @NestedConfigurationProperty
+    private ResultCacheProperties resultCache = new ResultCacheProperties();
+
+    @NestedConfigurationProperty
+    private AutoBatchingProperties autoBatching = new AutoBatchingProperties();
+
+    @NestedConfigurationProperty
+    private ConcurrencyLimitProperties concurrencyLimit = new ConcurrencyLimitProperties();
+
+    @NestedConfigurationProperty
+    private ReadWriteSplittingProperties readWriteSplitting = new ReadWriteSplittingProperties();
+
+    @NestedConfigurationProperty
+    private CircuitBreakerProperties circuitBreaker = new CircuitBreakerProperties();
+
+    @Getter
+    @Setter
+    public static class Sampling {
+        /**
+         * Fraction of connections (from 0.0 to 1.0) that are observed by logging, tracing and metrics decorators,
+         * other connections skip them but still pass decorators that change behaviour, e.g. routing or limiting.
+         */
+        private double rate = 1.0;
+        /**
+         * Sampling rate for specific data source beans, overrides default sampling rate.
+         */
+        private Map<String, Double> rates = new HashMap<>();
+
+        /**
+         * Returns sampling rate of the data source bean.
+         *
+         * @param beanName data source bean name
+         * @return sampling rate from 0.0 to 1.0
+         */
+        public double getRate(String beanName) {
+            return rates.getOrDefault(beanName, rate);
+        }
+    }
 }
@@ -23,12 +23,20 @@ import org.springframework.util.ClassUtils;
 import javax.sql.CommonDataSource;
 import javax.sql.DataSource;
 
-import java.util.HashMap;
+import java.lang.ref.WeakReference;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * {@link CommonDataSource} name resolver based on bean name.
+ * <p>
+ * Names of the decorated beans and every data source in their decorating chains are registered eagerly by
+ * {@link DataSourceDecoratorBeanPostProcessor} in a copy-on-write identity map, so resolving them neither takes locks
+ * nor allocates. Registered names are held strongly as they belong to beans living as long as the context.
+ * Names of data sources unknown at that point (e.g. created later by the application) are looked up
+ * in the {@link ApplicationContext} once and then cached with weak references, so they can be garbage collected.
  *
  * @author Arthur Gavlyukovskiy
  * @since 1.3.0
@@ -38,46 +46,151 @@ public class DataSourceNameResolver {
             ClassUtils.isPresent("com.zaxxer.hikari.HikariDataSource", DataSourceNameResolver.class.getClassLoader());
 
     private final ApplicationContext applicationContext;
-    private final Map<CommonDataSource, String> cachedNames = new HashMap<>();
+    private final AtomicReference<Map<CommonDataSource, String>> registeredNames = new AtomicReference<>(new IdentityHashMap<>());
+    private final WeakIdentityCache cachedNames = new WeakIdentityCache();
 
     public DataSourceNameResolver(ApplicationContext applicationContext) {
         this.applicationContext = applicationContext;
     }
 
     public String resolveDataSourceName(CommonDataSource dataSource) {
-        String dataSourceName = cachedNames.get(dataSource);
+        String dataSourceName = registeredNames.get().get(dataSource);
+        if (dataSourceName != null) {
+            return dataSourceName;
+        }
+        dataSourceName = cachedNames.get(dataSource);
         if (dataSourceName == null) {
             // even if two threads compute this in parallel result will be the same
-            synchronized (cachedNames) {
-                if (HIKARI_AVAILABLE && dataSource instanceof HikariDataSource) {
-                    HikariDataSource hikariDataSource = (HikariDataSource) dataSource;
-                    if (hikariDataSource.getPoolName() != null && !hikariDataSource.getPoolName().startsWith("HikariPool-")) {
-                        return hikariDataSource.getPoolName();
+            dataSourceName = findDataSourceName(dataSource);
+            cachedNames.put(dataSource, dataSourceName);
+        }
+        return dataSourceName;
+    }
+
+    /**
+     * Registers name of the data source, so it can be resolved without looking up the {@link ApplicationContext}.
+     *
+     * @param beanName name of the data source bean
+     * @param dataSource data source bean or any data source from its decorating chain
+     * @since 1.7.0
+     */
+    public void registerDataSourceName(String beanName, CommonDataSource dataSource) {
+        String poolName = getPoolName(dataSource);
+        String dataSourceName = poolName != null ? poolName : beanName;
+        // names are registered once per decorating stage, mostly at startup, copying keeps lookups free of allocations
+        registeredNames.updateAndGet(names -> {
+            Map<CommonDataSource, String> updatedNames = new IdentityHashMap<>(names);
+            updatedNames.put(dataSource, dataSourceName);
+            return updatedNames;
+        });
+    }
+
+    private String findDataSourceName(CommonDataSource dataSource) {
+        String poolName = getPoolName(dataSource);
+        if (poolName != null) {
+            return poolName;
+        }
+        Map<String, DataSource> dataSources = applicationContext.getBeansOfType(DataSource.class);
+        return dataSources.entrySet()
+                .stream()
+                .filter(entry -> {
+                    DataSource candidate = entry.getValue();
+                    if (candidate instanceof DecoratedDataSource) {
+                        return matchesDataSource((DecoratedDataSource) candidate, dataSource);
                     }
-                }
-                Map<String, DataSource> dataSources = applicationContext.getBeansOfType(DataSource.class);
-                dataSourceName = dataSources.entrySet()
-                        .stream()
-                        .filter(entry -> {
-                            DataSource candidate = entry.getValue();
-                            if (candidate instanceof DecoratedDataSource) {
-                                return matchesDataSource((DecoratedDataSource) candidate, dataSource);
-                            }
-                            return candidate == dataSource;
-                        })
-                        .findFirst()
-                        .map(Entry::getKey)
-                        .orElse("dataSource");
-                cachedNames.put(dataSource, dataSourceName);
+                    return candidate == dataSource;
+                })
+                .findFirst()
+                .map(Entry::getKey)
+                .orElse("dataSource");
+    }
+
+    private String getPoolName(CommonDataSource dataSource) {
+        if (HIKARI_AVAILABLE && dataSource instanceof HikariDataSource) {
+            HikariDataSource hikariDataSource = (HikariDataSource) dataSource;
+            if (hikariDataSource.getPoolName() != null && !hikariDataSource.getPoolName().startsWith("HikariPool-")) {
+                return hikariDataSource.getPoolName();
             }
         }
-        return dataSourceName;
+        return null;
     }
 
     private boolean matchesDataSource(DecoratedDataSource decoratedCandidate, CommonDataSource dataSource) {
-        return decoratedCandidate.getRealDataSource() == dataSource
-                || decoratedCandidate.getDecoratingChain().stream()
-                .map(DataSourceDecorationStage::getDataSource)
-                .anyMatch(candidate -> candidate == dataSource);
+        // decorating chain is not checked, every stage is registered when it's created and checking it
+        // would trigger decorating of lazily decorated data sources
+        return decoratedCandidate.getRealDataSource() == dataSource;
+    }
+
+    /**
+     * Cache of names weakly referencing data sources, so lookups compare data sources with {@code ==} and never
+     * call {@link Object#hashCode()} or {@link Object#equals(Object)} of the data source which might be proxied.
+     * Open addressing table is copied on every insert, which happens once per data source, and lookups don't allocate.
+     * Names of garbage collected data sources are dropped on the next insert.
+     */
+    private static final class WeakIdentityCache {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        private final AtomicReference<NameReference[]> table = new AtomicReference<>(new NameReference[INITIAL_CAPACITY]);
+
+        String get(CommonDataSource dataSource) {
+            NameReference[] references = table.get();
+            int mask = references.length - 1;
+            // table is at most half full, so there is always an empty slot ending the probe
+            for (int i = System.identityHashCode(dataSource) & mask; ; i = (i + 1) & mask) {
+                NameReference reference = references[i];
+                if (reference == null) {
+                    return null;
+                }
+                if (reference.get() == dataSource) {
+                    return reference.name;
+                }
+            }
+        }
+
+        void put(CommonDataSource dataSource, String name) {
+            NameReference added = new NameReference(dataSource, name);
+            table.updateAndGet(references -> {
+                int size = 1;
+                for (NameReference reference : references) {
+                    if (reference != null && reference.get() != null) {
+                        size++;
+                    }
+                }
+                int capacity = INITIAL_CAPACITY;
+                while (capacity < size * 2) {
+                    capacity <<= 1;
+                }
+                NameReference[] updatedReferences = new NameReference[capacity];
+                for (NameReference reference : references) {
+                    CommonDataSource referent = reference != null ? reference.get() : null;
+                    if (referent != null && referent != dataSource) {
+                        insert(updatedReferences, reference);
+                    }
+                }
+                insert(updatedReferences, added);
+                return updatedReferences;
+            });
+        }
+
+        private static void insert(NameReference[] references, NameReference reference) {
+            int mask = references.length - 1;
+            int i = reference.hash & mask;
+            while (references[i] != null) {
+                i = (i + 1) & mask;
+            }
+            references[i] = reference;
+        }
+    }
+
+    private static final class NameReference extends WeakReference<CommonDataSource> {
+        private final int hash;
+        private final String name;
+
+        NameReference(CommonDataSource dataSource, String name) {
+            super(dataSource);
+            this.hash = System.identityHashCode(dataSource);
+            this.name = name;
+        }
     }
 }
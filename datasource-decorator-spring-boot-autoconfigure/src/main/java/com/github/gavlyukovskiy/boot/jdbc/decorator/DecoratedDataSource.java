@@ -23,12 +23,14 @@ import javax.sql.DataSource;
 import java.util.List;
 
 /**
- * Interface that implicitly added to the CGLIB proxy of {@link DataSource}.
+ * Interface that implicitly added to the CGLIB proxy of {@link DataSource}
+ * or implemented by delegating {@link DataSource} if proxying target class is disabled.
  *
  * Returns link of both real {@link DataSource}, decorated {@link DataSource}
  * and all decorating chain including decorator bean name, instance and result of decorating.
  *
  * @see DataSourceDecoratorInterceptor
+ * @see DelegatingDecoratedDataSource
  *
  * @author Arthur Gavlyukovskiy
  * @since 1.2.2
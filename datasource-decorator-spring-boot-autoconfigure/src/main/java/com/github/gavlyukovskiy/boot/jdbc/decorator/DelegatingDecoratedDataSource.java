@@ -0,0 +1,191 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import javax.sql.XADataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * {@link DataSource} that delegates connection acquiring to the decorated {@link DataSource}
+ * and all other methods to the real {@link DataSource}.
+ * <p>
+ * Used instead of CGLIB proxy when {@code decorator.datasource.proxy-target-class} is disabled,
+ * in this case all calls are dispatched directly without any reflection.
+ * <p>
+ * When {@code decorator.datasource.lazy} is enabled decorating chain is built on the first access
+ * to the decorated {@link DataSource}, e.g. on the first connection request.
+ * <p>
+ * Connections acquired while decorating chain is bypassed are acquired directly from the real {@link DataSource}.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class DelegatingDecoratedDataSource extends DelegatingDataSource implements DecoratedDataSource, BypassableDataSource {
+
+    private final String beanName;
+    private final Supplier<Decoration> decorationSupplier;
+    private final Lock decorationLock = new ReentrantLock();
+    private volatile Decoration decoration;
+    private volatile boolean bypassed;
+
+    DelegatingDecoratedDataSource(String beanName, DataSource realDataSource, DataSource decoratedDataSource, List<DataSourceDecorationStage> decoratingChain) {
+        this(beanName, realDataSource, new Decoration(decoratedDataSource, decoratingChain));
+    }
+
+    DelegatingDecoratedDataSource(String beanName, DataSource realDataSource, Decoration decoration) {
+        super(realDataSource);
+        this.beanName = beanName;
+        this.decorationSupplier = null;
+        this.decoration = decoration;
+    }
+
+    DelegatingDecoratedDataSource(String beanName, DataSource realDataSource, Supplier<Decoration> decorationSupplier) {
+        super(realDataSource);
+        this.beanName = beanName;
+        this.decorationSupplier = decorationSupplier;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (bypassed) {
+            return getTargetDataSource().getConnection();
+        }
+        return getDecoration().decoratedDataSource.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (bypassed) {
+            return getTargetDataSource().getConnection(username, password);
+        }
+        return getDecoration().decoratedDataSource.getConnection(username, password);
+    }
+
+    @Override
+    public String getBeanName() {
+        return beanName;
+    }
+
+    @Override
+    public DataSource getRealDataSource() {
+        return getTargetDataSource();
+    }
+
+    @Override
+    public DataSource getDecoratedDataSource() {
+        return getDecoration().decoratedDataSource;
+    }
+
+    @Override
+    public List<DataSourceDecorationStage> getDecoratingChain() {
+        return getDecoration().decoratingChain;
+    }
+
+    @Override
+    public boolean isBypassed() {
+        return bypassed;
+    }
+
+    @Override
+    public void setBypassed(boolean bypassed) {
+        this.bypassed = bypassed;
+    }
+
+    /**
+     * Returns whether decorating chain is already built.
+     *
+     * @return {@code false} if decorating is lazy and no connection was requested yet
+     */
+    boolean isDecorated() {
+        return decoration != null;
+    }
+
+    Decoration getDecoration() {
+        Decoration decoration = this.decoration;
+        if (decoration == null) {
+            // decorators might block (e.g. flexy-pool start), monitor would pin the carrier of a virtual thread
+            decorationLock.lock();
+            try {
+                decoration = this.decoration;
+                if (decoration == null) {
+                    decoration = decorationSupplier.get();
+                    this.decoration = decoration;
+                }
+            }
+            finally {
+                decorationLock.unlock();
+            }
+        }
+        return decoration;
+    }
+
+    @Override
+    public String toString() {
+        Decoration decoration = this.decoration;
+        if (decoration == null) {
+            // toString must not trigger decorating
+            return "not yet decorated -> " + beanName + " [" + getRealDataSource().getClass().getName() + "]";
+        }
+        return decoration.decoratingChain.stream()
+                .map(entry -> entry.getBeanName() + " [" + entry.getDataSource().getClass().getName() + "]")
+                .collect(Collectors.joining(" -> ")) + " -> " + beanName + " [" + getRealDataSource().getClass().getName() + "]";
+    }
+
+    /**
+     * Result of applying all decorators to the real {@link DataSource}.
+     */
+    static final class Decoration {
+
+        private final DataSource decoratedDataSource;
+        private final List<DataSourceDecorationStage> decoratingChain;
+        private final XADataSource decoratedXADataSource;
+
+        Decoration(DataSource decoratedDataSource, List<DataSourceDecorationStage> decoratingChain) {
+            this(decoratedDataSource, decoratingChain, null);
+        }
+
+        Decoration(DataSource decoratedDataSource, List<DataSourceDecorationStage> decoratingChain, XADataSource decoratedXADataSource) {
+            this.decoratedDataSource = decoratedDataSource;
+            this.decoratingChain = Collections.unmodifiableList(decoratingChain);
+            this.decoratedXADataSource = decoratedXADataSource;
+        }
+
+        DataSource getDecoratedDataSource() {
+            return decoratedDataSource;
+        }
+
+        /**
+         * Returns real data source decorated as {@link XADataSource}.
+         *
+         * @return decorated {@link XADataSource} or {@code null} if real data source is not an {@link XADataSource}
+         */
+        XADataSource getDecoratedXADataSource() {
+            return decoratedXADataSource;
+        }
+    }
+}
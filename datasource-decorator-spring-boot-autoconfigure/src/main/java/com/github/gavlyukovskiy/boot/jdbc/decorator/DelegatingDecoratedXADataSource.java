@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator;
+
+import javax.sql.DataSource;
+import javax.sql.XAConnection;
+import javax.sql.XADataSource;
+
+import java.sql.SQLException;
+import java.util.function.Supplier;
+
+/**
+ * {@link DelegatingDecoratedDataSource} of the real data source that implements both {@link DataSource}
+ * and {@link XADataSource}, e.g. H2 or MySQL data sources. XA connections are acquired through
+ * the real data source decorated by {@link DataSourceDecorator#decorateXADataSource(String, XADataSource)}.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class DelegatingDecoratedXADataSource extends DelegatingDecoratedDataSource implements XADataSource {
+
+    DelegatingDecoratedXADataSource(String beanName, DataSource realDataSource, Decoration decoration) {
+        super(beanName, realDataSource, decoration);
+    }
+
+    DelegatingDecoratedXADataSource(String beanName, DataSource realDataSource, Supplier<Decoration> decorationSupplier) {
+        super(beanName, realDataSource, decorationSupplier);
+    }
+
+    @Override
+    public XAConnection getXAConnection() throws SQLException {
+        if (isBypassed()) {
+            return ((XADataSource) getRealDataSource()).getXAConnection();
+        }
+        return getDecoration().getDecoratedXADataSource().getXAConnection();
+    }
+
+    @Override
+    public XAConnection getXAConnection(String user, String password) throws SQLException {
+        if (isBypassed()) {
+            return ((XADataSource) getRealDataSource()).getXAConnection(user, password);
+        }
+        return getDecoration().getDecoratedXADataSource().getXAConnection(user, password);
+    }
+}
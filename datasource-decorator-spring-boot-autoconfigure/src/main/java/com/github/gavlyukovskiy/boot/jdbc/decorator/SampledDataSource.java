@@ -0,0 +1,54 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * {@link DataSource} returned instead of the observing decorator when sampling is enabled, connections
+ * that are not sampled are acquired from the {@link DataSource} the decorator was applied to.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class SampledDataSource extends DelegatingDataSource {
+
+    private final DataSource notObservedDataSource;
+    private final ConnectionSampler connectionSampler;
+
+    SampledDataSource(DataSource observedDataSource, DataSource notObservedDataSource, ConnectionSampler connectionSampler) {
+        super(observedDataSource);
+        this.notObservedDataSource = notObservedDataSource;
+        this.connectionSampler = connectionSampler;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connectionSampler.acquire(super::getConnection, notObservedDataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connectionSampler.acquire(() -> super.getConnection(username, password),
+                () -> notObservedDataSource.getConnection(username, password));
+    }
+}
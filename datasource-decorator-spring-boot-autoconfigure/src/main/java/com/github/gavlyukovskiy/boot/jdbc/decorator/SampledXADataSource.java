@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator;
+
+import javax.sql.XAConnection;
+import javax.sql.XADataSource;
+
+import java.io.PrintWriter;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.logging.Logger;
+
+/**
+ * {@link XADataSource} returned instead of the observing decorator when sampling is enabled, connections
+ * that are not sampled are acquired from the {@link XADataSource} the decorator was applied to.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class SampledXADataSource implements XADataSource {
+
+    private final XADataSource observedDataSource;
+    private final XADataSource notObservedDataSource;
+    private final ConnectionSampler connectionSampler;
+
+    SampledXADataSource(XADataSource observedDataSource, XADataSource notObservedDataSource, ConnectionSampler connectionSampler) {
+        this.observedDataSource = observedDataSource;
+        this.notObservedDataSource = notObservedDataSource;
+        this.connectionSampler = connectionSampler;
+    }
+
+    @Override
+    public XAConnection getXAConnection() throws SQLException {
+        return connectionSampler.acquire(observedDataSource::getXAConnection, notObservedDataSource::getXAConnection);
+    }
+
+    @Override
+    public XAConnection getXAConnection(String user, String password) throws SQLException {
+        return connectionSampler.acquire(() -> observedDataSource.getXAConnection(user, password),
+                () -> notObservedDataSource.getXAConnection(user, password));
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return observedDataSource.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        observedDataSource.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        observedDataSource.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return observedDataSource.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return observedDataSource.getParentLogger();
+    }
+}
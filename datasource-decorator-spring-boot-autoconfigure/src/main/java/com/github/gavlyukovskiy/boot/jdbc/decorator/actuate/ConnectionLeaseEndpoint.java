@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.actuate;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.lease.CallSite;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.lease.ConnectionLeaseProfiler;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.lease.LeaseHistogram;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.lease.LeaseStatistics;
+import lombok.Data;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * {@link Endpoint} exposing connection lease times recorded by {@link ConnectionLeaseProfiler},
+ * call sites are sorted by total lease time.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+@Endpoint(id = "connectionleases")
+public class ConnectionLeaseEndpoint {
+
+    private final ConnectionLeaseProfiler connectionLeaseProfiler;
+
+    public ConnectionLeaseEndpoint(ConnectionLeaseProfiler connectionLeaseProfiler) {
+        this.connectionLeaseProfiler = connectionLeaseProfiler;
+    }
+
+    @ReadOperation
+    public ConnectionLeasesDescriptor leases() {
+        Map<String, LeaseStatisticsDescriptor> dataSources = new LinkedHashMap<>();
+        new TreeMap<>(connectionLeaseProfiler.getDataSourceStatistics())
+                .forEach((dataSourceName, statistics) -> dataSources.put(dataSourceName, describe(statistics)));
+        List<CallSiteDescriptor> callSites = connectionLeaseProfiler.getCallSites().stream()
+                .sorted(Comparator.comparingLong((CallSite callSite) -> callSite.getStatistics().getHistogram().getTotalTimeNanos()).reversed())
+                .map(ConnectionLeaseEndpoint::describe)
+                .collect(Collectors.toList());
+        List<CallSiteDescriptor> openLeaks = connectionLeaseProfiler.getOpenLeaks().stream()
+                .map(ConnectionLeaseEndpoint::describe)
+                .collect(Collectors.toList());
+        return new ConnectionLeasesDescriptor(dataSources, callSites, openLeaks, connectionLeaseProfiler.getOpenLeakCounts());
+    }
+
+    private static CallSiteDescriptor describe(CallSite callSite) {
+        return new CallSiteDescriptor(callSite.getLocation(), callSite.getStackTrace(), describe(callSite.getStatistics()));
+    }
+
+    private static LeaseStatisticsDescriptor describe(LeaseStatistics statistics) {
+        LeaseHistogram histogram = statistics.getHistogram();
+        return new LeaseStatisticsDescriptor(histogram.getCount(), statistics.getLeaks(),
+                toMillis(histogram.getTotalTimeNanos()), toMillis(histogram.getMeanTimeNanos()),
+                toMillis(histogram.getPercentileNanos(0.5)), toMillis(histogram.getPercentileNanos(0.99)),
+                toMillis(histogram.getMaxTimeNanos()));
+    }
+
+    private static double toMillis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Lease times of all profiled data sources and sampled call sites.
+     */
+    @Data
+    public static class ConnectionLeasesDescriptor {
+        /**
+         * Lease statistics by data source name.
+         */
+        private final Map<String, LeaseStatisticsDescriptor> dataSources;
+        /**
+         * Sampled call sites sorted by total lease time.
+         */
+        private final List<CallSiteDescriptor> callSites;
+        /**
+         * Call sites of sampled connections that are held longer than the leak threshold.
+         */
+        private final List<CallSiteDescriptor> openLeaks;
+        /**
+         * Number of connections of every data source, sampled or not, that are held longer than the leak threshold.
+         */
+        private final Map<String, Long> openLeakCounts;
+    }
+
+    /**
+     * Code that acquired connections.
+     */
+    @Data
+    public static class CallSiteDescriptor {
+        /**
+         * First stack frame outside of JDK, JDBC and data access frameworks.
+         */
+        private final String location;
+        /**
+         * Stack frames starting from the location.
+         */
+        private final List<String> stackTrace;
+        /**
+         * Lease statistics of connections acquired at the location.
+         */
+        private final LeaseStatisticsDescriptor statistics;
+    }
+
+    /**
+     * Lease time statistics, percentiles are accurate within factor of two.
+     */
+    @Data
+    public static class LeaseStatisticsDescriptor {
+        /**
+         * Number of closed leases.
+         */
+        private final long count;
+        /**
+         * Number of leases longer than the leak threshold.
+         */
+        private final long leaks;
+        /**
+         * Total lease time in milliseconds.
+         */
+        private final double totalTime;
+        /**
+         * Mean lease time in milliseconds.
+         */
+        private final double meanTime;
+        /**
+         * Median lease time in milliseconds.
+         */
+        private final double medianTime;
+        /**
+         * 99th percentile of lease time in milliseconds.
+         */
+        private final double p99Time;
+        /**
+         * Max lease time in milliseconds.
+         */
+        private final double maxTime;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.actuate;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.BypassableDataSource;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DecoratedDataSource;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+
+import javax.sql.DataSource;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * {@link Endpoint} exposing decorated {@link DataSource} beans, allows to bypass decorating chain at runtime
+ * of data sources implementing {@link BypassableDataSource}.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+@Endpoint(id = "datasourcedecorator")
+public class DataSourceDecoratorEndpoint {
+
+    private static final Logger log = getLogger(DataSourceDecoratorEndpoint.class);
+
+    private final Map<String, DecoratedDataSource> decoratedDataSources = new LinkedHashMap<>();
+
+    public DataSourceDecoratorEndpoint(Map<String, DataSource> dataSources) {
+        dataSources.forEach((beanName, dataSource) -> {
+            if (dataSource instanceof DecoratedDataSource) {
+                decoratedDataSources.put(beanName, (DecoratedDataSource) dataSource);
+            }
+        });
+    }
+
+    @ReadOperation
+    public Map<String, DecoratedDataSourceDescriptor> decoratedDataSources() {
+        Map<String, DecoratedDataSourceDescriptor> descriptors = new LinkedHashMap<>();
+        decoratedDataSources.forEach((beanName, dataSource) -> descriptors.put(beanName, describe(dataSource)));
+        return descriptors;
+    }
+
+    @ReadOperation
+    @Nullable
+    public DecoratedDataSourceDescriptor decoratedDataSource(@Selector String name) {
+        DecoratedDataSource dataSource = decoratedDataSources.get(name);
+        return dataSource != null ? describe(dataSource) : null;
+    }
+
+    @WriteOperation
+    @Nullable
+    public DecoratedDataSourceDescriptor bypass(@Selector String name, boolean bypassed) {
+        DecoratedDataSource dataSource = decoratedDataSources.get(name);
+        if (!(dataSource instanceof BypassableDataSource)) {
+            return null;
+        }
+        log.info("{} decorating chain of data source '{}'",
+                bypassed ? "Bypassing" : "Restoring", name);
+        ((BypassableDataSource) dataSource).setBypassed(bypassed);
+        return describe(dataSource);
+    }
+
+    private DecoratedDataSourceDescriptor describe(DecoratedDataSource dataSource) {
+        // toString doesn't trigger decorating of lazily decorated data source
+        boolean bypassed = dataSource instanceof BypassableDataSource && ((BypassableDataSource) dataSource).isBypassed();
+        return new DecoratedDataSourceDescriptor(bypassed, dataSource.toString());
+    }
+
+    /**
+     * Description of a decorated {@link DataSource}.
+     */
+    @Data
+    public static class DecoratedDataSourceDescriptor {
+        /**
+         * Whether connections are acquired directly from the real data source.
+         */
+        private final boolean bypassed;
+        /**
+         * Decorating chain of the data source.
+         */
+        private final String decoratingChain;
+    }
+}
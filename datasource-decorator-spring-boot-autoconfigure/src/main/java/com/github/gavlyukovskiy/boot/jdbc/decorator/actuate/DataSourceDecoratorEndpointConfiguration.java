@@ -0,0 +1,63 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.actuate;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.lease.ConnectionLeaseProfiler;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.statistics.SqlStatistics;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+
+import java.util.Map;
+
+/**
+ * Configuration of {@link DataSourceDecoratorEndpoint}, {@link SqlStatisticsEndpoint} and {@link ConnectionLeaseEndpoint}.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+@ConditionalOnClass(Endpoint.class)
+public class DataSourceDecoratorEndpointConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnAvailableEndpoint
+    public DataSourceDecoratorEndpoint dataSourceDecoratorEndpoint(Map<String, DataSource> dataSources) {
+        return new DataSourceDecoratorEndpoint(dataSources);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(SqlStatistics.class)
+    @ConditionalOnAvailableEndpoint
+    public SqlStatisticsEndpoint sqlStatisticsEndpoint(SqlStatistics sqlStatistics) {
+        return new SqlStatisticsEndpoint(sqlStatistics);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnBean(ConnectionLeaseProfiler.class)
+    @ConditionalOnAvailableEndpoint
+    public ConnectionLeaseEndpoint connectionLeaseEndpoint(ConnectionLeaseProfiler connectionLeaseProfiler) {
+        return new ConnectionLeaseEndpoint(connectionLeaseProfiler);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.actuate;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.statistics.SqlStatementStatistics;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.statistics.SqlStatistics;
+import lombok.Data;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * {@link Endpoint} exposing {@link SqlStatistics} of every data source, statements are sorted by total execution time.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+@Endpoint(id = "sqlstatistics")
+public class SqlStatisticsEndpoint {
+
+    private final SqlStatistics sqlStatistics;
+
+    public SqlStatisticsEndpoint(SqlStatistics sqlStatistics) {
+        this.sqlStatistics = sqlStatistics;
+    }
+
+    @ReadOperation
+    public Map<String, List<SqlStatementDescriptor>> statistics() {
+        Map<String, List<SqlStatementDescriptor>> descriptors = new LinkedHashMap<>();
+        sqlStatistics.getStatistics().forEach((dataSourceName, statistics) -> descriptors.put(dataSourceName, describe(statistics)));
+        return descriptors;
+    }
+
+    @ReadOperation
+    @Nullable
+    public List<SqlStatementDescriptor> dataSourceStatistics(@Selector String name) {
+        List<SqlStatementStatistics> statistics = sqlStatistics.getStatistics().get(name);
+        return statistics != null ? describe(statistics) : null;
+    }
+
+    @DeleteOperation
+    public void reset() {
+        sqlStatistics.reset();
+    }
+
+    private static List<SqlStatementDescriptor> describe(List<SqlStatementStatistics> statistics) {
+        return statistics.stream()
+                .map(statement -> new SqlStatementDescriptor(statement.getFingerprint(), statement.getCalls(),
+                        statement.getCallsError(), statement.getFailures(), toMillis(statement.getTotalTimeNanos()),
+                        toMillis(statement.getMeanTimeNanos()), toMillis(statement.getMaxTimeNanos()), statement.getRows()))
+                .collect(Collectors.toList());
+    }
+
+    private static double toMillis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Execution statistics of a normalized SQL statement.
+     */
+    @Data
+    public static class SqlStatementDescriptor {
+        /**
+         * SQL with literals replaced by placeholders.
+         */
+        private final String fingerprint;
+        /**
+         * Number of calls since the statement was added to the statistics.
+         */
+        private final long calls;
+        /**
+         * Maximum number of calls that were not counted before the statement was added to the statistics.
+         */
+        private final long callsError;
+        /**
+         * Number of failed calls.
+         */
+        private final long failures;
+        /**
+         * Total execution time in milliseconds.
+         */
+        private final double totalTime;
+        /**
+         * Mean execution time in milliseconds.
+         */
+        private final double meanTime;
+        /**
+         * Max execution time in milliseconds.
+         */
+        private final double maxTime;
+        /**
+         * Number of fetched and updated rows.
+         */
+        private final long rows;
+    }
+}
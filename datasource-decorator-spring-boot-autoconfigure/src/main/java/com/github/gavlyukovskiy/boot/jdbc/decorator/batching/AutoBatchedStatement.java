@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.batching;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * {@link PreparedStatement} that defers single-row inserts into a batch, obtained via
+ * {@link PreparedStatement#unwrap(Class)}.
+ * <p>
+ * Deferred {@link PreparedStatement#executeUpdate()} returns {@code 1}, the update count of a successful single-row
+ * insert, actual update counts reported by the driver are available after the batch is executed.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public interface AutoBatchedStatement {
+
+    /**
+     * Returns the number of rows deferred into the batch that is not executed yet.
+     *
+     * @return number of deferred rows
+     */
+    int getPendingRows();
+
+    /**
+     * Returns update counts of the last executed batch, one per deferred row in the order of execution. Counts may be
+     * {@link java.sql.Statement#SUCCESS_NO_INFO} if the driver doesn't report them. When the batch failed, these are
+     * the counts reported by {@link java.sql.BatchUpdateException#getUpdateCounts()}.
+     *
+     * @return update counts of the last batch or empty array if no batch was executed yet
+     */
+    int[] getLastUpdateCounts();
+
+    /**
+     * Executes deferred rows of this statement.
+     *
+     * @throws SQLException if the batch failed
+     */
+    void flush() throws SQLException;
+}
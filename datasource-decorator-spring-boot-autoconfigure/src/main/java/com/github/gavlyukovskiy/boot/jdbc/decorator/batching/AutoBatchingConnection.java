@@ -0,0 +1,243 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.batching;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.support.DelegatingConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.concurrent.Executor;
+import java.util.regex.Pattern;
+
+/**
+ * {@link Connection} that defers single-row inserts of its prepared statements into batches while
+ * the connection is not in auto-commit mode.
+ * <p>
+ * Only consecutive executions of the same statement are batched: the first row is executed immediately and only
+ * the following rows are deferred, so a statement executed once and closed never defers its row.
+ * <p>
+ * Only one statement has deferred rows at a time, so statements are executed in the same order they were called:
+ * deferred rows are executed before any other statement of this connection is executed, before commit, savepoint,
+ * switching to auto-commit and closing, and when the batch reaches the maximum size. Rollback discards deferred
+ * rows without executing them. Errors of deferred rows are thrown from the call that executed the batch. As errors
+ * of {@link java.sql.Statement#close()} are commonly swallowed, an error of rows executed on closing a statement is
+ * thrown again on commit until the transaction is rolled back.
+ * <p>
+ * Statements prepared with generated keys are never batched, as keys of every row are expected right after the
+ * insert.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class AutoBatchingConnection extends DelegatingConnection {
+
+    private static final Pattern SINGLE_ROW_INSERT = Pattern.compile(
+            "\\s*insert\\s+into\\s.*\\svalues\\s*\\([^()]*(?:\\([^()]*\\)[^()]*)*\\)\\s*;?\\s*",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern QUERY = Pattern.compile("\\b(?:select|returning)\\b", Pattern.CASE_INSENSITIVE);
+
+    private final int maxBatchSize;
+    private Boolean autoCommit;
+    private AutoBatchingPreparedStatement pending;
+    private AutoBatchingPreparedStatement lastExecuted;
+    private SQLException closeFailure;
+
+    AutoBatchingConnection(Connection delegate, int maxBatchSize) {
+        super(delegate);
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    static boolean isSingleRowInsert(String sql) {
+        return SINGLE_ROW_INSERT.matcher(sql).matches() && !QUERY.matcher(sql).find();
+    }
+
+    @Override
+    protected PreparedStatement wrapPreparedStatement(PreparedStatement statement, String sql) {
+        if (isSingleRowInsert(sql)) {
+            return new AutoBatchingPreparedStatement(this, statement, sql, maxBatchSize);
+        }
+        return super.wrapPreparedStatement(statement, sql);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        return super.wrapPreparedStatement(delegate.prepareStatement(sql, autoGeneratedKeys), sql);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        return super.wrapPreparedStatement(delegate.prepareStatement(sql, columnIndexes), sql);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+        return super.wrapPreparedStatement(delegate.prepareStatement(sql, columnNames), sql);
+    }
+
+    @Override
+    protected long beforeExecute(String sql) throws SQLException {
+        lastExecuted = null;
+        flush();
+        return 0;
+    }
+
+    /**
+     * Makes the statement the one with deferred rows, executing deferred rows of the previous statement.
+     *
+     * @return {@code false} if the row must be executed immediately
+     */
+    boolean defer(AutoBatchingPreparedStatement statement) throws SQLException {
+        if (isAutoCommit()) {
+            return false;
+        }
+        if (pending != statement && lastExecuted != statement) {
+            // the first row of a run is executed, batching pays off only from the second one
+            return false;
+        }
+        if (pending != statement) {
+            flush();
+            pending = statement;
+        }
+        return true;
+    }
+
+    /**
+     * Notifies that the row of the statement was executed immediately, so the next row of the statement is deferred.
+     */
+    void executed(AutoBatchingPreparedStatement statement) {
+        lastExecuted = statement;
+    }
+
+    /**
+     * Remembers the error of rows executed on closing the statement to throw it again on commit.
+     */
+    void closeFailed(SQLException error) {
+        if (closeFailure == null) {
+            closeFailure = error;
+        }
+    }
+
+    private void checkCloseFailure() throws SQLException {
+        SQLException error = closeFailure;
+        if (error != null) {
+            throw new SQLException("Deferred rows executed on closing a statement failed, transaction must be rolled back",
+                    error.getSQLState(), error.getErrorCode(), error);
+        }
+    }
+
+    void flush() throws SQLException {
+        AutoBatchingPreparedStatement statement = pending;
+        if (statement != null) {
+            pending = null;
+            statement.executePending();
+        }
+    }
+
+    private void discard() throws SQLException {
+        AutoBatchingPreparedStatement statement = pending;
+        if (statement != null) {
+            pending = null;
+            statement.discardPending();
+        }
+    }
+
+    private boolean isAutoCommit() throws SQLException {
+        if (autoCommit == null) {
+            autoCommit = delegate.getAutoCommit();
+        }
+        return autoCommit;
+    }
+
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        flush();
+        if (autoCommit && !isAutoCommit()) {
+            // enabling auto-commit commits the transaction
+            checkCloseFailure();
+        }
+        lastExecuted = null;
+        this.autoCommit = null;
+        delegate.setAutoCommit(autoCommit);
+        this.autoCommit = autoCommit;
+    }
+
+    @Override
+    public void commit() throws SQLException {
+        flush();
+        checkCloseFailure();
+        lastExecuted = null;
+        delegate.commit();
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+        lastExecuted = null;
+        closeFailure = null;
+        try {
+            discard();
+        }
+        finally {
+            delegate.rollback();
+        }
+    }
+
+    @Override
+    public Savepoint setSavepoint() throws SQLException {
+        flush();
+        return delegate.setSavepoint();
+    }
+
+    @Override
+    public Savepoint setSavepoint(String name) throws SQLException {
+        flush();
+        return delegate.setSavepoint(name);
+    }
+
+    @Override
+    public void rollback(Savepoint savepoint) throws SQLException {
+        // savepoints are set only after deferred rows are executed, so deferred rows are always rolled back
+        lastExecuted = null;
+        try {
+            discard();
+        }
+        finally {
+            delegate.rollback(savepoint);
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        lastExecuted = null;
+        closeFailure = null;
+        try {
+            flush();
+        }
+        finally {
+            delegate.close();
+        }
+    }
+
+    @Override
+    public void abort(Executor executor) throws SQLException {
+        pending = null;
+        lastExecuted = null;
+        closeFailure = null;
+        delegate.abort(executor);
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.batching;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * {@link DataSource} that returns {@link AutoBatchingConnection}s.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class AutoBatchingDataSource extends DelegatingDataSource {
+
+    private final int maxBatchSize;
+
+    AutoBatchingDataSource(DataSource dataSource, int maxBatchSize) {
+        super(dataSource);
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return new AutoBatchingConnection(obtainTargetDataSource().getConnection(), maxBatchSize);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return new AutoBatchingConnection(obtainTargetDataSource().getConnection(username, password), maxBatchSize);
+    }
+
+    @Override
+    public String toString() {
+        return "AutoBatchingDataSource [" + getTargetDataSource() + "]";
+    }
+}
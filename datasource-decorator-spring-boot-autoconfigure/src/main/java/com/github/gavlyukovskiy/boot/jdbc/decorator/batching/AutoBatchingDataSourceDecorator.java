@@ -0,0 +1,50 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.batching;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecorator;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+/**
+ * {@link Ordered} decorator that batches consecutive single-row inserts executed by the same statement.
+ * <p>
+ * Applied after logging decorators, query budgets and result cache, so they observe the batch as it is
+ * executed by the database rather than every deferred row.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class AutoBatchingDataSourceDecorator implements DataSourceDecorator, Ordered {
+
+    private final AutoBatchingProperties autoBatchingProperties;
+
+    public AutoBatchingDataSourceDecorator(AutoBatchingProperties autoBatchingProperties) {
+        this.autoBatchingProperties = autoBatchingProperties;
+    }
+
+    @Override
+    public DataSource decorate(String beanName, DataSource dataSource) {
+        return new AutoBatchingDataSource(dataSource, autoBatchingProperties.getMaxBatchSize());
+    }
+
+    @Override
+    public int getOrder() {
+        return 39;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.batching;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.support.DelegatingPreparedStatement;
+
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * {@link PreparedStatement} of a single-row insert that adds rows to the batch instead of executing them,
+ * the batch is executed by {@link AutoBatchingConnection}.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class AutoBatchingPreparedStatement extends DelegatingPreparedStatement<PreparedStatement> implements AutoBatchedStatement {
+
+    private static final int[] NO_UPDATE_COUNTS = new int[0];
+
+    private final AutoBatchingConnection batchingConnection;
+    private final int maxBatchSize;
+    private int pendingRows;
+    private int[] lastUpdateCounts = NO_UPDATE_COUNTS;
+
+    AutoBatchingPreparedStatement(AutoBatchingConnection connection, PreparedStatement delegate, String sql, int maxBatchSize) {
+        super(connection, delegate, sql);
+        this.batchingConnection = connection;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public int executeUpdate() throws SQLException {
+        if (!batchingConnection.defer(this)) {
+            int updateCount = super.executeUpdate();
+            batchingConnection.executed(this);
+            return updateCount;
+        }
+        addPendingRow();
+        return 1;
+    }
+
+    @Override
+    public long executeLargeUpdate() throws SQLException {
+        if (!batchingConnection.defer(this)) {
+            long updateCount = super.executeLargeUpdate();
+            batchingConnection.executed(this);
+            return updateCount;
+        }
+        addPendingRow();
+        return 1;
+    }
+
+    private void addPendingRow() throws SQLException {
+        delegate.addBatch();
+        pendingRows++;
+        if (pendingRows >= maxBatchSize) {
+            batchingConnection.flush();
+        }
+    }
+
+    void executePending() throws SQLException {
+        if (pendingRows == 0) {
+            return;
+        }
+        pendingRows = 0;
+        try {
+            lastUpdateCounts = delegate.executeBatch();
+        }
+        catch (BatchUpdateException e) {
+            lastUpdateCounts = e.getUpdateCounts() != null ? e.getUpdateCounts() : NO_UPDATE_COUNTS;
+            throw e;
+        }
+    }
+
+    void discardPending() throws SQLException {
+        if (pendingRows == 0) {
+            return;
+        }
+        pendingRows = 0;
+        delegate.clearBatch();
+    }
+
+    @Override
+    public int getPendingRows() {
+        return pendingRows;
+    }
+
+    @Override
+    public int[] getLastUpdateCounts() {
+        return lastUpdateCounts.clone();
+    }
+
+    @Override
+    public void flush() throws SQLException {
+        if (pendingRows > 0) {
+            batchingConnection.flush();
+        }
+    }
+
+    @Override
+    public void addBatch() throws SQLException {
+        // rows added by the caller are executed in a separate batch with its own update counts
+        flush();
+        super.addBatch();
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        flush();
+        super.clearBatch();
+    }
+
+    @Override
+    public ResultSet getGeneratedKeys() throws SQLException {
+        flush();
+        return super.getGeneratedKeys();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            flush();
+        }
+        catch (SQLException e) {
+            batchingConnection.closeFailed(e);
+            throw e;
+        }
+        finally {
+            super.close();
+        }
+    }
+}
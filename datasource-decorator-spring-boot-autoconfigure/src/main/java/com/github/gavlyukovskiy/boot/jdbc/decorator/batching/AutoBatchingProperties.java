@@ -0,0 +1,40 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.batching;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Properties for automatic batching of single-row inserts.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+@Getter
+@Setter
+public class AutoBatchingProperties {
+
+    /**
+     * Enables batching of consecutive single-row inserts executed by the same statement within a transaction.
+     */
+    private boolean enabled = false;
+    /**
+     * Maximum number of deferred rows, the batch is executed once it is reached.
+     */
+    private int maxBatchSize = 100;
+}
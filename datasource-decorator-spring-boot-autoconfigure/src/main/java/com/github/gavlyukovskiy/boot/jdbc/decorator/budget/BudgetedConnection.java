@@ -0,0 +1,47 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.budget;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.support.DelegatingConnection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * {@link Connection} that reports every executed statement to {@link QueryBudgetTracker} before execution.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class BudgetedConnection extends DelegatingConnection {
+
+    private final QueryBudgetTracker tracker;
+    private final String dataSourceName;
+
+    BudgetedConnection(Connection delegate, QueryBudgetTracker tracker, String dataSourceName) {
+        super(delegate);
+        this.tracker = tracker;
+        this.dataSourceName = dataSourceName;
+    }
+
+    @Override
+    protected long beforeExecute(String sql) throws SQLException {
+        tracker.beforeQuery(dataSourceName, sql);
+        return 0L;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.budget;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecorator;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+/**
+ * {@link Ordered} decorator that checks every statement against the budget of the current unit of work.
+ * <p>
+ * Applied after p6spy, so queries rejected by {@link QueryBudgetExceededException} are not sent to other decorators.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class QueryBudgetDataSourceDecorator implements DataSourceDecorator, Ordered {
+
+    private final QueryBudgetTracker tracker;
+
+    public QueryBudgetDataSourceDecorator(QueryBudgetTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    @Override
+    public DataSource decorate(String beanName, DataSource dataSource) {
+        return new BudgetedDataSource(dataSource, tracker, beanName);
+    }
+
+    @Override
+    public int getOrder() {
+        return 35;
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.budget;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown before executing a query that exceeds the budget of the current unit of work
+ * when {@code decorator.datasource.query-budget.fail-fast} is enabled.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class QueryBudgetExceededException extends SQLException {
+
+    private final transient UnitOfWork unitOfWork;
+
+    QueryBudgetExceededException(String reason, UnitOfWork unitOfWork) {
+        super(reason);
+        this.unitOfWork = unitOfWork;
+    }
+
+    public UnitOfWork getUnitOfWork() {
+        return unitOfWork;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.budget;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Properties for query budgets of units of work.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+@Getter
+@Setter
+public class QueryBudgetProperties {
+
+    /**
+     * Enables counting of queries executed within units of work.
+     */
+    private boolean enabled = false;
+    /**
+     * Maximum number of queries executed within one unit of work, 0 means no limit.
+     */
+    private int maxQueries = 100;
+    /**
+     * Maximum number of executions of the same normalized statement within one unit of work,
+     * exceeding it usually means N+1 query problem, 0 means no limit.
+     */
+    private int maxRepeatedStatements = 10;
+    /**
+     * Fail queries exceeding the budget with {@link QueryBudgetExceededException} instead of logging a warning.
+     */
+    private boolean failFast = false;
+    /**
+     * Maximum number of SQL strings with cached fingerprints.
+     */
+    private int fingerprintCacheSize = 10000;
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.budget;
+
+/**
+ * Handle of a unit of work started by {@link QueryBudgetTracker#begin(String)}, closing it ends the unit of work.
+ * <p>
+ * When a unit of work is already active on the thread, the new scope joins it and closing the scope keeps it active.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class QueryBudgetScope implements AutoCloseable {
+
+    private final ThreadLocal<UnitOfWork> currentUnitOfWork;
+    private final UnitOfWork unitOfWork;
+    private final boolean owner;
+
+    QueryBudgetScope(ThreadLocal<UnitOfWork> currentUnitOfWork, UnitOfWork unitOfWork, boolean owner) {
+        this.currentUnitOfWork = currentUnitOfWork;
+        this.unitOfWork = unitOfWork;
+        this.owner = owner;
+    }
+
+    public UnitOfWork getUnitOfWork() {
+        return unitOfWork;
+    }
+
+    @Override
+    public void close() {
+        if (owner) {
+            currentUnitOfWork.remove();
+        }
+    }
+}
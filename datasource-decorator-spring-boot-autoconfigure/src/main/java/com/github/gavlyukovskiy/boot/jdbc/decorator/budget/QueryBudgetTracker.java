@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.budget;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.statistics.SqlFingerprinter;
+import org.slf4j.Logger;
+import org.springframework.lang.Nullable;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Counts queries executed within the {@link UnitOfWork} of the current thread and detects N+1 query problems,
+ * i.e. the same normalized statement executed too many times within one unit of work.
+ * <p>
+ * Queries executed outside of a unit of work are not counted. Example of usage in a web filter:
+ * <pre>
+ * try (QueryBudgetScope scope = queryBudgetTracker.begin(request.getRequestURI())) {
+ *     chain.doFilter(request, response);
+ * }
+ * </pre>
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class QueryBudgetTracker {
+
+    private static final Logger log = getLogger(QueryBudgetTracker.class);
+
+    private final ThreadLocal<UnitOfWork> currentUnitOfWork = new ThreadLocal<>();
+    private final SqlFingerprinter sqlFingerprinter;
+    private final int maxQueries;
+    private final int maxRepeatedStatements;
+    private final boolean failFast;
+
+    public QueryBudgetTracker(SqlFingerprinter sqlFingerprinter, QueryBudgetProperties properties) {
+        this.sqlFingerprinter = sqlFingerprinter;
+        this.maxQueries = properties.getMaxQueries();
+        this.maxRepeatedStatements = properties.getMaxRepeatedStatements();
+        this.failFast = properties.isFailFast();
+    }
+
+    /**
+     * Starts unit of work on the current thread or joins the active one.
+     *
+     * @param name name of the unit of work used in warnings, e.g. request URI
+     * @return scope that must be closed at the end of the unit of work
+     */
+    public QueryBudgetScope begin(String name) {
+        UnitOfWork unitOfWork = currentUnitOfWork.get();
+        if (unitOfWork != null) {
+            return new QueryBudgetScope(currentUnitOfWork, unitOfWork, false);
+        }
+        unitOfWork = new UnitOfWork(name);
+        currentUnitOfWork.set(unitOfWork);
+        return new QueryBudgetScope(currentUnitOfWork, unitOfWork, true);
+    }
+
+    /**
+     * Returns unit of work of the current thread.
+     *
+     * @return current unit of work or {@code null} if there is no active unit of work
+     */
+    @Nullable
+    public UnitOfWork getCurrentUnitOfWork() {
+        return currentUnitOfWork.get();
+    }
+
+    void beforeQuery(String dataSourceName, @Nullable String sql) throws QueryBudgetExceededException {
+        UnitOfWork unitOfWork = currentUnitOfWork.get();
+        if (unitOfWork == null) {
+            return;
+        }
+        int queries = unitOfWork.incrementQueries();
+        if (maxQueries > 0 && queries > maxQueries) {
+            String reason = "Unit of work '" + unitOfWork + "' executed " + queries + " queries on data source '"
+                    + dataSourceName + "', budget is " + maxQueries;
+            if (failFast) {
+                throw new QueryBudgetExceededException(reason, unitOfWork);
+            }
+            if (queries == maxQueries + 1) {
+                log.warn(reason);
+            }
+        }
+        // statements executed as batch have no single sql
+        if (maxRepeatedStatements > 0 && sql != null) {
+            String fingerprint = sqlFingerprinter.fingerprint(sql);
+            int executions = unitOfWork.incrementStatement(fingerprint);
+            if (executions > maxRepeatedStatements) {
+                boolean firstTime = unitOfWork.markRepeated(fingerprint);
+                String reason = "Unit of work '" + unitOfWork + "' executed statement " + executions + " times on data source '"
+                        + dataSourceName + "', possible N+1 query problem: " + fingerprint;
+                if (failFast) {
+                    throw new QueryBudgetExceededException(reason, unitOfWork);
+                }
+                if (firstTime) {
+                    log.warn(reason);
+                }
+            }
+        }
+    }
+}
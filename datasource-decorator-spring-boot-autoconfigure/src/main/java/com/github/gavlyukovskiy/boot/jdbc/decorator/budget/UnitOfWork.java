@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.budget;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Queries executed within a unit of work, such as a web request or a message handler.
+ * <p>
+ * Unit of work is bound to the thread that started it, counters are plain fields without any synchronization.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ * @see QueryBudgetTracker#begin(String)
+ */
+public class UnitOfWork {
+
+    private final String name;
+    private final Map<String, Counter> statementCounts = new HashMap<>();
+    private final Set<String> repeatedStatements = new HashSet<>();
+    private int queries;
+
+    UnitOfWork(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns number of queries executed within this unit of work.
+     *
+     * @return number of queries
+     */
+    public int getQueries() {
+        return queries;
+    }
+
+    /**
+     * Returns number of executions of each normalized statement.
+     *
+     * @return number of executions by statement fingerprint
+     */
+    public Map<String, Integer> getStatementCounts() {
+        Map<String, Integer> counts = new HashMap<>();
+        statementCounts.forEach((fingerprint, counter) -> counts.put(fingerprint, counter.value));
+        return counts;
+    }
+
+    /**
+     * Returns normalized statements executed more times than allowed.
+     *
+     * @return fingerprints of repeated statements
+     */
+    public Set<String> getRepeatedStatements() {
+        return Collections.unmodifiableSet(repeatedStatements);
+    }
+
+    int incrementQueries() {
+        return ++queries;
+    }
+
+    int incrementStatement(String fingerprint) {
+        return ++statementCounts.computeIfAbsent(fingerprint, f -> new Counter()).value;
+    }
+
+    boolean markRepeated(String fingerprint) {
+        return repeatedStatements.add(fingerprint);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private static class Counter {
+        private int value;
+    }
+}
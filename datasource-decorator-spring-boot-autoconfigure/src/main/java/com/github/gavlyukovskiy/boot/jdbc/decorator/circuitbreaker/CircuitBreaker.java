@@ -0,0 +1,233 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.circuitbreaker;
+
+import org.slf4j.Logger;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Circuit breaker of a data source that stops connection acquisition and statement execution once the rate of failed
+ * or slow calls in the sliding window reaches the threshold.
+ * <p>
+ * State is kept in an immutable holder replaced with CAS, so checking permission doesn't take locks. After the wait
+ * duration the circuit becomes half-open and permits a limited number of trial calls, which decide whether it closes
+ * or opens again. Every transition is published as {@link CircuitBreakerStateTransitionEvent}.
+ * <p>
+ * Permission is the state holder it was granted under, so results of calls that complete after a transition
+ * are ignored instead of being counted towards the new state.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class CircuitBreaker {
+
+    private static final Logger log = getLogger(CircuitBreaker.class);
+
+    private final String dataSourceName;
+    private final CircuitBreakerProperties circuitBreakerProperties;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final long slowCallDurationNanos;
+    private final AtomicReference<StateHolder> state;
+
+    public CircuitBreaker(String dataSourceName, CircuitBreakerProperties circuitBreakerProperties,
+            ApplicationEventPublisher applicationEventPublisher) {
+        this.dataSourceName = dataSourceName;
+        this.circuitBreakerProperties = circuitBreakerProperties;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.slowCallDurationNanos = circuitBreakerProperties.getSlowCallDurationThreshold().toNanos();
+        this.state = new AtomicReference<>(new Closed(circuitBreakerProperties.getSlidingWindow().toNanos()));
+    }
+
+    public String getDataSourceName() {
+        return dataSourceName;
+    }
+
+    public State getState() {
+        return state.get().state;
+    }
+
+    /**
+     * Checks whether a call is permitted, every permitted call must be followed by
+     * {@link #onResult(Permission, long, boolean)}.
+     *
+     * @return permission of the call, or {@code null} if call is not permitted
+     */
+    public Permission tryAcquirePermission() {
+        while (true) {
+            StateHolder current = state.get();
+            if (current instanceof Closed) {
+                return current;
+            }
+            if (current instanceof Open) {
+                if (System.nanoTime() - ((Open) current).openUntilNanos < 0) {
+                    return null;
+                }
+                transition(current, new HalfOpen());
+            }
+            else {
+                HalfOpen halfOpen = (HalfOpen) current;
+                boolean permitted = halfOpen.permits.getAndIncrement() < circuitBreakerProperties.getPermittedCallsInHalfOpenState();
+                return permitted ? current : null;
+            }
+        }
+    }
+
+    /**
+     * Records result of a permitted call, ignored if the state has changed since the permission was granted.
+     *
+     * @param permission    permission returned by {@link #tryAcquirePermission()}
+     * @param durationNanos duration of the call
+     * @param failure       whether the call failed
+     */
+    public void onResult(Permission permission, long durationNanos, boolean failure) {
+        StateHolder current = state.get();
+        if (permission != current) {
+            return;
+        }
+        boolean slow = durationNanos >= slowCallDurationNanos;
+        if (current instanceof Closed) {
+            SlidingWindow window = ((Closed) current).window;
+            window.record(failure, slow);
+            if (failure || slow) {
+                long[] snapshot = window.snapshot();
+                if (snapshot[0] >= circuitBreakerProperties.getMinimumNumberOfCalls()
+                        && exceedsThresholds(snapshot[0], snapshot[1], snapshot[2])) {
+                    transition(current, new Open());
+                }
+            }
+        }
+        else if (current instanceof HalfOpen) {
+            HalfOpen halfOpen = (HalfOpen) current;
+            if (failure) {
+                halfOpen.failures.incrementAndGet();
+            }
+            if (slow) {
+                halfOpen.slowCalls.incrementAndGet();
+            }
+            int permitted = circuitBreakerProperties.getPermittedCallsInHalfOpenState();
+            if (halfOpen.completed.incrementAndGet() == permitted) {
+                boolean open = exceedsThresholds(permitted, halfOpen.failures.get(), halfOpen.slowCalls.get());
+                transition(current, open ? new Open() : new Closed(circuitBreakerProperties.getSlidingWindow().toNanos()));
+            }
+        }
+    }
+
+    private boolean exceedsThresholds(long calls, long failures, long slowCalls) {
+        return failures * 100.0 >= circuitBreakerProperties.getFailureRateThreshold() * calls
+                || slowCalls * 100.0 >= circuitBreakerProperties.getSlowCallRateThreshold() * calls;
+    }
+
+    private void transition(StateHolder from, StateHolder to) {
+        if (state.compareAndSet(from, to)) {
+            if (to.state == State.OPEN) {
+                log.warn("Circuit breaker of data source '{}' is open after {} state", dataSourceName, from.state);
+            }
+            else {
+                log.info("Circuit breaker of data source '{}' changed state from {} to {}", dataSourceName, from.state, to.state);
+            }
+            if (applicationEventPublisher != null) {
+                applicationEventPublisher.publishEvent(new CircuitBreakerStateTransitionEvent(this, from.state, to.state));
+            }
+        }
+    }
+
+    /**
+     * Returns whether the exception indicates unavailability of the database rather than an error of the statement.
+     * <p>
+     * Only connection errors are counted, so deadlocks, serialization failures and query timeouts caused by contention
+     * on single statements don't open the circuit for every caller of the data source.
+     *
+     * @param e exception thrown by the driver
+     * @return {@code true} if exception should be recorded as a failure
+     */
+    public static boolean isFailure(SQLException e) {
+        if (e instanceof CircuitBreakerOpenException) {
+            return false;
+        }
+        String sqlState = e.getSQLState();
+        return e instanceof SQLTransientConnectionException
+                || e instanceof SQLRecoverableException
+                || e instanceof SQLNonTransientConnectionException
+                || sqlState != null && sqlState.startsWith("08");
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker [" + dataSourceName + ": " + getState() + "]";
+    }
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /**
+     * Permission of a call granted by {@link #tryAcquirePermission()}.
+     */
+    public abstract static class Permission {
+
+        private Permission() {
+        }
+    }
+
+    private abstract static class StateHolder extends Permission {
+        private final State state;
+
+        StateHolder(State state) {
+            this.state = state;
+        }
+    }
+
+    private static class Closed extends StateHolder {
+        private final SlidingWindow window;
+
+        Closed(long windowNanos) {
+            super(State.CLOSED);
+            this.window = new SlidingWindow(windowNanos);
+        }
+    }
+
+    private class Open extends StateHolder {
+        private final long openUntilNanos;
+
+        Open() {
+            super(State.OPEN);
+            this.openUntilNanos = System.nanoTime() + circuitBreakerProperties.getWaitDurationInOpenState().toNanos();
+        }
+    }
+
+    private static class HalfOpen extends StateHolder {
+        private final AtomicInteger permits = new AtomicInteger();
+        private final AtomicInteger completed = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicInteger slowCalls = new AtomicInteger();
+
+        HalfOpen() {
+            super(State.HALF_OPEN);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.circuitbreaker;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecoratorProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Configuration of {@link CircuitBreakerDataSourceDecorator}.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+@ConditionalOnProperty(name = "decorator.datasource.circuit-breaker.enabled", havingValue = "true")
+public class CircuitBreakerConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public CircuitBreakerDataSourceDecorator circuitBreakerDataSourceDecorator(DataSourceDecoratorProperties dataSourceDecoratorProperties,
+            ApplicationEventPublisher applicationEventPublisher) {
+        return new CircuitBreakerDataSourceDecorator(dataSourceDecoratorProperties.getCircuitBreaker(), applicationEventPublisher);
+    }
+}
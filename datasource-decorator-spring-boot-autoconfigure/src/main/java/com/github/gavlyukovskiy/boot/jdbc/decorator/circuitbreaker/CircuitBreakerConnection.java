@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.circuitbreaker;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.support.DelegatingConnection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * {@link Connection} that executes statements only when permitted by {@link CircuitBreaker} and records their
+ * duration and outcome.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class CircuitBreakerConnection extends DelegatingConnection {
+
+    private final CircuitBreaker circuitBreaker;
+    // statements of a connection are executed one at a time, so permission of the current execution is kept here
+    private CircuitBreaker.Permission permission;
+
+    CircuitBreakerConnection(Connection delegate, CircuitBreaker circuitBreaker) {
+        super(delegate);
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    protected long beforeExecute(String sql) throws SQLException {
+        CircuitBreaker.Permission permission = circuitBreaker.tryAcquirePermission();
+        if (permission == null) {
+            throw new CircuitBreakerOpenException(circuitBreaker.getDataSourceName());
+        }
+        this.permission = permission;
+        return System.nanoTime();
+    }
+
+    @Override
+    protected void afterExecute(long token, String sql, SQLException error) {
+        circuitBreaker.onResult(permission, System.nanoTime() - token, error != null && CircuitBreaker.isFailure(error));
+    }
+}
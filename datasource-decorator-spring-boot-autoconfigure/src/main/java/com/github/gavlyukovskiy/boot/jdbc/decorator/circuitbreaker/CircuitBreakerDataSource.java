@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.circuitbreaker;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * {@link DataSource} that acquires connections only when permitted by {@link CircuitBreaker}, every failure to
+ * acquire a connection is recorded as a failed call.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class CircuitBreakerDataSource extends DelegatingDataSource {
+
+    private final CircuitBreaker circuitBreaker;
+
+    CircuitBreakerDataSource(DataSource dataSource, CircuitBreaker circuitBreaker) {
+        super(dataSource);
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(null, null, false);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection(username, password, true);
+    }
+
+    private Connection getConnection(String username, String password, boolean withCredentials) throws SQLException {
+        CircuitBreaker.Permission permission = circuitBreaker.tryAcquirePermission();
+        if (permission == null) {
+            throw new CircuitBreakerOpenException(circuitBreaker.getDataSourceName());
+        }
+        long start = System.nanoTime();
+        Connection connection;
+        try {
+            connection = withCredentials
+                    ? obtainTargetDataSource().getConnection(username, password)
+                    : obtainTargetDataSource().getConnection();
+        }
+        catch (SQLException | RuntimeException e) {
+            circuitBreaker.onResult(permission, System.nanoTime() - start, !(e instanceof CircuitBreakerOpenException));
+            throw e;
+        }
+        circuitBreaker.onResult(permission, System.nanoTime() - start, false);
+        return new CircuitBreakerConnection(connection, circuitBreaker);
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreakerDataSource [" + getTargetDataSource() + "]";
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.circuitbreaker;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecorator;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link Ordered} decorator that guards every data source with a {@link CircuitBreaker}.
+ * <p>
+ * Applied after FlexyPool, so calls rejected by the open circuit don't trigger its pool increment and retry strategies,
+ * while a connection that FlexyPool has failed to acquire after all attempts is recorded as a single failure.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class CircuitBreakerDataSourceDecorator implements DataSourceDecorator, Ordered {
+
+    private final CircuitBreakerProperties circuitBreakerProperties;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    public CircuitBreakerDataSourceDecorator(CircuitBreakerProperties circuitBreakerProperties,
+            ApplicationEventPublisher applicationEventPublisher) {
+        this.circuitBreakerProperties = circuitBreakerProperties;
+        this.applicationEventPublisher = applicationEventPublisher;
+    }
+
+    @Override
+    public DataSource decorate(String beanName, DataSource dataSource) {
+        return new CircuitBreakerDataSource(dataSource, getCircuitBreaker(beanName));
+    }
+
+    /**
+     * Returns circuit breaker of the data source.
+     *
+     * @param dataSourceName name of the data source
+     * @return circuit breaker of the data source
+     */
+    public CircuitBreaker getCircuitBreaker(String dataSourceName) {
+        return circuitBreakers.computeIfAbsent(dataSourceName,
+                name -> new CircuitBreaker(name, circuitBreakerProperties, applicationEventPublisher));
+    }
+
+    /**
+     * Returns circuit breakers of all decorated data sources.
+     *
+     * @return circuit breakers by data source name
+     */
+    public Map<String, CircuitBreaker> getCircuitBreakers() {
+        return Collections.unmodifiableMap(circuitBreakers);
+    }
+
+    @Override
+    public int getOrder() {
+        return 14;
+    }
+}
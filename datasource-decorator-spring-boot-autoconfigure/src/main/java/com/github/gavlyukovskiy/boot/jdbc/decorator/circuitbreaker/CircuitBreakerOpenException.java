@@ -0,0 +1,33 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.circuitbreaker;
+
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * Thrown when a connection is requested or a statement is executed while the {@link CircuitBreaker} of the data source
+ * doesn't permit calls.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class CircuitBreakerOpenException extends SQLTransientConnectionException {
+
+    public CircuitBreakerOpenException(String dataSourceName) {
+        super("Circuit breaker of data source '" + dataSourceName + "' is open");
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.circuitbreaker;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+
+/**
+ * Properties for circuit breaker around connection acquisition and statement execution.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+@Getter
+@Setter
+public class CircuitBreakerProperties {
+
+    /**
+     * Enables circuit breaker.
+     */
+    private boolean enabled = false;
+    /**
+     * Percentage of failed calls in the sliding window at which the circuit opens.
+     */
+    private float failureRateThreshold = 50;
+    /**
+     * Percentage of slow calls in the sliding window at which the circuit opens.
+     */
+    private float slowCallRateThreshold = 100;
+    /**
+     * Duration after which a call is considered slow.
+     */
+    private Duration slowCallDurationThreshold = Duration.ofSeconds(5);
+    /**
+     * Time window over which failure and slow call rates are calculated.
+     */
+    private Duration slidingWindow = Duration.ofSeconds(10);
+    /**
+     * Minimum number of calls in the sliding window before rates are calculated.
+     */
+    private int minimumNumberOfCalls = 20;
+    /**
+     * Time the circuit stays open before trial calls are permitted.
+     */
+    private Duration waitDurationInOpenState = Duration.ofSeconds(10);
+    /**
+     * Number of trial calls permitted when the circuit is half-open.
+     */
+    private int permittedCallsInHalfOpenState = 5;
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.circuitbreaker;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Event published when {@link CircuitBreaker} of a data source changes its state.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class CircuitBreakerStateTransitionEvent extends ApplicationEvent {
+
+    private final String dataSourceName;
+    private final CircuitBreaker.State fromState;
+    private final CircuitBreaker.State toState;
+
+    public CircuitBreakerStateTransitionEvent(CircuitBreaker circuitBreaker, CircuitBreaker.State fromState, CircuitBreaker.State toState) {
+        super(circuitBreaker);
+        this.dataSourceName = circuitBreaker.getDataSourceName();
+        this.fromState = fromState;
+        this.toState = toState;
+    }
+
+    public String getDataSourceName() {
+        return dataSourceName;
+    }
+
+    public CircuitBreaker.State getFromState() {
+        return fromState;
+    }
+
+    public CircuitBreaker.State getToState() {
+        return toState;
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreakerStateTransitionEvent [" + dataSourceName + ": " + fromState + " -> " + toState + "]";
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.circuitbreaker;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time based sliding window of call outcomes split into buckets.
+ * <p>
+ * A bucket is replaced with CAS once its time has passed, so recording never takes locks. Calls recorded
+ * concurrently with the replacement might be lost, which is fine for rates.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class SlidingWindow {
+
+    private static final int BUCKETS = 10;
+
+    private final long bucketNanos;
+    private final AtomicReferenceArray<Bucket> buckets = new AtomicReferenceArray<>(BUCKETS);
+
+    SlidingWindow(long windowNanos) {
+        this.bucketNanos = Math.max(windowNanos / BUCKETS, 1);
+    }
+
+    void record(boolean failure, boolean slow) {
+        long epoch = Math.floorDiv(System.nanoTime(), bucketNanos);
+        int index = (int) Math.floorMod(epoch, BUCKETS);
+        Bucket bucket = buckets.get(index);
+        while (bucket == null || bucket.epoch < epoch) {
+            Bucket newBucket = new Bucket(epoch);
+            if (buckets.compareAndSet(index, bucket, newBucket)) {
+                bucket = newBucket;
+            }
+            else {
+                bucket = buckets.get(index);
+            }
+        }
+        bucket.calls.increment();
+        if (failure) {
+            bucket.failures.increment();
+        }
+        if (slow) {
+            bucket.slowCalls.increment();
+        }
+    }
+
+    /**
+     * Sums outcomes of buckets within the window.
+     *
+     * @return number of calls, failed calls and slow calls
+     */
+    long[] snapshot() {
+        long oldestEpoch = Math.floorDiv(System.nanoTime(), bucketNanos) - BUCKETS + 1;
+        long[] snapshot = new long[3];
+        for (int i = 0; i < BUCKETS; i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null && bucket.epoch >= oldestEpoch) {
+                snapshot[0] += bucket.calls.sum();
+                snapshot[1] += bucket.failures.sum();
+                snapshot[2] += bucket.slowCalls.sum();
+            }
+        }
+        return snapshot;
+    }
+
+    private static class Bucket {
+        private final long epoch;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder slowCalls = new LongAdder();
+
+        Bucket(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Writes query log entries from a background thread, so slow log appenders don't add up to the query latency.
+ * <p>
+ * Entries are handed over through a bounded lock-free ring buffer, where every slot carries a sequence number telling
+ * producers and the writer whether it is free. When the buffer is full, entries are either dropped and counted, or
+ * the calling thread spins until the writer frees a slot, depending on {@link OverflowPolicy}.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class AsyncQueryLogWriter implements DisposableBean {
+
+    private static final Logger log = getLogger(AsyncQueryLogWriter.class);
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final int mask;
+    private final AtomicReferenceArray<Runnable> entries;
+    private final AtomicLongArray sequences;
+    private final OverflowPolicy overflowPolicy;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+    private final Thread writer;
+    private volatile boolean idle;
+    private volatile boolean running = true;
+
+    public AsyncQueryLogWriter(int bufferSize, OverflowPolicy overflowPolicy) {
+        int capacity = Integer.highestOneBit(Math.max(bufferSize, 2) - 1) << 1;
+        this.mask = capacity - 1;
+        this.entries = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.overflowPolicy = overflowPolicy;
+        this.writer = new Thread(this::drainLoop, "datasource-proxy-query-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Enqueues log entry to be written by the background thread, once the writer is stopped entry is written
+     * on the calling thread.
+     *
+     * @param entry action writing the log entry
+     */
+    public void write(Runnable entry) {
+        if (!running) {
+            entry.run();
+            return;
+        }
+        while (!offer(entry)) {
+            if (overflowPolicy == OverflowPolicy.DROP || !running) {
+                dropped.increment();
+                return;
+            }
+            LockSupport.unpark(writer);
+            Thread.yield();
+        }
+        if (idle) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private boolean offer(Runnable entry) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    entries.lazySet(index, entry);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            }
+            else if (sequence < position) {
+                return false;
+            }
+        }
+    }
+
+    private Runnable poll() {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        Runnable entry = entries.get(index);
+        entries.lazySet(index, null);
+        sequences.set(index, head + mask + 1);
+        head++;
+        return entry;
+    }
+
+    private void drainLoop() {
+        while (running) {
+            if (!drain()) {
+                idle = true;
+                if (!drain()) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                idle = false;
+            }
+        }
+        drain();
+    }
+
+    private boolean drain() {
+        boolean drained = false;
+        Runnable entry;
+        while ((entry = poll()) != null) {
+            drained = true;
+            try {
+                entry.run();
+            }
+            catch (RuntimeException e) {
+                failed.increment();
+                log.debug("Failed to write query log entry", e);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Returns number of log entries dropped because the buffer was full.
+     *
+     * @return number of dropped entries
+     */
+    public long getDroppedEntries() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns number of log entries that failed to be written.
+     *
+     * @return number of failed entries
+     */
+    public long getFailedEntries() {
+        return failed.sum();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+        long dropped = getDroppedEntries();
+        if (dropped > 0) {
+            log.warn("{} query log entries were dropped because the buffer was full", dropped);
+        }
+    }
+
+    public enum OverflowPolicy {
+        /**
+         * Drops log entry when the buffer is full.
+         */
+        DROP,
+        /**
+         * Waits on the calling thread until the buffer has free space.
+         */
+        BLOCK
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy;
+
+import net.ttddyy.dsproxy.listener.logging.SLF4JQueryLoggingListener;
+import org.slf4j.MDC;
+
+import java.util.Map;
+
+/**
+ * {@link SLF4JQueryLoggingListener} that formats log entry on the calling thread and writes it using
+ * {@link AsyncQueryLogWriter}.
+ * <p>
+ * Entry is formatted eagerly because statement parameters may change once the query is executed.
+ * {@link MDC} of the calling thread, e.g. trace and span ids, is captured as well and set while the entry is written.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class AsyncSLF4JQueryLoggingListener extends SLF4JQueryLoggingListener {
+
+    private final AsyncQueryLogWriter asyncQueryLogWriter;
+
+    public AsyncSLF4JQueryLoggingListener(AsyncQueryLogWriter asyncQueryLogWriter) {
+        this.asyncQueryLogWriter = asyncQueryLogWriter;
+    }
+
+    @Override
+    protected void writeLog(String message) {
+        Map<String, String> context = MDC.getCopyOfContextMap();
+        asyncQueryLogWriter.write(() -> writeLog(message, context));
+    }
+
+    private void writeLog(String message, Map<String, String> context) {
+        // entry is written on the calling thread once the writer is stopped, so its context is restored afterwards
+        Map<String, String> previousContext = MDC.getCopyOfContextMap();
+        setContext(context);
+        try {
+            super.writeLog(message);
+        }
+        finally {
+            setContext(previousContext);
+        }
+    }
+
+    private static void setContext(Map<String, String> context) {
+        if (context != null) {
+            MDC.setContextMap(context);
+        }
+        else {
+            MDC.clear();
+        }
+    }
+}
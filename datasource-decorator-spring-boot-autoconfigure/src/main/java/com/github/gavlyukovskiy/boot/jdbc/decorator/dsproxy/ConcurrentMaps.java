@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Lookups of concurrent maps on the query execution path.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+final class ConcurrentMaps {
+
+    private ConcurrentMaps() {
+    }
+
+    /**
+     * Same as {@link ConcurrentMap#computeIfAbsent(Object, Function)}, but reads the value first, because
+     * {@link java.util.concurrent.ConcurrentHashMap} locks the bin on every call even when the value is present.
+     *
+     * @param map map to look up
+     * @param key key of the value
+     * @param mappingFunction function to compute absent value
+     * @param <K> type of keys
+     * @param <V> type of values
+     * @return present or computed value
+     */
+    static <K, V> V getOrCompute(ConcurrentMap<K, V> map, K key, Function<? super K, ? extends V> mappingFunction) {
+        V value = map.get(key);
+        if (value == null) {
+            value = map.computeIfAbsent(key, mappingFunction);
+        }
+        return value;
+    }
+}
@@ -18,18 +18,30 @@ package com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy;
 
 import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecoratorProperties;
 import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceNameResolver;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy.DataSourceProxyProperties.ConnectionIdManagerType;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy.DataSourceProxyProperties.DataSourceProxyLogging;
 import net.ttddyy.dsproxy.listener.QueryCountStrategy;
 import net.ttddyy.dsproxy.listener.QueryExecutionListener;
 import net.ttddyy.dsproxy.listener.SingleQueryCountHolder;
+import net.ttddyy.dsproxy.listener.ThreadQueryCountHolder;
 import net.ttddyy.dsproxy.proxy.GlobalConnectionIdManager;
 import net.ttddyy.dsproxy.support.ProxyDataSource;
 import net.ttddyy.dsproxy.transform.ParameterTransformer;
 import net.ttddyy.dsproxy.transform.QueryTransformer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionMessage;
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+import java.util.concurrent.TimeUnit;
 
 /**
  * Configuration for integration with datasource-proxy, allows to use define custom {@link QueryExecutionListener},
@@ -40,15 +52,41 @@ import org.springframework.context.annotation.Bean;
 @ConditionalOnClass(ProxyDataSource.class)
 public class DataSourceProxyConfiguration {
 
+    private static final long MAX_SLOW_QUERY_TIMER_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
     @Autowired
     private DataSourceDecoratorProperties dataSourceDecoratorProperties;
 
     @Bean
     @ConditionalOnMissingBean
     public ConnectionIdManagerProvider connectionIdManagerProvider() {
+        if (dataSourceDecoratorProperties.getDatasourceProxy().getConnectionIdManager() == ConnectionIdManagerType.STRIPED) {
+            return StripedConnectionIdManager::new;
+        }
         return GlobalConnectionIdManager::new;
     }
 
+    @Bean
+    @ConditionalOnMissingBean
+    @Conditional(AsyncLoggingCondition.class)
+    public AsyncQueryLogWriter asyncQueryLogWriter() {
+        DataSourceProxyProperties.Async async = dataSourceDecoratorProperties.getDatasourceProxy().getAsync();
+        return new AsyncQueryLogWriter(async.getBufferSize(), async.getOverflowPolicy());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(value = "decorator.datasource.datasource-proxy.slow-query.enable-logging", havingValue = "true", matchIfMissing = true)
+    public SlowQueryTimer slowQueryTimer() {
+        DataSourceProxyProperties.SlowQuery slowQuery = dataSourceDecoratorProperties.getDatasourceProxy().getSlowQuery();
+        long thresholdNanos = slowQuery.getThreshold().toNanos();
+        if (slowQuery.getAdaptive().isEnabled()) {
+            thresholdNanos = Math.min(thresholdNanos, slowQuery.getAdaptive().getMinimumThreshold().toNanos());
+        }
+        // tick of a tenth of the lowest threshold bounds detection error to 10%, timer itself keeps it at least 1 ms
+        return new SlowQueryTimer(Math.min(thresholdNanos / 10, MAX_SLOW_QUERY_TIMER_TICK_NANOS), TimeUnit.NANOSECONDS);
+    }
+
     @Bean
     public ProxyDataSourceBuilderConfigurer proxyDataSourceBuilderConfigurer() {
         return new ProxyDataSourceBuilderConfigurer();
@@ -63,6 +101,28 @@ public class DataSourceProxyConfiguration {
     @ConditionalOnMissingBean
     @ConditionalOnProperty(value = "decorator.datasource.datasource-proxy.count-query", havingValue = "true")
     public QueryCountStrategy queryCountStrategy() {
-        return new SingleQueryCountHolder();
+        switch (dataSourceDecoratorProperties.getDatasourceProxy().getQueryCountStrategy()) {
+            case THREAD:
+                return new ThreadQueryCountHolder();
+            case STRIPED:
+                return new StripedQueryCountStrategy();
+            default:
+                return new SingleQueryCountHolder();
+        }
+    }
+
+    private static class AsyncLoggingCondition extends SpringBootCondition {
+
+        @Override
+        public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+            ConditionMessage.Builder message = ConditionMessage.forCondition("AsyncLogging");
+            DataSourceProxyLogging logging = Binder.get(context.getEnvironment())
+                    .bind("decorator.datasource.datasource-proxy.logging", DataSourceProxyLogging.class)
+                    .orElse(null);
+            if (logging == DataSourceProxyLogging.ASYNC_SLF4J) {
+                return ConditionOutcome.match(message.foundExactly(logging + " logging"));
+            }
+            return ConditionOutcome.noMatch(message.because("logging is " + logging));
+        }
     }
 }
@@ -19,12 +19,15 @@ package com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy;
 import lombok.Getter;
 import lombok.Setter;
 import net.ttddyy.dsproxy.QueryCountHolder;
+import net.ttddyy.dsproxy.listener.QueryCountStrategy;
 import net.ttddyy.dsproxy.listener.logging.CommonsLogLevel;
 import net.ttddyy.dsproxy.listener.logging.SLF4JLogLevel;
 import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
 import org.slf4j.Logger;
+import org.springframework.boot.convert.DurationUnit;
 
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
 import java.util.logging.Level;
 
 import static org.slf4j.LoggerFactory.getLogger;
@@ -48,6 +51,7 @@ public class DataSourceProxyProperties {
 
     private Query query = new Query();
     private SlowQuery slowQuery = new SlowQuery();
+    private Async async = new Async();
 
     /**
      * Use multiline output for logging query.
@@ -68,6 +72,14 @@ public class DataSourceProxyProperties {
      * @see QueryCountHolder
      */
     private boolean countQuery = false;
+    /**
+     * Strategy to count queries with when {@link QueryCountStrategy} bean is not declared.
+     */
+    private QueryCountStrategyType queryCountStrategy = QueryCountStrategyType.SINGLE;
+    /**
+     * Connection id manager to use when {@link ConnectionIdManagerProvider} bean is not declared.
+     */
+    private ConnectionIdManagerType connectionIdManager = ConnectionIdManagerType.GLOBAL;
 
     /**
      * Properties to configure query logging listener.
@@ -97,10 +109,7 @@ public class DataSourceProxyProperties {
     /**
      * Properties to configure slow query logging listener.
      *
-     * @see ProxyDataSourceBuilder#logSlowQueryToSysOut(long, TimeUnit)
-     * @see ProxyDataSourceBuilder#logSlowQueryBySlf4j(long, TimeUnit)
-     * @see ProxyDataSourceBuilder#logSlowQueryByCommons(long, TimeUnit)
-     * @see ProxyDataSourceBuilder#logSlowQueryByJUL(long, TimeUnit)
+     * @see SlowQueryDetector
      */
     @Getter
     @Setter
@@ -118,15 +127,107 @@ public class DataSourceProxyProperties {
          */
         private String logLevel = "WARN";
         /**
-         * Number of seconds to consider query as slow.
+         * Duration to consider query as slow, if a duration suffix is not specified, seconds will be used.
+         */
+        @DurationUnit(ChronoUnit.SECONDS)
+        private Duration threshold = Duration.ofSeconds(300);
+        /**
+         * Adaptive threshold based on latency of every SQL fingerprint.
+         */
+        private Adaptive adaptive = new Adaptive();
+
+        /**
+         * Properties to configure adaptive slow query threshold.
+         *
+         * @see SlowQueryDetector
+         */
+        @Getter
+        @Setter
+        public static class Adaptive {
+            /**
+             * Enables adaptive threshold, query is slow when it runs longer than the percentile of recent
+             * executions of the same SQL fingerprint.
+             */
+            private boolean enabled = false;
+            /**
+             * Percentile of latency (from 0.0 to 1.0) to use as a threshold.
+             */
+            private double percentile = 0.99;
+            /**
+             * Number of executions in the window before the percentile is used, fixed threshold is used before.
+             */
+            private int minimumSamples = 100;
+            /**
+             * Threshold is never lower than this duration, so that fast queries are not logged on small deviations.
+             */
+            private Duration minimumThreshold = Duration.ofMillis(10);
+            /**
+             * Time window over which the percentile is calculated.
+             */
+            private Duration window = Duration.ofMinutes(5);
+            /**
+             * Maximum number of SQL fingerprints with tracked latency per data source, other statements use fixed
+             * threshold.
+             */
+            private int maxFingerprints = 1000;
+        }
+    }
+
+    /**
+     * Properties to configure asynchronous query logging.
+     *
+     * @see AsyncQueryLogWriter
+     */
+    @Getter
+    @Setter
+    public static class Async {
+        /**
+         * Number of log entries buffered before the overflow policy applies, rounded up to the power of two.
          */
-        private long threshold = 300;
+        private int bufferSize = 1024;
+        /**
+         * What to do with log entries when the buffer is full.
+         */
+        private AsyncQueryLogWriter.OverflowPolicy overflowPolicy = AsyncQueryLogWriter.OverflowPolicy.DROP;
     }
 
     public enum DataSourceProxyLogging {
         SYSOUT,
         SLF4J,
         COMMONS,
-        JUL
+        JUL,
+        /**
+         * Logs queries using slf4j from a background thread.
+         */
+        ASYNC_SLF4J
+    }
+
+    public enum QueryCountStrategyType {
+        /**
+         * Uses {@link net.ttddyy.dsproxy.listener.SingleQueryCountHolder}, which counts queries of all threads and
+         * backs {@link QueryCountHolder}.
+         */
+        SINGLE,
+        /**
+         * Uses {@link net.ttddyy.dsproxy.listener.ThreadQueryCountHolder}, which counts queries per thread and backs
+         * {@link QueryCountHolder}.
+         */
+        THREAD,
+        /**
+         * Uses {@link StripedQueryCountStrategy}, which counts queries of all threads without contention and exports
+         * counts to Micrometer.
+         */
+        STRIPED
+    }
+
+    public enum ConnectionIdManagerType {
+        /**
+         * Uses {@link net.ttddyy.dsproxy.proxy.GlobalConnectionIdManager}.
+         */
+        GLOBAL,
+        /**
+         * Uses {@link StripedConnectionIdManager}, which doesn't contend on connection ids at high connection churn.
+         */
+        STRIPED
     }
 }
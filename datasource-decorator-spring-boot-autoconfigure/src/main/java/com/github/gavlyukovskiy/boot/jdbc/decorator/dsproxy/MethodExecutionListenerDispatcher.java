@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy;
+
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link MethodExecutionListener} that dispatches each call only to listeners interested in it.
+ * <p>
+ * Listeners implementing {@link SelectiveMethodExecutionListener} are asked once per target class and method,
+ * other listeners receive every call. Interested listeners are cached, so a call nobody is interested in,
+ * e.g. {@link java.sql.ResultSet#getString(int)}, costs a single lookup.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class MethodExecutionListenerDispatcher implements MethodExecutionListener {
+
+    private static final MethodExecutionListener[] NO_LISTENERS = new MethodExecutionListener[0];
+
+    private final List<MethodExecutionListener> listeners;
+    private final ConcurrentHashMap<Class<?>, ConcurrentHashMap<Method, MethodExecutionListener[]>> interestedListeners = new ConcurrentHashMap<>();
+
+    public MethodExecutionListenerDispatcher(List<MethodExecutionListener> listeners) {
+        this.listeners = new ArrayList<>(listeners);
+    }
+
+    @Override
+    public void beforeMethod(MethodExecutionContext executionContext) {
+        for (MethodExecutionListener listener : getInterestedListeners(executionContext)) {
+            listener.beforeMethod(executionContext);
+        }
+    }
+
+    @Override
+    public void afterMethod(MethodExecutionContext executionContext) {
+        for (MethodExecutionListener listener : getInterestedListeners(executionContext)) {
+            listener.afterMethod(executionContext);
+        }
+    }
+
+    public List<MethodExecutionListener> getListeners() {
+        return listeners;
+    }
+
+    MethodExecutionListener[] getInterestedListeners(MethodExecutionContext executionContext) {
+        Class<?> targetClass = executionContext.getTarget().getClass();
+        ConcurrentHashMap<Method, MethodExecutionListener[]> listenersByMethod =
+                ConcurrentMaps.getOrCompute(interestedListeners, targetClass, c -> new ConcurrentHashMap<>());
+        return ConcurrentMaps.getOrCompute(listenersByMethod, executionContext.getMethod(), m -> findInterestedListeners(targetClass, m));
+    }
+
+    private MethodExecutionListener[] findInterestedListeners(Class<?> targetClass, Method method) {
+        List<MethodExecutionListener> interested = new ArrayList<>();
+        for (MethodExecutionListener listener : listeners) {
+            if (!(listener instanceof SelectiveMethodExecutionListener)
+                    || ((SelectiveMethodExecutionListener) listener).isInterestedIn(targetClass, method)) {
+                interested.add(listener);
+            }
+        }
+        return interested.isEmpty() ? NO_LISTENERS : interested.toArray(NO_LISTENERS);
+    }
+}
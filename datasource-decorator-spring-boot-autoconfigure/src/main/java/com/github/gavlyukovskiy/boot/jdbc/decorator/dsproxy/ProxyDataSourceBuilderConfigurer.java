@@ -16,11 +16,22 @@
 
 package com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy;
 
+import com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy.DataSourceProxyProperties.DataSourceProxyLogging;
 import net.ttddyy.dsproxy.listener.MethodExecutionListener;
 import net.ttddyy.dsproxy.listener.QueryCountStrategy;
 import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.listener.logging.AbstractQueryLoggingListener;
 import net.ttddyy.dsproxy.listener.logging.CommonsLogLevel;
+import net.ttddyy.dsproxy.listener.logging.CommonsQueryLoggingListener;
+import net.ttddyy.dsproxy.listener.logging.CommonsSlowQueryListener;
+import net.ttddyy.dsproxy.listener.logging.DefaultJsonQueryLogEntryCreator;
+import net.ttddyy.dsproxy.listener.logging.DefaultQueryLogEntryCreator;
+import net.ttddyy.dsproxy.listener.logging.JULQueryLoggingListener;
+import net.ttddyy.dsproxy.listener.logging.JULSlowQueryListener;
 import net.ttddyy.dsproxy.listener.logging.SLF4JLogLevel;
+import net.ttddyy.dsproxy.listener.logging.SLF4JQueryLoggingListener;
+import net.ttddyy.dsproxy.listener.logging.SLF4JSlowQueryListener;
+import net.ttddyy.dsproxy.listener.logging.SystemOutQueryLoggingListener;
 import net.ttddyy.dsproxy.proxy.ResultSetProxyLogicFactory;
 import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
 import net.ttddyy.dsproxy.transform.ParameterTransformer;
@@ -30,7 +41,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 import static org.slf4j.LoggerFactory.getLogger;
@@ -68,15 +78,22 @@ public class ProxyDataSourceBuilderConfigurer {
     @Autowired(required = false)
     private ConnectionIdManagerProvider connectionIdManagerProvider;
 
+    @Autowired(required = false)
+    private AsyncQueryLogWriter asyncQueryLogWriter;
+
+    @Autowired(required = false)
+    private SlowQueryTimer slowQueryTimer;
+
     public void configure(ProxyDataSourceBuilder proxyDataSourceBuilder, DataSourceProxyProperties datasourceProxy) {
+        DataSourceProxyProperties.SlowQuery slowQuery = datasourceProxy.getSlowQuery();
+        AbstractQueryLoggingListener slowQueryLoggingListener = null;
         switch (datasourceProxy.getLogging()) {
             case SLF4J: {
                 if (datasourceProxy.getQuery().isEnableLogging()) {
                     proxyDataSourceBuilder.logQueryBySlf4j(toSlf4JLogLevel(datasourceProxy.getQuery().getLogLevel()), datasourceProxy.getQuery().getLoggerName());
                 }
-                if (datasourceProxy.getSlowQuery().isEnableLogging()) {
-                    proxyDataSourceBuilder.logSlowQueryBySlf4j(datasourceProxy.getSlowQuery().getThreshold(), TimeUnit.SECONDS,
-                            toSlf4JLogLevel(datasourceProxy.getSlowQuery().getLogLevel()), datasourceProxy.getSlowQuery().getLoggerName());
+                if (slowQuery.isEnableLogging()) {
+                    slowQueryLoggingListener = slf4jSlowQueryLoggingListener(slowQuery);
                 }
                 break;
             }
@@ -84,9 +101,14 @@ public class ProxyDataSourceBuilderConfigurer {
                 if (datasourceProxy.getQuery().isEnableLogging()) {
                     proxyDataSourceBuilder.logQueryByJUL(toJULLogLevel(datasourceProxy.getQuery().getLogLevel()), datasourceProxy.getQuery().getLoggerName());
                 }
-                if (datasourceProxy.getSlowQuery().isEnableLogging()) {
-                    proxyDataSourceBuilder.logSlowQueryByJUL(datasourceProxy.getSlowQuery().getThreshold(), TimeUnit.SECONDS,
-                            toJULLogLevel(datasourceProxy.getSlowQuery().getLogLevel()), datasourceProxy.getSlowQuery().getLoggerName());
+                if (slowQuery.isEnableLogging()) {
+                    JULQueryLoggingListener listener = new JULQueryLoggingListener();
+                    Level logLevel = toJULLogLevel(slowQuery.getLogLevel());
+                    if (logLevel != null) {
+                        listener.setLogLevel(logLevel);
+                    }
+                    listener.setLogger(slowQueryLoggerName(slowQuery, JULSlowQueryListener.class));
+                    slowQueryLoggingListener = listener;
                 }
                 break;
             }
@@ -94,9 +116,24 @@ public class ProxyDataSourceBuilderConfigurer {
                 if (datasourceProxy.getQuery().isEnableLogging()) {
                     proxyDataSourceBuilder.logQueryByCommons(toCommonsLogLevel(datasourceProxy.getQuery().getLogLevel()), datasourceProxy.getQuery().getLoggerName());
                 }
-                if (datasourceProxy.getSlowQuery().isEnableLogging()) {
-                    proxyDataSourceBuilder.logSlowQueryByCommons(datasourceProxy.getSlowQuery().getThreshold(), TimeUnit.SECONDS,
-                            toCommonsLogLevel(datasourceProxy.getSlowQuery().getLogLevel()), datasourceProxy.getSlowQuery().getLoggerName());
+                if (slowQuery.isEnableLogging()) {
+                    CommonsQueryLoggingListener listener = new CommonsQueryLoggingListener();
+                    CommonsLogLevel logLevel = toCommonsLogLevel(slowQuery.getLogLevel());
+                    if (logLevel != null) {
+                        listener.setLogLevel(logLevel);
+                    }
+                    listener.setLog(slowQueryLoggerName(slowQuery, CommonsSlowQueryListener.class));
+                    slowQueryLoggingListener = listener;
+                }
+                break;
+            }
+            case ASYNC_SLF4J: {
+                if (datasourceProxy.getQuery().isEnableLogging()) {
+                    proxyDataSourceBuilder.listener(asyncSlf4jQueryLoggingListener(datasourceProxy));
+                }
+                if (slowQuery.isEnableLogging()) {
+                    // slow queries are already logged from the timer thread
+                    slowQueryLoggingListener = slf4jSlowQueryLoggingListener(slowQuery);
                 }
                 break;
             }
@@ -104,12 +141,19 @@ public class ProxyDataSourceBuilderConfigurer {
                 if (datasourceProxy.getQuery().isEnableLogging()) {
                     proxyDataSourceBuilder.logQueryToSysOut();
                 }
-                if (datasourceProxy.getSlowQuery().isEnableLogging()) {
-                    proxyDataSourceBuilder.logSlowQueryToSysOut(datasourceProxy.getSlowQuery().getThreshold(), TimeUnit.SECONDS);
+                if (slowQuery.isEnableLogging()) {
+                    slowQueryLoggingListener = new SystemOutQueryLoggingListener();
                 }
                 break;
             }
         }
+        if (slowQueryLoggingListener != null) {
+            if (slowQueryTimer == null) {
+                throw new IllegalStateException("SlowQueryTimer bean is required for slow query logging");
+            }
+            applyLogEntryCreator(slowQueryLoggingListener, datasourceProxy);
+            proxyDataSourceBuilder.listener(new SlowQueryDetector(slowQueryLoggingListener, slowQueryTimer, slowQuery));
+        }
         if (datasourceProxy.isMultiline() && datasourceProxy.isJsonFormat()) {
             log.warn("Found opposite multiline and json format, multiline will be used (may depend on library version)");
         }
@@ -125,8 +169,8 @@ public class ProxyDataSourceBuilderConfigurer {
         if (listeners != null) {
             listeners.forEach(proxyDataSourceBuilder::listener);
         }
-        if (methodExecutionListeners != null) {
-            methodExecutionListeners.forEach(proxyDataSourceBuilder::methodListener);
+        if (methodExecutionListeners != null && !methodExecutionListeners.isEmpty()) {
+            proxyDataSourceBuilder.methodListener(new MethodExecutionListenerDispatcher(methodExecutionListeners));
         }
         if (parameterTransformer != null) {
             proxyDataSourceBuilder.parameterTransformer(parameterTransformer);
@@ -142,6 +186,51 @@ public class ProxyDataSourceBuilderConfigurer {
         }
     }
 
+    private AsyncSLF4JQueryLoggingListener asyncSlf4jQueryLoggingListener(DataSourceProxyProperties datasourceProxy) {
+        if (asyncQueryLogWriter == null) {
+            throw new IllegalStateException("AsyncQueryLogWriter bean is required for " + DataSourceProxyLogging.ASYNC_SLF4J + " logging");
+        }
+        AsyncSLF4JQueryLoggingListener listener = new AsyncSLF4JQueryLoggingListener(asyncQueryLogWriter);
+        SLF4JLogLevel logLevel = toSlf4JLogLevel(datasourceProxy.getQuery().getLogLevel());
+        if (logLevel != null) {
+            listener.setLogLevel(logLevel);
+        }
+        String loggerName = datasourceProxy.getQuery().getLoggerName();
+        if (loggerName != null && !loggerName.isEmpty()) {
+            listener.setLogger(loggerName);
+        }
+        applyLogEntryCreator(listener, datasourceProxy);
+        return listener;
+    }
+
+    private SLF4JQueryLoggingListener slf4jSlowQueryLoggingListener(DataSourceProxyProperties.SlowQuery slowQuery) {
+        SLF4JQueryLoggingListener listener = new SLF4JQueryLoggingListener();
+        SLF4JLogLevel logLevel = toSlf4JLogLevel(slowQuery.getLogLevel());
+        if (logLevel != null) {
+            listener.setLogLevel(logLevel);
+        }
+        listener.setLogger(slowQueryLoggerName(slowQuery, SLF4JSlowQueryListener.class));
+        return listener;
+    }
+
+    private String slowQueryLoggerName(DataSourceProxyProperties.SlowQuery slowQuery, Class<?> defaultLogger) {
+        String loggerName = slowQuery.getLoggerName();
+        // keeps logger names of datasource-proxy slow query listeners, so existing log configuration still applies
+        return loggerName != null && !loggerName.isEmpty() ? loggerName : defaultLogger.getName();
+    }
+
+    private void applyLogEntryCreator(AbstractQueryLoggingListener listener, DataSourceProxyProperties datasourceProxy) {
+        // builder applies formatting only to the listeners it creates
+        if (datasourceProxy.isJsonFormat()) {
+            listener.setQueryLogEntryCreator(new DefaultJsonQueryLogEntryCreator());
+        }
+        else if (datasourceProxy.isMultiline()) {
+            DefaultQueryLogEntryCreator queryLogEntryCreator = new DefaultQueryLogEntryCreator();
+            queryLogEntryCreator.setMultiline(true);
+            listener.setQueryLogEntryCreator(queryLogEntryCreator);
+        }
+    }
+
     private SLF4JLogLevel toSlf4JLogLevel(String logLevel) {
         if (logLevel == null) {
             return null;
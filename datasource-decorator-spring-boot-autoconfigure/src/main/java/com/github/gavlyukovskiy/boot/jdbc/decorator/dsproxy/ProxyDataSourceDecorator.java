@@ -55,6 +55,11 @@ public class ProxyDataSourceDecorator implements DataSourceDecorator, Ordered {
         return proxyDataSourceBuilder.dataSource(dataSource).name(dataSourceName).build();
     }
 
+    @Override
+    public boolean isObserving() {
+        return true;
+    }
+
     @Override
     public int getOrder() {
         return 20;
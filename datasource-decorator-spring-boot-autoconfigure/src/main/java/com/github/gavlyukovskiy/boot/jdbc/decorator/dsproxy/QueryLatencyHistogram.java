@@ -0,0 +1,144 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Rolling histogram of query latencies of a single SQL fingerprint.
+ * <p>
+ * Latencies are recorded in microseconds into log-linear buckets in the same way as HdrHistogram does, every power of
+ * two range is split into 16 linear sub-buckets, so any value is reported with at most 1/16 relative error using
+ * fixed 4.7KB of counters. The histogram covers the current and the previous half of the window, halves are rotated
+ * with CAS, so recording doesn't take locks.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class QueryLatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS >> 1;
+    private static final int MAX_VALUE_BITS = 40;
+    private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+    private static final int BUCKETS = index(MAX_VALUE) + 1;
+    private static final int PERCENTILE_UPDATE_INTERVAL = 64;
+    private static final Interval EMPTY = new Interval(Long.MIN_VALUE);
+
+    private final long halfWindowNanos;
+    private final double percentile;
+    private final long minimumSamples;
+    private final AtomicReference<Interval> current;
+    private volatile Interval previous;
+    private volatile long percentileNanos = -1;
+
+    QueryLatencyHistogram(long windowNanos, double percentile, long minimumSamples) {
+        this.halfWindowNanos = Math.max(windowNanos / 2, 1);
+        this.percentile = percentile;
+        this.minimumSamples = minimumSamples;
+        this.current = new AtomicReference<>(new Interval(epoch()));
+        this.previous = EMPTY;
+    }
+
+    void record(long durationNanos) {
+        Interval interval = currentInterval();
+        long micros = Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(durationNanos), 0), MAX_VALUE);
+        interval.counts.incrementAndGet(index(micros));
+        if (interval.total.incrementAndGet() % PERCENTILE_UPDATE_INTERVAL == 0) {
+            percentileNanos = computePercentileNanos();
+        }
+    }
+
+    /**
+     * Returns latency at the configured percentile, it is updated every 64 recorded queries and once the window
+     * rotates.
+     *
+     * @return latency in nanoseconds or {@code -1} if there are not enough samples
+     */
+    long getPercentileNanos() {
+        currentInterval();
+        return percentileNanos;
+    }
+
+    private Interval currentInterval() {
+        long epoch = epoch();
+        Interval interval = current.get();
+        while (interval.epoch < epoch) {
+            Interval newInterval = new Interval(epoch);
+            if (current.compareAndSet(interval, newInterval)) {
+                previous = interval.epoch == epoch - 1 ? interval : EMPTY;
+                percentileNanos = computePercentileNanos();
+                return newInterval;
+            }
+            interval = current.get();
+        }
+        return interval;
+    }
+
+    private long computePercentileNanos() {
+        Interval current = this.current.get();
+        Interval previous = this.previous;
+        long total = current.total.get() + previous.total.get();
+        if (total == 0 || total < minimumSamples) {
+            return -1;
+        }
+        long rank = (long) Math.ceil(percentile * total);
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += current.counts.get(i) + previous.counts.get(i);
+            if (count >= rank) {
+                return TimeUnit.MICROSECONDS.toNanos(highestEquivalentValue(i));
+            }
+        }
+        return TimeUnit.MICROSECONDS.toNanos(MAX_VALUE);
+    }
+
+    private long epoch() {
+        return System.nanoTime() / halfWindowNanos;
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (int) ((value >> shift) - HALF_SUB_BUCKETS);
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+        long subBucket = (index - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    private static class Interval {
+        private final long epoch;
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong total = new AtomicLong();
+
+        Interval(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy;
+
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+
+import java.lang.reflect.Method;
+
+/**
+ * {@link MethodExecutionListener} that declares which JDBC calls it needs to be notified about.
+ * <p>
+ * Interest is resolved once per target class and method, calls none of the listeners are interested in
+ * are not dispatched to them at all.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ * @see MethodExecutionListenerDispatcher
+ */
+public interface SelectiveMethodExecutionListener extends MethodExecutionListener {
+
+    /**
+     * Returns whether calls of the method on the targets of the given class should be passed to this listener,
+     * must return the same result for the same arguments.
+     *
+     * @param targetClass class of the JDBC object the method is invoked on, e.g. class of the real {@link java.sql.ResultSet}
+     * @param method invoked JDBC interface method
+     * @return {@code true} if listener should be notified about the call
+     */
+    boolean isInterestedIn(Class<?> targetClass, Method method);
+}
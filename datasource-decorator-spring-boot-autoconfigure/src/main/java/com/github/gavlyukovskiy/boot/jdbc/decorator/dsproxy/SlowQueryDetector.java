@@ -0,0 +1,153 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.statistics.SqlFingerprinter;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.listener.logging.AbstractQueryLoggingListener;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listener that logs queries still running after the slow query threshold, replaces slow query listeners of
+ * datasource-proxy that schedule a task per query on a dedicated executor.
+ * <p>
+ * In adaptive mode, threshold of every SQL fingerprint (except batches) is the configured percentile of its latency over a rolling
+ * window, bounded by the minimum threshold below and by the fixed threshold above. Fixed threshold is used until
+ * the fingerprint has enough executions, or once the number of tracked fingerprints is reached.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class SlowQueryDetector implements QueryExecutionListener {
+
+    private static final String RUNNING_QUERY_KEY = SlowQueryDetector.class.getName() + ".runningQuery";
+
+    private final AbstractQueryLoggingListener slowQueryLoggingListener;
+    private final SlowQueryTimer slowQueryTimer;
+    private final long thresholdNanos;
+    private final DataSourceProxyProperties.SlowQuery.Adaptive adaptive;
+    private final SqlFingerprinter sqlFingerprinter;
+    private final Map<String, QueryLatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    public SlowQueryDetector(AbstractQueryLoggingListener slowQueryLoggingListener, SlowQueryTimer slowQueryTimer,
+            DataSourceProxyProperties.SlowQuery slowQuery) {
+        this.slowQueryLoggingListener = slowQueryLoggingListener;
+        this.slowQueryTimer = slowQueryTimer;
+        this.thresholdNanos = slowQuery.getThreshold().toNanos();
+        this.adaptive = slowQuery.getAdaptive().isEnabled() ? slowQuery.getAdaptive() : null;
+        this.sqlFingerprinter = adaptive != null ? new SqlFingerprinter(adaptive.getMaxFingerprints() * 10) : null;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        // fingerprint is computed once, the histogram found by it is reused to record latency after execution
+        String fingerprint = adaptive != null ? fingerprint(execInfo, queryInfoList) : null;
+        QueryLatencyHistogram histogram = fingerprint != null ? getHistogram(fingerprint) : null;
+        RunningQuery runningQuery = new RunningQuery(execInfo, queryInfoList, histogram);
+        runningQuery.timeout = slowQueryTimer.schedule(getThresholdNanos(histogram), () -> logSlowQuery(runningQuery));
+        execInfo.addCustomValue(RUNNING_QUERY_KEY, runningQuery);
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        RunningQuery runningQuery = execInfo.getCustomValue(RUNNING_QUERY_KEY, RunningQuery.class);
+        if (runningQuery == null) {
+            return;
+        }
+        runningQuery.timeout.cancel();
+        if (runningQuery.histogram != null) {
+            runningQuery.histogram.record(System.nanoTime() - runningQuery.startNanos);
+        }
+    }
+
+    long getThresholdNanos(String fingerprint) {
+        return getThresholdNanos(histograms.get(fingerprint));
+    }
+
+    private long getThresholdNanos(QueryLatencyHistogram histogram) {
+        if (histogram == null) {
+            return thresholdNanos;
+        }
+        long percentileNanos = histogram.getPercentileNanos();
+        if (percentileNanos < 0) {
+            return thresholdNanos;
+        }
+        return Math.min(Math.max(percentileNanos, adaptive.getMinimumThreshold().toNanos()), thresholdNanos);
+    }
+
+    private String fingerprint(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        // latency of batches depends on their size, so they are compared only with the fixed threshold
+        if (execInfo.isBatch() || queryInfoList.size() != 1) {
+            return null;
+        }
+        return sqlFingerprinter.fingerprint(queryInfoList.get(0).getQuery());
+    }
+
+    private QueryLatencyHistogram getHistogram(String fingerprint) {
+        QueryLatencyHistogram histogram = histograms.get(fingerprint);
+        if (histogram == null && histograms.size() < adaptive.getMaxFingerprints()) {
+            histogram = histograms.computeIfAbsent(fingerprint, f -> new QueryLatencyHistogram(
+                    adaptive.getWindow().toNanos(), adaptive.getPercentile(), adaptive.getMinimumSamples()));
+        }
+        return histogram;
+    }
+
+    private void logSlowQuery(RunningQuery runningQuery) {
+        // query is still running, so execution info is copied with elapsed time instead of being modified
+        ExecutionInfo execInfo = runningQuery.execInfo;
+        ExecutionInfo slowExecInfo = new ExecutionInfo();
+        slowExecInfo.setDataSourceName(execInfo.getDataSourceName());
+        slowExecInfo.setConnectionId(execInfo.getConnectionId());
+        slowExecInfo.setMethod(execInfo.getMethod());
+        slowExecInfo.setMethodArgs(execInfo.getMethodArgs());
+        slowExecInfo.setStatement(execInfo.getStatement());
+        slowExecInfo.setStatementType(execInfo.getStatementType());
+        slowExecInfo.setBatch(execInfo.isBatch());
+        slowExecInfo.setBatchSize(execInfo.getBatchSize());
+        slowExecInfo.setElapsedTime(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - runningQuery.startNanos));
+        slowQueryLoggingListener.afterQuery(slowExecInfo, runningQuery.queryInfoList);
+    }
+
+    AbstractQueryLoggingListener getSlowQueryLoggingListener() {
+        return slowQueryLoggingListener;
+    }
+
+    Map<String, QueryLatencyHistogram> getHistograms() {
+        return Collections.unmodifiableMap(histograms);
+    }
+
+    private static class RunningQuery {
+        private final ExecutionInfo execInfo;
+        private final List<QueryInfo> queryInfoList;
+        private final QueryLatencyHistogram histogram;
+        private final long startNanos = System.nanoTime();
+        private SlowQueryTimer.Timeout timeout;
+
+        RunningQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList, QueryLatencyHistogram histogram) {
+            this.execInfo = execInfo;
+            this.queryInfoList = queryInfoList;
+            this.histogram = histogram;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Hashed wheel timer that fires slow query callbacks of all data sources from a single thread.
+ * <p>
+ * Unlike a {@link java.util.concurrent.ScheduledExecutorService}, scheduling and cancelling a timeout doesn't take
+ * locks and costs O(1) regardless of how many queries are in flight. New timeouts are handed over through a lock-free
+ * queue and distributed into the wheel by the timer thread, cancelled timeouts are dropped once their bucket is
+ * visited, so memory is bounded by the queries executed during a single turn of the wheel rather than during the
+ * whole threshold.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class SlowQueryTimer implements DisposableBean {
+
+    private static final Logger log = getLogger(SlowQueryTimer.class);
+
+    private static final int WHEEL_SIZE = 512;
+    private static final int MASK = WHEEL_SIZE - 1;
+
+    private final long tickNanos;
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final List<List<Timeout>> wheel = new ArrayList<>(WHEEL_SIZE);
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final Thread worker;
+    private volatile boolean running = true;
+    private long startNanos;
+    private long tick;
+
+    public SlowQueryTimer(long tickDuration, TimeUnit unit) {
+        this.tickNanos = Math.max(unit.toNanos(tickDuration), TimeUnit.MILLISECONDS.toNanos(1));
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel.add(new ArrayList<>());
+        }
+        this.worker = new Thread(this::run, "datasource-proxy-slow-query-timer");
+        this.worker.setDaemon(true);
+    }
+
+    /**
+     * Schedules task to run once the delay has passed, unless the returned timeout is cancelled before.
+     * The timer thread is started with the first scheduled task.
+     *
+     * @param delayNanos delay in nanoseconds
+     * @param task       task to run on the timer thread
+     * @return timeout that can be cancelled
+     */
+    public Timeout schedule(long delayNanos, Runnable task) {
+        if (started.compareAndSet(false, true)) {
+            startNanos = System.nanoTime();
+            worker.start();
+        }
+        Timeout timeout = new Timeout(System.nanoTime() + delayNanos, task);
+        if (running) {
+            pendingTimeouts.add(timeout);
+        }
+        return timeout;
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = startNanos + (tick + 1) * tickNanos;
+            long sleepNanos;
+            while (running && (sleepNanos = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, sleepNanos);
+            }
+            transferPendingTimeouts();
+            expireTimeouts(wheel.get((int) (tick & MASK)), deadline);
+            tick++;
+        }
+    }
+
+    private void transferPendingTimeouts() {
+        Timeout timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            if (timeout.state != Timeout.PENDING) {
+                continue;
+            }
+            long ticks = Math.max((timeout.deadlineNanos - startNanos) / tickNanos, tick);
+            timeout.remainingRounds = (ticks - tick) / WHEEL_SIZE;
+            wheel.get((int) (ticks & MASK)).add(timeout);
+        }
+    }
+
+    private void expireTimeouts(List<Timeout> bucket, long deadline) {
+        int retained = 0;
+        for (int i = 0; i < bucket.size(); i++) {
+            Timeout timeout = bucket.get(i);
+            if (timeout.state != Timeout.PENDING) {
+                continue;
+            }
+            if (timeout.remainingRounds <= 0 && timeout.deadlineNanos - deadline <= 0) {
+                timeout.expire();
+                continue;
+            }
+            timeout.remainingRounds--;
+            bucket.set(retained++, timeout);
+        }
+        bucket.subList(retained, bucket.size()).clear();
+    }
+
+    long getTickNanos() {
+        return tickNanos;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        if (started.get()) {
+            LockSupport.unpark(worker);
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        pendingTimeouts.clear();
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public static class Timeout {
+
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final long deadlineNanos;
+        private final Runnable task;
+        private volatile int state;
+        private long remainingRounds;
+
+        Timeout(long deadlineNanos, Runnable task) {
+            this.deadlineNanos = deadlineNanos;
+            this.task = task;
+        }
+
+        /**
+         * Cancels the task if it hasn't run yet.
+         *
+         * @return {@code true} if task was cancelled before it has run
+         */
+        public boolean cancel() {
+            return STATE.compareAndSet(this, PENDING, CANCELLED);
+        }
+
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+
+        private void expire() {
+            if (STATE.compareAndSet(this, PENDING, EXPIRED)) {
+                try {
+                    task.run();
+                }
+                catch (RuntimeException e) {
+                    log.warn("Failed to run slow query task", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy;
+
+import net.ttddyy.dsproxy.ConnectionIdManager;
+import net.ttddyy.dsproxy.proxy.GlobalConnectionIdManager;
+
+import java.sql.Connection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link ConnectionIdManager} that, like {@link GlobalConnectionIdManager}, returns ids unique across all
+ * data sources, but without contending on a single counter and a synchronized set of open ids.
+ * <p>
+ * Ids are taken from one of the counters striped by the number of CPUs, the counter is picked at random
+ * and the next one is tried if another thread updated it concurrently, so there is no per-thread state and
+ * a short-lived thread, e.g. a virtual thread per task, doesn't reserve anything. Counter {@code i} of {@code n}
+ * hands out ids {@code i + 1}, {@code i + 1 + n}, {@code i + 1 + 2n}, etc., so ids are unique, but not increasing.
+ * Open ids are tracked in a {@link ConcurrentHashMap} that locks only a single bin on update.
+ * <p>
+ * With a single CPU there is a single counter, and the manager behaves as a global counter.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class StripedConnectionIdManager implements ConnectionIdManager {
+
+    /**
+     * Distance between counters in the array, 16 longs keep every counter on its own pair of cache lines.
+     */
+    private static final int PADDING = 16;
+
+    private static final int COUNTERS = counters(Runtime.getRuntime().availableProcessors());
+
+    private static final AtomicLongArray NEXT_IDS = new AtomicLongArray(COUNTERS * PADDING);
+
+    private final Set<String> openIds = ConcurrentHashMap.newKeySet();
+
+    static int counters(int processors) {
+        return Integer.highestOneBit(Math.max(processors, 1) * 2 - 1);
+    }
+
+    @Override
+    public String getId(Connection connection) {
+        String id = String.valueOf(nextId());
+        openIds.add(id);
+        return id;
+    }
+
+    private static long nextId() {
+        int counter = COUNTERS == 1 ? 0 : ThreadLocalRandom.current().nextInt(COUNTERS);
+        while (true) {
+            long next = NEXT_IDS.get(counter * PADDING);
+            if (NEXT_IDS.compareAndSet(counter * PADDING, next, next + 1)) {
+                return next * COUNTERS + counter + 1;
+            }
+            counter = (counter + 1) & (COUNTERS - 1);
+        }
+    }
+
+    @Override
+    public void addClosedId(String closedId) {
+        openIds.remove(closedId);
+    }
+
+    @Override
+    public Set<String> getOpenConnectionIds() {
+        return Collections.unmodifiableSet(openIds);
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy;
+
+import net.ttddyy.dsproxy.QueryCount;
+import net.ttddyy.dsproxy.QueryType;
+import net.ttddyy.dsproxy.StatementType;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link QueryCount} backed by {@link LongAdder} counters, which are striped across CPU cores under contention,
+ * so concurrent queries of the same data source don't compete for the same cache lines.
+ * <p>
+ * Setters (e.g. used by {@link StripedQueryCountStrategy#clear()}) don't reset the counters, they only shift
+ * the values returned by getters, so {@link #getCumulativeCount(QueryType)} and {@link #getCumulativeFailure()}
+ * never go backwards and can be exported as monotonic counters.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class StripedQueryCount extends QueryCount {
+
+    private final Counter select = new Counter();
+    private final Counter insert = new Counter();
+    private final Counter update = new Counter();
+    private final Counter delete = new Counter();
+    private final Counter other = new Counter();
+    private final Counter statement = new Counter();
+    private final Counter prepared = new Counter();
+    private final Counter callable = new Counter();
+    private final Counter total = new Counter();
+    private final Counter success = new Counter();
+    private final Counter failure = new Counter();
+    private final Counter time = new Counter();
+
+    @Override
+    public void increment(QueryType queryType) {
+        switch (queryType) {
+            case SELECT:
+                select.increment();
+                break;
+            case INSERT:
+                insert.increment();
+                break;
+            case UPDATE:
+                update.increment();
+                break;
+            case DELETE:
+                delete.increment();
+                break;
+            case OTHER:
+                other.increment();
+                break;
+        }
+    }
+
+    @Override
+    public void increment(StatementType statementType) {
+        switch (statementType) {
+            case STATEMENT:
+                statement.increment();
+                break;
+            case PREPARED:
+                prepared.increment();
+                break;
+            case CALLABLE:
+                callable.increment();
+                break;
+        }
+    }
+
+    @Override
+    public void incrementSelect() {
+        select.increment();
+    }
+
+    @Override
+    public void incrementInsert() {
+        insert.increment();
+    }
+
+    @Override
+    public void incrementUpdate() {
+        update.increment();
+    }
+
+    @Override
+    public void incrementDelete() {
+        delete.increment();
+    }
+
+    @Override
+    public void incrementOther() {
+        other.increment();
+    }
+
+    @Override
+    public void incrementStatement() {
+        statement.increment();
+    }
+
+    @Override
+    public void incrementPrepared() {
+        prepared.increment();
+    }
+
+    @Override
+    public void incrementCallable() {
+        callable.increment();
+    }
+
+    @Override
+    public void incrementTotal() {
+        total.increment();
+    }
+
+    @Override
+    public void incrementSuccess() {
+        success.increment();
+    }
+
+    @Override
+    public void incrementFailure() {
+        failure.increment();
+    }
+
+    @Override
+    public void incrementTime(long delta) {
+        time.add(delta);
+    }
+
+    @Override
+    public long getSelect() {
+        return select.get();
+    }
+
+    @Override
+    public void setSelect(long select) {
+        this.select.set(select);
+    }
+
+    @Override
+    public long getInsert() {
+        return insert.get();
+    }
+
+    @Override
+    public void setInsert(long insert) {
+        this.insert.set(insert);
+    }
+
+    @Override
+    public long getUpdate() {
+        return update.get();
+    }
+
+    @Override
+    public void setUpdate(long update) {
+        this.update.set(update);
+    }
+
+    @Override
+    public long getDelete() {
+        return delete.get();
+    }
+
+    @Override
+    public void setDelete(long delete) {
+        this.delete.set(delete);
+    }
+
+    @Override
+    public long getOther() {
+        return other.get();
+    }
+
+    @Override
+    public void setOther(long other) {
+        this.other.set(other);
+    }
+
+    @Override
+    public long getStatement() {
+        return statement.get();
+    }
+
+    @Override
+    public void setStatement(long statement) {
+        this.statement.set(statement);
+    }
+
+    @Override
+    public long getPrepared() {
+        return prepared.get();
+    }
+
+    @Override
+    public void setPrepared(long prepared) {
+        this.prepared.set(prepared);
+    }
+
+    @Override
+    public long getCallable() {
+        return callable.get();
+    }
+
+    @Override
+    public void setCallable(long callable) {
+        this.callable.set(callable);
+    }
+
+    @Override
+    public long getTotal() {
+        return total.get();
+    }
+
+    @Override
+    public void setTotal(long total) {
+        this.total.set(total);
+    }
+
+    @Override
+    public long getSuccess() {
+        return success.get();
+    }
+
+    @Override
+    public void setSuccess(long success) {
+        this.success.set(success);
+    }
+
+    @Override
+    public long getFailure() {
+        return failure.get();
+    }
+
+    @Override
+    public void setFailure(long failure) {
+        this.failure.set(failure);
+    }
+
+    @Override
+    public long getTime() {
+        return time.get();
+    }
+
+    @Override
+    public void setTime(long time) {
+        this.time.set(time);
+    }
+
+    /**
+     * Returns number of queries of the given type executed since creation, not affected by setters.
+     *
+     * @param queryType type of the query
+     * @return number of executed queries
+     */
+    public long getCumulativeCount(QueryType queryType) {
+        switch (queryType) {
+            case SELECT:
+                return select.getCumulative();
+            case INSERT:
+                return insert.getCumulative();
+            case UPDATE:
+                return update.getCumulative();
+            case DELETE:
+                return delete.getCumulative();
+            default:
+                return other.getCumulative();
+        }
+    }
+
+    /**
+     * Returns number of queries failed since creation, not affected by setters.
+     *
+     * @return number of failed queries
+     */
+    public long getCumulativeFailure() {
+        return failure.getCumulative();
+    }
+
+    private static final class Counter {
+        private final LongAdder sum = new LongAdder();
+        private volatile long offset;
+
+        void increment() {
+            sum.increment();
+        }
+
+        void add(long delta) {
+            sum.add(delta);
+        }
+
+        long get() {
+            return sum.sum() - offset;
+        }
+
+        void set(long value) {
+            offset = sum.sum() - value;
+        }
+
+        long getCumulative() {
+            return sum.sum();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy;
+
+import net.ttddyy.dsproxy.QueryCount;
+import net.ttddyy.dsproxy.listener.QueryCountStrategy;
+import net.ttddyy.dsproxy.listener.SingleQueryCountHolder;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link QueryCountStrategy} keeping {@link StripedQueryCount} per data source name for the lifetime of the
+ * application, replaces {@link SingleQueryCountHolder} whose {@link java.util.concurrent.atomic.AtomicLong}
+ * counters are contended by every query of the data source.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class StripedQueryCountStrategy implements QueryCountStrategy {
+
+    private final ConcurrentHashMap<String, StripedQueryCount> queryCounts = new ConcurrentHashMap<>();
+
+    @Override
+    public StripedQueryCount getOrCreateQueryCount(String dataSourceName) {
+        return ConcurrentMaps.getOrCompute(queryCounts, dataSourceName, name -> new StripedQueryCount());
+    }
+
+    /**
+     * Returns query counts of all data sources that executed queries.
+     *
+     * @return query counts by data source name
+     */
+    public Map<String, QueryCount> getQueryCounts() {
+        return Collections.unmodifiableMap(queryCounts);
+    }
+
+    /**
+     * Resets query counts of all data sources.
+     */
+    public void clear() {
+        queryCounts.values().forEach(queryCount -> {
+            queryCount.setSelect(0);
+            queryCount.setInsert(0);
+            queryCount.setUpdate(0);
+            queryCount.setDelete(0);
+            queryCount.setOther(0);
+            queryCount.setStatement(0);
+            queryCount.setPrepared(0);
+            queryCount.setCallable(0);
+            queryCount.setTotal(0);
+            queryCount.setSuccess(0);
+            queryCount.setFailure(0);
+            queryCount.setTime(0);
+        });
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.lease;
+
+import java.util.List;
+
+/**
+ * Code that acquired connections, identified by the first stack frame outside of JDK, JDBC and data access frameworks.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class CallSite {
+
+    private final String location;
+    private final List<String> stackTrace;
+    private final LeaseStatistics statistics = new LeaseStatistics();
+
+    CallSite(String location, List<String> stackTrace) {
+        this.location = location;
+        this.stackTrace = stackTrace;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * Returns stack frames starting from the call site.
+     *
+     * @return stack frames
+     */
+    public List<String> getStackTrace() {
+        return stackTrace;
+    }
+
+    public LeaseStatistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public String toString() {
+        return location;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.lease;
+
+import org.springframework.util.ClassUtils;
+
+import javax.sql.CommonDataSource;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Captures stack trace and resolves it to a cached {@link CallSite}.
+ * <p>
+ * Frames of JDK, data access frameworks and classes implementing JDBC interfaces (data sources, pools and decorators)
+ * are skipped, the first remaining frame identifies the call site.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class CallSiteResolver {
+
+    private static final List<String> DEFAULT_IGNORED_PACKAGES = Arrays.asList(
+            "java.",
+            "javax.",
+            "jdk.",
+            "sun.",
+            "com.sun.",
+            "org.springframework.aop.",
+            "org.springframework.cglib.",
+            "org.springframework.dao.",
+            "org.springframework.jdbc.",
+            "org.springframework.orm.",
+            "org.springframework.transaction.",
+            "org.hibernate.",
+            "org.jooq.",
+            "org.apache.ibatis.",
+            "org.mybatis.",
+            "com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecoratorInterceptor",
+            CallSiteResolver.class.getName(),
+            ConnectionLeaseProfiler.class.getName()
+    );
+
+    private static final int MAX_CALL_SITES = 10000;
+
+    static final CallSite UNKNOWN = new CallSite("unknown", Collections.emptyList());
+
+    private final List<String> ignoredPackages;
+    private final int stackDepth;
+    private final ConcurrentHashMap<StackTraceElement, CallSite> callSites = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Boolean> jdbcClasses = new ConcurrentHashMap<>();
+
+    CallSiteResolver(List<String> ignoredPackages, int stackDepth) {
+        this.ignoredPackages = new ArrayList<>(DEFAULT_IGNORED_PACKAGES);
+        this.ignoredPackages.addAll(ignoredPackages);
+        this.stackDepth = stackDepth;
+    }
+
+    CallSite resolve() {
+        // Java 8 has no StackWalker, only sampled acquisitions pay for capturing the stack trace
+        StackTraceElement[] stackTrace = new Throwable().getStackTrace();
+        for (int i = 0; i < stackTrace.length; i++) {
+            StackTraceElement frame = stackTrace[i];
+            if (!isIgnored(frame.getClassName())) {
+                CallSite callSite = callSites.get(frame);
+                if (callSite == null) {
+                    if (callSites.size() >= MAX_CALL_SITES) {
+                        return UNKNOWN;
+                    }
+                    callSite = callSites.computeIfAbsent(frame, location -> createCallSite(stackTrace, location));
+                }
+                return callSite;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    List<CallSite> getCallSites() {
+        return new ArrayList<>(callSites.values());
+    }
+
+    private CallSite createCallSite(StackTraceElement[] stackTrace, StackTraceElement location) {
+        List<String> frames = new ArrayList<>(stackDepth);
+        int start = Arrays.asList(stackTrace).indexOf(location);
+        for (int i = start; i < stackTrace.length && frames.size() < stackDepth; i++) {
+            frames.add(stackTrace[i].toString());
+        }
+        return new CallSite(location.toString(), Collections.unmodifiableList(frames));
+    }
+
+    private boolean isIgnored(String className) {
+        for (String ignoredPackage : ignoredPackages) {
+            if (matches(className, ignoredPackage)) {
+                return true;
+            }
+        }
+        Boolean jdbcClass = jdbcClasses.get(className);
+        if (jdbcClass == null) {
+            jdbcClass = isJdbcClass(className);
+            jdbcClasses.put(className, jdbcClass);
+        }
+        return jdbcClass;
+    }
+
+    private static boolean matches(String className, String ignoredPackage) {
+        if (!className.startsWith(ignoredPackage)) {
+            return false;
+        }
+        if (ignoredPackage.endsWith(".") || className.length() == ignoredPackage.length()) {
+            return true;
+        }
+        // match whole package or class name including nested classes, but not other classes with the same prefix
+        char next = className.charAt(ignoredPackage.length());
+        return next == '.' || next == '$';
+    }
+
+    private static boolean isJdbcClass(String className) {
+        try {
+            Class<?> type = ClassUtils.forName(className, ClassUtils.getDefaultClassLoader());
+            return CommonDataSource.class.isAssignableFrom(type) || Connection.class.isAssignableFrom(type);
+        }
+        catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
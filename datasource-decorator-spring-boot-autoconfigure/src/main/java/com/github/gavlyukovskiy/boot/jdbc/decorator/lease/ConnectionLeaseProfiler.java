@@ -0,0 +1,196 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.lease;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Collects lease times of connections per data source and per sampled call site.
+ * <p>
+ * Every lease is recorded into data source statistics, call site is captured only for sampled acquisitions.
+ * Open leases of all connections are counted per acquisition time bucket, a background scan reports the number of
+ * connections still open after the leak threshold and the stack of every such sampled connection once.
+ * Leases of all connections longer than the threshold are counted as leaks when they are closed.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class ConnectionLeaseProfiler implements DisposableBean {
+
+    private static final Logger log = getLogger(ConnectionLeaseProfiler.class);
+
+    private static final long MIN_SCAN_INTERVAL_MILLIS = 100;
+
+    private final double sampleRate;
+    private final long leakThresholdNanos;
+    private final long scanIntervalNanos;
+    private final CallSiteResolver callSiteResolver;
+    private final Map<String, LeaseStatistics> dataSourceStatistics = new ConcurrentHashMap<>();
+    private final Map<String, OpenLeases> dataSourceOpenLeases = new ConcurrentHashMap<>();
+    private final Set<ProfiledConnection> openLeases = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService leakDetector;
+
+    public ConnectionLeaseProfiler(LeaseProfilerProperties properties) {
+        this.sampleRate = properties.getSampleRate();
+        this.leakThresholdNanos = properties.getLeakThreshold().toNanos();
+        this.callSiteResolver = new CallSiteResolver(properties.getIgnoredPackages(), properties.getStackDepth());
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("connection-lease-leak-detector-");
+        threadFactory.setDaemon(true);
+        this.leakDetector = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        long scanInterval = Math.max(properties.getLeakThreshold().toMillis() / 2, MIN_SCAN_INTERVAL_MILLIS);
+        this.scanIntervalNanos = TimeUnit.MILLISECONDS.toNanos(scanInterval);
+        this.leakDetector.scheduleWithFixedDelay(this::detectLeaks, scanInterval, scanInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns lease statistics of all profiled data sources.
+     *
+     * @return statistics by data source name
+     */
+    public Map<String, LeaseStatistics> getDataSourceStatistics() {
+        return Collections.unmodifiableMap(dataSourceStatistics);
+    }
+
+    /**
+     * Returns all captured call sites.
+     *
+     * @return call sites
+     */
+    public List<CallSite> getCallSites() {
+        return callSiteResolver.getCallSites();
+    }
+
+    /**
+     * Returns number of sampled connections that are currently held.
+     *
+     * @return number of sampled open leases
+     */
+    public int getOpenSampledLeases() {
+        return openLeases.size();
+    }
+
+    /**
+     * Returns number of connections of every data source, sampled or not, that are held longer than the leak threshold.
+     *
+     * @return number of possibly leaked connections by data source name
+     */
+    public Map<String, Long> getOpenLeakCounts() {
+        long now = System.nanoTime();
+        Map<String, Long> openLeakCounts = new TreeMap<>();
+        dataSourceOpenLeases.forEach((dataSourceName, openLeases) ->
+                openLeakCounts.put(dataSourceName, openLeases.countLeaks(now, leakThresholdNanos)));
+        return openLeakCounts;
+    }
+
+    LeaseStatistics registerDataSource(String dataSourceName) {
+        return dataSourceStatistics.computeIfAbsent(dataSourceName, name -> new LeaseStatistics());
+    }
+
+    OpenLeases registerOpenLeases(String dataSourceName) {
+        return dataSourceOpenLeases.computeIfAbsent(dataSourceName, name -> new OpenLeases(scanIntervalNanos));
+    }
+
+    CallSite sampleCallSite() {
+        if (sampleRate <= 0.0) {
+            return null;
+        }
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return null;
+        }
+        return callSiteResolver.resolve();
+    }
+
+    void opened(ProfiledConnection connection) {
+        if (connection.getCallSite() != null) {
+            openLeases.add(connection);
+        }
+    }
+
+    void closed(ProfiledConnection connection, long elapsedNanos) {
+        boolean leaked = elapsedNanos > leakThresholdNanos;
+        connection.getStatistics().record(elapsedNanos, leaked);
+        CallSite callSite = connection.getCallSite();
+        if (callSite != null) {
+            openLeases.remove(connection);
+            callSite.getStatistics().record(elapsedNanos, leaked);
+            if (leaked && !connection.isLeakReported()) {
+                log.warn("Connection of data source '{}' was held for {} ms, acquired at {}",
+                        connection.getDataSourceName(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos), callSite);
+            }
+        }
+    }
+
+    void detectLeaks() {
+        long now = System.nanoTime();
+        dataSourceOpenLeases.forEach((dataSourceName, openLeases) -> {
+            long leaks = openLeases.countLeaks(now, leakThresholdNanos);
+            // only the increase is reported, as the same connections are counted by every scan until they are closed
+            if (leaks > openLeases.getReportedLeaks()) {
+                log.warn("{} connections of data source '{}' are held for more than {} ms and might have leaked",
+                        leaks, dataSourceName, TimeUnit.NANOSECONDS.toMillis(leakThresholdNanos));
+            }
+            openLeases.setReportedLeaks(leaks);
+        });
+        for (ProfiledConnection connection : openLeases) {
+            long elapsedNanos = now - connection.getAcquiredTime();
+            if (elapsedNanos > leakThresholdNanos && !connection.isLeakReported()) {
+                connection.setLeakReported(true);
+                log.warn("Connection of data source '{}' is held for {} ms and might have leaked, acquired at:\n\tat {}",
+                        connection.getDataSourceName(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                        String.join("\n\tat ", connection.getCallSite().getStackTrace()));
+            }
+        }
+    }
+
+    /**
+     * Returns sampled connections held longer than the leak threshold.
+     *
+     * @return call sites of possibly leaked connections
+     */
+    public List<CallSite> getOpenLeaks() {
+        long now = System.nanoTime();
+        List<CallSite> leaks = new ArrayList<>();
+        for (ProfiledConnection connection : openLeases) {
+            if (now - connection.getAcquiredTime() > leakThresholdNanos) {
+                leaks.add(connection.getCallSite());
+            }
+        }
+        return leaks;
+    }
+
+    @Override
+    public void destroy() {
+        leakDetector.shutdownNow();
+    }
+}
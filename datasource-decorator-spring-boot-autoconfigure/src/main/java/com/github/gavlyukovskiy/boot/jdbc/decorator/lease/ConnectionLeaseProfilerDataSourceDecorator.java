@@ -0,0 +1,56 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.lease;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecorator;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+/**
+ * {@link Ordered} decorator that records time connections are held into {@link ConnectionLeaseProfiler}.
+ * <p>
+ * Wraps all decorators except the concurrency limiter and read/write splitting, which are applied outside of it,
+ * so lease time doesn't include time spent waiting for a concurrency limit permit.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class ConnectionLeaseProfilerDataSourceDecorator implements DataSourceDecorator, Ordered {
+
+    private final ConnectionLeaseProfiler profiler;
+
+    public ConnectionLeaseProfilerDataSourceDecorator(ConnectionLeaseProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @Override
+    public DataSource decorate(String beanName, DataSource dataSource) {
+        return new LeaseProfilingDataSource(dataSource, profiler, beanName);
+    }
+
+    @Override
+    public boolean isObserving() {
+        return true;
+    }
+
+    @Override
+    public int getOrder() {
+        return 40;
+    }
+}
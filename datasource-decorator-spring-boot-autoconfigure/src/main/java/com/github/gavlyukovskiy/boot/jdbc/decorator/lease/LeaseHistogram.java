@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.lease;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of lease times with power-of-two microsecond buckets, percentiles are accurate within factor of two.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class LeaseHistogram {
+
+    private static final int BUCKETS = 40;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalTimeNanos = new LongAdder();
+    private final LongAccumulator maxTimeNanos = new LongAccumulator(Math::max, 0L);
+
+    LeaseHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    void record(long elapsedNanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(elapsedNanos);
+        // bucket i holds values below 2^i microseconds
+        int bucket = Math.min(Long.SIZE - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+        buckets[bucket].increment();
+        count.increment();
+        totalTimeNanos.add(elapsedNanos);
+        maxTimeNanos.accumulate(elapsedNanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalTimeNanos() {
+        return totalTimeNanos.sum();
+    }
+
+    public long getMeanTimeNanos() {
+        long count = getCount();
+        return count != 0 ? getTotalTimeNanos() / count : 0L;
+    }
+
+    public long getMaxTimeNanos() {
+        return maxTimeNanos.get();
+    }
+
+    /**
+     * Returns upper bound of the bucket containing given percentile.
+     *
+     * @param percentile percentile from 0.0 to 1.0
+     * @return upper bound of the percentile in nanoseconds, never greater than max value
+     */
+    public long getPercentileNanos(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0L;
+        }
+        long rank = (long) Math.ceil(percentile * total);
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulative += counts[i];
+            if (cumulative >= rank) {
+                return Math.min(TimeUnit.MICROSECONDS.toNanos(1L << i), getMaxTimeNanos());
+            }
+        }
+        return getMaxTimeNanos();
+    }
+}
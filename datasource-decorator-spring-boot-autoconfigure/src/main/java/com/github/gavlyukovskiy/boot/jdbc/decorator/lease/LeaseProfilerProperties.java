@@ -0,0 +1,57 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.lease;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Properties for connection lease profiler.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+@Getter
+@Setter
+public class LeaseProfilerProperties {
+
+    /**
+     * Enables recording of time connections are held.
+     */
+    private boolean enabled = false;
+    /**
+     * Fraction of acquisitions (from 0.0 to 1.0) for which the call site is captured.
+     */
+    private double sampleRate = 0.01;
+    /**
+     * Connections held longer than this threshold are reported as leaks with the call site that acquired them.
+     */
+    private Duration leakThreshold = Duration.ofSeconds(60);
+    /**
+     * Number of stack frames captured starting from the call site.
+     */
+    private int stackDepth = 10;
+    /**
+     * Packages and classes skipped when looking for the call site, in addition to JDK, JDBC and data access frameworks.
+     */
+    private List<String> ignoredPackages = new ArrayList<>();
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.lease;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * {@link DataSource} that returns {@link ProfiledConnection}s.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class LeaseProfilingDataSource extends DelegatingDataSource {
+
+    private final ConnectionLeaseProfiler profiler;
+    private final String dataSourceName;
+    private final LeaseStatistics statistics;
+    private final OpenLeases openLeases;
+
+    LeaseProfilingDataSource(DataSource dataSource, ConnectionLeaseProfiler profiler, String dataSourceName) {
+        super(dataSource);
+        this.profiler = profiler;
+        this.dataSourceName = dataSourceName;
+        this.statistics = profiler.registerDataSource(dataSourceName);
+        this.openLeases = profiler.registerOpenLeases(dataSourceName);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return profile(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return profile(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private Connection profile(Connection connection) {
+        return new ProfiledConnection(connection, profiler, dataSourceName, statistics, openLeases, profiler.sampleCallSite());
+    }
+
+    @Override
+    public String toString() {
+        return "LeaseProfilingDataSource [" + getTargetDataSource() + "]";
+    }
+}
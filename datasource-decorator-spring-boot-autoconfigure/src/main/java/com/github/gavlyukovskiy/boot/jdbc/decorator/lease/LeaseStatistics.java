@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.lease;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lease times and number of leaks of a data source or a call site.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class LeaseStatistics {
+
+    private final LeaseHistogram histogram = new LeaseHistogram();
+    private final LongAdder leaks = new LongAdder();
+
+    void record(long elapsedNanos, boolean leaked) {
+        histogram.record(elapsedNanos);
+        if (leaked) {
+            leaks.increment();
+        }
+    }
+
+    public LeaseHistogram getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * Returns number of connections that were held longer than the leak threshold.
+     *
+     * @return number of leaks
+     */
+    public long getLeaks() {
+        return leaks.sum();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.lease;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Open connections of a data source counted per acquisition time bucket.
+ * <p>
+ * Every lease is tracked without registering the connection: acquisition increments the striped counter
+ * of the current bucket and closing decrements the counter of the bucket the connection was acquired in.
+ * Buckets are as long as the leak detection interval, so connections held longer than the threshold are counted
+ * at most one interval late.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class OpenLeases {
+
+    private final long bucketNanos;
+    private final AtomicReference<Bucket> current = new AtomicReference<>();
+    private final ConcurrentLinkedQueue<Bucket> buckets = new ConcurrentLinkedQueue<>();
+    // accessed only by the leak detector thread
+    private long reportedLeaks;
+
+    OpenLeases(long bucketNanos) {
+        this.bucketNanos = bucketNanos;
+    }
+
+    Bucket opened(long now) {
+        Bucket bucket = current.get();
+        if (bucket == null || now - bucket.startNanos >= bucketNanos) {
+            Bucket next = new Bucket(now);
+            if (current.compareAndSet(bucket, next)) {
+                buckets.add(next);
+                bucket = next;
+            }
+            else {
+                bucket = current.get();
+            }
+        }
+        bucket.open.increment();
+        return bucket;
+    }
+
+    /**
+     * Returns number of open connections acquired longer than the threshold ago, removes buckets of closed ones.
+     *
+     * @param now current {@link System#nanoTime()}
+     * @param thresholdNanos leak threshold
+     * @return number of possibly leaked connections
+     */
+    long countLeaks(long now, long thresholdNanos) {
+        long leaks = 0;
+        Bucket current = this.current.get();
+        for (Iterator<Bucket> iterator = buckets.iterator(); iterator.hasNext(); ) {
+            Bucket bucket = iterator.next();
+            // connections of the bucket were acquired before its end
+            if (now - (bucket.startNanos + bucketNanos) <= thresholdNanos) {
+                break;
+            }
+            long open = bucket.open.sum();
+            if (open == 0 && bucket != current) {
+                // only connections of the current bucket are acquired, the others can only be closed
+                iterator.remove();
+            }
+            leaks += open;
+        }
+        return leaks;
+    }
+
+    long getReportedLeaks() {
+        return reportedLeaks;
+    }
+
+    void setReportedLeaks(long reportedLeaks) {
+        this.reportedLeaks = reportedLeaks;
+    }
+
+    static class Bucket {
+        private final long startNanos;
+        private final LongAdder open = new LongAdder();
+
+        Bucket(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        void closed() {
+            open.decrement();
+        }
+    }
+}
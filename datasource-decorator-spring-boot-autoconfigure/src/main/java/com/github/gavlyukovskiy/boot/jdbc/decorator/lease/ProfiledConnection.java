@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.lease;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.support.DelegatingConnection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link Connection} that reports time it was held to {@link ConnectionLeaseProfiler}.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class ProfiledConnection extends DelegatingConnection {
+
+    private final ConnectionLeaseProfiler profiler;
+    private final String dataSourceName;
+    private final LeaseStatistics statistics;
+    private final CallSite callSite;
+    private final long acquiredTime;
+    private final OpenLeases.Bucket openLeasesBucket;
+    private volatile boolean leakReported;
+    private boolean closed;
+
+    ProfiledConnection(Connection delegate, ConnectionLeaseProfiler profiler, String dataSourceName,
+            LeaseStatistics statistics, OpenLeases openLeases, CallSite callSite) {
+        super(delegate);
+        this.profiler = profiler;
+        this.dataSourceName = dataSourceName;
+        this.statistics = statistics;
+        this.callSite = callSite;
+        this.acquiredTime = System.nanoTime();
+        this.openLeasesBucket = openLeases.opened(acquiredTime);
+        profiler.opened(this);
+    }
+
+    String getDataSourceName() {
+        return dataSourceName;
+    }
+
+    LeaseStatistics getStatistics() {
+        return statistics;
+    }
+
+    CallSite getCallSite() {
+        return callSite;
+    }
+
+    long getAcquiredTime() {
+        return acquiredTime;
+    }
+
+    boolean isLeakReported() {
+        return leakReported;
+    }
+
+    void setLeakReported(boolean leakReported) {
+        this.leakReported = leakReported;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            delegate.close();
+        }
+        finally {
+            closed();
+        }
+    }
+
+    @Override
+    public void abort(Executor executor) throws SQLException {
+        try {
+            delegate.abort(executor);
+        }
+        finally {
+            closed();
+        }
+    }
+
+    private void closed() {
+        // closing already closed connection is a no-op
+        if (!closed) {
+            closed = true;
+            openLeasesBucket.closed();
+            profiler.closed(this, System.nanoTime() - acquiredTime);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.limit;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecorator;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link Ordered} decorator that applies an adaptive limit of concurrently used connections to every data source.
+ * <p>
+ * Applied after all decorators except read/write splitting, so rejected requests don't reach the pool and
+ * other decorators, while queries of replicas are limited by their own data sources.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class ConcurrencyLimitDataSourceDecorator implements DataSourceDecorator, Ordered {
+
+    private final ConcurrencyLimitProperties concurrencyLimitProperties;
+    private final Map<String, ConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    public ConcurrencyLimitDataSourceDecorator(ConcurrencyLimitProperties concurrencyLimitProperties) {
+        this.concurrencyLimitProperties = concurrencyLimitProperties;
+    }
+
+    @Override
+    public DataSource decorate(String beanName, DataSource dataSource) {
+        return new ConcurrencyLimitingDataSource(dataSource, beanName, getLimiter(beanName));
+    }
+
+    /**
+     * Returns concurrency limiter of the data source.
+     *
+     * @param dataSourceName name of the data source
+     * @return limiter of the data source
+     */
+    public ConcurrencyLimiter getLimiter(String dataSourceName) {
+        return limiters.computeIfAbsent(dataSourceName, name -> new ConcurrencyLimiter(
+                new GradientLimit(concurrencyLimitProperties.getInitialLimit(), concurrencyLimitProperties.getMinLimit(),
+                        concurrencyLimitProperties.getMaxLimit(), concurrencyLimitProperties.getTolerance()),
+                concurrencyLimitProperties.getQueueTimeout().toNanos()));
+    }
+
+    /**
+     * Returns concurrency limiters of all decorated data sources.
+     *
+     * @return limiters by data source name
+     */
+    public Map<String, ConcurrencyLimiter> getLimiters() {
+        return Collections.unmodifiableMap(limiters);
+    }
+
+    @Override
+    public int getOrder() {
+        return 45;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.limit;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+
+/**
+ * Properties for adaptive limit of concurrently used connections.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+@Getter
+@Setter
+public class ConcurrencyLimitProperties {
+
+    /**
+     * Enables adaptive limit of concurrently used connections.
+     */
+    private boolean enabled = false;
+    /**
+     * Limit of concurrently used connections before any latency is observed.
+     */
+    private int initialLimit = 20;
+    /**
+     * Minimum limit of concurrently used connections.
+     */
+    private int minLimit = 1;
+    /**
+     * Maximum limit of concurrently used connections, usually the size of the pool.
+     */
+    private int maxLimit = 200;
+    /**
+     * Ratio of current to long-term query latency that is tolerated before the limit is decreased.
+     */
+    private double tolerance = 1.5;
+    /**
+     * Time to wait for a connection when the limit is reached, connection is rejected immediately when zero.
+     */
+    private Duration queueTimeout = Duration.ZERO;
+}
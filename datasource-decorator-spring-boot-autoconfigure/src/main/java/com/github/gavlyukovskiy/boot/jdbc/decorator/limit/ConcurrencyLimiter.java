@@ -0,0 +1,185 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Adaptive limit of concurrently used connections of a data source.
+ * <p>
+ * Query latencies are accumulated in {@link LongAdder}s and every {@value #WINDOW_MILLIS} ms the thread that
+ * closes the window updates the {@link GradientLimit}, so recording a sample doesn't take locks. Permits are taken
+ * with CAS, the lock is used only by threads waiting for a permit.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class ConcurrencyLimiter {
+
+    static final long WINDOW_MILLIS = 100;
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(WINDOW_MILLIS);
+
+    private final GradientLimit gradientLimit;
+    private final long queueTimeoutNanos;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private volatile int limit;
+
+    private final LongAdder windowRttNanos = new LongAdder();
+    private final LongAdder windowSamples = new LongAdder();
+    private final LongAccumulator windowMaxInflight = new LongAccumulator(Math::max, 0);
+    private final AtomicLong windowEndNanos = new AtomicLong(System.nanoTime() + WINDOW_NANOS);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitReleased = lock.newCondition();
+    private volatile int waiters;
+
+    ConcurrencyLimiter(GradientLimit gradientLimit, long queueTimeoutNanos) {
+        this.gradientLimit = gradientLimit;
+        this.queueTimeoutNanos = queueTimeoutNanos;
+        this.limit = gradientLimit.getLimit();
+    }
+
+    /**
+     * Returns current limit of concurrently used connections.
+     *
+     * @return current limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Returns the number of connections in use.
+     *
+     * @return number of connections in use
+     */
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    /**
+     * Returns the number of rejected connection requests.
+     *
+     * @return number of rejected connection requests
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Takes a permit, waiting for at most the queue timeout if the limit is reached.
+     *
+     * @return {@code false} if permit is rejected
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean acquire() throws InterruptedException {
+        if (tryAcquire() || queueTimeoutNanos > 0 && await()) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    private boolean tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean await() throws InterruptedException {
+        long nanos = queueTimeoutNanos;
+        lock.lockInterruptibly();
+        try {
+            waiters++;
+            try {
+                while (!tryAcquire()) {
+                    if (nanos <= 0) {
+                        return false;
+                    }
+                    nanos = permitReleased.awaitNanos(nanos);
+                }
+                return true;
+            }
+            finally {
+                waiters--;
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    void release() {
+        inflight.decrementAndGet();
+        signalWaiters();
+    }
+
+    private void signalWaiters() {
+        if (waiters > 0) {
+            lock.lock();
+            try {
+                permitReleased.signalAll();
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Records latency of a query executed on a connection holding a permit.
+     *
+     * @param rttNanos query latency
+     */
+    void onSample(long rttNanos) {
+        windowRttNanos.add(rttNanos);
+        windowSamples.increment();
+        windowMaxInflight.accumulate(inflight.get());
+        long now = System.nanoTime();
+        long windowEnd = windowEndNanos.get();
+        if (now - windowEnd >= 0 && windowEndNanos.compareAndSet(windowEnd, now + WINDOW_NANOS)) {
+            // samples recorded concurrently with the reset might move to the next window, which is fine for an estimate
+            long samples = windowSamples.sumThenReset();
+            long rttSum = windowRttNanos.sumThenReset();
+            long maxInflight = windowMaxInflight.getThenReset();
+            if (samples > 0) {
+                updateLimit(gradientLimit.update((double) rttSum / samples, (int) maxInflight));
+            }
+        }
+    }
+
+    private void updateLimit(int newLimit) {
+        int oldLimit = limit;
+        limit = newLimit;
+        if (newLimit > oldLimit) {
+            signalWaiters();
+        }
+    }
+}
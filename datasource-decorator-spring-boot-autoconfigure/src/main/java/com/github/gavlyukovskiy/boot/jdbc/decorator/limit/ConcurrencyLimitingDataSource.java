@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.limit;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * {@link DataSource} that takes a permit of {@link ConcurrencyLimiter} before acquiring a connection and
+ * fails with {@link SQLTransientConnectionException} when the limit is reached.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class ConcurrencyLimitingDataSource extends DelegatingDataSource {
+
+    private final String dataSourceName;
+    private final ConcurrencyLimiter limiter;
+
+    ConcurrencyLimitingDataSource(DataSource dataSource, String dataSourceName, ConcurrencyLimiter limiter) {
+        super(dataSource);
+        this.dataSourceName = dataSourceName;
+        this.limiter = limiter;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquirePermit();
+        try {
+            return new LimitedConnection(obtainTargetDataSource().getConnection(), limiter);
+        }
+        catch (SQLException | RuntimeException e) {
+            limiter.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquirePermit();
+        try {
+            return new LimitedConnection(obtainTargetDataSource().getConnection(username, password), limiter);
+        }
+        catch (SQLException | RuntimeException e) {
+            limiter.release();
+            throw e;
+        }
+    }
+
+    private void acquirePermit() throws SQLException {
+        boolean acquired;
+        try {
+            acquired = limiter.acquire();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection of '" + dataSourceName + "'", e);
+        }
+        if (!acquired) {
+            throw new SQLTransientConnectionException("Concurrency limit of " + limiter.getLimit() + " connections of '"
+                    + dataSourceName + "' is reached");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrencyLimitingDataSource [" + getTargetDataSource() + "]";
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.limit;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Gradient based concurrency limit.
+ * <p>
+ * Compares query latency of the last window with long-term latency: while the ratio is within the tolerance
+ * the limit grows by its square root, when latency grows beyond it the limit is decreased proportionally, at most
+ * by half. The limit is not increased when less than half of it is used, as such windows say nothing about capacity.
+ * Long-term latency slowly follows the current one, so a permanent change of latency becomes the new baseline.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class GradientLimit {
+
+    private static final double SMOOTHING = 0.2;
+    private static final int LONG_WINDOW = 600;
+    private static final int WARMUP_WINDOWS = 10;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    // updated only by the thread closing the window, snapshot avoids locking if a slow update overlaps the next one
+    private final AtomicReference<State> state;
+
+    GradientLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.state = new AtomicReference<>(new State(clamp(initialLimit), 0, 0));
+    }
+
+    int getLimit() {
+        return state.get().getLimit();
+    }
+
+    /**
+     * Updates the limit with latency observed in the last window.
+     *
+     * @param rttNanos mean query latency of the window
+     * @param maxInflight maximum number of concurrently used connections in the window
+     * @return updated limit
+     */
+    int update(double rttNanos, int maxInflight) {
+        return state.updateAndGet(current -> next(current, Math.max(rttNanos, 1), maxInflight)).getLimit();
+    }
+
+    private State next(State current, double rttNanos, int maxInflight) {
+        int windows = current.windows;
+        double longRtt = current.longRtt;
+        if (windows < WARMUP_WINDOWS) {
+            windows++;
+            longRtt += (rttNanos - longRtt) / windows;
+        }
+        else {
+            longRtt += (rttNanos - longRtt) * 2 / (LONG_WINDOW + 1);
+        }
+        if (longRtt / rttNanos > 2) {
+            // latency dropped, e.g. after an outage, baseline is recovered faster
+            longRtt *= 0.95;
+        }
+        double estimatedLimit = current.estimatedLimit;
+        if (maxInflight >= estimatedLimit / 2) {
+            double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / rttNanos));
+            double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+            estimatedLimit = clamp(estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING);
+        }
+        return new State(estimatedLimit, longRtt, windows);
+    }
+
+    private double clamp(double limit) {
+        return Math.max(minLimit, Math.min(maxLimit, limit));
+    }
+
+    private static final class State {
+        private final double estimatedLimit;
+        private final double longRtt;
+        private final int windows;
+
+        State(double estimatedLimit, double longRtt, int windows) {
+            this.estimatedLimit = estimatedLimit;
+            this.longRtt = longRtt;
+            this.windows = windows;
+        }
+
+        int getLimit() {
+            return (int) estimatedLimit;
+        }
+    }
+}
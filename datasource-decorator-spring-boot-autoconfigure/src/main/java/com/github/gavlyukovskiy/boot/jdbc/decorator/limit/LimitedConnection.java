@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.limit;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.support.DelegatingConnection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link Connection} holding a permit of {@link ConcurrencyLimiter}, reports latency of every query to it
+ * and releases the permit once closed.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class LimitedConnection extends DelegatingConnection {
+
+    private final ConcurrencyLimiter limiter;
+    private boolean released;
+
+    LimitedConnection(Connection delegate, ConcurrencyLimiter limiter) {
+        super(delegate);
+        this.limiter = limiter;
+    }
+
+    @Override
+    protected long beforeExecute(String sql) {
+        return System.nanoTime();
+    }
+
+    @Override
+    protected void afterExecute(long token, String sql, SQLException error) {
+        limiter.onSample(System.nanoTime() - token);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            delegate.close();
+        }
+        finally {
+            release();
+        }
+    }
+
+    @Override
+    public void abort(Executor executor) throws SQLException {
+        try {
+            delegate.abort(executor);
+        }
+        finally {
+            release();
+        }
+    }
+
+    private void release() {
+        if (!released) {
+            released = true;
+            limiter.release();
+        }
+    }
+}
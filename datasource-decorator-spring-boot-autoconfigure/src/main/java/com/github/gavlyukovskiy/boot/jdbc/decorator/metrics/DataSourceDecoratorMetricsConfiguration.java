@@ -0,0 +1,223 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.metrics;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecoratorBeanPostProcessor;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecoratorProperties;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceNameResolver;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DecoratedDataSource;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy.AsyncQueryLogWriter;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy.StripedQueryCount;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy.StripedQueryCountStrategy;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.limit.ConcurrencyLimitDataSourceDecorator;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.limit.ConcurrencyLimiter;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.statementcache.StatementCacheDataSourceDecorator;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.statementcache.StatementCacheStatistics;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.xa.XAPhaseListener;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import net.ttddyy.dsproxy.QueryType;
+import net.ttddyy.dsproxy.listener.QueryCountStrategy;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import javax.sql.DataSource;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration that exports time spent on decorating of each {@link DataSource} bean,
+ * time of XA two-phase commit phases and, if enabled, connection and statement timers,
+ * prepared statement cache counters, concurrency limits and datasource-proxy query counts to Micrometer.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+@ConditionalOnClass(MeterRegistry.class)
+@ConditionalOnBean(MeterRegistry.class)
+@Import(DataSourceDecoratorMetricsConfiguration.QueryCountMetricsConfiguration.class)
+public class DataSourceDecoratorMetricsConfiguration {
+
+    public static final String DECORATION_TIME_METRIC_NAME = "jdbc.datasource.decoration.time";
+
+    public static final String XA_PHASE_TIME_METRIC_NAME = "jdbc.xa.phase";
+
+    public static final String STATEMENT_CACHE_HITS_METRIC_NAME = "jdbc.statement.cache.hits";
+
+    public static final String STATEMENT_CACHE_MISSES_METRIC_NAME = "jdbc.statement.cache.misses";
+
+    public static final String STATEMENT_CACHE_EVICTIONS_METRIC_NAME = "jdbc.statement.cache.evictions";
+
+    public static final String CONCURRENCY_LIMIT_METRIC_NAME = "jdbc.connections.concurrency.limit";
+
+    public static final String CONCURRENCY_INFLIGHT_METRIC_NAME = "jdbc.connections.concurrency.inflight";
+
+    public static final String CONCURRENCY_REJECTED_METRIC_NAME = "jdbc.connections.concurrency.rejected";
+
+    public static final String QUERY_LOG_DROPPED_METRIC_NAME = "jdbc.query.log.dropped";
+
+    public static final String QUERY_COUNT_METRIC_NAME = "jdbc.queries";
+
+    public static final String QUERY_FAILURE_COUNT_METRIC_NAME = "jdbc.queries.failed";
+
+    @Bean
+    public static XAPhaseListener micrometerXAPhaseListener(ObjectProvider<MeterRegistry> registries) {
+        return new MicrometerXAPhaseListener(registries);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "decorator.datasource.micrometer.enabled", havingValue = "true")
+    public static MicrometerDataSourceDecorator micrometerDataSourceDecorator(MeterRegistry registry,
+                                                                              DataSourceDecoratorProperties dataSourceDecoratorProperties) {
+        return new MicrometerDataSourceDecorator(registry, dataSourceDecoratorProperties.getMicrometer());
+    }
+
+    @Autowired(required = false)
+    void bindDecorationTimesToRegistry(Map<String, DataSource> dataSources, Collection<MeterRegistry> registries,
+                                       ObjectProvider<DataSourceDecoratorBeanPostProcessor> dataSourceDecoratorBeanPostProcessor) {
+        // data sources are injected to make sure all of them are decorated before binding
+        dataSourceDecoratorBeanPostProcessor.ifAvailable(postProcessor -> {
+            Map<String, Long> decorationTimes = postProcessor.getDecorationTimes();
+            // routing targets and XA data sources are decorated under names that are not data source beans
+            Set<String> names = new TreeSet<>(decorationTimes.keySet());
+            // lazily decorated data sources have no decoration time until the first connection
+            dataSources.forEach((beanName, dataSource) -> {
+                if (dataSource instanceof DecoratedDataSource) {
+                    names.add(beanName);
+                }
+            });
+            names.forEach(name -> registries.forEach(registry ->
+                    TimeGauge.builder(DECORATION_TIME_METRIC_NAME, decorationTimes, TimeUnit.NANOSECONDS,
+                            times -> times.getOrDefault(name, 0L))
+                            .description("Time spent on decorating of the data source")
+                            .tag("name", name)
+                            .register(registry)));
+        });
+    }
+
+    @Autowired(required = false)
+    void bindStatementCacheStatisticsToRegistry(Map<String, DataSource> dataSources, Collection<MeterRegistry> registries,
+                                                ObjectProvider<StatementCacheDataSourceDecorator> statementCacheDataSourceDecorator) {
+        statementCacheDataSourceDecorator.ifAvailable(decorator -> dataSources.forEach((beanName, dataSource) -> {
+            if (dataSource instanceof DecoratedDataSource) {
+                StatementCacheStatistics statistics = decorator.getStatistics(beanName);
+                registries.forEach(registry -> {
+                    FunctionCounter.builder(STATEMENT_CACHE_HITS_METRIC_NAME, statistics, StatementCacheStatistics::getHits)
+                            .description("Number of prepared statements returned from the cache")
+                            .tag("name", beanName)
+                            .register(registry);
+                    FunctionCounter.builder(STATEMENT_CACHE_MISSES_METRIC_NAME, statistics, StatementCacheStatistics::getMisses)
+                            .description("Number of prepared statements prepared by the driver")
+                            .tag("name", beanName)
+                            .register(registry);
+                    FunctionCounter.builder(STATEMENT_CACHE_EVICTIONS_METRIC_NAME, statistics, StatementCacheStatistics::getEvictions)
+                            .description("Number of prepared statements evicted from the cache")
+                            .tag("name", beanName)
+                            .register(registry);
+                });
+            }
+        }));
+    }
+
+    @Autowired(required = false)
+    void bindConcurrencyLimitersToRegistry(Map<String, DataSource> dataSources, Collection<MeterRegistry> registries,
+                                           ObjectProvider<ConcurrencyLimitDataSourceDecorator> concurrencyLimitDataSourceDecorator) {
+        concurrencyLimitDataSourceDecorator.ifAvailable(decorator -> dataSources.forEach((beanName, dataSource) -> {
+            if (dataSource instanceof DecoratedDataSource) {
+                ConcurrencyLimiter limiter = decorator.getLimiter(beanName);
+                registries.forEach(registry -> {
+                    Gauge.builder(CONCURRENCY_LIMIT_METRIC_NAME, limiter, ConcurrencyLimiter::getLimit)
+                            .description("Current adaptive limit of concurrently used connections")
+                            .tag("name", beanName)
+                            .register(registry);
+                    Gauge.builder(CONCURRENCY_INFLIGHT_METRIC_NAME, limiter, ConcurrencyLimiter::getInflight)
+                            .description("Number of connections in use counted against the limit")
+                            .tag("name", beanName)
+                            .register(registry);
+                    FunctionCounter.builder(CONCURRENCY_REJECTED_METRIC_NAME, limiter, ConcurrencyLimiter::getRejected)
+                            .description("Number of connection requests rejected because the limit was reached")
+                            .tag("name", beanName)
+                            .register(registry);
+                });
+            }
+        }));
+    }
+
+    @Autowired(required = false)
+    void bindAsyncQueryLogWriterToRegistry(Collection<MeterRegistry> registries, ObjectProvider<AsyncQueryLogWriter> asyncQueryLogWriter) {
+        asyncQueryLogWriter.ifAvailable(writer -> registries.forEach(registry ->
+                FunctionCounter.builder(QUERY_LOG_DROPPED_METRIC_NAME, writer, AsyncQueryLogWriter::getDroppedEntries)
+                        .description("Number of query log entries dropped because the asynchronous log buffer was full")
+                        .register(registry)));
+    }
+
+    @Configuration
+    @ConditionalOnClass(ProxyDataSource.class)
+    static class QueryCountMetricsConfiguration {
+
+        @Autowired(required = false)
+        void bindQueryCountsToRegistry(Map<String, DataSource> dataSources, Collection<MeterRegistry> registries,
+                                       DataSourceNameResolver dataSourceNameResolver, ObjectProvider<QueryCountStrategy> queryCountStrategy) {
+            // other strategies count per thread or might be reset, so they can't be exported as counters
+            QueryCountStrategy strategy = queryCountStrategy.getIfAvailable();
+            if (!(strategy instanceof StripedQueryCountStrategy)) {
+                return;
+            }
+            StripedQueryCountStrategy stripedStrategy = (StripedQueryCountStrategy) strategy;
+            dataSources.forEach((beanName, dataSource) -> {
+                if (dataSource instanceof DecoratedDataSource) {
+                    // datasource-proxy counts queries by the resolved name which might be the pool name
+                    String dataSourceName = dataSourceNameResolver.resolveDataSourceName(((DecoratedDataSource) dataSource).getRealDataSource());
+                    StripedQueryCount queryCount = stripedStrategy.getOrCreateQueryCount(dataSourceName);
+                    registries.forEach(registry -> {
+                        bindQueryCount(registry, beanName, "select", queryCount, QueryType.SELECT);
+                        bindQueryCount(registry, beanName, "insert", queryCount, QueryType.INSERT);
+                        bindQueryCount(registry, beanName, "update", queryCount, QueryType.UPDATE);
+                        bindQueryCount(registry, beanName, "delete", queryCount, QueryType.DELETE);
+                        bindQueryCount(registry, beanName, "other", queryCount, QueryType.OTHER);
+                        FunctionCounter.builder(QUERY_FAILURE_COUNT_METRIC_NAME, queryCount, StripedQueryCount::getCumulativeFailure)
+                                .description("Number of queries executed through datasource-proxy that failed")
+                                .tag("name", beanName)
+                                .register(registry);
+                    });
+                }
+            });
+        }
+
+        private static void bindQueryCount(MeterRegistry registry, String beanName, String type,
+                                           StripedQueryCount queryCount, QueryType queryType) {
+            FunctionCounter.builder(QUERY_COUNT_METRIC_NAME, queryCount, count -> count.getCumulativeCount(queryType))
+                    .description("Number of queries executed through datasource-proxy")
+                    .tag("name", beanName)
+                    .tag("type", type)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.metrics;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.support.DelegatingConnection;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Timer;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Connection} that records time it was held and execution time of its statements.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class MeteredConnection extends DelegatingConnection {
+
+    private final Clock clock;
+    private final Timer holdTimer;
+    private final Timer executionTimer;
+    private final long acquiredTime;
+    private boolean closed;
+
+    MeteredConnection(Connection delegate, Clock clock, Timer holdTimer, Timer executionTimer) {
+        super(delegate);
+        this.clock = clock;
+        this.holdTimer = holdTimer;
+        this.executionTimer = executionTimer;
+        this.acquiredTime = clock.monotonicTime();
+    }
+
+    @Override
+    protected long beforeExecute(String sql) {
+        return clock.monotonicTime();
+    }
+
+    @Override
+    protected void afterExecute(long token, String sql, SQLException error) {
+        executionTimer.record(clock.monotonicTime() - token, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            delegate.close();
+        }
+        finally {
+            closed();
+        }
+    }
+
+    @Override
+    public void abort(Executor executor) throws SQLException {
+        try {
+            delegate.abort(executor);
+        }
+        finally {
+            closed();
+        }
+    }
+
+    private void closed() {
+        // closing already closed connection is a no-op
+        if (!closed) {
+            closed = true;
+            holdTimer.record(clock.monotonicTime() - acquiredTime, TimeUnit.NANOSECONDS);
+        }
+    }
+}
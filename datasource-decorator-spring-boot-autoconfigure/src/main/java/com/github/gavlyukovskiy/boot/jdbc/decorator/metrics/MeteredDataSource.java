@@ -0,0 +1,77 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.metrics;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DataSource} that records connection acquire time and returns {@link MeteredConnection}s.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class MeteredDataSource extends DelegatingDataSource {
+
+    private final Clock clock;
+    private final Timer acquireTimer;
+    private final Timer holdTimer;
+    private final Timer executionTimer;
+
+    MeteredDataSource(DataSource dataSource, Clock clock, Timer acquireTimer, Timer holdTimer, Timer executionTimer) {
+        super(dataSource);
+        this.clock = clock;
+        this.acquireTimer = acquireTimer;
+        this.holdTimer = holdTimer;
+        this.executionTimer = executionTimer;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long startTime = clock.monotonicTime();
+        try {
+            return new MeteredConnection(obtainTargetDataSource().getConnection(), clock, holdTimer, executionTimer);
+        }
+        finally {
+            acquireTimer.record(clock.monotonicTime() - startTime, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long startTime = clock.monotonicTime();
+        try {
+            return new MeteredConnection(obtainTargetDataSource().getConnection(username, password), clock, holdTimer, executionTimer);
+        }
+        finally {
+            acquireTimer.record(clock.monotonicTime() - startTime, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MeteredDataSource [" + getTargetDataSource() + "]";
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.metrics;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecorator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+/**
+ * {@link Ordered} decorator that records connection acquire time, connection hold time and
+ * statement execution time of every data source to Micrometer {@link Timer}s tagged with data source name.
+ * <p>
+ * Timers are registered once per data source, recording only reads the clock and updates timers.
+ * Applied right after flexy-pool, so acquire time includes time spent in the pool and its strategies,
+ * but not in logging decorators.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class MicrometerDataSourceDecorator implements DataSourceDecorator, Ordered {
+
+    public static final String CONNECTION_ACQUIRE_METRIC_NAME = "jdbc.connection.acquire";
+
+    public static final String CONNECTION_HOLD_METRIC_NAME = "jdbc.connection.hold";
+
+    public static final String STATEMENT_EXECUTION_METRIC_NAME = "jdbc.statement.execution";
+
+    private final MeterRegistry registry;
+    private final MicrometerProperties micrometerProperties;
+
+    public MicrometerDataSourceDecorator(MeterRegistry registry, MicrometerProperties micrometerProperties) {
+        this.registry = registry;
+        this.micrometerProperties = micrometerProperties;
+    }
+
+    @Override
+    public DataSource decorate(String beanName, DataSource dataSource) {
+        return new MeteredDataSource(dataSource, registry.config().clock(),
+                timer(CONNECTION_ACQUIRE_METRIC_NAME, "Time spent on acquiring connections from the data source", beanName),
+                timer(CONNECTION_HOLD_METRIC_NAME, "Time connections were held before returning to the data source", beanName),
+                timer(STATEMENT_EXECUTION_METRIC_NAME, "Time spent on executing statements", beanName));
+    }
+
+    private Timer timer(String name, String description, String dataSourceName) {
+        return Timer.builder(name)
+                .description(description)
+                .tag("name", dataSourceName)
+                .publishPercentiles(micrometerProperties.getPercentiles())
+                .publishPercentileHistogram(micrometerProperties.isPercentileHistogram())
+                .register(registry);
+    }
+
+    @Override
+    public boolean isObserving() {
+        return true;
+    }
+
+    @Override
+    public int getOrder() {
+        return 15;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.metrics;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Properties for connection and statement timers.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+@Getter
+@Setter
+public class MicrometerProperties {
+
+    /**
+     * Enables timers of connection acquire time, connection hold time and statement execution time.
+     */
+    private boolean enabled = false;
+    /**
+     * Percentiles computed on the client side for every timer.
+     */
+    private double[] percentiles = { 0.5, 0.95, 0.99 };
+    /**
+     * Publishes percentile histogram buckets, so percentiles can be aggregated by the monitoring system.
+     */
+    private boolean percentileHistogram = false;
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.metrics;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.xa.XAPhaseListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link XAPhaseListener} that records time of XA phases into {@link Timer}s of all {@link MeterRegistry registries}.
+ * Timers are registered once per data source, phase and outcome, so recording doesn't look up registries.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class MicrometerXAPhaseListener implements XAPhaseListener {
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final ObjectProvider<MeterRegistry> registries;
+    private final ConcurrentHashMap<String, Timer[][]> timers = new ConcurrentHashMap<>();
+
+    MicrometerXAPhaseListener(ObjectProvider<MeterRegistry> registries) {
+        this.registries = registries;
+    }
+
+    @Override
+    public void afterPhase(String dataSourceName, Phase phase, long elapsedNanos, boolean success) {
+        Timer[][] dataSourceTimers = timers.get(dataSourceName);
+        if (dataSourceTimers == null) {
+            dataSourceTimers = timers.computeIfAbsent(dataSourceName, this::registerTimers);
+        }
+        for (Timer timer : dataSourceTimers[timerIndex(phase, success)]) {
+            timer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer[][] registerTimers(String dataSourceName) {
+        Timer[][] dataSourceTimers = new Timer[PHASES.length * 2][];
+        for (Phase phase : PHASES) {
+            for (boolean success : new boolean[] { true, false }) {
+                dataSourceTimers[timerIndex(phase, success)] = registries.orderedStream()
+                        .map(registry -> Timer.builder(DataSourceDecoratorMetricsConfiguration.XA_PHASE_TIME_METRIC_NAME)
+                                .description("Time spent on the two-phase commit phase of the XA data source")
+                                .tag("name", dataSourceName)
+                                .tag("phase", phase.name().toLowerCase(Locale.ROOT))
+                                .tag("outcome", success ? "success" : "failure")
+                                .register(registry))
+                        .toArray(Timer[]::new);
+            }
+        }
+        return dataSourceTimers;
+    }
+
+    private static int timerIndex(Phase phase, boolean success) {
+        return phase.ordinal() * 2 + (success ? 0 : 1);
+    }
+}
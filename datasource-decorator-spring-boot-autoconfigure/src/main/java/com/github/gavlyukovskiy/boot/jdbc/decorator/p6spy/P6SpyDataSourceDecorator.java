@@ -21,7 +21,10 @@ import com.p6spy.engine.spy.JdbcEventListenerFactory;
 import com.p6spy.engine.spy.P6DataSource;
 import org.springframework.core.Ordered;
 
+import javax.sql.CommonDataSource;
+import javax.sql.ConnectionPoolDataSource;
 import javax.sql.DataSource;
+import javax.sql.XADataSource;
 
 /**
  * {@link Ordered} decorator for {@link P6DataSource}.
@@ -43,8 +46,38 @@ public class P6SpyDataSourceDecorator implements DataSourceDecorator, Ordered {
         return p6DataSource;
     }
 
+    @Override
+    public XADataSource decorateXADataSource(String beanName, XADataSource xaDataSource) {
+        P6DataSource p6DataSource = new CommonP6DataSource(xaDataSource);
+        p6DataSource.setJdbcEventListenerFactory(jdbcEventListenerFactory);
+        return p6DataSource;
+    }
+
+    @Override
+    public ConnectionPoolDataSource decorateConnectionPoolDataSource(String beanName, ConnectionPoolDataSource connectionPoolDataSource) {
+        P6DataSource p6DataSource = new CommonP6DataSource(connectionPoolDataSource);
+        p6DataSource.setJdbcEventListenerFactory(jdbcEventListenerFactory);
+        return p6DataSource;
+    }
+
+    @Override
+    public boolean isObserving() {
+        return true;
+    }
+
     @Override
     public int getOrder() {
         return 30;
     }
+
+    /**
+     * {@link P6DataSource} supports {@link XADataSource} and {@link ConnectionPoolDataSource},
+     * but can be created only from {@link DataSource}.
+     */
+    private static class CommonP6DataSource extends P6DataSource {
+
+        CommonP6DataSource(CommonDataSource realDataSource) {
+            this.realDataSource = realDataSource;
+        }
+    }
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.replica;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecoratorProperties;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceNameResolver;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Configuration of {@link ReadWriteSplittingDataSourceDecorator}.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+@ConditionalOnProperty(name = "decorator.datasource.read-write-splitting.enabled", havingValue = "true")
+public class ReadWriteSplittingConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public ReadWriteSplittingDataSourceDecorator readWriteSplittingDataSourceDecorator(DataSourceDecoratorProperties dataSourceDecoratorProperties,
+                                                                                       ApplicationContext applicationContext,
+                                                                                       DataSourceNameResolver dataSourceNameResolver) {
+        return new ReadWriteSplittingDataSourceDecorator(dataSourceDecoratorProperties.getReadWriteSplitting(), applicationContext,
+                dataSourceNameResolver);
+    }
+}
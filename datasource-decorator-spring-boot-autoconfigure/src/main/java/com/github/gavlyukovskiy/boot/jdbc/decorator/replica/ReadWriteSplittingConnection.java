@@ -0,0 +1,488 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.replica;
+
+import org.slf4j.Logger;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * {@link Connection} that acquires the target connection on first use, routing read-only work to a replica.
+ * <p>
+ * Auto-commit, read-only and isolation settings are recorded until the target is acquired, so a connection
+ * of a {@code @Transactional(readOnly = true)} method or a connection with {@link #setReadOnly(boolean)} is routed to
+ * a replica, and the recorded settings are applied to it. Commit and rollback without a target are no-ops.
+ * If no replica is available the primary data source is used.
+ * <p>
+ * Changing read-only flag in auto-commit mode releases the target, so the next use is routed again.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class ReadWriteSplittingConnection implements Connection {
+
+    private static final Logger log = getLogger(ReadWriteSplittingConnection.class);
+
+    private final ReadWriteSplittingDataSource dataSource;
+    private Connection target;
+    private ReplicaBalancer.Replica replica;
+    private Boolean autoCommit;
+    private boolean readOnly;
+    private Integer transactionIsolation;
+    private boolean closed;
+
+    ReadWriteSplittingConnection(ReadWriteSplittingDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Returns replica serving this connection.
+     *
+     * @return replica name or {@code null} if connection is not acquired yet or served by the primary
+     */
+    String getReplicaName() {
+        return replica != null ? replica.getName() : null;
+    }
+
+    boolean isTargetAcquired() {
+        return target != null;
+    }
+
+    private Connection target() throws SQLException {
+        if (target == null) {
+            if (closed) {
+                throw new SQLException("Connection is closed");
+            }
+            acquireTarget();
+        }
+        return target;
+    }
+
+    private void acquireTarget() throws SQLException {
+        Connection connection = null;
+        if (isRoutedToReplica(readOnly)) {
+            ReplicaBalancer.Lease lease = dataSource.getReplicaBalancer().acquire();
+            if (lease != null) {
+                replica = lease.replica;
+                connection = lease.connection;
+                log.debug("Routed read-only connection of '{}' to replica '{}'", dataSource.getPrimaryName(), replica.getName());
+            }
+            else {
+                log.debug("No replica of '{}' is available, read-only connection is routed to the primary", dataSource.getPrimaryName());
+            }
+        }
+        if (connection == null) {
+            connection = dataSource.getPrimaryConnection();
+        }
+        try {
+            if (readOnly) {
+                connection.setReadOnly(true);
+            }
+            if (autoCommit != null && connection.getAutoCommit() != autoCommit) {
+                connection.setAutoCommit(autoCommit);
+            }
+            if (transactionIsolation != null) {
+                connection.setTransactionIsolation(transactionIsolation);
+            }
+        }
+        catch (SQLException | RuntimeException e) {
+            target = connection;
+            try {
+                releaseTarget();
+            }
+            catch (SQLException closeError) {
+                e.addSuppressed(closeError);
+            }
+            throw e;
+        }
+        target = connection;
+    }
+
+    private static boolean isRoutedToReplica(boolean readOnly) {
+        return readOnly || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private void releaseTarget() throws SQLException {
+        Connection connection = target;
+        ReplicaBalancer.Replica replica = this.replica;
+        target = null;
+        this.replica = null;
+        try {
+            connection.close();
+        }
+        finally {
+            if (replica != null) {
+                replica.release();
+            }
+        }
+    }
+
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        if (target != null) {
+            target.setAutoCommit(autoCommit);
+        }
+        this.autoCommit = autoCommit;
+    }
+
+    @Override
+    public boolean getAutoCommit() throws SQLException {
+        if (target == null && autoCommit != null) {
+            return autoCommit;
+        }
+        return target().getAutoCommit();
+    }
+
+    @Override
+    public void setReadOnly(boolean readOnly) throws SQLException {
+        if (target != null) {
+            if (isRoutedToReplica(readOnly) != (replica != null) && target.getAutoCommit()) {
+                releaseTarget();
+            }
+            else {
+                target.setReadOnly(readOnly);
+            }
+        }
+        this.readOnly = readOnly;
+    }
+
+    @Override
+    public boolean isReadOnly() throws SQLException {
+        if (target == null) {
+            return readOnly;
+        }
+        return target.isReadOnly();
+    }
+
+    @Override
+    public void setTransactionIsolation(int level) throws SQLException {
+        if (target != null) {
+            target.setTransactionIsolation(level);
+        }
+        this.transactionIsolation = level;
+    }
+
+    @Override
+    public int getTransactionIsolation() throws SQLException {
+        if (target == null && transactionIsolation != null) {
+            return transactionIsolation;
+        }
+        return target().getTransactionIsolation();
+    }
+
+    @Override
+    public void commit() throws SQLException {
+        if (target != null) {
+            target.commit();
+        }
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+        if (target != null) {
+            target.rollback();
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        closed = true;
+        if (target != null) {
+            releaseTarget();
+        }
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return closed;
+    }
+
+    @Override
+    public void abort(Executor executor) throws SQLException {
+        closed = true;
+        if (target != null) {
+            ReplicaBalancer.Replica replica = this.replica;
+            Connection connection = target;
+            target = null;
+            this.replica = null;
+            try {
+                connection.abort(executor);
+            }
+            finally {
+                if (replica != null) {
+                    replica.release();
+                }
+            }
+        }
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        return target != null ? target.getWarnings() : null;
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        if (target != null) {
+            target.clearWarnings();
+        }
+    }
+
+    @Override
+    public void setClientInfo(String name, String value) throws SQLClientInfoException {
+        clientInfoTarget().setClientInfo(name, value);
+    }
+
+    @Override
+    public void setClientInfo(Properties properties) throws SQLClientInfoException {
+        clientInfoTarget().setClientInfo(properties);
+    }
+
+    private Connection clientInfoTarget() throws SQLClientInfoException {
+        try {
+            return target();
+        }
+        catch (SQLException e) {
+            throw new SQLClientInfoException(e.getMessage(), e.getSQLState(), e.getErrorCode(), Collections.emptyMap(), e);
+        }
+    }
+
+    @Override
+    public Statement createStatement() throws SQLException {
+        return target().createStatement();
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        return target().prepareStatement(sql);
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql) throws SQLException {
+        return target().prepareCall(sql);
+    }
+
+    @Override
+    public String nativeSQL(String sql) throws SQLException {
+        return target().nativeSQL(sql);
+    }
+
+    @Override
+    public DatabaseMetaData getMetaData() throws SQLException {
+        return target().getMetaData();
+    }
+
+    @Override
+    public void setCatalog(String catalog) throws SQLException {
+        target().setCatalog(catalog);
+    }
+
+    @Override
+    public String getCatalog() throws SQLException {
+        return target().getCatalog();
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency) throws SQLException {
+        return target().createStatement(resultSetType, resultSetConcurrency);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        return target().prepareStatement(sql, resultSetType, resultSetConcurrency);
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        return target().prepareCall(sql, resultSetType, resultSetConcurrency);
+    }
+
+    @Override
+    public Map<String, Class<?>> getTypeMap() throws SQLException {
+        return target().getTypeMap();
+    }
+
+    @Override
+    public void setTypeMap(Map<String, Class<?>> map) throws SQLException {
+        target().setTypeMap(map);
+    }
+
+    @Override
+    public void setHoldability(int holdability) throws SQLException {
+        target().setHoldability(holdability);
+    }
+
+    @Override
+    public int getHoldability() throws SQLException {
+        return target().getHoldability();
+    }
+
+    @Override
+    public Savepoint setSavepoint() throws SQLException {
+        return target().setSavepoint();
+    }
+
+    @Override
+    public Savepoint setSavepoint(String name) throws SQLException {
+        return target().setSavepoint(name);
+    }
+
+    @Override
+    public void rollback(Savepoint savepoint) throws SQLException {
+        target().rollback(savepoint);
+    }
+
+    @Override
+    public void releaseSavepoint(Savepoint savepoint) throws SQLException {
+        target().releaseSavepoint(savepoint);
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        return target().createStatement(resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        return target().prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        return target().prepareCall(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        return target().prepareStatement(sql, autoGeneratedKeys);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        return target().prepareStatement(sql, columnIndexes);
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+        return target().prepareStatement(sql, columnNames);
+    }
+
+    @Override
+    public Clob createClob() throws SQLException {
+        return target().createClob();
+    }
+
+    @Override
+    public Blob createBlob() throws SQLException {
+        return target().createBlob();
+    }
+
+    @Override
+    public NClob createNClob() throws SQLException {
+        return target().createNClob();
+    }
+
+    @Override
+    public SQLXML createSQLXML() throws SQLException {
+        return target().createSQLXML();
+    }
+
+    @Override
+    public boolean isValid(int timeout) throws SQLException {
+        return target().isValid(timeout);
+    }
+
+    @Override
+    public String getClientInfo(String name) throws SQLException {
+        return target().getClientInfo(name);
+    }
+
+    @Override
+    public Properties getClientInfo() throws SQLException {
+        return target().getClientInfo();
+    }
+
+    @Override
+    public Array createArrayOf(String typeName, Object[] elements) throws SQLException {
+        return target().createArrayOf(typeName, elements);
+    }
+
+    @Override
+    public Struct createStruct(String typeName, Object[] attributes) throws SQLException {
+        return target().createStruct(typeName, attributes);
+    }
+
+    @Override
+    public void setSchema(String schema) throws SQLException {
+        target().setSchema(schema);
+    }
+
+    @Override
+    public String getSchema() throws SQLException {
+        return target().getSchema();
+    }
+
+    @Override
+    public void setNetworkTimeout(Executor executor, int milliseconds) throws SQLException {
+        target().setNetworkTimeout(executor, milliseconds);
+    }
+
+    @Override
+    public int getNetworkTimeout() throws SQLException {
+        return target().getNetworkTimeout();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return (T) this;
+        }
+        return target().unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || target().isWrapperFor(iface);
+    }
+
+    @Override
+    public String toString() {
+        return "ReadWriteSplittingConnection [" + target + "]";
+    }
+}
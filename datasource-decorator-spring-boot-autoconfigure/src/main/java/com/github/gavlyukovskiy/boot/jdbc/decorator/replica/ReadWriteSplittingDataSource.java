@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.replica;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * {@link DataSource} that returns {@link ReadWriteSplittingConnection}s, which route read-only work
+ * to replicas.
+ * <p>
+ * Connections requested with explicit credentials are always served by the primary data source.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class ReadWriteSplittingDataSource extends DelegatingDataSource {
+
+    private final String primaryName;
+    private final ReplicaBalancer replicaBalancer;
+
+    ReadWriteSplittingDataSource(DataSource primaryDataSource, String primaryName, ReplicaBalancer replicaBalancer) {
+        super(primaryDataSource);
+        this.primaryName = primaryName;
+        this.replicaBalancer = replicaBalancer;
+    }
+
+    String getPrimaryName() {
+        return primaryName;
+    }
+
+    ReplicaBalancer getReplicaBalancer() {
+        return replicaBalancer;
+    }
+
+    Connection getPrimaryConnection() throws SQLException {
+        return obtainTargetDataSource().getConnection();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return new ReadWriteSplittingConnection(this);
+    }
+
+    @Override
+    public String toString() {
+        return "ReadWriteSplittingDataSource [" + getTargetDataSource() + "]";
+    }
+}
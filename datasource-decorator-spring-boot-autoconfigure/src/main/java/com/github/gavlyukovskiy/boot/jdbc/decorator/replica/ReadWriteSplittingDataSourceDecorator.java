@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.replica;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecorator;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceNameResolver;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+/**
+ * {@link Ordered} decorator that routes read-only connections of the primary data source to replica data source beans.
+ * <p>
+ * Applied last, so decorators of the primary data source see only connections served by the primary. Replicas are
+ * decorated as separate beans, so their queries are logged and traced under their own names.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class ReadWriteSplittingDataSourceDecorator implements DataSourceDecorator, Ordered {
+
+    private final ReadWriteSplittingProperties readWriteSplittingProperties;
+    private final BeanFactory beanFactory;
+    private final DataSourceNameResolver dataSourceNameResolver;
+
+    public ReadWriteSplittingDataSourceDecorator(ReadWriteSplittingProperties readWriteSplittingProperties,
+                                                 BeanFactory beanFactory,
+                                                 DataSourceNameResolver dataSourceNameResolver) {
+        this.readWriteSplittingProperties = readWriteSplittingProperties;
+        this.beanFactory = beanFactory;
+        this.dataSourceNameResolver = dataSourceNameResolver;
+    }
+
+    @Override
+    public DataSource decorate(String beanName, DataSource dataSource) {
+        if (!beanName.equals(readWriteSplittingProperties.getPrimary()) || readWriteSplittingProperties.getReplicas().isEmpty()) {
+            return dataSource;
+        }
+        // replicas are resolved on first use, they might not be created yet
+        ReplicaBalancer replicaBalancer = new ReplicaBalancer(readWriteSplittingProperties.getReplicas(),
+                replicaBeanName -> beanFactory.getBean(replicaBeanName, DataSource.class), dataSourceNameResolver,
+                readWriteSplittingProperties.getFailureBackoff().toNanos());
+        return new ReadWriteSplittingDataSource(dataSource, beanName, replicaBalancer);
+    }
+
+    @Override
+    public int getOrder() {
+        return 50;
+    }
+}
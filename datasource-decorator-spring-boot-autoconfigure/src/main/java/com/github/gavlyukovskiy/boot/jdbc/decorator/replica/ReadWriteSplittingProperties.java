@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.replica;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Properties for routing of read-only connections to replicas.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+@Getter
+@Setter
+public class ReadWriteSplittingProperties {
+
+    /**
+     * Enables routing of read-only connections of the primary data source to replicas.
+     */
+    private boolean enabled = false;
+    /**
+     * Name of the primary data source bean.
+     */
+    private String primary = "dataSource";
+    /**
+     * Names of replica data source beans.
+     */
+    private List<String> replicas = new ArrayList<>();
+    /**
+     * Time during which a replica that failed to provide a connection is not used.
+     */
+    private Duration failureBackoff = Duration.ofSeconds(30);
+}
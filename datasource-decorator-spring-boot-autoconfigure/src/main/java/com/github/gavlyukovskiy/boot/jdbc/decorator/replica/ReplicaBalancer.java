@@ -0,0 +1,181 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.replica;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceNameResolver;
+import org.slf4j.Logger;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Balances connections across replicas by the least number of outstanding connections.
+ * <p>
+ * Replicas with the same number of outstanding connections are picked starting from a random one. A replica that failed
+ * to provide a connection is skipped until the failure backoff passes, then it's tried again.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class ReplicaBalancer {
+
+    private static final Logger log = getLogger(ReplicaBalancer.class);
+
+    private final List<String> beanNames;
+    private final Function<String, DataSource> dataSourceLookup;
+    private final DataSourceNameResolver dataSourceNameResolver;
+    private final long failureBackoffNanos;
+    private final AtomicReference<Replica[]> replicas = new AtomicReference<>();
+
+    ReplicaBalancer(List<String> beanNames, Function<String, DataSource> dataSourceLookup,
+                    DataSourceNameResolver dataSourceNameResolver, long failureBackoffNanos) {
+        this.beanNames = beanNames;
+        this.dataSourceLookup = dataSourceLookup;
+        this.dataSourceNameResolver = dataSourceNameResolver;
+        this.failureBackoffNanos = failureBackoffNanos;
+    }
+
+    /**
+     * Acquires connection from the replica with the least outstanding connections, trying other replicas on failure.
+     *
+     * @return acquired connection or {@code null} if no replica is available
+     */
+    Lease acquire() {
+        Replica[] replicas = getReplicas();
+        boolean[] failed = null;
+        for (int attempt = 0; attempt < replicas.length; attempt++) {
+            int index = select(replicas, failed);
+            if (index == -1) {
+                return null;
+            }
+            Replica replica = replicas[index];
+            replica.outstanding.incrementAndGet();
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                replica.retryAtNanos = 0;
+                return new Lease(replica, connection);
+            }
+            catch (SQLException | RuntimeException e) {
+                replica.release();
+                replica.retryAtNanos = System.nanoTime() + failureBackoffNanos;
+                log.warn("Failed to acquire connection from replica '{}', it won't be used for {} ms", replica.name,
+                        failureBackoffNanos / 1_000_000, e);
+                if (failed == null) {
+                    failed = new boolean[replicas.length];
+                }
+                failed[index] = true;
+            }
+        }
+        return null;
+    }
+
+    private static int select(Replica[] replicas, boolean[] failed) {
+        long now = System.nanoTime();
+        int start = replicas.length > 1 ? ThreadLocalRandom.current().nextInt(replicas.length) : 0;
+        int selected = -1;
+        int minOutstanding = Integer.MAX_VALUE;
+        for (int i = 0; i < replicas.length; i++) {
+            int index = (start + i) % replicas.length;
+            Replica replica = replicas[index];
+            if (failed != null && failed[index] || !replica.isAvailable(now)) {
+                continue;
+            }
+            int outstanding = replica.outstanding.get();
+            if (outstanding < minOutstanding) {
+                selected = index;
+                minOutstanding = outstanding;
+            }
+        }
+        return selected;
+    }
+
+    private Replica[] getReplicas() {
+        Replica[] replicas = this.replicas.get();
+        if (replicas == null) {
+            // replicas are resolved without holding a monitor, which would pin virtual threads while beans are looked up,
+            // threads racing on the first connection resolve the same beans and all use the array published first
+            replicas = new Replica[beanNames.size()];
+            for (int i = 0; i < replicas.length; i++) {
+                DataSource dataSource = dataSourceLookup.apply(beanNames.get(i));
+                replicas[i] = new Replica(dataSourceNameResolver.resolveDataSourceName(dataSource), dataSource);
+            }
+            if (!this.replicas.compareAndSet(null, replicas)) {
+                replicas = this.replicas.get();
+            }
+        }
+        return replicas;
+    }
+
+    /**
+     * Returns the number of outstanding connections of the replica.
+     *
+     * @param name replica name
+     * @return number of connections acquired from the replica and not closed yet
+     */
+    int getOutstandingConnections(String name) {
+        for (Replica replica : getReplicas()) {
+            if (replica.name.equals(name)) {
+                return replica.outstanding.get();
+            }
+        }
+        return 0;
+    }
+
+    static class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private volatile long retryAtNanos;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        void release() {
+            outstanding.decrementAndGet();
+        }
+
+        private boolean isAvailable(long now) {
+            long retryAtNanos = this.retryAtNanos;
+            return retryAtNanos == 0 || now - retryAtNanos >= 0;
+        }
+    }
+
+    static class Lease {
+        final Replica replica;
+        final Connection connection;
+
+        Lease(Replica replica, Connection connection) {
+            this.replica = replica;
+            this.connection = connection;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.resultcache;
+
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.sql.SQLType;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Parameters bound to a prepared statement, used as a part of the result cache key.
+ * <p>
+ * Only immutable values are recorded, mutable values are copied. Statements with streams, LOBs
+ * or values of unknown types are not cacheable until parameters are cleared.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class BoundParameters {
+
+    private static final Object UNSUPPORTED = new Object();
+
+    private final List<List<Object>> parameters = new ArrayList<>();
+    private boolean unsupported;
+
+    void set(int parameterIndex, String method, Object... values) {
+        List<Object> parameter = new ArrayList<>(values.length + 1);
+        parameter.add(method);
+        for (Object value : values) {
+            Object copy = copyOf(value);
+            if (copy == UNSUPPORTED) {
+                unsupported = true;
+                return;
+            }
+            parameter.add(copy);
+        }
+        while (parameters.size() < parameterIndex) {
+            parameters.add(null);
+        }
+        parameters.set(parameterIndex - 1, parameter);
+    }
+
+    void setUnsupported() {
+        unsupported = true;
+    }
+
+    void clear() {
+        parameters.clear();
+        unsupported = false;
+    }
+
+    /**
+     * Returns copy of the bound parameters.
+     *
+     * @return copy of parameters or {@code null} if some of the parameters cannot be used as a key
+     */
+    List<List<Object>> snapshot() {
+        if (unsupported) {
+            return null;
+        }
+        return parameters.isEmpty() ? Collections.emptyList() : new ArrayList<>(parameters);
+    }
+
+    private static Object copyOf(Object value) {
+        if (value == null || value instanceof Number || value instanceof String || value instanceof Boolean
+                || value instanceof Character || value instanceof Enum || value instanceof UUID
+                || value instanceof TemporalAccessor || value instanceof SQLType || value instanceof URL) {
+            return value;
+        }
+        if (value instanceof Date) {
+            return ((Date) value).clone();
+        }
+        if (value instanceof Calendar) {
+            // calendar is used only for its time zone
+            return ((Calendar) value).getTimeZone().getID();
+        }
+        if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            return ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length));
+        }
+        return UNSUPPORTED;
+    }
+}
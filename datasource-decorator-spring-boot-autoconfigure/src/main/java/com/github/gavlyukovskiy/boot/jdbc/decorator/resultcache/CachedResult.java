@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.resultcache;
+
+import javax.sql.rowset.serial.SerialArray;
+import javax.sql.rowset.serial.SerialBlob;
+import javax.sql.rowset.serial.SerialClob;
+
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLXML;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Rows of a result read into memory, detached from the connection they were read from.
+ * <p>
+ * Values are stored as returned by {@link ResultSet#getObject(int)}, LOBs and arrays are copied into their
+ * serializable counterparts. Result is immutable and shared by all {@link CachedResultSet}s reading it.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+final class CachedResult {
+
+    private final CachedResultSetMetaData metaData;
+    private final Map<String, Integer> columnIndexes;
+    private final List<Object[]> rows;
+
+    private CachedResult(CachedResultSetMetaData metaData, List<Object[]> rows) throws SQLException {
+        this.metaData = metaData;
+        this.rows = rows;
+        this.columnIndexes = new HashMap<>();
+        // labels take precedence over names, the first column wins as in the JDBC drivers
+        for (int i = metaData.getColumnCount(); i >= 1; i--) {
+            putColumnIndex(metaData.getColumnName(i), i);
+        }
+        for (int i = metaData.getColumnCount(); i >= 1; i--) {
+            putColumnIndex(metaData.getColumnLabel(i), i);
+        }
+    }
+
+    private void putColumnIndex(String column, int index) {
+        if (column != null) {
+            columnIndexes.put(column.toLowerCase(Locale.ROOT), index);
+        }
+    }
+
+    /**
+     * Reads at most {@code maxRows} rows of the result, the cursor is left on the last read row.
+     */
+    static CachedResult read(ResultSet resultSet, int maxRows) throws SQLException {
+        CachedResultSetMetaData metaData = CachedResultSetMetaData.copyOf(resultSet.getMetaData());
+        int columnCount = metaData.getColumnCount();
+        List<Object[]> rows = new ArrayList<>();
+        while (rows.size() < maxRows && resultSet.next()) {
+            Object[] row = new Object[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                row[i] = detach(resultSet.getObject(i + 1));
+            }
+            rows.add(row);
+        }
+        return new CachedResult(metaData, rows);
+    }
+
+    private static Object detach(Object value) throws SQLException {
+        if (value instanceof Blob) {
+            return new SerialBlob((Blob) value);
+        }
+        if (value instanceof Clob) {
+            return new SerialClob((Clob) value);
+        }
+        if (value instanceof Array) {
+            return new SerialArray((Array) value);
+        }
+        if (value instanceof SQLXML) {
+            return ((SQLXML) value).getString();
+        }
+        return value;
+    }
+
+    CachedResultSetMetaData getMetaData() {
+        return metaData;
+    }
+
+    /**
+     * Returns index of the column with the given label or name ignoring case.
+     *
+     * @return index of the column starting from 1 or {@code 0} if there is no such column
+     */
+    int findColumn(String columnLabel) {
+        Integer index = columnIndexes.get(columnLabel.toLowerCase(Locale.ROOT));
+        return index != null ? index : 0;
+    }
+
+    int size() {
+        return rows.size();
+    }
+
+    Object[] getRow(int index) {
+        return rows.get(index);
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.resultcache;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Disconnected copy of {@link ResultSetMetaData} of a cached result.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+final class CachedResultSetMetaData implements ResultSetMetaData {
+
+    private final Column[] columns;
+
+    private CachedResultSetMetaData(Column[] columns) {
+        this.columns = columns;
+    }
+
+    static CachedResultSetMetaData copyOf(ResultSetMetaData metaData) throws SQLException {
+        Column[] columns = new Column[metaData.getColumnCount()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new Column(metaData, i + 1);
+        }
+        return new CachedResultSetMetaData(columns);
+    }
+
+    private Column column(int column) throws SQLException {
+        if (column < 1 || column > columns.length) {
+            throw new SQLException("Invalid column index: " + column);
+        }
+        return columns[column - 1];
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public boolean isAutoIncrement(int column) throws SQLException {
+        return column(column).autoIncrement;
+    }
+
+    @Override
+    public boolean isCaseSensitive(int column) throws SQLException {
+        return column(column).caseSensitive;
+    }
+
+    @Override
+    public boolean isSearchable(int column) throws SQLException {
+        return column(column).searchable;
+    }
+
+    @Override
+    public boolean isCurrency(int column) throws SQLException {
+        return column(column).currency;
+    }
+
+    @Override
+    public int isNullable(int column) throws SQLException {
+        return column(column).nullable;
+    }
+
+    @Override
+    public boolean isSigned(int column) throws SQLException {
+        return column(column).signed;
+    }
+
+    @Override
+    public int getColumnDisplaySize(int column) throws SQLException {
+        return column(column).displaySize;
+    }
+
+    @Override
+    public String getColumnLabel(int column) throws SQLException {
+        return column(column).label;
+    }
+
+    @Override
+    public String getColumnName(int column) throws SQLException {
+        return column(column).name;
+    }
+
+    @Override
+    public String getSchemaName(int column) throws SQLException {
+        return column(column).schemaName;
+    }
+
+    @Override
+    public int getPrecision(int column) throws SQLException {
+        return column(column).precision;
+    }
+
+    @Override
+    public int getScale(int column) throws SQLException {
+        return column(column).scale;
+    }
+
+    @Override
+    public String getTableName(int column) throws SQLException {
+        return column(column).tableName;
+    }
+
+    @Override
+    public String getCatalogName(int column) throws SQLException {
+        return column(column).catalogName;
+    }
+
+    @Override
+    public int getColumnType(int column) throws SQLException {
+        return column(column).type;
+    }
+
+    @Override
+    public String getColumnTypeName(int column) throws SQLException {
+        return column(column).typeName;
+    }
+
+    @Override
+    public boolean isReadOnly(int column) throws SQLException {
+        column(column);
+        return true;
+    }
+
+    @Override
+    public boolean isWritable(int column) throws SQLException {
+        column(column);
+        return false;
+    }
+
+    @Override
+    public boolean isDefinitelyWritable(int column) throws SQLException {
+        column(column);
+        return false;
+    }
+
+    @Override
+    public String getColumnClassName(int column) throws SQLException {
+        return column(column).className;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return (T) this;
+        }
+        throw new SQLException(getClass().getName() + " is not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    private static final class Column {
+        private final boolean autoIncrement;
+        private final boolean caseSensitive;
+        private final boolean searchable;
+        private final boolean currency;
+        private final int nullable;
+        private final boolean signed;
+        private final int displaySize;
+        private final String label;
+        private final String name;
+        private final String schemaName;
+        private final int precision;
+        private final int scale;
+        private final String tableName;
+        private final String catalogName;
+        private final int type;
+        private final String typeName;
+        private final String className;
+
+        private Column(ResultSetMetaData metaData, int column) throws SQLException {
+            this.autoIncrement = metaData.isAutoIncrement(column);
+            this.caseSensitive = metaData.isCaseSensitive(column);
+            this.searchable = metaData.isSearchable(column);
+            this.currency = metaData.isCurrency(column);
+            this.nullable = metaData.isNullable(column);
+            this.signed = metaData.isSigned(column);
+            this.displaySize = metaData.getColumnDisplaySize(column);
+            this.label = metaData.getColumnLabel(column);
+            this.name = metaData.getColumnName(column);
+            this.schemaName = metaData.getSchemaName(column);
+            this.precision = metaData.getPrecision(column);
+            this.scale = metaData.getScale(column);
+            this.tableName = metaData.getTableName(column);
+            this.catalogName = metaData.getCatalogName(column);
+            this.type = metaData.getColumnType(column);
+            this.typeName = metaData.getColumnTypeName(column);
+            this.className = metaData.getColumnClassName(column);
+        }
+    }
+}
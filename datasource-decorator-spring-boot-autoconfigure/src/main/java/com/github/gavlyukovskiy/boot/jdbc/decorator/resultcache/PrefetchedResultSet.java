@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.resultcache;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.support.DelegatingResultSet;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * {@link ResultSet} that reads rows prefetched into a {@link CachedResultSet} and then continues over the live cursor
+ * they were read from, so result too large to be cached is never copied into memory as a whole.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class PrefetchedResultSet extends DelegatingResultSet {
+
+    private final CachedResultSet prefetched;
+    private final ResultSet remaining;
+
+    /**
+     * @param prefetched rows read from {@code remaining}
+     * @param remaining live cursor positioned on the last prefetched row
+     */
+    PrefetchedResultSet(Statement statement, CachedResultSet prefetched, ResultSet remaining) {
+        super(statement, prefetched);
+        this.prefetched = prefetched;
+        this.remaining = remaining;
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+        if (delegate == prefetched) {
+            if (prefetched.next()) {
+                return true;
+            }
+            prefetched.close();
+            delegate = remaining;
+        }
+        return remaining.next();
+    }
+
+    @Override
+    public int getType() throws SQLException {
+        // prefetched rows can be scrolled, but the live cursor can't
+        return remaining.getType();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            prefetched.close();
+        }
+        finally {
+            remaining.close();
+        }
+    }
+}
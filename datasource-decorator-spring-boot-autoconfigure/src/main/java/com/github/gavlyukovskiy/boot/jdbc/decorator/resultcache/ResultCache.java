@@ -0,0 +1,230 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.resultcache;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Results of read-only queries of one data source stored as disconnected {@link CachedResult}s.
+ * <p>
+ * Every table has a version that is incremented on each write. Cached result remembers versions of the tables
+ * it was read from, taken before the query was executed, so results invalidated while the query was running
+ * are never served. Invalidation is O(1) per written table, invalidated results are removed on lookup
+ * or when the cache is full.
+ * <p>
+ * When the cache is full, expired and invalidated results are removed first, and only if none of them is found
+ * the least recently used result is evicted. Results of more than {@code maxRows} rows are not cached, at most
+ * {@code maxRows + 1} of their rows are copied before the rest is read from the live cursor.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class ResultCache {
+
+    private static final int MAX_STATEMENTS = 10000;
+
+    private final List<Pattern> patterns;
+    private final long timeToLiveNanos;
+    private final int maxSize;
+    private final int maxRows;
+    private final ConcurrentHashMap<String, StatementInfo> statements = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<ResultKey, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicLong> tableVersions = new ConcurrentHashMap<>();
+    private final AtomicLong globalVersion = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    ResultCache(List<Pattern> patterns, long timeToLiveNanos, int maxSize, int maxRows) {
+        this.patterns = patterns;
+        this.timeToLiveNanos = timeToLiveNanos;
+        this.maxSize = maxSize;
+        this.maxRows = maxRows;
+    }
+
+    StatementInfo analyze(String sql) {
+        if (sql == null) {
+            // batch of plain statements
+            return null;
+        }
+        StatementInfo info = statements.get(sql);
+        if (info == null) {
+            info = StatementInfo.analyze(sql, patterns);
+            // analyzed statements are never evicted, once full SQL with inlined literals doesn't push out hot ones
+            if (statements.size() < MAX_STATEMENTS) {
+                statements.put(sql, info);
+            }
+        }
+        return info;
+    }
+
+    /**
+     * Returns the cached result read on behalf of the given statement.
+     *
+     * @return cached result or {@code null} if there is no valid result
+     */
+    ResultSet get(ResultKey key, Statement statement) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            long now = System.nanoTime();
+            if (entry.isValid(now)) {
+                entry.lastAccessTime = now;
+                hits.increment();
+                return new CachedResultSet(statement, entry.result, key.getResultSetType());
+            }
+            entries.remove(key, entry);
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Takes versions of the tables before executing the query.
+     */
+    Versions versions(Set<String> tables) {
+        long global = globalVersion.get();
+        AtomicLong[] counters = new AtomicLong[tables.size()];
+        long[] versions = new long[tables.size()];
+        int i = 0;
+        for (String table : tables) {
+            counters[i] = tableVersions.computeIfAbsent(table, t -> new AtomicLong());
+            versions[i] = counters[i].get();
+            i++;
+        }
+        return new Versions(global, counters, versions);
+    }
+
+    /**
+     * Reads the result into memory and caches it if it's small enough.
+     *
+     * @return disconnected result or the result continuing over the live cursor if it's too large
+     */
+    ResultSet put(ResultKey key, Statement statement, ResultSet resultSet, Versions versions) throws SQLException {
+        CachedResult result;
+        try {
+            result = CachedResult.read(resultSet, maxRows + 1);
+        }
+        catch (SQLException | RuntimeException e) {
+            resultSet.close();
+            throw e;
+        }
+        CachedResultSet cachedResultSet = new CachedResultSet(statement, result, key.getResultSetType());
+        if (result.size() > maxRows) {
+            return new PrefetchedResultSet(statement, cachedResultSet, resultSet);
+        }
+        resultSet.close();
+        long now = System.nanoTime();
+        if (entries.size() >= maxSize) {
+            evict(now);
+        }
+        entries.put(key, new Entry(key, result, now, versions));
+        return cachedResultSet;
+    }
+
+    void invalidate(Set<String> tables) {
+        for (String table : tables) {
+            AtomicLong version = tableVersions.get(table);
+            if (version != null) {
+                version.incrementAndGet();
+            }
+        }
+    }
+
+    void invalidateAll() {
+        globalVersion.incrementAndGet();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    private void evict(long now) {
+        // single pass removing expired and invalidated results while looking for the least recently used one
+        Entry leastRecentlyUsed = null;
+        for (Entry entry : entries.values()) {
+            if (!entry.isValid(now)) {
+                entries.remove(entry.key, entry);
+            }
+            else if (leastRecentlyUsed == null || entry.lastAccessTime - leastRecentlyUsed.lastAccessTime < 0) {
+                leastRecentlyUsed = entry;
+            }
+        }
+        if (entries.size() >= maxSize && leastRecentlyUsed != null) {
+            entries.remove(leastRecentlyUsed.key, leastRecentlyUsed);
+        }
+    }
+
+    private final class Entry {
+        private final ResultKey key;
+        private final CachedResult result;
+        private final long expirationTime;
+        private final Versions versions;
+        private volatile long lastAccessTime;
+
+        private Entry(ResultKey key, CachedResult result, long now, Versions versions) {
+            this.key = key;
+            this.result = result;
+            this.expirationTime = now + timeToLiveNanos;
+            this.versions = versions;
+            this.lastAccessTime = now;
+        }
+
+        private boolean isValid(long now) {
+            return now - expirationTime < 0 && versions.isCurrent(globalVersion.get());
+        }
+    }
+
+    static final class Versions {
+        private final long global;
+        private final AtomicLong[] counters;
+        private final long[] versions;
+
+        private Versions(long global, AtomicLong[] counters, long[] versions) {
+            this.global = global;
+            this.counters = counters;
+            this.versions = versions;
+        }
+
+        private boolean isCurrent(long currentGlobal) {
+            if (currentGlobal != global) {
+                return false;
+            }
+            for (int i = 0; i < counters.length; i++) {
+                if (counters[i].get() != versions[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
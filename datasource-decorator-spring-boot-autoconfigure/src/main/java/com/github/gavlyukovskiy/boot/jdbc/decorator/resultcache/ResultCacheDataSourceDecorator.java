@@ -0,0 +1,61 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.resultcache;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecorator;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * {@link Ordered} decorator that caches results of read-only queries matching configured patterns.
+ * <p>
+ * Applied after logging decorators and query budgets, so cached results are served without executing the query
+ * and are not logged or counted as queries.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class ResultCacheDataSourceDecorator implements DataSourceDecorator, Ordered {
+
+    private final ResultCacheProperties resultCacheProperties;
+    private final List<Pattern> patterns;
+
+    public ResultCacheDataSourceDecorator(ResultCacheProperties resultCacheProperties) {
+        this.resultCacheProperties = resultCacheProperties;
+        this.patterns = resultCacheProperties.getPatterns().stream()
+                .map(Pattern::compile)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public DataSource decorate(String beanName, DataSource dataSource) {
+        ResultCache cache = new ResultCache(patterns, resultCacheProperties.getTimeToLive().toNanos(),
+                resultCacheProperties.getMaxSize(), resultCacheProperties.getMaxRows());
+        return new ResultCachingDataSource(dataSource, cache);
+    }
+
+    @Override
+    public int getOrder() {
+        return 38;
+    }
+}
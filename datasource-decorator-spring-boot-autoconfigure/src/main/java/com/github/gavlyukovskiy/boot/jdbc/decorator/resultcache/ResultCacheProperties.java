@@ -0,0 +1,57 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.resultcache;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Properties for result cache of read-only queries.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+@Getter
+@Setter
+public class ResultCacheProperties {
+
+    /**
+     * Enables caching of query results.
+     */
+    private boolean enabled = false;
+    /**
+     * Regular expressions, results of SELECT queries containing any of them are cached.
+     */
+    private List<String> patterns = new ArrayList<>();
+    /**
+     * Time after which cached result expires.
+     */
+    private Duration timeToLive = Duration.ofSeconds(60);
+    /**
+     * Maximum number of cached results per data source.
+     */
+    private int maxSize = 1000;
+    /**
+     * Maximum number of rows in a cached result, larger results are not cached.
+     */
+    private int maxRows = 1000;
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.resultcache;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.support.DelegatingConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link Connection} that serves cacheable queries from {@link ResultCache} and invalidates cached results
+ * on writes.
+ * <p>
+ * Written tables are invalidated after execution and once again after commit or rollback, so results read
+ * by other connections before the transaction was committed are not served. Until then queries of this connection
+ * reading written tables bypass the cache to see own writes.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class ResultCachingConnection extends DelegatingConnection {
+
+    private final ResultCache cache;
+    private final Set<String> writtenTables = new HashSet<>();
+    private boolean writtenAll;
+
+    ResultCachingConnection(Connection delegate, ResultCache cache) {
+        super(delegate);
+        this.cache = cache;
+    }
+
+    @Override
+    protected Statement wrapStatement(Statement statement) {
+        return new ResultCachingStatement(this, statement);
+    }
+
+    @Override
+    protected PreparedStatement wrapPreparedStatement(PreparedStatement statement, String sql) {
+        return new ResultCachingPreparedStatement(this, statement, sql);
+    }
+
+    @Override
+    protected void afterExecute(long token, String sql, SQLException error) {
+        StatementInfo info = cache.analyze(sql);
+        if (info == null || info.getWrittenTables() == null) {
+            writtenAll = true;
+            cache.invalidateAll();
+        }
+        else if (!info.getWrittenTables().isEmpty()) {
+            writtenTables.addAll(info.getWrittenTables());
+            cache.invalidate(info.getWrittenTables());
+        }
+    }
+
+    ResultSet executeQuery(Statement statement, String sql, List<List<Object>> parameters, QueryExecution execution) throws SQLException {
+        StatementInfo info = cache.analyze(sql);
+        if (parameters == null || !info.isCacheable() || readsOwnWrites(info.getReadTables())) {
+            return execution.execute();
+        }
+        // result limited by max rows is incomplete, updatable result is tied to the connection
+        if (statement.getMaxRows() != 0 || statement.getResultSetConcurrency() != ResultSet.CONCUR_READ_ONLY) {
+            return execution.execute();
+        }
+        ResultKey key = new ResultKey(sql, parameters, statement.getResultSetType());
+        ResultSet cached = cache.get(key, statement);
+        if (cached != null) {
+            return cached;
+        }
+        ResultCache.Versions versions = cache.versions(info.getReadTables());
+        return cache.put(key, statement, execution.execute(), versions);
+    }
+
+    private boolean readsOwnWrites(Set<String> readTables) {
+        if (writtenAll) {
+            return true;
+        }
+        if (writtenTables.isEmpty()) {
+            return false;
+        }
+        for (String table : readTables) {
+            if (writtenTables.contains(table)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void commit() throws SQLException {
+        try {
+            delegate.commit();
+        }
+        finally {
+            transactionCompleted();
+        }
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+        try {
+            delegate.rollback();
+        }
+        finally {
+            transactionCompleted();
+        }
+    }
+
+    @Override
+    public void setAutoCommit(boolean autoCommit) throws SQLException {
+        try {
+            delegate.setAutoCommit(autoCommit);
+        }
+        finally {
+            // enabling auto-commit commits the transaction
+            if (autoCommit) {
+                transactionCompleted();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            delegate.close();
+        }
+        finally {
+            transactionCompleted();
+        }
+    }
+
+    private void transactionCompleted() {
+        if (writtenAll) {
+            cache.invalidateAll();
+        }
+        else if (!writtenTables.isEmpty()) {
+            cache.invalidate(writtenTables);
+        }
+        writtenAll = false;
+        writtenTables.clear();
+    }
+
+    interface QueryExecution {
+        ResultSet execute() throws SQLException;
+    }
+}
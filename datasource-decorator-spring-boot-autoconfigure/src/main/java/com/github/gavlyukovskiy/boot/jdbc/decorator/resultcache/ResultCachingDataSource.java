@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.resultcache;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * {@link DataSource} that returns {@link ResultCachingConnection}s sharing one {@link ResultCache}.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class ResultCachingDataSource extends DelegatingDataSource {
+
+    private final ResultCache cache;
+
+    ResultCachingDataSource(DataSource dataSource, ResultCache cache) {
+        super(dataSource);
+        this.cache = cache;
+    }
+
+    ResultCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return new ResultCachingConnection(obtainTargetDataSource().getConnection(), cache);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return new ResultCachingConnection(obtainTargetDataSource().getConnection(username, password), cache);
+    }
+
+    @Override
+    public String toString() {
+        return "ResultCachingDataSource [" + getTargetDataSource() + "]";
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.resultcache;
+
+import java.util.List;
+
+/**
+ * Key of a cached result: SQL, bound parameters and type of the result set requested by the statement.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+final class ResultKey {
+
+    private final String sql;
+    private final List<List<Object>> parameters;
+    private final int resultSetType;
+    private final int hashCode;
+
+    ResultKey(String sql, List<List<Object>> parameters, int resultSetType) {
+        this.sql = sql;
+        this.parameters = parameters;
+        this.resultSetType = resultSetType;
+        this.hashCode = 31 * (31 * sql.hashCode() + parameters.hashCode()) + resultSetType;
+    }
+
+    int getResultSetType() {
+        return resultSetType;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ResultKey)) {
+            return false;
+        }
+        ResultKey that = (ResultKey) o;
+        return hashCode == that.hashCode && resultSetType == that.resultSetType
+                && sql.equals(that.sql) && parameters.equals(that.parameters);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
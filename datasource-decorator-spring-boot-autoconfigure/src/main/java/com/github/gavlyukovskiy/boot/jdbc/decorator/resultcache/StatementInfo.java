@@ -0,0 +1,259 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.resultcache;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.statistics.SqlFingerprinter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Tables read and written by a SQL statement and whether its result can be cached.
+ * <p>
+ * Tables are resolved by a lightweight scan of {@code FROM}, {@code JOIN} and DML target clauses, names are
+ * lower-cased without schema and quotes. Statements that may write to unknown tables, e.g. DDL or procedure calls,
+ * report {@code null} written tables, meaning that all cached results must be invalidated.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+final class StatementInfo {
+
+    private static final Pattern TOKEN = Pattern.compile(
+            "(?:\"[^\"]*\"|`[^`]*`|\\[[^\\]]*]|[\\p{L}_][\\w$]*)(?:\\.(?:\"[^\"]*\"|`[^`]*`|\\[[^\\]]*]|[\\p{L}_][\\w$]*))*|\\S");
+
+    private static final Set<String> READ_ONLY_COMMANDS = new HashSet<>(Arrays.asList(
+            "SELECT", "VALUES", "SHOW", "EXPLAIN", "DESCRIBE", "SET", "BEGIN", "START", "COMMIT", "ROLLBACK",
+            "SAVEPOINT", "RELEASE"));
+
+    private static final Set<String> WRITE_COMMANDS = new HashSet<>(Arrays.asList(
+            "INSERT", "UPDATE", "DELETE", "MERGE", "REPLACE", "UPSERT", "TRUNCATE"));
+
+    private static final Set<String> TARGET_PREFIX_KEYWORDS = new HashSet<>(Arrays.asList(
+            "INTO", "FROM", "TABLE", "ONLY", "IGNORE", "LOW_PRIORITY", "DELAYED", "HIGH_PRIORITY", "QUICK"));
+
+    private static final Set<String> CLAUSE_KEYWORDS = new HashSet<>(Arrays.asList(
+            "WHERE", "JOIN", "INNER", "LEFT", "RIGHT", "FULL", "OUTER", "CROSS", "NATURAL", "ON", "USING", "GROUP",
+            "ORDER", "HAVING", "LIMIT", "OFFSET", "FETCH", "UNION", "INTERSECT", "EXCEPT", "MINUS", "FOR", "WINDOW",
+            "SET", "VALUES", "SELECT", "WITH", "INTO", "AS", "LATERAL"));
+
+    private static final Set<String> FROM_CLAUSE_END_KEYWORDS = new HashSet<>(Arrays.asList(
+            "WHERE", "GROUP", "ORDER", "HAVING", "LIMIT", "OFFSET", "FETCH", "UNION", "INTERSECT",
+            "EXCEPT", "MINUS", "FOR", "WINDOW"));
+
+    static final StatementInfo NOT_CACHEABLE_READ = new StatementInfo(false, Collections.emptySet(), Collections.emptySet());
+
+    private final boolean cacheable;
+    private final Set<String> readTables;
+    private final Set<String> writtenTables;
+
+    private StatementInfo(boolean cacheable, Set<String> readTables, Set<String> writtenTables) {
+        this.cacheable = cacheable;
+        this.readTables = readTables;
+        this.writtenTables = writtenTables;
+    }
+
+    static StatementInfo analyze(String sql, List<Pattern> patterns) {
+        List<String> tokens = tokenize(SqlFingerprinter.normalize(sql));
+        if (tokens.isEmpty()) {
+            return NOT_CACHEABLE_READ;
+        }
+        String command = tokens.get(0).toUpperCase(Locale.ROOT);
+        if (WRITE_COMMANDS.contains(command)) {
+            return new StatementInfo(false, Collections.emptySet(), writtenTable(tokens));
+        }
+        if (command.equals("WITH") || command.equals("(")) {
+            // common table expressions may contain data-modifying statements
+            for (String token : tokens) {
+                if (WRITE_COMMANDS.contains(token.toUpperCase(Locale.ROOT))) {
+                    return new StatementInfo(false, Collections.emptySet(), null);
+                }
+            }
+        }
+        else if (!READ_ONLY_COMMANDS.contains(command)) {
+            return new StatementInfo(false, Collections.emptySet(), null);
+        }
+        boolean cacheable = (command.equals("SELECT") || command.equals("WITH") || command.equals("("))
+                && !isLockingRead(tokens) && matches(sql, patterns);
+        return new StatementInfo(cacheable, cacheable ? readTables(tokens) : Collections.emptySet(), Collections.emptySet());
+    }
+
+    boolean isCacheable() {
+        return cacheable;
+    }
+
+    Set<String> getReadTables() {
+        return readTables;
+    }
+
+    /**
+     * Returns tables written by the statement.
+     *
+     * @return written tables or {@code null} if statement may write to any table
+     */
+    Set<String> getWrittenTables() {
+        return writtenTables;
+    }
+
+    private static boolean matches(String sql, List<Pattern> patterns) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(sql).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isLockingRead(List<String> tokens) {
+        for (int i = 0; i < tokens.size() - 1; i++) {
+            if (tokens.get(i).equalsIgnoreCase("FOR")) {
+                String next = tokens.get(i + 1);
+                if (next.equalsIgnoreCase("UPDATE") || next.equalsIgnoreCase("SHARE") || next.equalsIgnoreCase("NO")
+                        || next.equalsIgnoreCase("KEY")) {
+                    return true;
+                }
+            }
+            if (tokens.get(i).equalsIgnoreCase("LOCK")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Set<String> readTables(List<String> tokens) {
+        Set<String> tables = new HashSet<>();
+        // FROM clause state per parentheses depth, subqueries have their own FROM clauses
+        boolean[] inFromClause = new boolean[tokens.size() + 1];
+        int depth = 0;
+        int i = 0;
+        while (i < tokens.size()) {
+            String token = tokens.get(i);
+            if (token.equals("(")) {
+                depth++;
+                inFromClause[depth] = false;
+                i++;
+            }
+            else if (token.equals(")")) {
+                depth = Math.max(depth - 1, 0);
+                i++;
+            }
+            else if (token.equalsIgnoreCase("FROM")) {
+                inFromClause[depth] = true;
+                i = readTable(tokens, i + 1, tables);
+            }
+            else if (token.equalsIgnoreCase("JOIN") || token.equals(",") && inFromClause[depth]) {
+                i = readTable(tokens, i + 1, tables);
+            }
+            else {
+                if (FROM_CLAUSE_END_KEYWORDS.contains(token.toUpperCase(Locale.ROOT))) {
+                    inFromClause[depth] = false;
+                }
+                i++;
+            }
+        }
+        return Collections.unmodifiableSet(tables);
+    }
+
+    /**
+     * Reads table name with optional alias.
+     *
+     * @return index of the first token after the table
+     */
+    private static int readTable(List<String> tokens, int start, Set<String> tables) {
+        if (start >= tokens.size() || !isIdentifier(tokens.get(start))) {
+            return start;
+        }
+        tables.add(tableName(tokens.get(start)));
+        int i = start + 1;
+        if (i < tokens.size() && tokens.get(i).equalsIgnoreCase("AS")) {
+            i++;
+        }
+        if (i < tokens.size() && isIdentifier(tokens.get(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static Set<String> writtenTable(List<String> tokens) {
+        for (int i = 1; i < tokens.size(); i++) {
+            String token = tokens.get(i).toUpperCase(Locale.ROOT);
+            if (!TARGET_PREFIX_KEYWORDS.contains(token)) {
+                return isIdentifier(tokens.get(i)) ? Collections.singleton(tableName(tokens.get(i))) : null;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isIdentifier(String token) {
+        char first = token.charAt(0);
+        boolean quoted = first == '"' || first == '`' || first == '[';
+        return quoted || (Character.isLetter(first) || first == '_') && !CLAUSE_KEYWORDS.contains(token.toUpperCase(Locale.ROOT));
+    }
+
+    private static String tableName(String identifier) {
+        String name = identifier;
+        int dot = lastUnquotedDot(identifier);
+        if (dot != -1) {
+            name = identifier.substring(dot + 1);
+        }
+        char first = name.charAt(0);
+        if (first == '"' || first == '`' || first == '[') {
+            name = name.substring(1, name.length() - 1);
+        }
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private static int lastUnquotedDot(String identifier) {
+        char quote = 0;
+        int dot = -1;
+        for (int i = 0; i < identifier.length(); i++) {
+            char c = identifier.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            }
+            else if (c == '"' || c == '`') {
+                quote = c;
+            }
+            else if (c == '[') {
+                quote = ']';
+            }
+            else if (c == '.') {
+                dot = i;
+            }
+        }
+        return dot;
+    }
+
+    private static List<String> tokenize(String sql) {
+        List<String> tokens = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(sql);
+        while (matcher.find()) {
+            tokens.add(matcher.group());
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.statementcache;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.support.DelegatingPreparedStatement;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link PreparedStatement} handed out from {@link PreparedStatementCache}, closing it returns statement to the cache.
+ * <p>
+ * Result sets are closed and parameters are cleared before returning. Statements with changed limits, timeouts
+ * or fetch options are not returned to the cache, but closed, so the next user gets a statement with default options.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class CachedPreparedStatement extends DelegatingPreparedStatement<PreparedStatement> {
+
+    private final StatementCachingConnection connection;
+    private final PreparedStatementCache cache;
+    private final PreparedStatementCache.Entry entry;
+    private final List<ResultSet> resultSets = new ArrayList<>(1);
+    private boolean reusable = true;
+    private boolean closed;
+
+    CachedPreparedStatement(StatementCachingConnection connection, PreparedStatementCache cache, PreparedStatementCache.Entry entry) {
+        super(connection, entry.getStatement(), entry.getKey().getSql());
+        this.connection = connection;
+        this.cache = cache;
+        this.entry = entry;
+    }
+
+    @Override
+    public ResultSet executeQuery() throws SQLException {
+        return track(super.executeQuery());
+    }
+
+    @Override
+    public ResultSet getResultSet() throws SQLException {
+        return track(super.getResultSet());
+    }
+
+    @Override
+    public ResultSet getGeneratedKeys() throws SQLException {
+        return track(super.getGeneratedKeys());
+    }
+
+    @Override
+    public void setMaxFieldSize(int max) throws SQLException {
+        reusable = false;
+        super.setMaxFieldSize(max);
+    }
+
+    @Override
+    public void setMaxRows(int max) throws SQLException {
+        reusable = false;
+        super.setMaxRows(max);
+    }
+
+    @Override
+    public void setLargeMaxRows(long max) throws SQLException {
+        reusable = false;
+        super.setLargeMaxRows(max);
+    }
+
+    @Override
+    public void setEscapeProcessing(boolean enable) throws SQLException {
+        reusable = false;
+        super.setEscapeProcessing(enable);
+    }
+
+    @Override
+    public void setQueryTimeout(int seconds) throws SQLException {
+        reusable = false;
+        super.setQueryTimeout(seconds);
+    }
+
+    @Override
+    public void setCursorName(String name) throws SQLException {
+        reusable = false;
+        super.setCursorName(name);
+    }
+
+    @Override
+    public void setFetchDirection(int direction) throws SQLException {
+        reusable = false;
+        super.setFetchDirection(direction);
+    }
+
+    @Override
+    public void setFetchSize(int rows) throws SQLException {
+        reusable = false;
+        super.setFetchSize(rows);
+    }
+
+    @Override
+    public void setPoolable(boolean poolable) throws SQLException {
+        reusable &= poolable;
+        super.setPoolable(poolable);
+    }
+
+    @Override
+    public void closeOnCompletion() throws SQLException {
+        reusable = false;
+        super.closeOnCompletion();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        connection.statementClosed(this);
+        try {
+            for (ResultSet resultSet : resultSets) {
+                resultSet.close();
+            }
+            delegate.clearParameters();
+            delegate.clearBatch();
+            delegate.clearWarnings();
+        }
+        catch (SQLException e) {
+            reusable = false;
+        }
+        finally {
+            cache.release(entry, reusable);
+        }
+    }
+
+    private ResultSet track(ResultSet resultSet) {
+        if (resultSet != null) {
+            resultSets.add(resultSet);
+        }
+        return resultSet;
+    }
+}
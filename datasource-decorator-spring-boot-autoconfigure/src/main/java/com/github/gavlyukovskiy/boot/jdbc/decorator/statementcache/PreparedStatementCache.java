@@ -0,0 +1,184 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.statementcache;
+
+import org.slf4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * LRU cache of {@link PreparedStatement}s of one physical connection.
+ * <p>
+ * Statement is handed out to one user at a time, if the same statement is requested while the cached one is in use,
+ * a new statement is prepared and closed after use. Evicted statements are closed when they are no longer in use.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class PreparedStatementCache {
+
+    private static final Logger log = getLogger(PreparedStatementCache.class);
+
+    private final int maxSize;
+    private final StatementCacheStatistics statistics;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<StatementKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean closed;
+
+    PreparedStatementCache(int maxSize, StatementCacheStatistics statistics) {
+        this.maxSize = maxSize;
+        this.statistics = statistics;
+    }
+
+    Entry acquire(StatementKey key, Connection connection) throws SQLException {
+        boolean cacheable;
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null && !entry.inUse) {
+                if (!entry.statement.isClosed()) {
+                    entry.inUse = true;
+                    statistics.hit();
+                    return entry;
+                }
+                // closed by the driver, e.g. after DDL
+                entries.remove(key);
+            }
+            cacheable = !closed && entry == null;
+        }
+        finally {
+            lock.unlock();
+        }
+        statistics.miss();
+        Entry entry = new Entry(key, key.prepare(connection));
+        entry.inUse = true;
+        if (!cacheable) {
+            entry.evicted = true;
+            return entry;
+        }
+        List<PreparedStatement> evicted = new ArrayList<>();
+        lock.lock();
+        try {
+            if (closed || entries.containsKey(key)) {
+                entry.evicted = true;
+                return entry;
+            }
+            entries.put(key, entry);
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (entries.size() > maxSize && iterator.hasNext()) {
+                Entry eldest = iterator.next();
+                iterator.remove();
+                statistics.eviction();
+                if (eldest.inUse) {
+                    eldest.evicted = true;
+                }
+                else {
+                    evicted.add(eldest.statement);
+                }
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+        evicted.forEach(PreparedStatementCache::closeQuietly);
+        return entry;
+    }
+
+    void release(Entry entry, boolean reusable) {
+        lock.lock();
+        try {
+            entry.inUse = false;
+            if (!entry.evicted && reusable) {
+                return;
+            }
+            if (!entry.evicted && entries.get(entry.key) == entry) {
+                entries.remove(entry.key);
+            }
+            entry.evicted = true;
+        }
+        finally {
+            lock.unlock();
+        }
+        closeQuietly(entry.statement);
+    }
+
+    void close() {
+        List<PreparedStatement> statements = new ArrayList<>();
+        lock.lock();
+        try {
+            closed = true;
+            entries.values().forEach(entry -> {
+                entry.evicted = true;
+                statements.add(entry.statement);
+            });
+            entries.clear();
+        }
+        finally {
+            lock.unlock();
+        }
+        statements.forEach(PreparedStatementCache::closeQuietly);
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        }
+        catch (SQLException e) {
+            log.debug("Failed to close cached statement", e);
+        }
+    }
+
+    static final class Entry {
+        private final StatementKey key;
+        private final PreparedStatement statement;
+        private boolean inUse;
+        private boolean evicted;
+
+        private Entry(StatementKey key, PreparedStatement statement) {
+            this.key = key;
+            this.statement = statement;
+        }
+
+        StatementKey getKey() {
+            return key;
+        }
+
+        PreparedStatement getStatement() {
+            return statement;
+        }
+    }
+}
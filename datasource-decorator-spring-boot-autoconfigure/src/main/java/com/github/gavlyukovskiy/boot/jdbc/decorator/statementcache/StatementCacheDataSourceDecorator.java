@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.statementcache;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecorator;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link Ordered} decorator that caches prepared statements per physical connection.
+ * <p>
+ * Applied right after flexy-pool, so it works with connections of the real pool and
+ * statements returned from the cache are still visible to logging and metrics decorators.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class StatementCacheDataSourceDecorator implements DataSourceDecorator, Ordered {
+
+    private final StatementCacheProperties statementCacheProperties;
+    private final Map<String, StatementCacheStatistics> statistics = new ConcurrentHashMap<>();
+
+    public StatementCacheDataSourceDecorator(StatementCacheProperties statementCacheProperties) {
+        this.statementCacheProperties = statementCacheProperties;
+    }
+
+    @Override
+    public DataSource decorate(String beanName, DataSource dataSource) {
+        return new StatementCachingDataSource(dataSource, statementCacheProperties.getMaxSize(), getStatistics(beanName));
+    }
+
+    /**
+     * Returns statistics of statement caches of the data source.
+     *
+     * @param dataSourceName name of the data source
+     * @return statistics of the data source
+     */
+    public StatementCacheStatistics getStatistics(String dataSourceName) {
+        return statistics.computeIfAbsent(dataSourceName, name -> new StatementCacheStatistics());
+    }
+
+    /**
+     * Returns statistics of statement caches of all decorated data sources.
+     *
+     * @return statistics by data source name
+     */
+    public Map<String, StatementCacheStatistics> getStatistics() {
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    @Override
+    public int getOrder() {
+        return 12;
+    }
+}
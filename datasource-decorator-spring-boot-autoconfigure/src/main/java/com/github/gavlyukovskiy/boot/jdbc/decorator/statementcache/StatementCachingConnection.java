@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.statementcache;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.support.DelegatingConnection;
+import org.slf4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * {@link Connection} that prepares statements through {@link PreparedStatementCache} of its physical connection.
+ * <p>
+ * Statements are prepared through the logical connection, so the pool tracks them as any other statement.
+ * When the connection is not pooled, the cache is closed together with the connection.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class StatementCachingConnection extends DelegatingConnection {
+
+    private static final Logger log = getLogger(StatementCachingConnection.class);
+
+    private final PreparedStatementCache cache;
+    private final boolean ownsCache;
+    private final List<CachedPreparedStatement> openStatements = new ArrayList<>();
+
+    StatementCachingConnection(Connection delegate, PreparedStatementCache cache, boolean ownsCache) {
+        super(delegate);
+        this.cache = cache;
+        this.ownsCache = ownsCache;
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        return prepare(StatementKey.of(sql));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        return prepare(StatementKey.of(sql, resultSetType, resultSetConcurrency));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) throws SQLException {
+        return prepare(StatementKey.of(sql, resultSetType, resultSetConcurrency, resultSetHoldability));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        return prepare(StatementKey.withAutoGeneratedKeys(sql, autoGeneratedKeys));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException {
+        return prepare(StatementKey.withColumnIndexes(sql, columnIndexes));
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException {
+        return prepare(StatementKey.withColumnNames(sql, columnNames));
+    }
+
+    private PreparedStatement prepare(StatementKey key) throws SQLException {
+        CachedPreparedStatement statement = new CachedPreparedStatement(this, cache, cache.acquire(key, delegate));
+        openStatements.add(statement);
+        return statement;
+    }
+
+    void statementClosed(CachedPreparedStatement statement) {
+        openStatements.remove(statement);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            // closing connection closes its statements
+            for (CachedPreparedStatement statement : new ArrayList<>(openStatements)) {
+                statement.close();
+            }
+            if (ownsCache) {
+                cache.close();
+            }
+        }
+        catch (SQLException e) {
+            log.debug("Failed to release statements of the connection", e);
+        }
+        finally {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.statementcache;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link DataSource} that returns {@link StatementCachingConnection}s sharing {@link PreparedStatementCache}
+ * of their physical connection.
+ * <p>
+ * Physical connection is resolved with {@code unwrap(Connection.class)}, which returns the driver connection
+ * for HikariCP and Tomcat JDBC, and is used only as the cache key. Statements are prepared through the logical
+ * connection, so the pool still tracks them. This decorator is meant for pools that neither cache statements
+ * nor close them when the connection is returned, e.g. Tomcat JDBC without {@code StatementFinalizer}. Pools closing
+ * statements on return, such as HikariCP, limit reuse to a single lease, closed statements are prepared again.
+ * <p>
+ * When the connection unwraps to itself, it's considered physical and the cache lives until it's closed.
+ * Caches of physical connections closed by the pool are removed whenever a new physical connection is seen,
+ * as the pool usually replaces closed connections.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class StatementCachingDataSource extends DelegatingDataSource {
+
+    private final int maxSize;
+    private final StatementCacheStatistics statistics;
+    private final Map<PhysicalConnectionKey, PreparedStatementCache> caches = new ConcurrentHashMap<>();
+
+    StatementCachingDataSource(DataSource dataSource, int maxSize, StatementCacheStatistics statistics) {
+        super(dataSource);
+        this.maxSize = maxSize;
+        this.statistics = statistics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return cachingConnection(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return cachingConnection(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private Connection cachingConnection(Connection connection) throws SQLException {
+        Connection physicalConnection = connection.isWrapperFor(Connection.class) ? connection.unwrap(Connection.class) : null;
+        if (physicalConnection == null || physicalConnection == connection) {
+            return new StatementCachingConnection(connection, new PreparedStatementCache(maxSize, statistics), true);
+        }
+        PhysicalConnectionKey key = new PhysicalConnectionKey(physicalConnection);
+        PreparedStatementCache cache = caches.get(key);
+        if (cache == null) {
+            sweep();
+            cache = caches.computeIfAbsent(key, k -> new PreparedStatementCache(maxSize, statistics));
+        }
+        return new StatementCachingConnection(connection, cache, false);
+    }
+
+    int getPhysicalConnectionCaches() {
+        return caches.size();
+    }
+
+    void sweep() {
+        for (Iterator<Map.Entry<PhysicalConnectionKey, PreparedStatementCache>> iterator = caches.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<PhysicalConnectionKey, PreparedStatementCache> entry = iterator.next();
+            if (entry.getKey().isClosed()) {
+                iterator.remove();
+                entry.getValue().close();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "StatementCachingDataSource [" + getTargetDataSource() + "]";
+    }
+
+    /**
+     * Identity key of a physical connection, drivers are not required to implement {@code equals}
+     * as identity comparison.
+     */
+    private static final class PhysicalConnectionKey {
+        private final Connection connection;
+
+        private PhysicalConnectionKey(Connection connection) {
+            this.connection = connection;
+        }
+
+        private boolean isClosed() {
+            try {
+                return connection.isClosed();
+            }
+            catch (SQLException e) {
+                return true;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof PhysicalConnectionKey && ((PhysicalConnectionKey) o).connection == connection;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(connection);
+        }
+    }
+}
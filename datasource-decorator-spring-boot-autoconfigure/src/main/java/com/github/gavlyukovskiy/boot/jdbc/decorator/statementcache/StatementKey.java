@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.statementcache;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Key of a cached {@link PreparedStatement}: SQL and options it was prepared with.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+final class StatementKey {
+
+    private static final int UNSPECIFIED = -1;
+
+    private final String sql;
+    private final int resultSetType;
+    private final int resultSetConcurrency;
+    private final int resultSetHoldability;
+    private final int autoGeneratedKeys;
+    private final int[] columnIndexes;
+    private final String[] columnNames;
+    private final int hashCode;
+
+    private StatementKey(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability,
+            int autoGeneratedKeys, int[] columnIndexes, String[] columnNames) {
+        this.sql = sql;
+        this.resultSetType = resultSetType;
+        this.resultSetConcurrency = resultSetConcurrency;
+        this.resultSetHoldability = resultSetHoldability;
+        this.autoGeneratedKeys = autoGeneratedKeys;
+        this.columnIndexes = columnIndexes;
+        this.columnNames = columnNames;
+        int hashCode = Objects.hash(sql, resultSetType, resultSetConcurrency, resultSetHoldability, autoGeneratedKeys);
+        hashCode = 31 * hashCode + Arrays.hashCode(columnIndexes);
+        this.hashCode = 31 * hashCode + Arrays.hashCode(columnNames);
+    }
+
+    static StatementKey of(String sql) {
+        return new StatementKey(sql, UNSPECIFIED, UNSPECIFIED, UNSPECIFIED, UNSPECIFIED, null, null);
+    }
+
+    static StatementKey of(String sql, int resultSetType, int resultSetConcurrency) {
+        return new StatementKey(sql, resultSetType, resultSetConcurrency, UNSPECIFIED, UNSPECIFIED, null, null);
+    }
+
+    static StatementKey of(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) {
+        return new StatementKey(sql, resultSetType, resultSetConcurrency, resultSetHoldability, UNSPECIFIED, null, null);
+    }
+
+    static StatementKey withAutoGeneratedKeys(String sql, int autoGeneratedKeys) {
+        return new StatementKey(sql, UNSPECIFIED, UNSPECIFIED, UNSPECIFIED, autoGeneratedKeys, null, null);
+    }
+
+    static StatementKey withColumnIndexes(String sql, int[] columnIndexes) {
+        return new StatementKey(sql, UNSPECIFIED, UNSPECIFIED, UNSPECIFIED, UNSPECIFIED, columnIndexes.clone(), null);
+    }
+
+    static StatementKey withColumnNames(String sql, String[] columnNames) {
+        return new StatementKey(sql, UNSPECIFIED, UNSPECIFIED, UNSPECIFIED, UNSPECIFIED, null, columnNames.clone());
+    }
+
+    String getSql() {
+        return sql;
+    }
+
+    PreparedStatement prepare(Connection connection) throws SQLException {
+        if (columnIndexes != null) {
+            return connection.prepareStatement(sql, columnIndexes);
+        }
+        if (columnNames != null) {
+            return connection.prepareStatement(sql, columnNames);
+        }
+        if (autoGeneratedKeys != UNSPECIFIED) {
+            return connection.prepareStatement(sql, autoGeneratedKeys);
+        }
+        if (resultSetHoldability != UNSPECIFIED) {
+            return connection.prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+        }
+        if (resultSetType != UNSPECIFIED) {
+            return connection.prepareStatement(sql, resultSetType, resultSetConcurrency);
+        }
+        return connection.prepareStatement(sql);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof StatementKey)) {
+            return false;
+        }
+        StatementKey that = (StatementKey) o;
+        return hashCode == that.hashCode
+                && resultSetType == that.resultSetType
+                && resultSetConcurrency == that.resultSetConcurrency
+                && resultSetHoldability == that.resultSetHoldability
+                && autoGeneratedKeys == that.autoGeneratedKeys
+                && sql.equals(that.sql)
+                && Arrays.equals(columnIndexes, that.columnIndexes)
+                && Arrays.equals(columnNames, that.columnNames);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.statistics;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Normalizes SQL to a fingerprint, so statements differing only in literals are aggregated together.
+ * <p>
+ * String and numeric literals are replaced with {@code ?}, lists of placeholders (e.g. in {@code IN} clause)
+ * are collapsed to a single {@code ?}, comments are removed and whitespaces are collapsed.
+ * Fingerprints are cached in a bounded cache, so the same SQL string is not tokenized on every execution.
+ * Once the cache is full, new SQL strings are fingerprinted on every call instead of replacing cached ones,
+ * which keeps repeatedly executed statements cached under churn of dynamic SQL.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class SqlFingerprinter {
+
+    private final int cacheSize;
+    private final ConcurrentHashMap<String, String> cache;
+
+    public SqlFingerprinter(int cacheSize) {
+        this.cacheSize = cacheSize;
+        this.cache = new ConcurrentHashMap<>(Math.min(cacheSize, 1024));
+    }
+
+    public String fingerprint(String sql) {
+        String fingerprint = cache.get(sql);
+        if (fingerprint == null) {
+            fingerprint = normalize(sql);
+            if (cache.size() < cacheSize) {
+                cache.put(sql, fingerprint);
+            }
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Normalizes SQL without caching.
+     *
+     * @param sql SQL to normalize
+     * @return SQL with literals replaced by placeholders and without comments
+     */
+    public static String normalize(String sql) {
+        int length = sql.length();
+        StringBuilder fingerprint = new StringBuilder(length);
+        boolean pendingSpace = false;
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+                i++;
+                continue;
+            }
+            if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                i = skipLineComment(sql, i);
+                pendingSpace = true;
+                continue;
+            }
+            if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                i = skipBlockComment(sql, i);
+                pendingSpace = true;
+                continue;
+            }
+            if (pendingSpace && fingerprint.length() > 0) {
+                fingerprint.append(' ');
+            }
+            pendingSpace = false;
+            if (c == '\'') {
+                i = skipStringLiteral(sql, i);
+                appendPlaceholder(fingerprint);
+            }
+            else if (c == '"' || c == '`') {
+                i = copyQuotedIdentifier(sql, i, fingerprint);
+            }
+            else if (Character.isDigit(c) && (i == 0 || !isIdentifierPart(sql.charAt(i - 1)))) {
+                i = skipNumericLiteral(sql, i);
+                appendPlaceholder(fingerprint);
+            }
+            else if (c == '?') {
+                appendPlaceholder(fingerprint);
+                i++;
+            }
+            else {
+                fingerprint.append(c);
+                i++;
+            }
+        }
+        return fingerprint.toString();
+    }
+
+    private static void appendPlaceholder(StringBuilder fingerprint) {
+        int length = fingerprint.length();
+        // collapses "?, ?" and "?,?" lists into a single placeholder
+        if (length >= 3 && fingerprint.charAt(length - 1) == ' ' && fingerprint.charAt(length - 2) == ','
+                && fingerprint.charAt(length - 3) == '?') {
+            fingerprint.setLength(length - 2);
+        }
+        else if (length >= 2 && fingerprint.charAt(length - 1) == ',' && fingerprint.charAt(length - 2) == '?') {
+            fingerprint.setLength(length - 1);
+        }
+        else {
+            fingerprint.append('?');
+        }
+    }
+
+    private static int skipLineComment(String sql, int start) {
+        int end = sql.indexOf('\n', start);
+        return end == -1 ? sql.length() : end + 1;
+    }
+
+    private static int skipBlockComment(String sql, int start) {
+        int end = sql.indexOf("*/", start + 2);
+        return end == -1 ? sql.length() : end + 2;
+    }
+
+    private static int skipStringLiteral(String sql, int start) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == '\'') {
+                // quote is escaped by doubling it
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == '\'') {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static int copyQuotedIdentifier(String sql, int start, StringBuilder fingerprint) {
+        char quote = sql.charAt(start);
+        int end = sql.indexOf(quote, start + 1);
+        end = end == -1 ? sql.length() : end + 1;
+        fingerprint.append(sql, start, end);
+        return end;
+    }
+
+    private static int skipNumericLiteral(String sql, int start) {
+        int i = start;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (Character.isLetterOrDigit(c) || c == '.') {
+                i++;
+            }
+            else if ((c == '+' || c == '-') && (sql.charAt(i - 1) == 'e' || sql.charAt(i - 1) == 'E')) {
+                // exponent sign
+                i++;
+            }
+            else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '.';
+    }
+}
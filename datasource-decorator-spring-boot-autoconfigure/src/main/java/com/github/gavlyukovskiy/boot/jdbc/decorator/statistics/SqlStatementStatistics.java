@@ -0,0 +1,106 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.statistics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Execution statistics of a single SQL fingerprint, updated concurrently without locks.
+ * <p>
+ * When the fingerprint replaced another one in the bounded table it inherits its call count as
+ * {@link #getCallsError() error}, so {@link #getEstimatedCalls()} never underestimates the real number of calls.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class SqlStatementStatistics {
+
+    private final String fingerprint;
+    private final long callsError;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalTimeNanos = new LongAdder();
+    private final LongAccumulator maxTimeNanos = new LongAccumulator(Math::max, 0L);
+    private final LongAdder rows = new LongAdder();
+
+    SqlStatementStatistics(String fingerprint, long callsError) {
+        this.fingerprint = fingerprint;
+        this.callsError = callsError;
+    }
+
+    void record(long elapsedNanos, boolean success) {
+        calls.increment();
+        if (!success) {
+            failures.increment();
+        }
+        totalTimeNanos.add(elapsedNanos);
+        maxTimeNanos.accumulate(elapsedNanos);
+    }
+
+    void addRows(long rows) {
+        this.rows.add(rows);
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Returns number of calls recorded since the fingerprint was added to the table.
+     *
+     * @return number of calls
+     */
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    /**
+     * Returns maximum number of calls that might have happened before the fingerprint was added to the table.
+     *
+     * @return overestimation of the {@link #getEstimatedCalls()}
+     */
+    public long getCallsError() {
+        return callsError;
+    }
+
+    public long getEstimatedCalls() {
+        return callsError + calls.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getTotalTimeNanos() {
+        return totalTimeNanos.sum();
+    }
+
+    public long getMeanTimeNanos() {
+        long calls = getCalls();
+        return calls != 0 ? getTotalTimeNanos() / calls : 0L;
+    }
+
+    public long getMaxTimeNanos() {
+        return maxTimeNanos.get();
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+}
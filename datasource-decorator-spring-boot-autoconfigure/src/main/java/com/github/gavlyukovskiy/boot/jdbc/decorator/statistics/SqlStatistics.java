@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.statistics;
+
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process equivalent of {@code pg_stat_statements}: call count, total, mean and max execution time and rows
+ * of every normalized SQL statement, per data source.
+ * <p>
+ * Number of tracked statements per data source is bounded, so dynamically generated SQL cannot exhaust the heap,
+ * only the most frequently executed statements are kept.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ * @see SqlFingerprinter
+ */
+public class SqlStatistics {
+
+    private final SqlFingerprinter fingerprinter;
+    private final int maxStatements;
+    private final ConcurrentHashMap<String, SqlStatisticsTable> tables = new ConcurrentHashMap<>();
+
+    public SqlStatistics(SqlFingerprinter fingerprinter, int maxStatements) {
+        this.fingerprinter = fingerprinter;
+        this.maxStatements = maxStatements;
+    }
+
+    /**
+     * Records execution of the SQL.
+     *
+     * @param dataSourceName name of the data source
+     * @param sql executed SQL, might contain literals
+     * @param elapsedNanos execution time in nanoseconds
+     * @param success whether execution has succeeded
+     */
+    public void record(String dataSourceName, String sql, long elapsedNanos, boolean success) {
+        record(dataSourceName, sql, elapsedNanos, success, 0L);
+    }
+
+    /**
+     * Records execution of the SQL together with rows updated by it, so the statement is looked up only once.
+     *
+     * @param dataSourceName name of the data source
+     * @param sql executed SQL, might contain literals
+     * @param elapsedNanos execution time in nanoseconds
+     * @param success whether execution has succeeded
+     * @param rows number of updated rows
+     */
+    public void record(String dataSourceName, String sql, long elapsedNanos, boolean success, long rows) {
+        SqlStatementStatistics statementStatistics = getTable(dataSourceName).get(fingerprinter.fingerprint(sql));
+        statementStatistics.record(elapsedNanos, success);
+        if (rows > 0) {
+            statementStatistics.addRows(rows);
+        }
+    }
+
+    /**
+     * Adds rows fetched or updated by the SQL.
+     *
+     * @param dataSourceName name of the data source
+     * @param sql executed SQL, might contain literals
+     * @param rows number of rows
+     */
+    public void addRows(String dataSourceName, String sql, long rows) {
+        getTable(dataSourceName).get(fingerprinter.fingerprint(sql)).addRows(rows);
+    }
+
+    /**
+     * Returns statistics of every data source, statements are sorted by total execution time.
+     *
+     * @return statistics by data source name
+     */
+    public Map<String, List<SqlStatementStatistics>> getStatistics() {
+        Map<String, List<SqlStatementStatistics>> statistics = new TreeMap<>();
+        tables.forEach((dataSourceName, table) -> {
+            List<SqlStatementStatistics> statementStatistics = table.getStatistics();
+            // total times are captured before sorting as they are updated concurrently
+            Map<SqlStatementStatistics, Long> totalTimes = new IdentityHashMap<>();
+            statementStatistics.forEach(statement -> totalTimes.put(statement, statement.getTotalTimeNanos()));
+            statementStatistics.sort(Comparator.comparing(totalTimes::get, Comparator.reverseOrder()));
+            statistics.put(dataSourceName, statementStatistics);
+        });
+        return statistics;
+    }
+
+    public void reset() {
+        tables.values().forEach(SqlStatisticsTable::clear);
+    }
+
+    private SqlStatisticsTable getTable(String dataSourceName) {
+        SqlStatisticsTable table = tables.get(dataSourceName);
+        if (table == null) {
+            table = tables.computeIfAbsent(dataSourceName, name -> new SqlStatisticsTable(maxStatements));
+        }
+        return table;
+    }
+}
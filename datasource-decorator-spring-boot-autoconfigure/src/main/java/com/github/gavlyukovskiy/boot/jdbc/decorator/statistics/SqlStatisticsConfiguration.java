@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.statistics;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecoratorProperties;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceNameResolver;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy.ProxyDataSourceDecorator;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.p6spy.P6SpyDataSourceDecorator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Configuration of {@link SqlStatistics}, statistics are collected by p6spy listener or,
+ * if p6spy is not available, by datasource-proxy listener.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+@ConditionalOnProperty(name = "decorator.datasource.statistics.enabled", havingValue = "true")
+@Import({
+        SqlStatisticsConfiguration.P6SpyConfiguration.class,
+        SqlStatisticsConfiguration.ProxyDataSourceConfiguration.class
+})
+public class SqlStatisticsConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public SqlStatistics sqlStatistics(DataSourceDecoratorProperties dataSourceDecoratorProperties) {
+        SqlStatisticsProperties statistics = dataSourceDecoratorProperties.getStatistics();
+        return new SqlStatistics(new SqlFingerprinter(statistics.getFingerprintCacheSize()), statistics.getMaxStatements());
+    }
+
+    @Configuration
+    @ConditionalOnBean(P6SpyDataSourceDecorator.class)
+    static class P6SpyConfiguration {
+
+        @Bean
+        public SqlStatisticsJdbcEventListener sqlStatisticsJdbcEventListener(SqlStatistics sqlStatistics,
+                                                                             DataSourceNameResolver dataSourceNameResolver) {
+            return new SqlStatisticsJdbcEventListener(sqlStatistics, dataSourceNameResolver);
+        }
+    }
+
+    @Configuration
+    @ConditionalOnBean(ProxyDataSourceDecorator.class)
+    @ConditionalOnMissingBean(P6SpyConfiguration.class)
+    static class ProxyDataSourceConfiguration {
+
+        @Bean
+        public SqlStatisticsQueryExecutionListener sqlStatisticsQueryExecutionListener(SqlStatistics sqlStatistics) {
+            return new SqlStatisticsQueryExecutionListener(sqlStatistics);
+        }
+    }
+}
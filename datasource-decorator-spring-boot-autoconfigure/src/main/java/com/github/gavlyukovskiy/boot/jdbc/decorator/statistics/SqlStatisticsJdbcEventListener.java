@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.statistics;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceNameResolver;
+import com.p6spy.engine.common.ConnectionInformation;
+import com.p6spy.engine.common.PreparedStatementInformation;
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+
+import java.sql.SQLException;
+
+/**
+ * p6spy listener that records every execution and fetched or updated rows to {@link SqlStatistics}.
+ * <p>
+ * Updated rows are recorded together with the execution and fetched rows once the result set is closed,
+ * so the statement is looked up once per execution and result set rather than per row.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class SqlStatisticsJdbcEventListener extends SimpleJdbcEventListener {
+
+    private final SqlStatistics sqlStatistics;
+    private final DataSourceNameResolver dataSourceNameResolver;
+
+    SqlStatisticsJdbcEventListener(SqlStatistics sqlStatistics, DataSourceNameResolver dataSourceNameResolver) {
+        this.sqlStatistics = sqlStatistics;
+        this.dataSourceNameResolver = dataSourceNameResolver;
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        record(statementInformation, timeElapsedNanos, e, 0L);
+    }
+
+    @Override
+    public void onAfterExecuteUpdate(PreparedStatementInformation statementInformation, long timeElapsedNanos, int rowCount, SQLException e) {
+        // execution is recorded with rows instead of delegating to onAfterAnyExecute
+        record(statementInformation, timeElapsedNanos, e, rowCount);
+    }
+
+    @Override
+    public void onAfterExecuteUpdate(StatementInformation statementInformation, long timeElapsedNanos, String sql, int rowCount, SQLException e) {
+        record(statementInformation, timeElapsedNanos, e, rowCount);
+    }
+
+    @Override
+    public void onAfterExecuteBatch(StatementInformation statementInformation, long timeElapsedNanos, int[] updateCounts, SQLException e) {
+        long rows = 0;
+        if (updateCounts != null) {
+            for (int updateCount : updateCounts) {
+                rows += Math.max(updateCount, 0);
+            }
+        }
+        record(statementInformation, timeElapsedNanos, e, rows);
+    }
+
+    @Override
+    public void onAfterResultSetClose(ResultSetInformation resultSetInformation, SQLException e) {
+        // current row is advanced by p6spy's DefaultEventListener on every successful next()
+        int rows = resultSetInformation.getCurrRow() + 1;
+        StatementInformation statementInformation = resultSetInformation.getStatementInformation();
+        String sql = statementInformation.getSql();
+        if (sql != null && rows > 0) {
+            sqlStatistics.addRows(getDataSourceName(statementInformation.getConnectionInformation()), sql, rows);
+        }
+    }
+
+    private void record(StatementInformation statementInformation, long timeElapsedNanos, SQLException e, long rows) {
+        String sql = statementInformation.getSql();
+        if (sql != null) {
+            sqlStatistics.record(getDataSourceName(statementInformation.getConnectionInformation()), sql, timeElapsedNanos, e == null, rows);
+        }
+    }
+
+    private String getDataSourceName(ConnectionInformation connectionInformation) {
+        return dataSourceNameResolver.resolveDataSourceName(connectionInformation.getDataSource());
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.statistics;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Properties for per-statement SQL statistics.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+@Getter
+@Setter
+public class SqlStatisticsProperties {
+
+    /**
+     * Enables collecting of execution statistics per normalized SQL statement, requires p6spy or datasource-proxy.
+     */
+    private boolean enabled = false;
+    /**
+     * Maximum number of statements tracked per data source, least frequently executed statements are replaced.
+     */
+    private int maxStatements = 1000;
+    /**
+     * Maximum number of SQL strings with cached fingerprints.
+     */
+    private int fingerprintCacheSize = 10000;
+}
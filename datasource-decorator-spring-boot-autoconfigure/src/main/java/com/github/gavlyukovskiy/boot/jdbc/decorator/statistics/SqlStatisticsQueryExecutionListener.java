@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.statistics;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * datasource-proxy listener that records every execution and updated rows to {@link SqlStatistics}.
+ * <p>
+ * datasource-proxy measures execution time in milliseconds and doesn't report fetched rows,
+ * only rows updated by the statement are recorded.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class SqlStatisticsQueryExecutionListener implements QueryExecutionListener {
+
+    private final SqlStatistics sqlStatistics;
+
+    SqlStatisticsQueryExecutionListener(SqlStatistics sqlStatistics) {
+        this.sqlStatistics = sqlStatistics;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        int queries = queryInfoList.size();
+        if (queries == 0) {
+            return;
+        }
+        // statement batch of different queries has only total execution time
+        long elapsedNanos = TimeUnit.MILLISECONDS.toNanos(execInfo.getElapsedTime()) / queries;
+        Object result = execInfo.getResult();
+        for (int i = 0; i < queries; i++) {
+            String sql = queryInfoList.get(i).getQuery();
+            sqlStatistics.record(execInfo.getDataSourceName(), sql, elapsedNanos, execInfo.isSuccess(), getUpdatedRows(result, i, queries));
+        }
+    }
+
+    private static long getUpdatedRows(Object result, int queryIndex, int queries) {
+        if (result instanceof Integer) {
+            return (Integer) result;
+        }
+        if (result instanceof Long) {
+            return (Long) result;
+        }
+        if (result instanceof int[]) {
+            int[] updateCounts = (int[]) result;
+            // statement batch has a count per query, prepared statement batch has a count per parameters set
+            if (queries > 1) {
+                return queryIndex < updateCounts.length ? Math.max(updateCounts[queryIndex], 0) : 0L;
+            }
+            long rows = 0;
+            for (int updateCount : updateCounts) {
+                rows += Math.max(updateCount, 0);
+            }
+            return rows;
+        }
+        return 0L;
+    }
+}
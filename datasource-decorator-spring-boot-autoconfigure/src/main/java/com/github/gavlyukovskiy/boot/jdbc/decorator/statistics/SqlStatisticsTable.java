@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.statistics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded table of {@link SqlStatementStatistics} of a single data source, implementing space-saving
+ * heavy-hitters algorithm: when the table is full, a new fingerprint replaces the one with the least calls
+ * and inherits its call count as an error.
+ * <p>
+ * Known fingerprints are looked up without locks, the lock is taken only to add a new fingerprint. As call counts
+ * are updated concurrently, the fingerprint to replace is the one with the least calls among
+ * {@value #EVICTION_SAMPLES} randomly sampled ones, so admission doesn't scan the whole table. Sampling might replace
+ * a fingerprint that is not the least frequent, which only increases the error of the new one.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class SqlStatisticsTable {
+
+    static final int EVICTION_SAMPLES = 8;
+
+    private final ConcurrentHashMap<String, SqlStatementStatistics> statistics = new ConcurrentHashMap<>();
+    private final ReentrantLock admissionLock = new ReentrantLock();
+    // guarded by admissionLock
+    private final SqlStatementStatistics[] slots;
+    private int size;
+
+    SqlStatisticsTable(int capacity) {
+        this.slots = new SqlStatementStatistics[Math.max(capacity, 1)];
+    }
+
+    SqlStatementStatistics get(String fingerprint) {
+        SqlStatementStatistics statementStatistics = statistics.get(fingerprint);
+        if (statementStatistics == null) {
+            statementStatistics = admit(fingerprint);
+        }
+        return statementStatistics;
+    }
+
+    private SqlStatementStatistics admit(String fingerprint) {
+        admissionLock.lock();
+        try {
+            SqlStatementStatistics statementStatistics = statistics.get(fingerprint);
+            if (statementStatistics != null) {
+                return statementStatistics;
+            }
+            int slot;
+            long callsError = 0L;
+            if (size < slots.length) {
+                slot = size++;
+            }
+            else {
+                slot = selectEvicted();
+                SqlStatementStatistics evicted = slots[slot];
+                // concurrent updates of the evicted statistics are lost, which is within the algorithm error
+                statistics.remove(evicted.getFingerprint());
+                callsError = evicted.getEstimatedCalls();
+            }
+            statementStatistics = new SqlStatementStatistics(fingerprint, callsError);
+            slots[slot] = statementStatistics;
+            statistics.put(fingerprint, statementStatistics);
+            return statementStatistics;
+        }
+        finally {
+            admissionLock.unlock();
+        }
+    }
+
+    private int selectEvicted() {
+        int samples = Math.min(EVICTION_SAMPLES, slots.length);
+        // small tables are scanned fully, so the least frequent fingerprint is always replaced
+        boolean random = samples < slots.length;
+        int evicted = 0;
+        long evictedCalls = Long.MAX_VALUE;
+        for (int i = 0; i < samples; i++) {
+            int candidate = random ? ThreadLocalRandom.current().nextInt(slots.length) : i;
+            long candidateCalls = slots[candidate].getEstimatedCalls();
+            if (candidateCalls < evictedCalls) {
+                evicted = candidate;
+                evictedCalls = candidateCalls;
+            }
+        }
+        return evicted;
+    }
+
+    List<SqlStatementStatistics> getStatistics() {
+        return new ArrayList<>(statistics.values());
+    }
+
+    void clear() {
+        admissionLock.lock();
+        try {
+            statistics.clear();
+            Arrays.fill(slots, null);
+            size = 0;
+        }
+        finally {
+            admissionLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,490 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.support;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+
+/**
+ * {@link Statement} that delegates all calls to the target statement and notifies the connection
+ * that created it about every execution.
+ *
+ * @param <T> type of the target statement
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ * @see DelegatingConnection#beforeExecute(String)
+ * @see DelegatingConnection#afterExecute(long, String, SQLException)
+ */
+public class DelegatingStatement<T extends Statement> implements Statement {
+
+    protected final DelegatingConnection connection;
+    protected final T delegate;
+
+    public DelegatingStatement(DelegatingConnection connection, T delegate) {
+        this.connection = connection;
+        this.delegate = delegate;
+    }
+
+    public T getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Returns SQL executed by batch and parameterless execute methods.
+     *
+     * @return SQL of the prepared statement, or {@code null} for plain statements
+     */
+    public String getSql() {
+        return null;
+    }
+
+    @Override
+    public DelegatingConnection getConnection() {
+        return connection;
+    }
+
+    protected ResultSet wrapResultSet(ResultSet resultSet) {
+        return resultSet != null ? new DelegatingResultSet(this, resultSet) : null;
+    }
+
+    @Override
+    public ResultSet executeQuery(String sql) throws SQLException {
+        long token = connection.beforeExecute(sql);
+        SQLException error = null;
+        try {
+            return wrapResultSet(delegate.executeQuery(sql));
+        }
+        catch (SQLException e) {
+            error = e;
+            throw e;
+        }
+        finally {
+            connection.afterExecute(token, sql, error);
+        }
+    }
+
+    @Override
+    public int executeUpdate(String sql) throws SQLException {
+        long token = connection.beforeExecute(sql);
+        SQLException error = null;
+        try {
+            return delegate.executeUpdate(sql);
+        }
+        catch (SQLException e) {
+            error = e;
+            throw e;
+        }
+        finally {
+            connection.afterExecute(token, sql, error);
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        delegate.close();
+    }
+
+    @Override
+    public int getMaxFieldSize() throws SQLException {
+        return delegate.getMaxFieldSize();
+    }
+
+    @Override
+    public void setMaxFieldSize(int max) throws SQLException {
+        delegate.setMaxFieldSize(max);
+    }
+
+    @Override
+    public int getMaxRows() throws SQLException {
+        return delegate.getMaxRows();
+    }
+
+    @Override
+    public void setMaxRows(int max) throws SQLException {
+        delegate.setMaxRows(max);
+    }
+
+    @Override
+    public void setEscapeProcessing(boolean enable) throws SQLException {
+        delegate.setEscapeProcessing(enable);
+    }
+
+    @Override
+    public int getQueryTimeout() throws SQLException {
+        return delegate.getQueryTimeout();
+    }
+
+    @Override
+    public void setQueryTimeout(int seconds) throws SQLException {
+        delegate.setQueryTimeout(seconds);
+    }
+
+    @Override
+    public void cancel() throws SQLException {
+        delegate.cancel();
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        return delegate.getWarnings();
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        delegate.clearWarnings();
+    }
+
+    @Override
+    public void setCursorName(String name) throws SQLException {
+        delegate.setCursorName(name);
+    }
+
+    @Override
+    public boolean execute(String sql) throws SQLException {
+        long token = connection.beforeExecute(sql);
+        SQLException error = null;
+        try {
+            return delegate.execute(sql);
+        }
+        catch (SQLException e) {
+            error = e;
+            throw e;
+        }
+        finally {
+            connection.afterExecute(token, sql, error);
+        }
+    }
+
+    @Override
+    public ResultSet getResultSet() throws SQLException {
+        return wrapResultSet(delegate.getResultSet());
+    }
+
+    @Override
+    public int getUpdateCount() throws SQLException {
+        return delegate.getUpdateCount();
+    }
+
+    @Override
+    public boolean getMoreResults() throws SQLException {
+        return delegate.getMoreResults();
+    }
+
+    @Override
+    public void setFetchDirection(int direction) throws SQLException {
+        delegate.setFetchDirection(direction);
+    }
+
+    @Override
+    public int getFetchDirection() throws SQLException {
+        return delegate.getFetchDirection();
+    }
+
+    @Override
+    public void setFetchSize(int rows) throws SQLException {
+        delegate.setFetchSize(rows);
+    }
+
+    @Override
+    public int getFetchSize() throws SQLException {
+        return delegate.getFetchSize();
+    }
+
+    @Override
+    public int getResultSetConcurrency() throws SQLException {
+        return delegate.getResultSetConcurrency();
+    }
+
+    @Override
+    public int getResultSetType() throws SQLException {
+        return delegate.getResultSetType();
+    }
+
+    @Override
+    public void addBatch(String sql) throws SQLException {
+        delegate.addBatch(sql);
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        delegate.clearBatch();
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+        long token = connection.beforeExecute(getSql());
+        SQLException error = null;
+        try {
+            return delegate.executeBatch();
+        }
+        catch (SQLException e) {
+            error = e;
+            throw e;
+        }
+        finally {
+            connection.afterExecute(token, getSql(), error);
+        }
+    }
+
+    @Override
+    public boolean getMoreResults(int current) throws SQLException {
+        return delegate.getMoreResults(current);
+    }
+
+    @Override
+    public ResultSet getGeneratedKeys() throws SQLException {
+        return wrapResultSet(delegate.getGeneratedKeys());
+    }
+
+    @Override
+    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        long token = connection.beforeExecute(sql);
+        SQLException error = null;
+        try {
+            return delegate.executeUpdate(sql, autoGeneratedKeys);
+        }
+        catch (SQLException e) {
+            error = e;
+            throw e;
+        }
+        finally {
+            connection.afterExecute(token, sql, error);
+        }
+    }
+
+    @Override
+    public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        long token = connection.beforeExecute(sql);
+        SQLException error = null;
+        try {
+            return delegate.executeUpdate(sql, columnIndexes);
+        }
+        catch (SQLException e) {
+            error = e;
+            throw e;
+        }
+        finally {
+            connection.afterExecute(token, sql, error);
+        }
+    }
+
+    @Override
+    public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+        long token = connection.beforeExecute(sql);
+        SQLException error = null;
+        try {
+            return delegate.executeUpdate(sql, columnNames);
+        }
+        catch (SQLException e) {
+            error = e;
+            throw e;
+        }
+        finally {
+            connection.afterExecute(token, sql, error);
+        }
+    }
+
+    @Override
+    public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+        long token = connection.beforeExecute(sql);
+        SQLException error = null;
+        try {
+            return delegate.execute(sql, autoGeneratedKeys);
+        }
+        catch (SQLException e) {
+            error = e;
+            throw e;
+        }
+        finally {
+            connection.afterExecute(token, sql, error);
+        }
+    }
+
+    @Override
+    public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+        long token = connection.beforeExecute(sql);
+        SQLException error = null;
+        try {
+            return delegate.execute(sql, columnIndexes);
+        }
+        catch (SQLException e) {
+            error = e;
+            throw e;
+        }
+        finally {
+            connection.afterExecute(token, sql, error);
+        }
+    }
+
+    @Override
+    public boolean execute(String sql, String[] columnNames) throws SQLException {
+        long token = connection.beforeExecute(sql);
+        SQLException error = null;
+        try {
+            return delegate.execute(sql, columnNames);
+        }
+        catch (SQLException e) {
+            error = e;
+            throw e;
+        }
+        finally {
+            connection.afterExecute(token, sql, error);
+        }
+    }
+
+    @Override
+    public int getResultSetHoldability() throws SQLException {
+        return delegate.getResultSetHoldability();
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return delegate.isClosed();
+    }
+
+    @Override
+    public void setPoolable(boolean poolable) throws SQLException {
+        delegate.setPoolable(poolable);
+    }
+
+    @Override
+    public boolean isPoolable() throws SQLException {
+        return delegate.isPoolable();
+    }
+
+    @Override
+    public void closeOnCompletion() throws SQLException {
+        delegate.closeOnCompletion();
+    }
+
+    @Override
+    public boolean isCloseOnCompletion() throws SQLException {
+        return delegate.isCloseOnCompletion();
+    }
+
+    @Override
+    public long getLargeUpdateCount() throws SQLException {
+        return delegate.getLargeUpdateCount();
+    }
+
+    @Override
+    public void setLargeMaxRows(long max) throws SQLException {
+        delegate.setLargeMaxRows(max);
+    }
+
+    @Override
+    public long getLargeMaxRows() throws SQLException {
+        return delegate.getLargeMaxRows();
+    }
+
+    @Override
+    public long[] executeLargeBatch() throws SQLException {
+        long token = connection.beforeExecute(getSql());
+        SQLException error = null;
+        try {
+            return delegate.executeLargeBatch();
+        }
+        catch (SQLException e) {
+            error = e;
+            throw e;
+        }
+        finally {
+            connection.afterExecute(token, getSql(), error);
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql) throws SQLException {
+        long token = connection.beforeExecute(sql);
+        SQLException error = null;
+        try {
+            return delegate.executeLargeUpdate(sql);
+        }
+        catch (SQLException e) {
+            error = e;
+            throw e;
+        }
+        finally {
+            connection.afterExecute(token, sql, error);
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        long token = connection.beforeExecute(sql);
+        SQLException error = null;
+        try {
+            return delegate.executeLargeUpdate(sql, autoGeneratedKeys);
+        }
+        catch (SQLException e) {
+            error = e;
+            throw e;
+        }
+        finally {
+            connection.afterExecute(token, sql, error);
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        long token = connection.beforeExecute(sql);
+        SQLException error = null;
+        try {
+            return delegate.executeLargeUpdate(sql, columnIndexes);
+        }
+        catch (SQLException e) {
+            error = e;
+            throw e;
+        }
+        finally {
+            connection.afterExecute(token, sql, error);
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, String[] columnNames) throws SQLException {
+        long token = connection.beforeExecute(sql);
+        SQLException error = null;
+        try {
+            return delegate.executeLargeUpdate(sql, columnNames);
+        }
+        catch (SQLException e) {
+            error = e;
+            throw e;
+        }
+        finally {
+            connection.afterExecute(token, sql, error);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <U> U unwrap(Class<U> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return (U) this;
+        }
+        return delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || delegate.isWrapperFor(iface);
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.xa;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.xa.XAPhaseListener.Phase;
+
+import javax.sql.ConnectionEventListener;
+import javax.sql.StatementEventListener;
+import javax.sql.XAConnection;
+import javax.sql.XADataSource;
+import javax.transaction.xa.XAException;
+import javax.transaction.xa.XAResource;
+import javax.transaction.xa.Xid;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * {@link XADataSource} that measures prepare, commit and rollback phases of {@link XAResource}
+ * and notifies {@link XAPhaseListener listeners}.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+class TimingXADataSource implements XADataSource {
+
+    private static final org.slf4j.Logger log = getLogger(TimingXADataSource.class);
+
+    private final String dataSourceName;
+    private final XADataSource delegate;
+    private final List<XAPhaseListener> listeners;
+
+    TimingXADataSource(String dataSourceName, XADataSource delegate, List<XAPhaseListener> listeners) {
+        this.dataSourceName = dataSourceName;
+        this.delegate = delegate;
+        this.listeners = listeners;
+    }
+
+    @Override
+    public XAConnection getXAConnection() throws SQLException {
+        return new TimingXAConnection(delegate.getXAConnection());
+    }
+
+    @Override
+    public XAConnection getXAConnection(String user, String password) throws SQLException {
+        return new TimingXAConnection(delegate.getXAConnection(user, password));
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    private void afterPhase(Phase phase, long startNanos, boolean success) {
+        long elapsedNanos = System.nanoTime() - startNanos;
+        log.debug("XA {} of data source '{}' {} in {} ms", phase, dataSourceName, success ? "completed" : "failed",
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        for (XAPhaseListener listener : listeners) {
+            listener.afterPhase(dataSourceName, phase, elapsedNanos, success);
+        }
+    }
+
+    private class TimingXAConnection implements XAConnection {
+
+        private final XAConnection delegate;
+
+        TimingXAConnection(XAConnection delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public XAResource getXAResource() throws SQLException {
+            return new TimingXAResource(delegate.getXAResource());
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return delegate.getConnection();
+        }
+
+        @Override
+        public void close() throws SQLException {
+            delegate.close();
+        }
+
+        @Override
+        public void addConnectionEventListener(ConnectionEventListener listener) {
+            delegate.addConnectionEventListener(listener);
+        }
+
+        @Override
+        public void removeConnectionEventListener(ConnectionEventListener listener) {
+            delegate.removeConnectionEventListener(listener);
+        }
+
+        @Override
+        public void addStatementEventListener(StatementEventListener listener) {
+            delegate.addStatementEventListener(listener);
+        }
+
+        @Override
+        public void removeStatementEventListener(StatementEventListener listener) {
+            delegate.removeStatementEventListener(listener);
+        }
+    }
+
+    private class TimingXAResource implements XAResource {
+
+        private final XAResource delegate;
+
+        TimingXAResource(XAResource delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int prepare(Xid xid) throws XAException {
+            long startNanos = System.nanoTime();
+            boolean success = false;
+            try {
+                int vote = delegate.prepare(xid);
+                success = true;
+                return vote;
+            }
+            finally {
+                afterPhase(Phase.PREPARE, startNanos, success);
+            }
+        }
+
+        @Override
+        public void commit(Xid xid, boolean onePhase) throws XAException {
+            long startNanos = System.nanoTime();
+            boolean success = false;
+            try {
+                delegate.commit(xid, onePhase);
+                success = true;
+            }
+            finally {
+                afterPhase(Phase.COMMIT, startNanos, success);
+            }
+        }
+
+        @Override
+        public void rollback(Xid xid) throws XAException {
+            long startNanos = System.nanoTime();
+            boolean success = false;
+            try {
+                delegate.rollback(xid);
+                success = true;
+            }
+            finally {
+                afterPhase(Phase.ROLLBACK, startNanos, success);
+            }
+        }
+
+        @Override
+        public void start(Xid xid, int flags) throws XAException {
+            delegate.start(xid, flags);
+        }
+
+        @Override
+        public void end(Xid xid, int flags) throws XAException {
+            delegate.end(xid, flags);
+        }
+
+        @Override
+        public void forget(Xid xid) throws XAException {
+            delegate.forget(xid);
+        }
+
+        @Override
+        public Xid[] recover(int flag) throws XAException {
+            return delegate.recover(flag);
+        }
+
+        @Override
+        public boolean isSameRM(XAResource xaResource) throws XAException {
+            // transaction manager compares resources to join branches, so the raw resource is compared
+            if (xaResource instanceof TimingXAResource) {
+                return delegate.isSameRM(((TimingXAResource) xaResource).delegate);
+            }
+            return delegate.isSameRM(xaResource);
+        }
+
+        @Override
+        public int getTransactionTimeout() throws XAException {
+            return delegate.getTransactionTimeout();
+        }
+
+        @Override
+        public boolean setTransactionTimeout(int seconds) throws XAException {
+            return delegate.setTransactionTimeout(seconds);
+        }
+    }
+}
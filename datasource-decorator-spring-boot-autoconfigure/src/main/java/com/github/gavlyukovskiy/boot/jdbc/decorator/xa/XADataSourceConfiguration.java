@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.xa;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecoratorProperties;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.jdbc.XADataSourceWrapper;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.XADataSource;
+
+import java.util.stream.Collectors;
+
+/**
+ * Configuration for integration with {@link javax.sql.XADataSource}.
+ * <p>
+ * Timing decorator is registered only if there is an {@link XADataSource} bean, so applications without XA data sources
+ * don't get the decorating chain because of it. {@link XADataSource} wrapped by the {@link XADataSourceWrapper} of
+ * the transaction manager is only timed, as the pooling data source bean it returns is decorated already.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class XADataSourceConfiguration {
+
+    @Bean
+    @ConditionalOnBean(XADataSource.class)
+    public XATimingDataSourceDecorator xaTimingDataSourceDecorator(ObjectProvider<XAPhaseListener> listeners) {
+        return new XATimingDataSourceDecorator(listeners.orderedStream().collect(Collectors.toList()));
+    }
+
+    @Bean
+    public static XATimingBeanPostProcessor xaTimingBeanPostProcessor(ObjectProvider<XAPhaseListener> listeners,
+                                                                      ObjectProvider<DataSourceDecoratorProperties> dataSourceDecoratorProperties) {
+        return new XATimingBeanPostProcessor(listeners, dataSourceDecoratorProperties);
+    }
+}
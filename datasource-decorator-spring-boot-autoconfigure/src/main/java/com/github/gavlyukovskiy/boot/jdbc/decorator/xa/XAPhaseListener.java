@@ -0,0 +1,48 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.xa;
+
+import javax.sql.XADataSource;
+
+/**
+ * Listener that is notified after each two-phase commit phase of decorated {@link XADataSource}.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+@FunctionalInterface
+public interface XAPhaseListener {
+
+    /**
+     * Called after phase is completed either successfully or exceptionally.
+     *
+     * @param dataSourceName name of the data source bean
+     * @param phase completed phase
+     * @param elapsedNanos time spent on the phase in nanoseconds
+     * @param success {@code false} if phase has thrown an exception
+     */
+    void afterPhase(String dataSourceName, Phase phase, long elapsedNanos, boolean success);
+
+    /**
+     * Two-phase commit phases of {@link javax.transaction.xa.XAResource}.
+     */
+    enum Phase {
+        PREPARE,
+        COMMIT,
+        ROLLBACK
+    }
+}
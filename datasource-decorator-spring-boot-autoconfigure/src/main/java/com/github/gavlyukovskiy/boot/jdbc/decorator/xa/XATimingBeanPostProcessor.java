@@ -0,0 +1,81 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.xa;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecoratorProperties;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.jdbc.XADataSourceWrapper;
+
+import javax.sql.DataSource;
+import javax.sql.XADataSource;
+
+import java.util.stream.Collectors;
+
+/**
+ * {@link BeanPostProcessor} that measures XA phases of {@link XADataSource} created by Spring Boot from
+ * 'spring.datasource.xa' properties before it's wrapped by the transaction manager (e.g. Atomikos or Narayana).
+ * <p>
+ * Only {@link TimingXADataSource} is applied, not the decorating chain, as the pooling data source returned
+ * by the transaction manager is a bean and is decorated already. Such {@link XADataSource} is not a bean, it's named
+ * as the data source bean created from it.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class XATimingBeanPostProcessor implements BeanPostProcessor {
+
+    static final String DATA_SOURCE_BEAN_NAME = "dataSource";
+
+    private final ObjectProvider<XAPhaseListener> listeners;
+    private final ObjectProvider<DataSourceDecoratorProperties> dataSourceDecoratorProperties;
+
+    XATimingBeanPostProcessor(ObjectProvider<XAPhaseListener> listeners,
+                              ObjectProvider<DataSourceDecoratorProperties> dataSourceDecoratorProperties) {
+        this.listeners = listeners;
+        this.dataSourceDecoratorProperties = dataSourceDecoratorProperties;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (bean instanceof XADataSourceWrapper) {
+            return new TimingXADataSourceWrapper((XADataSourceWrapper) bean);
+        }
+        return bean;
+    }
+
+    private class TimingXADataSourceWrapper implements XADataSourceWrapper {
+
+        private final XADataSourceWrapper delegate;
+
+        TimingXADataSourceWrapper(XADataSourceWrapper delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public DataSource wrapDataSource(XADataSource dataSource) throws Exception {
+            DataSourceDecoratorProperties properties = dataSourceDecoratorProperties.getIfAvailable();
+            if (properties != null && properties.getExcludeBeans().contains(DATA_SOURCE_BEAN_NAME)) {
+                return delegate.wrapDataSource(dataSource);
+            }
+            TimingXADataSource timingDataSource = new TimingXADataSource(DATA_SOURCE_BEAN_NAME, dataSource,
+                    listeners.orderedStream().collect(Collectors.toList()));
+            return delegate.wrapDataSource(timingDataSource);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.xa;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecorator;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+import javax.sql.XADataSource;
+
+import java.util.List;
+
+/**
+ * {@link Ordered} decorator that measures prepare, commit and rollback phases of {@link XADataSource}.
+ * Applied as the innermost decorator, so measured time does not include time spent in other decorators.
+ *
+ * @author Arthur Gavlyukovskiy
+ * @since 1.7.0
+ */
+public class XATimingDataSourceDecorator implements DataSourceDecorator, Ordered {
+
+    private final List<XAPhaseListener> listeners;
+
+    XATimingDataSourceDecorator(List<XAPhaseListener> listeners) {
+        this.listeners = listeners;
+    }
+
+    @Override
+    public DataSource decorate(String beanName, DataSource dataSource) {
+        return dataSource;
+    }
+
+    @Override
+    public XADataSource decorateXADataSource(String beanName, XADataSource xaDataSource) {
+        return new TimingXADataSource(beanName, xaDataSource, listeners);
+    }
+
+    @Override
+    public boolean isObserving() {
+        return true;
+    }
+
+    @Override
+    public int getOrder() {
+        return 5;
+    }
+}
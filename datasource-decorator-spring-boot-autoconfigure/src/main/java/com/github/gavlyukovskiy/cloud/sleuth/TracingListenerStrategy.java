@@ -6,20 +6,23 @@ import brave.Tracer;
 import brave.Tracer.SpanInScope;
 import com.github.gavlyukovskiy.cloud.sleuth.SleuthProperties.TraceType;
 
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 class TracingListenerStrategy<CON, STMT, RS> {
     private final Map<CON, ConnectionInfo> openConnections = new ConcurrentHashMap<>();
 
     private final Tracer tracer;
-    private final List<TraceType> traceTypes;
+    private final Set<TraceType> traceTypes;
 
     TracingListenerStrategy(Tracer tracer, List<TraceType> traceTypes) {
         this.tracer = tracer;
-        this.traceTypes = traceTypes;
+        // checked on every connection, query and ResultSet.next
+        this.traceTypes = traceTypes.isEmpty() ? EnumSet.noneOf(TraceType.class) : EnumSet.copyOf(traceTypes);
     }
 
     void beforeGetConnection(CON connectionKey, String dataSourceName) {
@@ -17,16 +17,17 @@
 package com.github.gavlyukovskiy.cloud.sleuth;
 
 import brave.Tracer;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy.SelectiveMethodExecutionListener;
 import com.github.gavlyukovskiy.cloud.sleuth.SleuthProperties.TraceType;
 import net.ttddyy.dsproxy.ExecutionInfo;
 import net.ttddyy.dsproxy.QueryInfo;
 import net.ttddyy.dsproxy.listener.MethodExecutionContext;
-import net.ttddyy.dsproxy.listener.MethodExecutionListener;
 import net.ttddyy.dsproxy.listener.QueryExecutionListener;
 import org.springframework.core.Ordered;
 
 import javax.sql.DataSource;
 
+import java.lang.reflect.Method;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -40,7 +41,7 @@ import java.util.stream.Collectors;
  * @author Arthur Gavlyukovskiy
  * @since 1.2
  */
-public class TracingQueryExecutionListener implements QueryExecutionListener, MethodExecutionListener, Ordered {
+public class TracingQueryExecutionListener implements QueryExecutionListener, SelectiveMethodExecutionListener, Ordered {
 
     private final TracingListenerStrategy<String, Statement, ResultSet> strategy;
 
@@ -62,6 +63,24 @@ public class TracingQueryExecutionListener implements QueryExecutionListener, Me
         strategy.afterQuery(execInfo.getConnectionId(), execInfo.getStatement(), sql, execInfo.getThrowable());
     }
 
+    @Override
+    public boolean isInterestedIn(Class<?> targetClass, Method method) {
+        String methodName = method.getName();
+        if (DataSource.class.isAssignableFrom(targetClass)) {
+            return methodName.equals("getConnection");
+        }
+        else if (Connection.class.isAssignableFrom(targetClass)) {
+            return methodName.equals("commit") || methodName.equals("rollback") || methodName.equals("close");
+        }
+        else if (Statement.class.isAssignableFrom(targetClass)) {
+            return methodName.equals("close");
+        }
+        else if (ResultSet.class.isAssignableFrom(targetClass)) {
+            return methodName.equals("next") || methodName.equals("close");
+        }
+        return false;
+    }
+
     @Override
     public void beforeMethod(MethodExecutionContext executionContext) {
         Object target = executionContext.getTarget();
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConnectionSamplerTests {
+
+    @Test
+    void testInnerDecoratorsFollowDecisionOfOuterOne() throws Exception {
+        ConnectionSampler connectionSampler = new ConnectionSampler("dataSource", 0.5);
+
+        for (int i = 0; i < 100; i++) {
+            String observedBy = connectionSampler.acquire(
+                    () -> "outer" + connectionSampler.acquire(() -> "+inner", () -> ""),
+                    () -> connectionSampler.acquire(() -> "inner", () -> "none"));
+            assertThat(observedBy).isIn("outer+inner", "none");
+        }
+    }
+
+    @Test
+    void testDecisionIsMadeForEveryAcquisition() throws Exception {
+        ConnectionSampler connectionSampler = new ConnectionSampler("dataSource", 0.5);
+
+        int observed = 0;
+        for (int i = 0; i < 1000; i++) {
+            observed += connectionSampler.acquire(() -> 1, () -> 0);
+        }
+        assertThat(observed).isBetween(100, 900);
+    }
+
+    @Test
+    void testNoConnectionIsObservedWithZeroRate() throws Exception {
+        ConnectionSampler connectionSampler = new ConnectionSampler("dataSource", 0.0);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(connectionSampler.acquire(() -> true, () -> false)).isFalse();
+        }
+    }
+
+    @Test
+    void testInvalidSamplingRate() {
+        assertThatThrownBy(() -> new ConnectionSampler("dataSource", -0.1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -16,13 +16,19 @@
 
 package com.github.gavlyukovskiy.boot.jdbc.decorator;
 
+import com.github.gavlyukovskiy.boot.jdbc.decorator.limit.ConcurrencyLimitDataSourceDecorator;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.limit.ConcurrencyLimiter;
 import com.p6spy.engine.spy.P6DataSource;
+import com.p6spy.engine.wrapper.ConnectionWrapper;
 import com.vladmihalcea.flexypool.FlexyPoolDataSource;
 import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import net.ttddyy.dsproxy.support.ProxyDataSource;
 import org.apache.commons.dbcp2.BasicDataSource;
 import org.assertj.core.api.AbstractListAssert;
 import org.assertj.core.api.ObjectAssert;
+import org.h2.jdbcx.JdbcDataSource;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.DirectFieldAccessor;
 import org.springframework.boot.autoconfigure.AutoConfigurations;
@@ -35,12 +41,17 @@ import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Scope;
 import org.springframework.context.annotation.ScopedProxyMode;
 import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
 
 import javax.sql.DataSource;
 import java.io.PrintWriter;
 import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -208,6 +219,254 @@ class DataSourceDecoratorAutoConfigurationTests {
         });
     }
 
+    @Test
+    void testDecoratingWithoutProxyingTargetClass() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.proxy-target-class:false");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            assertThat(dataSource).isInstanceOf(DecoratedDataSource.class);
+            assertThat(dataSource).isNotInstanceOf(HikariDataSource.class);
+
+            DecoratedDataSource decoratedDataSource = (DecoratedDataSource) dataSource;
+            assertThat(decoratedDataSource.getBeanName()).isEqualTo("dataSource");
+            assertThat(decoratedDataSource.getRealDataSource()).isInstanceOf(HikariDataSource.class);
+            assertThat(decoratedDataSource.getDecoratedDataSource()).isInstanceOf(P6DataSource.class);
+            assertThatDataSourceDecoratingChain(dataSource).containsExactly(P6DataSource.class, ProxyDataSource.class, FlexyPoolDataSource.class);
+
+            assertThat(dataSource.unwrap(HikariDataSource.class)).isSameAs(decoratedDataSource.getRealDataSource());
+            assertThat(dataSource.isWrapperFor(HikariDataSource.class)).isTrue();
+            assertThat(dataSource.unwrap(DecoratedDataSource.class)).isSameAs(dataSource);
+
+            try (Connection connection = dataSource.getConnection()) {
+                assertThat(connection.isValid(1)).isTrue();
+            }
+
+            assertThat(dataSource.toString()).isEqualTo(
+                    "p6SpyDataSourceDecorator [com.p6spy.engine.spy.P6DataSource] -> " +
+                            "proxyDataSourceDecorator [net.ttddyy.dsproxy.support.ProxyDataSource] -> " +
+                            "flexyPoolDataSourceDecorator [com.vladmihalcea.flexypool.FlexyPoolDataSource] -> " +
+                            "dataSource [com.zaxxer.hikari.HikariDataSource]");
+        });
+    }
+
+    @Test
+    void testLazyDecorating() {
+        AtomicInteger decoratedTimes = new AtomicInteger();
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.lazy:true")
+                .withBean(DataSourceDecorator.class, () -> (beanName, dataSource) -> {
+                    decoratedTimes.incrementAndGet();
+                    return dataSource;
+                });
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            assertThat(dataSource).isInstanceOf(DecoratedDataSource.class);
+            assertThat(dataSource).isInstanceOf(HikariDataSource.class);
+            assertThat(decoratedTimes).hasValue(0);
+            assertThat(dataSource.toString()).isEqualTo("not yet decorated -> dataSource [com.zaxxer.hikari.HikariDataSource]");
+
+            try (Connection connection = dataSource.getConnection()) {
+                assertThat(connection.isValid(1)).isTrue();
+            }
+            try (Connection connection = dataSource.getConnection()) {
+                assertThat(connection.isValid(1)).isTrue();
+            }
+
+            assertThat(decoratedTimes).hasValue(1);
+            assertThatDataSourceDecoratingChain(dataSource).containsExactly(P6DataSource.class, ProxyDataSource.class, FlexyPoolDataSource.class);
+        });
+    }
+
+    @Test
+    void testNotSampledConnectionsAreNotDecorated() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.sampling.rate:0");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+
+            try (Connection connection = dataSource.getConnection()) {
+                assertThat(connection).isNotInstanceOf(ConnectionWrapper.class);
+            }
+        });
+    }
+
+    @Test
+    void testNotSampledConnectionsPassDecoratorsThatAreNotObserving() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues(
+                "decorator.datasource.sampling.rate:0",
+                "decorator.datasource.concurrency-limit.enabled:true"
+        );
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            ConcurrencyLimiter limiter = context.getBean(ConcurrencyLimitDataSourceDecorator.class).getLimiter("dataSource");
+
+            try (Connection connection = dataSource.getConnection()) {
+                assertThat(connection).isNotInstanceOf(ConnectionWrapper.class);
+                assertThat(limiter.getInflight()).isEqualTo(1);
+            }
+            assertThat(limiter.getInflight()).isEqualTo(0);
+        });
+    }
+
+    @Test
+    void testSamplingRateOfSpecificDataSource() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues(
+                "decorator.datasource.sampling.rate:0",
+                "decorator.datasource.sampling.rates.dataSource:1"
+        );
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+
+            try (Connection connection = dataSource.getConnection()) {
+                assertThat(connection).isInstanceOf(ConnectionWrapper.class);
+            }
+        });
+    }
+
+    @Test
+    void testInvalidSamplingRate() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.sampling.rate:1.5");
+
+        contextRunner.run(context -> assertThat(context).hasFailed());
+    }
+
+    @Test
+    void testRoutingDataSourceIsDecoratedByDefault() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withUserConfiguration(TestRoutingDataSourceConfiguration.class);
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            assertThat(dataSource).isInstanceOf(DecoratedDataSource.class);
+        });
+    }
+
+    @Test
+    void testRoutingDataSourceTargetsAreDecorated() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.decorate-routing-targets:true")
+                .withUserConfiguration(TestRoutingDataSourceConfiguration.class);
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            assertThat(dataSource).isNotInstanceOf(DecoratedDataSource.class);
+
+            DataSourceNameResolver dataSourceNameResolver = context.getBean(DataSourceNameResolver.class);
+            @SuppressWarnings("unchecked")
+            Map<Object, DataSource> resolvedDataSources = (Map<Object, DataSource>) new DirectFieldAccessor(dataSource)
+                    .getPropertyValue("resolvedDataSources");
+            assertThat(resolvedDataSources).hasSize(2);
+            resolvedDataSources.forEach((key, target) -> {
+                assertThat(target).isInstanceOf(DecoratedDataSource.class);
+                assertThat(((DecoratedDataSource) target).getBeanName()).isEqualTo("dataSource." + key);
+                assertThat(dataSourceNameResolver.resolveDataSourceName(((DecoratedDataSource) target).getRealDataSource()))
+                        .isEqualTo("dataSource." + key);
+                assertThatDataSourceDecoratingChain(target).containsExactly(P6DataSource.class, ProxyDataSource.class);
+            });
+            // default data source is the same instance as one of the targets
+            assertThat(new DirectFieldAccessor(dataSource).getPropertyValue("resolvedDefaultDataSource"))
+                    .isSameAs(resolvedDataSources.get("first"));
+
+            TestRoutingDataSourceConfiguration.currentKey.set("second");
+            try (Connection connection = dataSource.getConnection()) {
+                assertThat(connection).isInstanceOf(ConnectionWrapper.class);
+                assertThat(connection.getMetaData().getURL()).contains("routing-second");
+            }
+            finally {
+                TestRoutingDataSourceConfiguration.currentKey.remove();
+            }
+        });
+    }
+
+    @Test
+    void testBeanNameOfProxiedDataSource() {
+        contextRunner.run(context -> {
+            DecoratedDataSource dataSource = context.getBean(DecoratedDataSource.class);
+            assertThat(dataSource.getBeanName()).isEqualTo("dataSource");
+        });
+    }
+
+    @Test
+    void testDecorationTimeIsExportedToMeterRegistry() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withUserConfiguration(TestMultiDataSourceConfiguration.class)
+                .withBean(SimpleMeterRegistry.class);
+
+        contextRunner.run(context -> {
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+            assertThat(meterRegistry.get("jdbc.datasource.decoration.time").tag("name", "dataSource").timeGauge().value()).isPositive();
+            assertThat(meterRegistry.get("jdbc.datasource.decoration.time").tag("name", "secondDataSource").timeGauge().value()).isPositive();
+        });
+    }
+
+    @Test
+    void testDecorationTimeOfRoutingTargetsIsExportedToMeterRegistry() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.decorate-routing-targets:true")
+                .withUserConfiguration(TestRoutingDataSourceConfiguration.class)
+                .withBean(SimpleMeterRegistry.class);
+
+        contextRunner.run(context -> {
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+            assertThat(meterRegistry.get("jdbc.datasource.decoration.time").tag("name", "dataSource.first").timeGauge().value()).isPositive();
+            assertThat(meterRegistry.get("jdbc.datasource.decoration.time").tag("name", "dataSource.second").timeGauge().value()).isPositive();
+        });
+    }
+
+    @Test
+    void testDataSourceNamesAreRegisteredForWholeDecoratingChain() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withUserConfiguration(TestMultiDataSourceConfiguration.class);
+
+        contextRunner.run(context -> {
+            DataSourceNameResolver dataSourceNameResolver = context.getBean(DataSourceNameResolver.class);
+            DecoratedDataSource secondDataSource = context.getBean("secondDataSource", DecoratedDataSource.class);
+
+            assertThat(dataSourceNameResolver.resolveDataSourceName((DataSource) secondDataSource)).isEqualTo("secondDataSource");
+            assertThat(dataSourceNameResolver.resolveDataSourceName(secondDataSource.getRealDataSource())).isEqualTo("secondDataSource");
+            assertThat(secondDataSource.getDecoratingChain())
+                    .extracting(stage -> dataSourceNameResolver.resolveDataSourceName(stage.getDataSource()))
+                    .containsOnly("secondDataSource");
+
+            ProxyDataSource proxyDataSource = secondDataSource.getDecoratingChain().stream()
+                    .map(DataSourceDecorationStage::getDataSource)
+                    .filter(ProxyDataSource.class::isInstance)
+                    .map(ProxyDataSource.class::cast)
+                    .findFirst()
+                    .get();
+            assertThat(proxyDataSource.getProxyConfig().getDataSourceName()).isEqualTo("secondDataSource");
+        });
+    }
+
+    @Test
+    void testRegisteredNameOfNonBeanDataSourceIsNotCollected() {
+        contextRunner.run(context -> {
+            DataSourceNameResolver dataSourceNameResolver = context.getBean(DataSourceNameResolver.class);
+            DataSource target = new HikariDataSource();
+            dataSourceNameResolver.registerDataSourceName("router.target", target);
+
+            System.gc();
+
+            assertThat(dataSourceNameResolver.resolveDataSourceName(target)).isEqualTo("router.target");
+        });
+    }
+
+    @Test
+    void testCachedNamesAreResolvedByIdentity() {
+        contextRunner.run(context -> {
+            DataSourceNameResolver dataSourceNameResolver = context.getBean(DataSourceNameResolver.class);
+            List<DataSource> dataSources = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                dataSources.add(new EqualHikariDataSource("pool-" + i));
+            }
+
+            for (int i = 0; i < dataSources.size(); i++) {
+                assertThat(dataSourceNameResolver.resolveDataSourceName(dataSources.get(i))).isEqualTo("pool-" + i);
+            }
+            for (int i = 0; i < dataSources.size(); i++) {
+                assertThat(dataSourceNameResolver.resolveDataSourceName(dataSources.get(i))).isEqualTo("pool-" + i);
+            }
+        });
+    }
+
     @Test
     void testDecorateDynamicallyRegisteredBeans() {
         ApplicationContextRunner contextRunner = this.contextRunner.withInitializer(context -> {
@@ -231,6 +490,26 @@ class DataSourceDecoratorAutoConfigurationTests {
         return assertThat(((DecoratedDataSource) dataSource).getDecoratingChain()).extracting("dataSource").extracting("class");
     }
 
+    /**
+     * Data source equal to any other, as proxies might be.
+     */
+    static class EqualHikariDataSource extends HikariDataSource {
+
+        EqualHikariDataSource(String poolName) {
+            setPoolName(poolName);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return 0;
+        }
+    }
+
     @Configuration
     static class TestDataSourceConfiguration {
 
@@ -253,6 +532,32 @@ class DataSourceDecoratorAutoConfigurationTests {
         }
     }
 
+    @Configuration
+    static class TestRoutingDataSourceConfiguration {
+
+        static final ThreadLocal<String> currentKey = new ThreadLocal<>();
+
+        @Bean
+        public DataSource dataSource() {
+            AbstractRoutingDataSource routingDataSource = new AbstractRoutingDataSource() {
+                @Override
+                protected Object determineCurrentLookupKey() {
+                    return currentKey.get();
+                }
+            };
+            JdbcDataSource first = new JdbcDataSource();
+            first.setURL("jdbc:h2:mem:routing-first");
+            JdbcDataSource second = new JdbcDataSource();
+            second.setURL("jdbc:h2:mem:routing-second");
+            Map<Object, Object> targetDataSources = new HashMap<>();
+            targetDataSources.put("first", first);
+            targetDataSources.put("second", second);
+            routingDataSource.setTargetDataSources(targetDataSources);
+            routingDataSource.setDefaultTargetDataSource(first);
+            return routingDataSource;
+        }
+    }
+
     @Configuration
     static class TestMultiDataSourceConfiguration {
 
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.core.io.ClassPathResource;
+
+import javax.sql.DataSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs all integrations as in a GraalVM native image and verifies that everything they create reflectively
+ * is covered by native-image metadata shipped in {@code META-INF/native-image}.
+ */
+class NativeImageCompatibilityTests {
+
+    private static final String IMAGE_CODE_PROPERTY = "org.graalvm.nativeimage.imagecode";
+    private static final String NATIVE_IMAGE_METADATA = "META-INF/native-image/com.github.gavlyukovskiy/datasource-decorator-spring-boot-autoconfigure/";
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(
+                    DataSourceAutoConfiguration.class,
+                    DataSourceDecoratorAutoConfiguration.class,
+                    PropertyPlaceholderAutoConfiguration.class
+            ))
+            .withPropertyValues("spring.datasource.initialization-mode=never",
+                    "spring.datasource.url:jdbc:h2:mem:testdb-" + ThreadLocalRandom.current().nextInt());
+
+    @BeforeEach
+    void runAsNativeImage() {
+        System.setProperty(IMAGE_CODE_PROPERTY, "runtime");
+    }
+
+    @AfterEach
+    void clearNativeImage() {
+        System.clearProperty(IMAGE_CODE_PROPERTY);
+    }
+
+    @Test
+    void testDataSourceIsDecoratedWithoutCglibProxy() {
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+
+            assertThat(dataSource).isInstanceOf(DelegatingDecoratedDataSource.class);
+            assertThat(AopUtils.isCglibProxy(dataSource)).isFalse();
+            assertThat(((DecoratedDataSource) dataSource).getDecoratingChain()).extracting("beanName")
+                    .containsExactly("p6SpyDataSourceDecorator", "proxyDataSourceDecorator", "flexyPoolDataSourceDecorator");
+        });
+    }
+
+    @Test
+    void testJdkProxiesAreRegisteredInProxyConfig() throws IOException {
+        Set<List<String>> registeredProxies = new LinkedHashSet<>();
+        for (JsonNode proxy : readMetadata("proxy-config.json")) {
+            List<String> interfaces = new ArrayList<>();
+            proxy.get("interfaces").forEach(node -> interfaces.add(node.asText()));
+            registeredProxies.add(interfaces);
+        }
+
+        contextRunner.run(context -> {
+            DecoratedDataSource dataSource = (DecoratedDataSource) context.getBean(DataSource.class);
+            DataSource proxyDataSource = dataSource.getDecoratingChain().stream()
+                    .filter(stage -> stage.getDataSource() instanceof ProxyDataSource)
+                    .findFirst()
+                    .get()
+                    .getDataSource();
+
+            List<Object> jdbcObjects = new ArrayList<>();
+            try (Connection connection = proxyDataSource.getConnection()) {
+                jdbcObjects.add(connection);
+                try (Statement statement = connection.createStatement();
+                     ResultSet resultSet = statement.executeQuery("SELECT 1")) {
+                    jdbcObjects.add(statement);
+                    jdbcObjects.add(resultSet);
+                    assertThat(resultSet.next()).isTrue();
+                }
+                try (PreparedStatement statement = connection.prepareStatement("SELECT ?")) {
+                    statement.setInt(1, 1);
+                    jdbcObjects.add(statement);
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        assertThat(resultSet.next()).isTrue();
+                    }
+                }
+            }
+
+            assertThat(jdbcObjects).filteredOn(jdbcObject -> Proxy.isProxyClass(jdbcObject.getClass())).hasSizeGreaterThanOrEqualTo(3);
+            for (Object jdbcObject : jdbcObjects) {
+                if (Proxy.isProxyClass(jdbcObject.getClass())) {
+                    List<String> interfaces = Arrays.stream(jdbcObject.getClass().getInterfaces())
+                            .map(Class::getName)
+                            .collect(Collectors.toList());
+                    assertThat(registeredProxies).contains(interfaces);
+                }
+            }
+        });
+    }
+
+    @Test
+    void testReflectConfigClassesExist() throws Exception {
+        for (JsonNode type : readMetadata("reflect-config.json")) {
+            String className = type.get("name").asText();
+            assertThat(Class.forName(className, false, getClass().getClassLoader()))
+                    .as(className)
+                    .isNotNull();
+        }
+    }
+
+    @Test
+    void testResourceConfigPatternsAreQuoted() throws IOException {
+        JsonNode includes = readMetadata("resource-config.json").get("resources").get("includes");
+
+        assertThat(includes).extracting(node -> node.get("pattern").asText())
+                .containsExactlyInAnyOrder("\\Qspy.properties\\E", "\\Qflexy-pool.properties\\E");
+    }
+
+    private static JsonNode readMetadata(String file) throws IOException {
+        try (InputStream inputStream = new ClassPathResource(NATIVE_IMAGE_METADATA + file).getInputStream()) {
+            return new ObjectMapper().readTree(inputStream);
+        }
+    }
+}
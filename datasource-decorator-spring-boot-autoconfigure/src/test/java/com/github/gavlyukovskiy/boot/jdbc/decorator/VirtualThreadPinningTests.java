@@ -0,0 +1,218 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator;
+
+import com.github.gavlyukovskiy.cloud.sleuth.SleuthListenerAutoConfiguration;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.cloud.sleuth.autoconfig.TraceAutoConfiguration;
+import org.springframework.cloud.sleuth.log.SleuthLogAutoConfiguration;
+
+import javax.sql.DataSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs decorated data source on virtual threads and fails if carrier thread was pinned while holding a monitor
+ * in decorator code. Requires JDK 21+, on older JDKs tests are skipped.
+ * <p>
+ * Pinning is reported by JDK when {@code jdk.tracePinnedThreads} is set before the first virtual thread is created,
+ * build sets it for the whole test JVM. JDK 24+ ignores the property, so every test first pins a carrier thread on
+ * purpose and is skipped if that pinning is not reported.
+ */
+class VirtualThreadPinningTests {
+
+    private static final String TRACE_PINNED_THREADS_PROPERTY = "jdk.tracePinnedThreads";
+    private static final Object PINNING_MONITOR = new Object();
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(
+                    DataSourceAutoConfiguration.class,
+                    DataSourceDecoratorAutoConfiguration.class,
+                    TraceAutoConfiguration.class,
+                    SleuthLogAutoConfiguration.class,
+                    SleuthListenerAutoConfiguration.class,
+                    PropertyPlaceholderAutoConfiguration.class
+            ))
+            .withPropertyValues("spring.datasource.initialization-mode=never",
+                    "spring.datasource.url:jdbc:h2:mem:testdb-" + ThreadLocalRandom.current().nextInt(),
+                    "spring.datasource.hikari.maximum-pool-size=4",
+                    "decorator.datasource.lazy=true")
+            // blocking decorator makes all virtual threads wait for lazy decorating
+            .withBean(DataSourceDecorator.class, () -> (beanName, dataSource) -> {
+                try {
+                    Thread.sleep(100);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return dataSource;
+            });
+
+    @BeforeAll
+    static void enablePinnedThreadsTracing() {
+        if (System.getProperty(TRACE_PINNED_THREADS_PROPERTY) == null) {
+            // works only if no virtual thread was created in this JVM yet
+            System.setProperty(TRACE_PINNED_THREADS_PROPERTY, "full");
+        }
+    }
+
+    @Test
+    void testNoPinningOnConnectionQueryAndFetch() throws Exception {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        try {
+            assumePinningIsTraced(executor);
+
+            contextRunner.run(context -> {
+                DataSource dataSource = context.getBean(DataSource.class);
+
+                String pinnedThreads = capturePinnedThreads(() -> {
+                    List<Future<?>> futures = new ArrayList<>();
+                    for (int i = 0; i < 100; i++) {
+                        futures.add(executor.submit(() -> {
+                            try (Connection connection = dataSource.getConnection();
+                                 Statement statement = connection.createStatement();
+                                 ResultSet resultSet = statement.executeQuery("SELECT 1 UNION ALL SELECT 2")) {
+                                while (resultSet.next()) {
+                                    resultSet.getInt(1);
+                                }
+                                // holds connection to make other virtual threads wait for the pool
+                                Thread.sleep(5);
+                            }
+                            return null;
+                        }));
+                    }
+                    for (Future<?> future : futures) {
+                        future.get();
+                    }
+                });
+
+                assertThat(decoratorFramesHoldingMonitors(pinnedThreads)).isEmpty();
+            });
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Without the trace an absence of pinned decorator frames proves nothing, e.g. when the property was set
+     * after the first virtual thread had started or on JDK 24+ where monitors no longer pin carrier threads.
+     */
+    private static void assumePinningIsTraced(ExecutorService executor) throws Exception {
+        String pinnedThreads = capturePinnedThreads(() -> executor.submit(VirtualThreadPinningTests::pinCarrierThread).get());
+        assumeTrue(pinnedThreads.contains(VirtualThreadPinningTests.class.getName() + ".pinCarrierThread"),
+                "Pinning of virtual threads is not traced by " + System.getProperty("java.version"));
+    }
+
+    private static Void pinCarrierThread() throws InterruptedException {
+        synchronized (PINNING_MONITOR) {
+            Thread.sleep(10);
+        }
+        return null;
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() throws Exception {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (NoSuchMethodException e) {
+            assumeTrue(false, "Virtual threads are not supported by " + System.getProperty("java.version"));
+            throw e;
+        }
+    }
+
+    /**
+     * Returns stack frames of the pinned virtual threads that hold monitors in this project classes,
+     * pinning inside of third-party libraries (e.g. H2) is not checked.
+     */
+    private static List<String> decoratorFramesHoldingMonitors(String pinnedThreads) {
+        return Arrays.stream(pinnedThreads.split("\\R"))
+                .map(String::trim)
+                .filter(frame -> frame.contains("<== monitors"))
+                .filter(frame -> frame.startsWith("com.github.gavlyukovskiy."))
+                .collect(Collectors.toList());
+    }
+
+    private static String capturePinnedThreads(ThrowingRunnable runnable) throws Exception {
+        PrintStream originalOut = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(new TeeOutputStream(originalOut, captured), true));
+        try {
+            runnable.run();
+        }
+        finally {
+            System.setOut(originalOut);
+        }
+        return captured.toString();
+    }
+
+    @FunctionalInterface
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+
+    private static class TeeOutputStream extends OutputStream {
+
+        private final OutputStream first;
+        private final OutputStream second;
+
+        TeeOutputStream(OutputStream first, OutputStream second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            first.write(b);
+            second.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            first.write(b, off, len);
+            second.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            first.flush();
+            second.flush();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.actuate;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecoratorAutoConfiguration;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.BypassableDataSource;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DecoratedDataSource;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.actuate.DataSourceDecoratorEndpoint.DecoratedDataSourceDescriptor;
+import com.p6spy.engine.wrapper.ConnectionWrapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+class DataSourceDecoratorEndpointTests {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(
+                    DataSourceAutoConfiguration.class,
+                    DataSourceDecoratorAutoConfiguration.class,
+                    PropertyPlaceholderAutoConfiguration.class
+            ))
+            .withPropertyValues("spring.datasource.initialization-mode=never",
+                    "spring.datasource.url:jdbc:h2:mem:testdb-" + ThreadLocalRandom.current().nextInt(),
+                    "management.endpoints.web.exposure.include:datasourcedecorator");
+
+    @Test
+    void testBypassingDecoratingChain() {
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            DataSourceDecoratorEndpoint endpoint = context.getBean(DataSourceDecoratorEndpoint.class);
+
+            assertThat(endpoint.decoratedDataSources()).containsOnlyKeys("dataSource");
+            assertThat(endpoint.decoratedDataSource("dataSource").isBypassed()).isFalse();
+
+            try (Connection decoratedConnection = dataSource.getConnection()) {
+                assertThat(decoratedConnection).isInstanceOf(ConnectionWrapper.class);
+
+                DecoratedDataSourceDescriptor descriptor = endpoint.bypass("dataSource", true);
+                assertThat(descriptor.isBypassed()).isTrue();
+                assertThat(((BypassableDataSource) dataSource).isBypassed()).isTrue();
+
+                try (Connection bypassedConnection = dataSource.getConnection()) {
+                    assertThat(bypassedConnection).isNotInstanceOf(ConnectionWrapper.class);
+                }
+                // connections opened before bypassing stay decorated
+                assertThat(decoratedConnection.isValid(1)).isTrue();
+            }
+
+            endpoint.bypass("dataSource", false);
+            try (Connection connection = dataSource.getConnection()) {
+                assertThat(connection).isInstanceOf(ConnectionWrapper.class);
+            }
+        });
+    }
+
+    @Test
+    void testBypassingDelegatingDataSource() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.proxy-target-class:false");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            DataSourceDecoratorEndpoint endpoint = context.getBean(DataSourceDecoratorEndpoint.class);
+
+            endpoint.bypass("dataSource", true);
+            try (Connection connection = dataSource.getConnection()) {
+                assertThat(connection).isNotInstanceOf(ConnectionWrapper.class);
+            }
+        });
+    }
+
+    @Test
+    void testDataSourceNotSupportingBypassIsNotBypassed() {
+        DataSource dataSource = mock(DataSource.class, withSettings().extraInterfaces(DecoratedDataSource.class));
+        DataSourceDecoratorEndpoint endpoint = new DataSourceDecoratorEndpoint(singletonMap("dataSource", dataSource));
+
+        assertThat(endpoint.decoratedDataSources()).containsOnlyKeys("dataSource");
+        assertThat(endpoint.decoratedDataSource("dataSource").isBypassed()).isFalse();
+        assertThat(endpoint.bypass("dataSource", true)).isNull();
+    }
+
+    @Test
+    void testUnknownDataSource() {
+        contextRunner.run(context -> {
+            DataSourceDecoratorEndpoint endpoint = context.getBean(DataSourceDecoratorEndpoint.class);
+
+            assertThat(endpoint.decoratedDataSource("unknown")).isNull();
+            assertThat(endpoint.bypass("unknown", true)).isNull();
+        });
+    }
+
+    @Test
+    void testEndpointNotCreatedWhenNotExposed() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("management.endpoints.web.exposure.include:health");
+
+        contextRunner.run(context -> assertThat(context).doesNotHaveBean(DataSourceDecoratorEndpoint.class));
+    }
+}
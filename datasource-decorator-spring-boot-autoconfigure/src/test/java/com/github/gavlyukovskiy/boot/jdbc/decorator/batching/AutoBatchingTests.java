@@ -0,0 +1,259 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.batching;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecoratorAutoConfiguration;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import javax.sql.DataSource;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AutoBatchingTests {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(
+                    DataSourceAutoConfiguration.class,
+                    DataSourceDecoratorAutoConfiguration.class,
+                    PropertyPlaceholderAutoConfiguration.class
+            ))
+            .withPropertyValues("spring.datasource.initialization-mode=never",
+                    "spring.datasource.url:jdbc:h2:mem:testdb-" + ThreadLocalRandom.current().nextInt(),
+                    "decorator.datasource.p6spy.enable-logging:false",
+                    "decorator.datasource.datasource-proxy.query.enable-logging:false",
+                    "decorator.datasource.auto-batching.enabled:true");
+
+    @Test
+    void testAutoBatchingIsDisabledByDefault() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(DataSourceAutoConfiguration.class, DataSourceDecoratorAutoConfiguration.class))
+                .withPropertyValues("spring.datasource.url:jdbc:h2:mem:testdb-" + ThreadLocalRandom.current().nextInt())
+                .run(context -> assertThat(context).doesNotHaveBean(AutoBatchingDataSourceDecorator.class));
+    }
+
+    @Test
+    void testOnlySingleRowInsertsAreBatched() {
+        assertThat(AutoBatchingConnection.isSingleRowInsert("INSERT INTO t (a, b) VALUES (?, ?)")).isTrue();
+        assertThat(AutoBatchingConnection.isSingleRowInsert("insert into t values (?, cast(? as int))")).isTrue();
+        assertThat(AutoBatchingConnection.isSingleRowInsert("INSERT INTO t VALUES (?, ?), (?, ?)")).isFalse();
+        assertThat(AutoBatchingConnection.isSingleRowInsert("INSERT INTO t SELECT * FROM s")).isFalse();
+        assertThat(AutoBatchingConnection.isSingleRowInsert("INSERT INTO t (a) VALUES (?) RETURNING id")).isFalse();
+        assertThat(AutoBatchingConnection.isSingleRowInsert("INSERT INTO t (a) VALUES (?) ON CONFLICT DO NOTHING")).isFalse();
+        assertThat(AutoBatchingConnection.isSingleRowInsert("UPDATE t SET a = ? WHERE b = ?")).isFalse();
+    }
+
+    @Test
+    void testFirstRowIsExecutedImmediately() {
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            createTables(dataSource);
+
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(false);
+                try (PreparedStatement statement = connection.prepareStatement("INSERT INTO parent (id) VALUES (?)")) {
+                    statement.setInt(1, 1);
+                    assertThat(statement.executeUpdate()).isEqualTo(1);
+                    assertThat(statement.unwrap(AutoBatchedStatement.class).getPendingRows()).isEqualTo(0);
+                }
+                assertThat(count(connection, "parent")).isEqualTo(1);
+                connection.commit();
+            }
+        });
+    }
+
+    @Test
+    void testInsertsAreDeferredUntilRead() {
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            createTables(dataSource);
+
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(false);
+                try (PreparedStatement statement = connection.prepareStatement("INSERT INTO parent (id) VALUES (?)")) {
+                    AutoBatchedStatement batchedStatement = statement.unwrap(AutoBatchedStatement.class);
+                    for (int i = 1; i <= 3; i++) {
+                        statement.setInt(1, i);
+                        assertThat(statement.executeUpdate()).isEqualTo(1);
+                    }
+                    // the first row is executed immediately
+                    assertThat(batchedStatement.getPendingRows()).isEqualTo(2);
+
+                    assertThat(count(connection, "parent")).isEqualTo(3);
+                    assertThat(batchedStatement.getPendingRows()).isEqualTo(0);
+                    assertThat(batchedStatement.getLastUpdateCounts()).containsExactly(1, 1);
+                }
+                connection.commit();
+            }
+        });
+    }
+
+    @Test
+    void testBatchIsExecutedOnMaxSizeAndCommitAndDiscardedOnRollback() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.auto-batching.max-batch-size:2");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            createTables(dataSource);
+
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(false);
+                PreparedStatement statement = connection.prepareStatement("INSERT INTO parent (id) VALUES (?)");
+                AutoBatchedStatement batchedStatement = statement.unwrap(AutoBatchedStatement.class);
+                for (int i = 1; i <= 4; i++) {
+                    statement.setInt(1, i);
+                    statement.executeUpdate();
+                }
+                assertThat(batchedStatement.getPendingRows()).isEqualTo(1);
+                assertThat(batchedStatement.getLastUpdateCounts()).containsExactly(1, 1);
+                connection.commit();
+                assertThat(batchedStatement.getPendingRows()).isEqualTo(0);
+
+                for (int i = 5; i <= 6; i++) {
+                    statement.setInt(1, i);
+                    statement.executeUpdate();
+                }
+                assertThat(batchedStatement.getPendingRows()).isEqualTo(1);
+                connection.rollback();
+                assertThat(batchedStatement.getPendingRows()).isEqualTo(0);
+                statement.close();
+                assertThat(count(connection, "parent")).isEqualTo(4);
+            }
+        });
+    }
+
+    @Test
+    void testStatementsAreExecutedInOrder() {
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            createTables(dataSource);
+
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(false);
+                try (PreparedStatement parent = connection.prepareStatement("INSERT INTO parent (id) VALUES (?)");
+                     PreparedStatement child = connection.prepareStatement("INSERT INTO child (id, parent_id) VALUES (?, ?)")) {
+                    for (int i = 1; i <= 3; i++) {
+                        parent.setInt(1, i);
+                        parent.executeUpdate();
+                        child.setInt(1, i);
+                        child.setInt(2, i);
+                        child.executeUpdate();
+                    }
+                }
+                connection.commit();
+                assertThat(count(connection, "child")).isEqualTo(3);
+            }
+        });
+    }
+
+    @Test
+    void testErrorOfDeferredRowIsThrownOnCommit() {
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            createTables(dataSource);
+
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(false);
+                PreparedStatement statement = connection.prepareStatement("INSERT INTO parent (id) VALUES (?)");
+                for (int id : new int[]{ 1, 2, 1 }) {
+                    statement.setInt(1, id);
+                    statement.executeUpdate();
+                }
+                assertThatThrownBy(connection::commit).isInstanceOf(BatchUpdateException.class);
+                assertThat(statement.unwrap(AutoBatchedStatement.class).getLastUpdateCounts()).startsWith(1);
+                connection.rollback();
+                assertThat(count(connection, "parent")).isEqualTo(0);
+            }
+        });
+    }
+
+    @Test
+    void testErrorOfRowsExecutedOnCloseIsThrownOnCommit() {
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            createTables(dataSource);
+
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(false);
+                PreparedStatement statement = connection.prepareStatement("INSERT INTO parent (id) VALUES (?)");
+                for (int id : new int[]{ 1, 1 }) {
+                    statement.setInt(1, id);
+                    statement.executeUpdate();
+                }
+                // frameworks swallow errors of closing a statement
+                assertThatThrownBy(statement::close).isInstanceOf(BatchUpdateException.class);
+
+                assertThatThrownBy(connection::commit)
+                        .isInstanceOf(SQLException.class)
+                        .hasCauseInstanceOf(BatchUpdateException.class);
+                connection.rollback();
+                assertThat(count(connection, "parent")).isEqualTo(0);
+
+                try (PreparedStatement next = connection.prepareStatement("INSERT INTO parent (id) VALUES (?)")) {
+                    next.setInt(1, 1);
+                    next.executeUpdate();
+                }
+                connection.commit();
+                assertThat(count(connection, "parent")).isEqualTo(1);
+            }
+        });
+    }
+
+    @Test
+    void testInsertsAreExecutedImmediatelyInAutoCommitMode() {
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            createTables(dataSource);
+
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement("INSERT INTO parent (id) VALUES (?)")) {
+                statement.setInt(1, 1);
+                statement.executeUpdate();
+                assertThat(statement.unwrap(AutoBatchedStatement.class).getPendingRows()).isEqualTo(0);
+                assertThat(count(connection, "parent")).isEqualTo(1);
+            }
+        });
+    }
+
+    private static void createTables(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE parent (id INT PRIMARY KEY)");
+            statement.execute("CREATE TABLE child (id INT PRIMARY KEY, parent_id INT REFERENCES parent (id))");
+        }
+    }
+
+    private static int count(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.budget;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecoratorAutoConfiguration;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QueryBudgetTests {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(
+                    DataSourceAutoConfiguration.class,
+                    DataSourceDecoratorAutoConfiguration.class,
+                    PropertyPlaceholderAutoConfiguration.class
+            ))
+            .withPropertyValues("spring.datasource.initialization-mode=never",
+                    "spring.datasource.url:jdbc:h2:mem:testdb-" + ThreadLocalRandom.current().nextInt());
+
+    @Test
+    void testQueryBudgetIsDisabledByDefault() {
+        contextRunner.run(context -> {
+            assertThat(context).doesNotHaveBean(QueryBudgetTracker.class);
+            assertThat(context).doesNotHaveBean(QueryBudgetDataSourceDecorator.class);
+        });
+    }
+
+    @Test
+    void testQueriesAreCountedWithinUnitOfWork() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.query-budget.enabled:true");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            QueryBudgetTracker tracker = context.getBean(QueryBudgetTracker.class);
+
+            // outside of unit of work
+            selectById(dataSource, 1);
+
+            UnitOfWork unitOfWork;
+            try (QueryBudgetScope scope = tracker.begin("GET /users")) {
+                unitOfWork = scope.getUnitOfWork();
+                selectById(dataSource, 1);
+                try (QueryBudgetScope nested = tracker.begin("nested")) {
+                    assertThat(nested.getUnitOfWork()).isSameAs(unitOfWork);
+                    selectById(dataSource, 2);
+                }
+                assertThat(tracker.getCurrentUnitOfWork()).isSameAs(unitOfWork);
+                try (Connection connection = dataSource.getConnection();
+                     Statement statement = connection.createStatement()) {
+                    statement.execute("SELECT 1");
+                }
+            }
+
+            assertThat(tracker.getCurrentUnitOfWork()).isNull();
+            assertThat(unitOfWork.getQueries()).isEqualTo(3);
+            assertThat(unitOfWork.getStatementCounts())
+                    .containsEntry("SELECT * FROM INFORMATION_SCHEMA.TABLES WHERE ROWNUM = ?", 2)
+                    .containsEntry("SELECT ?", 1);
+            assertThat(unitOfWork.getRepeatedStatements()).isEmpty();
+        });
+    }
+
+    @Test
+    void testRepeatedStatementIsDetected() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.query-budget.enabled:true",
+                "decorator.datasource.query-budget.max-repeated-statements:3");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            QueryBudgetTracker tracker = context.getBean(QueryBudgetTracker.class);
+
+            try (QueryBudgetScope scope = tracker.begin("GET /users")) {
+                for (int i = 0; i < 5; i++) {
+                    selectById(dataSource, i);
+                }
+                assertThat(scope.getUnitOfWork().getRepeatedStatements())
+                        .containsExactly("SELECT * FROM INFORMATION_SCHEMA.TABLES WHERE ROWNUM = ?");
+            }
+        });
+    }
+
+    @Test
+    void testFailFastRejectsQueriesOverBudget() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.query-budget.enabled:true",
+                "decorator.datasource.query-budget.max-queries:2",
+                "decorator.datasource.query-budget.fail-fast:true");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            QueryBudgetTracker tracker = context.getBean(QueryBudgetTracker.class);
+
+            try (QueryBudgetScope scope = tracker.begin("GET /users")) {
+                selectById(dataSource, 1);
+                selectById(dataSource, 2);
+                assertThatThrownBy(() -> selectById(dataSource, 3))
+                        .isInstanceOf(QueryBudgetExceededException.class)
+                        .hasMessageContaining("'GET /users' executed 3 queries");
+            }
+            // budget is per unit of work
+            try (QueryBudgetScope scope = tracker.begin("GET /users")) {
+                selectById(dataSource, 1);
+            }
+        });
+    }
+
+    private static void selectById(DataSource dataSource, int id) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT * FROM INFORMATION_SCHEMA.TABLES WHERE ROWNUM = " + id);
+             ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.circuitbreaker;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecoratorAutoConfiguration;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.circuitbreaker.CircuitBreaker.State;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.ApplicationListener;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CircuitBreakerTests {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(
+                    DataSourceAutoConfiguration.class,
+                    DataSourceDecoratorAutoConfiguration.class,
+                    PropertyPlaceholderAutoConfiguration.class
+            ))
+            .withPropertyValues("spring.datasource.initialization-mode=never",
+                    "spring.datasource.url:jdbc:h2:mem:testdb-" + ThreadLocalRandom.current().nextInt(),
+                    "decorator.datasource.p6spy.enable-logging:false",
+                    "decorator.datasource.datasource-proxy.query.enable-logging:false");
+
+    @Test
+    void testCircuitBreakerIsDisabledByDefault() {
+        contextRunner.run(context -> assertThat(context).doesNotHaveBean(CircuitBreakerDataSourceDecorator.class));
+    }
+
+    @Test
+    void testCircuitOpensWhenConnectionsFailAndRejectsFurtherCalls() {
+        List<CircuitBreakerStateTransitionEvent> events = new CopyOnWriteArrayList<>();
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.circuit-breaker.enabled:true",
+                "decorator.datasource.circuit-breaker.minimum-number-of-calls:2")
+                .withBean("dataSource", DataSource.class, () -> new DriverManagerDataSource("jdbc:h2:tcp://localhost:1/failing"))
+                .withBean(ApplicationListener.class, () -> (ApplicationListener<CircuitBreakerStateTransitionEvent>) events::add);
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            CircuitBreaker circuitBreaker = context.getBean(CircuitBreakerDataSourceDecorator.class).getCircuitBreaker("dataSource");
+
+            assertThatThrownBy(dataSource::getConnection).isNotInstanceOf(CircuitBreakerOpenException.class);
+            assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+            assertThatThrownBy(dataSource::getConnection).isNotInstanceOf(CircuitBreakerOpenException.class);
+            assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+
+            assertThatThrownBy(dataSource::getConnection)
+                    .isInstanceOf(CircuitBreakerOpenException.class)
+                    .isInstanceOf(SQLTransientConnectionException.class)
+                    .hasMessageContaining("'dataSource'");
+
+            assertThat(events).hasSize(1);
+            assertThat(events.get(0).getDataSourceName()).isEqualTo("dataSource");
+            assertThat(events.get(0).getFromState()).isEqualTo(State.CLOSED);
+            assertThat(events.get(0).getToState()).isEqualTo(State.OPEN);
+        });
+    }
+
+    @Test
+    void testStatementErrorsOfHealthyDatabaseAreNotFailures() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.circuit-breaker.enabled:true",
+                "decorator.datasource.circuit-breaker.minimum-number-of-calls:2");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            CircuitBreaker circuitBreaker = context.getBean(CircuitBreakerDataSourceDecorator.class).getCircuitBreaker("dataSource");
+
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                for (int i = 0; i < 5; i++) {
+                    assertThatThrownBy(() -> statement.execute("SELECT * FROM missing_table")).isInstanceOf(SQLException.class);
+                }
+            }
+            assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+        });
+    }
+
+    @Test
+    void testHalfOpenCircuitClosesAfterSuccessfulTrialCalls() {
+        CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.setMinimumNumberOfCalls(2);
+        properties.setWaitDurationInOpenState(Duration.ZERO);
+        properties.setPermittedCallsInHalfOpenState(2);
+        List<State> transitions = new ArrayList<>();
+        CircuitBreaker circuitBreaker = new CircuitBreaker("dataSource", properties,
+                event -> transitions.add(((CircuitBreakerStateTransitionEvent) event).getToState()));
+
+        circuitBreaker.onResult(circuitBreaker.tryAcquirePermission(), 0, true);
+        circuitBreaker.onResult(circuitBreaker.tryAcquirePermission(), 0, true);
+        assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+
+        CircuitBreaker.Permission first = circuitBreaker.tryAcquirePermission();
+        CircuitBreaker.Permission second = circuitBreaker.tryAcquirePermission();
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull();
+        assertThat(circuitBreaker.getState()).isEqualTo(State.HALF_OPEN);
+        assertThat(circuitBreaker.tryAcquirePermission()).isNull();
+
+        circuitBreaker.onResult(first, 0, false);
+        circuitBreaker.onResult(second, 0, false);
+        assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+        assertThat(circuitBreaker.tryAcquirePermission()).isNotNull();
+        assertThat(transitions).containsExactly(State.OPEN, State.HALF_OPEN, State.CLOSED);
+    }
+
+    @Test
+    void testHalfOpenCircuitOpensAgainAfterFailedTrialCall() {
+        CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.setMinimumNumberOfCalls(1);
+        properties.setWaitDurationInOpenState(Duration.ZERO);
+        properties.setPermittedCallsInHalfOpenState(1);
+        CircuitBreaker circuitBreaker = new CircuitBreaker("dataSource", properties, event -> {});
+
+        circuitBreaker.onResult(circuitBreaker.tryAcquirePermission(), 0, true);
+        CircuitBreaker.Permission trial = circuitBreaker.tryAcquirePermission();
+        assertThat(trial).isNotNull();
+        circuitBreaker.onResult(trial, 0, true);
+        assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    void testResultOfCallPermittedInOtherStateIsIgnored() {
+        CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.setMinimumNumberOfCalls(1);
+        properties.setWaitDurationInOpenState(Duration.ZERO);
+        properties.setPermittedCallsInHalfOpenState(1);
+        CircuitBreaker circuitBreaker = new CircuitBreaker("dataSource", properties, event -> {});
+
+        CircuitBreaker.Permission closedPermission = circuitBreaker.tryAcquirePermission();
+        circuitBreaker.onResult(circuitBreaker.tryAcquirePermission(), 0, true);
+        CircuitBreaker.Permission halfOpenPermission = circuitBreaker.tryAcquirePermission();
+        assertThat(circuitBreaker.getState()).isEqualTo(State.HALF_OPEN);
+
+        circuitBreaker.onResult(closedPermission, 0, false);
+        assertThat(circuitBreaker.getState()).isEqualTo(State.HALF_OPEN);
+        circuitBreaker.onResult(halfOpenPermission, 0, false);
+        assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    void testCircuitOpensWhenCallsAreSlow() {
+        CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.setMinimumNumberOfCalls(4);
+        properties.setSlowCallRateThreshold(50);
+        properties.setSlowCallDurationThreshold(Duration.ofMillis(100));
+        CircuitBreaker circuitBreaker = new CircuitBreaker("dataSource", properties, event -> {});
+
+        circuitBreaker.onResult(circuitBreaker.tryAcquirePermission(), TimeUnit.MILLISECONDS.toNanos(1), false);
+        circuitBreaker.onResult(circuitBreaker.tryAcquirePermission(), TimeUnit.MILLISECONDS.toNanos(1), false);
+        circuitBreaker.onResult(circuitBreaker.tryAcquirePermission(), TimeUnit.MILLISECONDS.toNanos(1), false);
+        circuitBreaker.onResult(circuitBreaker.tryAcquirePermission(), TimeUnit.MILLISECONDS.toNanos(500), false);
+        assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+        circuitBreaker.onResult(circuitBreaker.tryAcquirePermission(), TimeUnit.MILLISECONDS.toNanos(500), false);
+        assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+        circuitBreaker.onResult(circuitBreaker.tryAcquirePermission(), TimeUnit.MILLISECONDS.toNanos(500), false);
+        assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+        assertThat(circuitBreaker.tryAcquirePermission()).isNull();
+    }
+
+    @Test
+    void testOnlyConnectionErrorsAreFailures() {
+        assertThat(CircuitBreaker.isFailure(new SQLNonTransientConnectionException("refused"))).isTrue();
+        assertThat(CircuitBreaker.isFailure(new SQLTransientConnectionException("pool exhausted"))).isTrue();
+        assertThat(CircuitBreaker.isFailure(new SQLRecoverableException("connection reset"))).isTrue();
+        assertThat(CircuitBreaker.isFailure(new SQLException("link failure", "08S01"))).isTrue();
+        assertThat(CircuitBreaker.isFailure(new SQLException("syntax error", "42000"))).isFalse();
+        assertThat(CircuitBreaker.isFailure(new SQLTransactionRollbackException("deadlock", "40001"))).isFalse();
+        assertThat(CircuitBreaker.isFailure(new SQLTimeoutException("query timeout", "57014"))).isFalse();
+        assertThat(CircuitBreaker.isFailure(new CircuitBreakerOpenException("dataSource"))).isFalse();
+    }
+
+    @Test
+    void testDeadlocksAndTimeoutsDoNotOpenCircuit() {
+        CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.setMinimumNumberOfCalls(2);
+        CircuitBreaker circuitBreaker = new CircuitBreaker("dataSource", properties, event -> {});
+
+        for (int i = 0; i < 10; i++) {
+            SQLException error = i % 2 == 0
+                    ? new SQLTransactionRollbackException("deadlock", "40001")
+                    : new SQLTimeoutException("query timeout", "57014");
+            circuitBreaker.onResult(circuitBreaker.tryAcquirePermission(), 0, CircuitBreaker.isFailure(error));
+        }
+        assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+        assertThat(circuitBreaker.tryAcquirePermission()).isNotNull();
+    }
+}
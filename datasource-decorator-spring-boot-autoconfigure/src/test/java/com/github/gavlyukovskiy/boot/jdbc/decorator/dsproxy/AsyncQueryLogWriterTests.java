@@ -0,0 +1,106 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy.AsyncQueryLogWriter.OverflowPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AsyncQueryLogWriterTests {
+
+    @Test
+    void testEntriesAreWrittenInOrderFromBackgroundThread() throws Exception {
+        AsyncQueryLogWriter writer = new AsyncQueryLogWriter(16, OverflowPolicy.BLOCK);
+        List<Integer> written = new CopyOnWriteArrayList<>();
+        List<String> threads = new CopyOnWriteArrayList<>();
+
+        for (int i = 0; i < 1000; i++) {
+            int entry = i;
+            writer.write(() -> {
+                written.add(entry);
+                threads.add(Thread.currentThread().getName());
+            });
+        }
+        writer.destroy();
+
+        assertThat(written).isEqualTo(IntStream.range(0, 1000).boxed().collect(Collectors.toList()));
+        assertThat(threads).containsOnly("datasource-proxy-query-log-writer");
+        assertThat(writer.getDroppedEntries()).isEqualTo(0);
+    }
+
+    @Test
+    void testEntriesAreDroppedWhenBufferIsFull() throws Exception {
+        AsyncQueryLogWriter writer = new AsyncQueryLogWriter(4, OverflowPolicy.DROP);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        writer.write(() -> {
+            blocked.countDown();
+            awaitQuietly(release);
+        });
+        assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+
+        for (int i = 0; i < 10; i++) {
+            writer.write(() -> {});
+        }
+        assertThat(writer.getDroppedEntries()).isEqualTo(6);
+
+        release.countDown();
+        writer.destroy();
+    }
+
+    @Test
+    void testCallerWaitsWhenBufferIsFull() throws Exception {
+        AsyncQueryLogWriter writer = new AsyncQueryLogWriter(2, OverflowPolicy.BLOCK);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        writer.write(() -> {
+            blocked.countDown();
+            awaitQuietly(release);
+        });
+        assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+        writer.write(() -> {});
+        writer.write(() -> {});
+
+        Thread producer = new Thread(() -> writer.write(() -> {}));
+        producer.start();
+        producer.join(100);
+        assertThat(producer.isAlive()).isTrue();
+
+        release.countDown();
+        producer.join(5000);
+        assertThat(producer.isAlive()).isFalse();
+        writer.destroy();
+        assertThat(writer.getDroppedEntries()).isEqualTo(0);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
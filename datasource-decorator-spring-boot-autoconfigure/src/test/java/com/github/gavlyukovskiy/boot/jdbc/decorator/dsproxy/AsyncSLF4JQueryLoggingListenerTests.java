@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy.AsyncQueryLogWriter.OverflowPolicy;
+import net.ttddyy.dsproxy.listener.logging.SLF4JLogLevel;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AsyncSLF4JQueryLoggingListenerTests {
+
+    @Test
+    void testMdcOfCallingThreadIsWritten() throws Exception {
+        AsyncQueryLogWriter writer = new AsyncQueryLogWriter(16, OverflowPolicy.BLOCK);
+        AsyncSLF4JQueryLoggingListener listener = new AsyncSLF4JQueryLoggingListener(writer);
+        listener.setLogger("async-query-log-test");
+        listener.setLogLevel(SLF4JLogLevel.INFO);
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        ((Logger) LoggerFactory.getLogger("async-query-log-test")).addAppender(appender);
+
+        MDC.put("traceId", "5ea7c0de");
+        try {
+            listener.writeLog("SELECT 1");
+        }
+        finally {
+            MDC.remove("traceId");
+        }
+        listener.writeLog("SELECT 2");
+        writer.destroy();
+
+        assertThat(appender.list).hasSize(2);
+        assertThat(appender.list.get(0).getThreadName()).isEqualTo("datasource-proxy-query-log-writer");
+        assertThat(appender.list.get(0).getMDCPropertyMap()).containsEntry("traceId", "5ea7c0de");
+        // context is cleared after the entry is written
+        assertThat(appender.list.get(1).getMDCPropertyMap()).doesNotContainKey("traceId");
+    }
+}
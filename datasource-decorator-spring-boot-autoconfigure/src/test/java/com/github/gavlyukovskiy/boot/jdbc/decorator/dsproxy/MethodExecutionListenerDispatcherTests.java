@@ -0,0 +1,183 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecoratorAutoConfiguration;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DecoratedDataSource;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.HidePackagesClassLoader;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MethodExecutionListenerDispatcherTests {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(
+                    DataSourceAutoConfiguration.class,
+                    DataSourceDecoratorAutoConfiguration.class,
+                    PropertyPlaceholderAutoConfiguration.class
+            ))
+            .withPropertyValues("spring.datasource.initialization-mode=never",
+                    "spring.datasource.url:jdbc:h2:mem:testdb-" + ThreadLocalRandom.current().nextInt(),
+                    "decorator.datasource.datasource-proxy.query.enable-logging:false")
+            .withClassLoader(new HidePackagesClassLoader("com.vladmihalcea.flexypool", "com.p6spy"));
+
+    @Test
+    void testNoDispatcherWithoutMethodListeners() {
+        contextRunner.run(context -> {
+            ProxyDataSource proxyDataSource = getProxyDataSource(context.getBean(DataSource.class));
+
+            assertThat(proxyDataSource.getProxyConfig().getMethodListener().getListeners()).isEmpty();
+        });
+    }
+
+    @Test
+    void testCallsAreDispatchedOnlyToInterestedListeners() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withUserConfiguration(MethodListenersConfiguration.class);
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            ProxyDataSource proxyDataSource = getProxyDataSource(dataSource);
+            assertThat(proxyDataSource.getProxyConfig().getMethodListener().getListeners())
+                    .hasSize(1)
+                    .first()
+                    .isInstanceOf(MethodExecutionListenerDispatcher.class);
+
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(false);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SELECT 1");
+                }
+                connection.commit();
+            }
+
+            CommitListener commitListener = context.getBean(CommitListener.class);
+            assertThat(commitListener.calls).containsExactly("before commit", "after commit");
+            CountingListener countingListener = context.getBean(CountingListener.class);
+            assertThat(countingListener.calls.get()).isGreaterThan(2);
+        });
+    }
+
+    @Test
+    void testInterestIsResolvedOncePerTargetClassAndMethod() throws Exception {
+        AtomicInteger interestChecks = new AtomicInteger();
+        SelectiveMethodExecutionListener listener = new SelectiveMethodExecutionListener() {
+            @Override
+            public boolean isInterestedIn(Class<?> targetClass, Method method) {
+                interestChecks.incrementAndGet();
+                return ResultSet.class.isAssignableFrom(targetClass) && method.getName().equals("next");
+            }
+
+            @Override
+            public void beforeMethod(MethodExecutionContext executionContext) {
+            }
+
+            @Override
+            public void afterMethod(MethodExecutionContext executionContext) {
+            }
+        };
+        MethodExecutionListenerDispatcher dispatcher = new MethodExecutionListenerDispatcher(Collections.singletonList(listener));
+        Method next = ResultSet.class.getMethod("next");
+        Method getString = ResultSet.class.getMethod("getString", int.class);
+        ResultSet resultSet = (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { ResultSet.class }, (proxy, method, args) -> null);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(dispatcher.getInterestedListeners(context(resultSet, next))).containsExactly(listener);
+            assertThat(dispatcher.getInterestedListeners(context(resultSet, getString))).isEmpty();
+        }
+        assertThat(interestChecks.get()).isEqualTo(2);
+    }
+
+    private static MethodExecutionContext context(Object target, Method method) {
+        return MethodExecutionContext.Builder.create().target(target).method(method).build();
+    }
+
+    private static ProxyDataSource getProxyDataSource(DataSource dataSource) {
+        return (ProxyDataSource) ((DecoratedDataSource) dataSource).getDecoratedDataSource();
+    }
+
+    @Configuration
+    static class MethodListenersConfiguration {
+
+        @Bean
+        public CommitListener commitListener() {
+            return new CommitListener();
+        }
+
+        @Bean
+        public CountingListener countingListener() {
+            return new CountingListener();
+        }
+    }
+
+    static class CommitListener implements SelectiveMethodExecutionListener {
+
+        private final List<String> calls = new CopyOnWriteArrayList<>();
+
+        @Override
+        public boolean isInterestedIn(Class<?> targetClass, Method method) {
+            return Connection.class.isAssignableFrom(targetClass) && method.getName().equals("commit");
+        }
+
+        @Override
+        public void beforeMethod(MethodExecutionContext executionContext) {
+            calls.add("before " + executionContext.getMethod().getName());
+        }
+
+        @Override
+        public void afterMethod(MethodExecutionContext executionContext) {
+            calls.add("after " + executionContext.getMethod().getName());
+        }
+    }
+
+    static class CountingListener implements MethodExecutionListener {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public void beforeMethod(MethodExecutionContext executionContext) {
+            calls.incrementAndGet();
+        }
+
+        @Override
+        public void afterMethod(MethodExecutionContext executionContext) {
+        }
+    }
+}
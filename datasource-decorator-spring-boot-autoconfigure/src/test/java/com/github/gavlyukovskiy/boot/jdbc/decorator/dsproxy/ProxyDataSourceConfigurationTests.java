@@ -23,14 +23,12 @@ import net.ttddyy.dsproxy.ExecutionInfo;
 import net.ttddyy.dsproxy.QueryInfo;
 import net.ttddyy.dsproxy.listener.ChainListener;
 import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.listener.logging.AbstractQueryLoggingListener;
 import net.ttddyy.dsproxy.listener.logging.CommonsQueryLoggingListener;
-import net.ttddyy.dsproxy.listener.logging.CommonsSlowQueryListener;
 import net.ttddyy.dsproxy.listener.logging.JULQueryLoggingListener;
-import net.ttddyy.dsproxy.listener.logging.JULSlowQueryListener;
 import net.ttddyy.dsproxy.listener.logging.SLF4JQueryLoggingListener;
 import net.ttddyy.dsproxy.listener.logging.SLF4JSlowQueryListener;
 import net.ttddyy.dsproxy.listener.logging.SystemOutQueryLoggingListener;
-import net.ttddyy.dsproxy.listener.logging.SystemOutSlowQueryListener;
 import net.ttddyy.dsproxy.proxy.DefaultConnectionIdManager;
 import net.ttddyy.dsproxy.proxy.GlobalConnectionIdManager;
 import net.ttddyy.dsproxy.support.ProxyDataSource;
@@ -68,7 +66,9 @@ class ProxyDataSourceConfigurationTests {
             DataSource dataSource = context.getBean(DataSource.class);
             ProxyDataSource proxyDataSource = (ProxyDataSource) ((DecoratedDataSource) dataSource).getDecoratedDataSource();
             ChainListener chainListener = proxyDataSource.getProxyConfig().getQueryListener();
-            assertThat(chainListener.getListeners()).extracting("class").contains(SLF4JSlowQueryListener.class);
+            assertThat(slowQueryLoggingListener(chainListener)).isExactlyInstanceOf(SLF4JQueryLoggingListener.class);
+            assertThat(((SLF4JQueryLoggingListener) slowQueryLoggingListener(chainListener)).getLogger().getName())
+                    .isEqualTo(SLF4JSlowQueryListener.class.getName());
             assertThat(chainListener.getListeners()).extracting("class").contains(SLF4JQueryLoggingListener.class);
         });
     }
@@ -81,7 +81,7 @@ class ProxyDataSourceConfigurationTests {
             DataSource dataSource = context.getBean(DataSource.class);
             ProxyDataSource proxyDataSource = (ProxyDataSource) ((DecoratedDataSource) dataSource).getDecoratedDataSource();
             ChainListener chainListener = proxyDataSource.getProxyConfig().getQueryListener();
-            assertThat(chainListener.getListeners()).extracting("class").contains(SLF4JSlowQueryListener.class);
+            assertThat(slowQueryLoggingListener(chainListener)).isExactlyInstanceOf(SLF4JQueryLoggingListener.class);
             assertThat(chainListener.getListeners()).extracting("class").contains(SLF4JQueryLoggingListener.class);
         });
     }
@@ -94,7 +94,7 @@ class ProxyDataSourceConfigurationTests {
             DataSource dataSource = context.getBean(DataSource.class);
             ProxyDataSource proxyDataSource = (ProxyDataSource) ((DecoratedDataSource) dataSource).getDecoratedDataSource();
             ChainListener chainListener = proxyDataSource.getProxyConfig().getQueryListener();
-            assertThat(chainListener.getListeners()).extracting("class").contains(SystemOutSlowQueryListener.class);
+            assertThat(slowQueryLoggingListener(chainListener)).isExactlyInstanceOf(SystemOutQueryLoggingListener.class);
             assertThat(chainListener.getListeners()).extracting("class").contains(SystemOutQueryLoggingListener.class);
         });
     }
@@ -107,7 +107,7 @@ class ProxyDataSourceConfigurationTests {
             DataSource dataSource = context.getBean(DataSource.class);
             ProxyDataSource proxyDataSource = (ProxyDataSource) ((DecoratedDataSource) dataSource).getDecoratedDataSource();
             ChainListener chainListener = proxyDataSource.getProxyConfig().getQueryListener();
-            assertThat(chainListener.getListeners()).extracting("class").contains(JULSlowQueryListener.class);
+            assertThat(slowQueryLoggingListener(chainListener)).isExactlyInstanceOf(JULQueryLoggingListener.class);
             assertThat(chainListener.getListeners()).extracting("class").contains(JULQueryLoggingListener.class);
         });
     }
@@ -120,11 +120,31 @@ class ProxyDataSourceConfigurationTests {
             DataSource dataSource = context.getBean(DataSource.class);
             ProxyDataSource proxyDataSource = (ProxyDataSource) ((DecoratedDataSource) dataSource).getDecoratedDataSource();
             ChainListener chainListener = proxyDataSource.getProxyConfig().getQueryListener();
-            assertThat(chainListener.getListeners()).extracting("class").contains(CommonsSlowQueryListener.class);
+            assertThat(slowQueryLoggingListener(chainListener)).isExactlyInstanceOf(CommonsQueryLoggingListener.class);
             assertThat(chainListener.getListeners()).extracting("class").contains(CommonsQueryLoggingListener.class);
         });
     }
 
+    @Test
+    void testRegisterAsyncLogAndSlowQueryLogUsingSlf4j() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.datasource-proxy.logging:async-slf4j",
+                "decorator.datasource.datasource-proxy.async.buffer-size:100");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            ProxyDataSource proxyDataSource = (ProxyDataSource) ((DecoratedDataSource) dataSource).getDecoratedDataSource();
+            ChainListener chainListener = proxyDataSource.getProxyConfig().getQueryListener();
+            assertThat(slowQueryLoggingListener(chainListener)).isExactlyInstanceOf(SLF4JQueryLoggingListener.class);
+            assertThat(chainListener.getListeners()).extracting("class").contains(AsyncSLF4JQueryLoggingListener.class);
+            assertThat(context).hasSingleBean(AsyncQueryLogWriter.class);
+        });
+    }
+
+    @Test
+    void testAsyncQueryLogWriterIsNotCreatedForSynchronousLogging() {
+        contextRunner.run(context -> assertThat(context).doesNotHaveBean(AsyncQueryLogWriter.class));
+    }
+
     @Test
     void testCustomParameterAndQueryTransformer() {
         ApplicationContextRunner contextRunner = this.contextRunner.withUserConfiguration(CustomDataSourceProxyConfiguration.class);
@@ -163,6 +183,18 @@ class ProxyDataSourceConfigurationTests {
         });
     }
 
+    @Test
+    void testStripedConnectionIdManager() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.datasource-proxy.connection-id-manager:striped");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            ProxyDataSource proxyDataSource = (ProxyDataSource) ((DecoratedDataSource) dataSource).getDecoratedDataSource();
+
+            assertThat(proxyDataSource.getConnectionIdManager()).isInstanceOf(StripedConnectionIdManager.class);
+        });
+    }
+
     @Test
     void testCustomConnectionIdManager() {
         ApplicationContextRunner contextRunner = this.contextRunner.withUserConfiguration(CustomDataSourceProxyConfiguration.class);
@@ -212,4 +244,13 @@ class ProxyDataSourceConfigurationTests {
             };
         }
     }
+
+    private static AbstractQueryLoggingListener slowQueryLoggingListener(ChainListener chainListener) {
+        assertThat(chainListener.getListeners()).extracting("class").contains(SlowQueryDetector.class);
+        return chainListener.getListeners().stream()
+                .filter(SlowQueryDetector.class::isInstance)
+                .map(listener -> ((SlowQueryDetector) listener).getSlowQueryLoggingListener())
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+    }
 }
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecoratorAutoConfiguration;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecoratorProperties;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.HidePackagesClassLoader;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.logging.AbstractQueryLoggingListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlowQueryDetectorTests {
+
+    private final SlowQueryTimer slowQueryTimer = new SlowQueryTimer(1, TimeUnit.MILLISECONDS);
+    private final List<String> slowQueries = new CopyOnWriteArrayList<>();
+    private final AbstractQueryLoggingListener slowQueryLoggingListener = new AbstractQueryLoggingListener() {
+        {
+            setLoggingCondition(() -> true);
+        }
+
+        @Override
+        protected void writeLog(String message) {
+            slowQueries.add(message);
+        }
+    };
+
+    @AfterEach
+    void tearDown() throws Exception {
+        slowQueryTimer.destroy();
+    }
+
+    @Test
+    void testThresholdIsBoundToDurationAndDefaultsToSeconds() {
+        ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(
+                        DataSourceAutoConfiguration.class,
+                        DataSourceDecoratorAutoConfiguration.class,
+                        PropertyPlaceholderAutoConfiguration.class
+                ))
+                .withPropertyValues("spring.datasource.initialization-mode=never",
+                        "spring.datasource.url:jdbc:h2:mem:testdb-" + ThreadLocalRandom.current().nextInt())
+                .withClassLoader(new HidePackagesClassLoader("com.vladmihalcea.flexypool", "com.p6spy"));
+
+        contextRunner.withPropertyValues("decorator.datasource.datasource-proxy.slow-query.threshold:20")
+                .run(context -> assertThat(context.getBean(DataSourceDecoratorProperties.class).getDatasourceProxy().getSlowQuery().getThreshold())
+                        .isEqualTo(Duration.ofSeconds(20)));
+        contextRunner.withPropertyValues("decorator.datasource.datasource-proxy.slow-query.threshold:20ms")
+                .run(context -> assertThat(context.getBean(DataSourceDecoratorProperties.class).getDatasourceProxy().getSlowQuery().getThreshold())
+                        .isEqualTo(Duration.ofMillis(20)));
+    }
+
+    @Test
+    void testTimerTickIsDerivedFromThreshold() {
+        ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(
+                        DataSourceAutoConfiguration.class,
+                        DataSourceDecoratorAutoConfiguration.class,
+                        PropertyPlaceholderAutoConfiguration.class
+                ))
+                .withPropertyValues("spring.datasource.initialization-mode=never",
+                        "spring.datasource.url:jdbc:h2:mem:testdb-" + ThreadLocalRandom.current().nextInt())
+                .withClassLoader(new HidePackagesClassLoader("com.vladmihalcea.flexypool", "com.p6spy"));
+
+        contextRunner.run(context -> assertThat(context.getBean(SlowQueryTimer.class).getTickNanos())
+                .isEqualTo(TimeUnit.MILLISECONDS.toNanos(10)));
+        contextRunner.withPropertyValues("decorator.datasource.datasource-proxy.slow-query.threshold:20ms")
+                .run(context -> assertThat(context.getBean(SlowQueryTimer.class).getTickNanos())
+                        .isEqualTo(TimeUnit.MILLISECONDS.toNanos(2)));
+        contextRunner.withPropertyValues("decorator.datasource.datasource-proxy.slow-query.threshold:5ms")
+                .run(context -> assertThat(context.getBean(SlowQueryTimer.class).getTickNanos())
+                        .isEqualTo(TimeUnit.MILLISECONDS.toNanos(1)));
+        contextRunner.withPropertyValues("decorator.datasource.datasource-proxy.slow-query.adaptive.enabled:true",
+                "decorator.datasource.datasource-proxy.slow-query.adaptive.minimum-threshold:30ms")
+                .run(context -> assertThat(context.getBean(SlowQueryTimer.class).getTickNanos())
+                        .isEqualTo(TimeUnit.MILLISECONDS.toNanos(3)));
+        contextRunner.withPropertyValues("decorator.datasource.datasource-proxy.slow-query.enable-logging:false")
+                .run(context -> assertThat(context).doesNotHaveBean(SlowQueryTimer.class));
+    }
+
+    @Test
+    void testQueryIsLoggedWhileStillRunningAfterThreshold() throws Exception {
+        DataSourceProxyProperties.SlowQuery slowQuery = new DataSourceProxyProperties.SlowQuery();
+        slowQuery.setThreshold(Duration.ofMillis(20));
+        SlowQueryDetector detector = new SlowQueryDetector(slowQueryLoggingListener, slowQueryTimer, slowQuery);
+
+        ExecutionInfo fastQuery = new ExecutionInfo();
+        detector.beforeQuery(fastQuery, queries("SELECT 1"));
+        detector.afterQuery(fastQuery, queries("SELECT 1"));
+
+        ExecutionInfo slowExecution = new ExecutionInfo();
+        detector.beforeQuery(slowExecution, queries("SELECT 2"));
+        Thread.sleep(200);
+        detector.afterQuery(slowExecution, queries("SELECT 2"));
+
+        assertThat(slowQueries).hasSize(1);
+        assertThat(slowQueries.get(0)).contains("SELECT 2");
+    }
+
+    @Test
+    void testAdaptiveThresholdFollowsPercentileOfFingerprint() {
+        DataSourceProxyProperties.SlowQuery slowQuery = new DataSourceProxyProperties.SlowQuery();
+        slowQuery.setThreshold(Duration.ofSeconds(10));
+        slowQuery.getAdaptive().setEnabled(true);
+        slowQuery.getAdaptive().setMinimumSamples(50);
+        slowQuery.getAdaptive().setMinimumThreshold(Duration.ofMillis(5));
+        SlowQueryDetector detector = new SlowQueryDetector(slowQueryLoggingListener, slowQueryTimer, slowQuery);
+        // timer thread is started on the first schedule, its start must not be measured as latency of the query
+        slowQueryTimer.schedule(TimeUnit.SECONDS.toNanos(1), () -> { }).cancel();
+
+        for (int i = 0; i < 49; i++) {
+            ExecutionInfo execInfo = new ExecutionInfo();
+            detector.beforeQuery(execInfo, queries("SELECT * FROM users WHERE id = " + i));
+            detector.afterQuery(execInfo, queries("SELECT * FROM users WHERE id = " + i));
+        }
+        assertThat(detector.getThresholdNanos("SELECT * FROM users WHERE id = ?")).isEqualTo(TimeUnit.SECONDS.toNanos(10));
+
+        for (int i = 0; i < 15; i++) {
+            ExecutionInfo execInfo = new ExecutionInfo();
+            detector.beforeQuery(execInfo, queries("SELECT * FROM users WHERE id = " + i));
+            detector.afterQuery(execInfo, queries("SELECT * FROM users WHERE id = " + i));
+        }
+        assertThat(detector.getHistograms()).containsOnlyKeys("SELECT * FROM users WHERE id = ?");
+        assertThat(detector.getThresholdNanos("SELECT * FROM users WHERE id = ?")).isEqualTo(TimeUnit.MILLISECONDS.toNanos(5));
+        assertThat(detector.getThresholdNanos("SELECT * FROM orders")).isEqualTo(TimeUnit.SECONDS.toNanos(10));
+        assertThat(slowQueries).isEmpty();
+    }
+
+    @Test
+    void testHistogramPercentileIsWithinRelativeError() {
+        QueryLatencyHistogram histogram = new QueryLatencyHistogram(TimeUnit.MINUTES.toNanos(5), 0.99, 1);
+        for (int i = 1; i <= 6400; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(i * 10));
+        }
+        long expectedNanos = TimeUnit.MICROSECONDS.toNanos(63360);
+        assertThat(histogram.getPercentileNanos()).isBetween(expectedNanos, expectedNanos + expectedNanos / 16);
+
+        for (long value : new long[] { 0, 1, 31, 32, 33, 63, 64, 1000, 123456789, (1L << 40) - 1 }) {
+            int index = QueryLatencyHistogram.index(value);
+            assertThat(QueryLatencyHistogram.highestEquivalentValue(index)).isGreaterThanOrEqualTo(value);
+            if (index > 0) {
+                assertThat(QueryLatencyHistogram.highestEquivalentValue(index - 1)).isLessThan(value);
+            }
+        }
+    }
+
+    @Test
+    void testTimerFiresOnlyNotCancelledTimeouts() throws Exception {
+        AtomicInteger fired = new AtomicInteger();
+        int expiredBeforeCancel = 0;
+        CountDownLatch latch = new CountDownLatch(1);
+        for (int i = 0; i < 10000; i++) {
+            // a pause (e.g. GC) longer than the delay lets the timer win the race with cancel
+            if (!slowQueryTimer.schedule(TimeUnit.MILLISECONDS.toNanos(10), fired::incrementAndGet).cancel()) {
+                expiredBeforeCancel++;
+            }
+        }
+        SlowQueryTimer.Timeout timeout = slowQueryTimer.schedule(TimeUnit.MILLISECONDS.toNanos(10), latch::countDown);
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(timeout.isExpired()).isTrue();
+        assertThat(timeout.cancel()).isFalse();
+        assertThat(fired.get()).isEqualTo(expiredBeforeCancel);
+    }
+
+    private static List<QueryInfo> queries(String query) {
+        return Collections.singletonList(new QueryInfo(query));
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StripedConnectionIdManagerTests {
+
+    @Test
+    void testOpenIdsAreTracked() {
+        StripedConnectionIdManager connectionIdManager = new StripedConnectionIdManager();
+
+        String first = connectionIdManager.getId(null);
+        String second = connectionIdManager.getId(null);
+        assertThat(second).isNotEqualTo(first);
+        assertThat(connectionIdManager.getOpenConnectionIds()).containsExactlyInAnyOrder(first, second);
+
+        connectionIdManager.addClosedId(first);
+        assertThat(connectionIdManager.getOpenConnectionIds()).containsExactly(second);
+    }
+
+    @Test
+    void testIdsAreUniqueAcrossThreadsAndManagers() {
+        StripedConnectionIdManager first = new StripedConnectionIdManager();
+        StripedConnectionIdManager second = new StripedConnectionIdManager();
+        int idsPerThread = 3000;
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+
+        List<CompletableFuture<Void>> futures = IntStream.range(0, 8)
+                .mapToObj(i -> CompletableFuture.runAsync(() -> {
+                    StripedConnectionIdManager connectionIdManager = i % 2 == 0 ? first : second;
+                    for (int j = 0; j < idsPerThread; j++) {
+                        assertThat(ids.add(connectionIdManager.getId(null))).isTrue();
+                    }
+                }))
+                .collect(Collectors.toList());
+        futures.forEach(CompletableFuture::join);
+
+        assertThat(ids).hasSize(8 * idsPerThread);
+        assertThat(first.getOpenConnectionIds()).hasSize(4 * idsPerThread);
+        assertThat(second.getOpenConnectionIds()).hasSize(4 * idsPerThread);
+    }
+
+    @Test
+    void testCountersArePowerOfTwoNotLessThanProcessors() {
+        assertThat(StripedConnectionIdManager.counters(1)).isEqualTo(1);
+        assertThat(StripedConnectionIdManager.counters(2)).isEqualTo(2);
+        assertThat(StripedConnectionIdManager.counters(6)).isEqualTo(8);
+        assertThat(StripedConnectionIdManager.counters(8)).isEqualTo(8);
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.dsproxy;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecoratorAutoConfiguration;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.metrics.DataSourceDecoratorMetricsConfiguration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.ttddyy.dsproxy.QueryCount;
+import net.ttddyy.dsproxy.QueryType;
+import net.ttddyy.dsproxy.StatementType;
+import net.ttddyy.dsproxy.listener.QueryCountStrategy;
+import net.ttddyy.dsproxy.listener.SingleQueryCountHolder;
+import net.ttddyy.dsproxy.listener.ThreadQueryCountHolder;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StripedQueryCountStrategyTests {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(
+                    DataSourceAutoConfiguration.class,
+                    DataSourceDecoratorAutoConfiguration.class,
+                    PropertyPlaceholderAutoConfiguration.class
+            ))
+            .withPropertyValues("spring.datasource.initialization-mode=never",
+                    "spring.datasource.url:jdbc:h2:mem:testdb-" + ThreadLocalRandom.current().nextInt(),
+                    "decorator.datasource.datasource-proxy.query.enable-logging:false",
+                    "decorator.datasource.datasource-proxy.count-query:true",
+                    "decorator.datasource.datasource-proxy.query-count-strategy:striped");
+
+    @Test
+    void testConcurrentIncrementsAreNotLost() {
+        StripedQueryCountStrategy strategy = new StripedQueryCountStrategy();
+
+        CompletableFuture<?>[] futures = IntStream.range(0, 8)
+                .mapToObj(i -> CompletableFuture.runAsync(() -> {
+                    for (int j = 0; j < 10_000; j++) {
+                        QueryCount queryCount = strategy.getOrCreateQueryCount(i % 2 == 0 ? "first" : "second");
+                        queryCount.increment(QueryType.SELECT);
+                        queryCount.increment(StatementType.PREPARED);
+                        queryCount.incrementTotal();
+                        queryCount.incrementTime(2);
+                    }
+                }))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(futures).join();
+
+        assertThat(strategy.getQueryCounts()).containsOnlyKeys("first", "second");
+        QueryCount first = strategy.getOrCreateQueryCount("first");
+        assertThat(first.getSelect()).isEqualTo(40_000);
+        assertThat(first.getPrepared()).isEqualTo(40_000);
+        assertThat(first.getTotal()).isEqualTo(40_000);
+        assertThat(first.getTime()).isEqualTo(80_000);
+        assertThat(first.getInsert()).isEqualTo(0);
+
+        strategy.clear();
+        assertThat(first.getSelect()).isEqualTo(0);
+        assertThat(first.getTime()).isEqualTo(0);
+        assertThat(strategy.getOrCreateQueryCount("first")).isSameAs(first);
+    }
+
+    @Test
+    void testClearDoesNotResetCumulativeCounts() {
+        StripedQueryCountStrategy strategy = new StripedQueryCountStrategy();
+        StripedQueryCount queryCount = strategy.getOrCreateQueryCount("dataSource");
+        queryCount.increment(QueryType.SELECT);
+        queryCount.incrementFailure();
+
+        strategy.clear();
+        queryCount.increment(QueryType.SELECT);
+
+        assertThat(queryCount.getSelect()).isEqualTo(1);
+        assertThat(queryCount.getCumulativeCount(QueryType.SELECT)).isEqualTo(2);
+        assertThat(queryCount.getFailure()).isEqualTo(0);
+        assertThat(queryCount.getCumulativeFailure()).isEqualTo(1);
+    }
+
+    @Test
+    void testSetterReplacesCount() {
+        StripedQueryCount queryCount = new StripedQueryCount();
+        queryCount.incrementFailure();
+        queryCount.incrementFailure();
+
+        queryCount.setFailure(5);
+
+        assertThat(queryCount.getFailure()).isEqualTo(5);
+    }
+
+    @Test
+    void testStripedStrategyIsUsedWhenConfigured() {
+        contextRunner.run(context -> assertThat(context).getBean(QueryCountStrategy.class).isInstanceOf(StripedQueryCountStrategy.class));
+    }
+
+    @Test
+    void testSingleQueryCountHolderIsUsedByDefault() {
+        ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(
+                        DataSourceAutoConfiguration.class,
+                        DataSourceDecoratorAutoConfiguration.class,
+                        PropertyPlaceholderAutoConfiguration.class
+                ))
+                .withPropertyValues("spring.datasource.initialization-mode=never",
+                        "spring.datasource.url:jdbc:h2:mem:testdb-" + ThreadLocalRandom.current().nextInt(),
+                        "decorator.datasource.datasource-proxy.count-query:true")
+                .withBean(SimpleMeterRegistry.class);
+
+        contextRunner.run(context -> {
+            assertThat(context).getBean(QueryCountStrategy.class).isExactlyInstanceOf(SingleQueryCountHolder.class);
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+            assertThat(meterRegistry.find(DataSourceDecoratorMetricsConfiguration.QUERY_COUNT_METRIC_NAME).meters()).isEmpty();
+        });
+    }
+
+    @Test
+    void testThreadQueryCountHolderIsUsedWhenConfigured() {
+        ApplicationContextRunner contextRunner = this.contextRunner
+                .withPropertyValues("decorator.datasource.datasource-proxy.query-count-strategy:thread");
+
+        contextRunner.run(context -> assertThat(context).getBean(QueryCountStrategy.class).isExactlyInstanceOf(ThreadQueryCountHolder.class));
+    }
+
+    @Test
+    void testCustomStrategyIsUsed() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withBean(SingleQueryCountHolder.class);
+
+        contextRunner.run(context -> assertThat(context).getBean(QueryCountStrategy.class).isInstanceOf(SingleQueryCountHolder.class));
+    }
+
+    @Test
+    void testQueryCountsOfOtherStrategiesAreNotExportedToMicrometer() {
+        ApplicationContextRunner contextRunner = this.contextRunner
+                .withBean(ThreadQueryCountHolder.class)
+                .withBean(SimpleMeterRegistry.class);
+
+        contextRunner.run(context -> {
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+            assertThat(meterRegistry.find(DataSourceDecoratorMetricsConfiguration.QUERY_COUNT_METRIC_NAME).meters()).isEmpty();
+        });
+    }
+
+    @Test
+    void testQueryCountsAreExportedToMicrometer() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withBean(SimpleMeterRegistry.class);
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE t (id INT)");
+                statement.execute("INSERT INTO t VALUES (1)");
+                statement.executeQuery("SELECT * FROM t").close();
+                statement.executeQuery("SELECT * FROM t").close();
+            }
+
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+            assertThat(meterRegistry.get(DataSourceDecoratorMetricsConfiguration.QUERY_COUNT_METRIC_NAME)
+                    .tag("name", "dataSource").tag("type", "select").functionCounter().count()).isEqualTo(2.0);
+            assertThat(meterRegistry.get(DataSourceDecoratorMetricsConfiguration.QUERY_COUNT_METRIC_NAME)
+                    .tag("name", "dataSource").tag("type", "insert").functionCounter().count()).isEqualTo(1.0);
+            assertThat(meterRegistry.get(DataSourceDecoratorMetricsConfiguration.QUERY_COUNT_METRIC_NAME)
+                    .tag("name", "dataSource").tag("type", "delete").functionCounter().count()).isEqualTo(0.0);
+            assertThat(meterRegistry.get(DataSourceDecoratorMetricsConfiguration.QUERY_FAILURE_COUNT_METRIC_NAME)
+                    .tag("name", "dataSource").functionCounter().count()).isEqualTo(0.0);
+        });
+    }
+}
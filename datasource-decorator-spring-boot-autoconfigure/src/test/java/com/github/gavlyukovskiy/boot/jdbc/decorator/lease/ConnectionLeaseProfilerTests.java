@@ -0,0 +1,163 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.lease;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecoratorAutoConfiguration;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DecoratedDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConnectionLeaseProfilerTests {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(
+                    DataSourceAutoConfiguration.class,
+                    DataSourceDecoratorAutoConfiguration.class,
+                    PropertyPlaceholderAutoConfiguration.class
+            ))
+            .withPropertyValues("spring.datasource.initialization-mode=never",
+                    "spring.datasource.url:jdbc:h2:mem:testdb-" + ThreadLocalRandom.current().nextInt());
+
+    @Test
+    void testLeaseProfilerIsDisabledByDefault() {
+        contextRunner.run(context -> {
+            assertThat(context).doesNotHaveBean(ConnectionLeaseProfiler.class);
+            assertThat(context).doesNotHaveBean(ConnectionLeaseProfilerDataSourceDecorator.class);
+        });
+    }
+
+    @Test
+    void testLeasesAreRecordedWithCallSite() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.lease-profiler.enabled:true",
+                "decorator.datasource.lease-profiler.sample-rate:1.0");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            assertThat(((DecoratedDataSource) dataSource).getDecoratingChain()).extracting("beanName")
+                    .startsWith("connectionLeaseProfilerDataSourceDecorator");
+
+            for (int i = 0; i < 3; i++) {
+                acquireAndClose(dataSource);
+            }
+
+            ConnectionLeaseProfiler profiler = context.getBean(ConnectionLeaseProfiler.class);
+            LeaseStatistics statistics = profiler.getDataSourceStatistics().get("dataSource");
+            assertThat(statistics.getHistogram().getCount()).isEqualTo(3);
+            assertThat(statistics.getLeaks()).isZero();
+            assertThat(profiler.getOpenSampledLeases()).isZero();
+
+            List<CallSite> callSites = profiler.getCallSites();
+            assertThat(callSites).hasSize(1);
+            assertThat(callSites.get(0).getLocation()).startsWith(ConnectionLeaseProfilerTests.class.getName() + ".acquireAndClose(");
+            assertThat(callSites.get(0).getStackTrace()).hasSize(10);
+            assertThat(callSites.get(0).getStatistics().getHistogram().getCount()).isEqualTo(3);
+        });
+    }
+
+    @Test
+    void testCallSiteIsNotCapturedWhenNotSampled() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.lease-profiler.enabled:true",
+                "decorator.datasource.lease-profiler.sample-rate:0.0");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            acquireAndClose(dataSource);
+
+            ConnectionLeaseProfiler profiler = context.getBean(ConnectionLeaseProfiler.class);
+            assertThat(profiler.getDataSourceStatistics().get("dataSource").getHistogram().getCount()).isEqualTo(1);
+            assertThat(profiler.getCallSites()).isEmpty();
+        });
+    }
+
+    @Test
+    void testLeakIsDetected() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.lease-profiler.enabled:true",
+                "decorator.datasource.lease-profiler.sample-rate:1.0",
+                "decorator.datasource.lease-profiler.leak-threshold:10ms");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            ConnectionLeaseProfiler profiler = context.getBean(ConnectionLeaseProfiler.class);
+
+            try (Connection connection = dataSource.getConnection()) {
+                Thread.sleep(50);
+                profiler.detectLeaks();
+                assertThat(profiler.getOpenLeaks()).hasSize(1);
+                assertThat(profiler.getOpenLeaks().get(0).getLocation()).contains("testLeakIsDetected");
+            }
+
+            assertThat(profiler.getOpenLeaks()).isEmpty();
+            assertThat(profiler.getDataSourceStatistics().get("dataSource").getLeaks()).isEqualTo(1);
+            assertThat(profiler.getCallSites().get(0).getStatistics().getLeaks()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    void testUnsampledLeakIsCounted() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.lease-profiler.enabled:true",
+                "decorator.datasource.lease-profiler.sample-rate:0.0",
+                "decorator.datasource.lease-profiler.leak-threshold:10ms");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            ConnectionLeaseProfiler profiler = context.getBean(ConnectionLeaseProfiler.class);
+
+            try (Connection connection = dataSource.getConnection()) {
+                // leak is counted once the whole acquisition time bucket (100 ms minimum) is older than the threshold
+                Thread.sleep(250);
+                profiler.detectLeaks();
+                assertThat(profiler.getOpenLeaks()).isEmpty();
+                assertThat(profiler.getOpenLeakCounts()).containsEntry("dataSource", 1L);
+            }
+
+            assertThat(profiler.getOpenLeakCounts()).containsEntry("dataSource", 0L);
+            assertThat(profiler.getDataSourceStatistics().get("dataSource").getLeaks()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    void testHistogramPercentiles() {
+        LeaseHistogram histogram = new LeaseHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(100));
+
+        assertThat(histogram.getCount()).isEqualTo(100);
+        assertThat(histogram.getMaxTimeNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(histogram.getPercentileNanos(0.5)).isBetween(TimeUnit.MICROSECONDS.toNanos(100), TimeUnit.MICROSECONDS.toNanos(200));
+        assertThat(histogram.getPercentileNanos(0.99)).isBetween(TimeUnit.MICROSECONDS.toNanos(100), TimeUnit.MICROSECONDS.toNanos(200));
+        assertThat(histogram.getPercentileNanos(1.0)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    private static void acquireAndClose(DataSource dataSource) throws Exception {
+        dataSource.getConnection().close();
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.limit;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecoratorAutoConfiguration;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.metrics.DataSourceDecoratorMetricsConfiguration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConcurrencyLimitTests {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(
+                    DataSourceAutoConfiguration.class,
+                    DataSourceDecoratorAutoConfiguration.class,
+                    PropertyPlaceholderAutoConfiguration.class
+            ))
+            .withPropertyValues("spring.datasource.initialization-mode=never",
+                    "spring.datasource.url:jdbc:h2:mem:testdb-" + ThreadLocalRandom.current().nextInt(),
+                    "decorator.datasource.p6spy.enable-logging:false",
+                    "decorator.datasource.datasource-proxy.query.enable-logging:false");
+
+    @Test
+    void testConcurrencyLimitIsDisabledByDefault() {
+        contextRunner.run(context -> assertThat(context).doesNotHaveBean(ConcurrencyLimitDataSourceDecorator.class));
+    }
+
+    @Test
+    void testLimitGrowsWhileLatencyIsStableAndDecreasesWhenLatencyGrows() {
+        GradientLimit gradientLimit = new GradientLimit(20, 1, 200, 1.5);
+
+        for (int i = 0; i < 20; i++) {
+            gradientLimit.update(TimeUnit.MILLISECONDS.toNanos(1), gradientLimit.getLimit());
+        }
+        int stableLimit = gradientLimit.getLimit();
+        assertThat(stableLimit).isGreaterThan(20);
+
+        for (int i = 0; i < 20; i++) {
+            gradientLimit.update(TimeUnit.MILLISECONDS.toNanos(10), gradientLimit.getLimit());
+        }
+        assertThat(gradientLimit.getLimit()).isLessThan(stableLimit / 2);
+
+        for (int i = 0; i < 200; i++) {
+            gradientLimit.update(TimeUnit.MILLISECONDS.toNanos(1000), gradientLimit.getLimit());
+        }
+        assertThat(gradientLimit.getLimit()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void testLimitIsNotIncreasedWhenMostlyUnused() {
+        GradientLimit gradientLimit = new GradientLimit(20, 1, 200, 1.5);
+
+        for (int i = 0; i < 20; i++) {
+            gradientLimit.update(TimeUnit.MILLISECONDS.toNanos(1), 5);
+        }
+        assertThat(gradientLimit.getLimit()).isEqualTo(20);
+    }
+
+    @Test
+    void testQueuedRequestTakesReleasedPermit() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(new GradientLimit(1, 1, 1, 1.5), TimeUnit.SECONDS.toNanos(5));
+        assertThat(limiter.acquire()).isTrue();
+
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limiter.acquire();
+            }
+            catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(50);
+        assertThat(queued).isNotDone();
+        limiter.release();
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(limiter.getInflight()).isEqualTo(1);
+        assertThat(limiter.getRejected()).isEqualTo(0);
+
+        ConcurrencyLimiter shortQueueLimiter = new ConcurrencyLimiter(new GradientLimit(1, 1, 1, 1.5), TimeUnit.MILLISECONDS.toNanos(10));
+        assertThat(shortQueueLimiter.acquire()).isTrue();
+        assertThat(shortQueueLimiter.acquire()).isFalse();
+        assertThat(shortQueueLimiter.getRejected()).isEqualTo(1);
+    }
+
+    @Test
+    void testConnectionIsRejectedWhenLimitIsReached() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.concurrency-limit.enabled:true",
+                "decorator.datasource.concurrency-limit.initial-limit:1")
+                .withBean(SimpleMeterRegistry.class);
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            ConcurrencyLimiter limiter = context.getBean(ConcurrencyLimitDataSourceDecorator.class).getLimiter("dataSource");
+
+            try (Connection connection = dataSource.getConnection()) {
+                assertThat(limiter.getInflight()).isEqualTo(1);
+                assertThatThrownBy(dataSource::getConnection)
+                        .isInstanceOf(SQLTransientConnectionException.class)
+                        .hasMessageContaining("'dataSource'");
+            }
+            assertThat(limiter.getInflight()).isEqualTo(0);
+            try (Connection connection = dataSource.getConnection()) {
+                assertThat(connection.isValid(1)).isTrue();
+            }
+
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+            assertThat(meterRegistry.get(DataSourceDecoratorMetricsConfiguration.CONCURRENCY_LIMIT_METRIC_NAME)
+                    .tag("name", "dataSource").gauge().value()).isEqualTo(1.0);
+            assertThat(meterRegistry.get(DataSourceDecoratorMetricsConfiguration.CONCURRENCY_REJECTED_METRIC_NAME)
+                    .tag("name", "dataSource").functionCounter().count()).isEqualTo(1.0);
+        });
+    }
+}
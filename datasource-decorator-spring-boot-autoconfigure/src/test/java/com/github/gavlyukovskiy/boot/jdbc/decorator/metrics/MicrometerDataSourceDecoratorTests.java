@@ -0,0 +1,176 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.metrics;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecoratorAutoConfiguration;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DecoratedDataSource;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.support.DelegatingConnection;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MicrometerDataSourceDecoratorTests {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(
+                    DataSourceAutoConfiguration.class,
+                    DataSourceDecoratorAutoConfiguration.class,
+                    PropertyPlaceholderAutoConfiguration.class
+            ))
+            .withPropertyValues("spring.datasource.initialization-mode=never",
+                    "spring.datasource.url:jdbc:h2:mem:testdb-" + ThreadLocalRandom.current().nextInt())
+            .withBean(SimpleMeterRegistry.class);
+
+    @Test
+    void testTimersAreDisabledByDefault() {
+        contextRunner.run(context -> {
+            assertThat(context).doesNotHaveBean(MicrometerDataSourceDecorator.class);
+        });
+    }
+
+    @Test
+    void testConnectionAndStatementTimersAreRecorded() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.micrometer.enabled:true");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            assertThat(((DecoratedDataSource) dataSource).getDecoratingChain()).extracting("beanName")
+                    .containsExactly("p6SpyDataSourceDecorator", "proxyDataSourceDecorator", "micrometerDataSourceDecorator",
+                            "flexyPoolDataSourceDecorator");
+
+            try (Connection connection = dataSource.getConnection()) {
+                try (Statement statement = connection.createStatement();
+                     ResultSet resultSet = statement.executeQuery("SELECT 1")) {
+                    assertThat(resultSet.next()).isTrue();
+                }
+                try (PreparedStatement statement = connection.prepareStatement("SELECT ?")) {
+                    statement.setInt(1, 1);
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        assertThat(resultSet.next()).isTrue();
+                    }
+                }
+                try (Statement statement = connection.createStatement()) {
+                    assertThatThrownBy(() -> statement.execute("SELECT * FROM NOT_EXISTING_TABLE"))
+                            .isInstanceOf(SQLException.class);
+                }
+            }
+
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+            assertThat(timer(meterRegistry, MicrometerDataSourceDecorator.CONNECTION_ACQUIRE_METRIC_NAME).count()).isEqualTo(1);
+            assertThat(timer(meterRegistry, MicrometerDataSourceDecorator.CONNECTION_HOLD_METRIC_NAME).count()).isEqualTo(1);
+            assertThat(timer(meterRegistry, MicrometerDataSourceDecorator.STATEMENT_EXECUTION_METRIC_NAME).count()).isEqualTo(3);
+            assertThat(timer(meterRegistry, MicrometerDataSourceDecorator.STATEMENT_EXECUTION_METRIC_NAME).takeSnapshot().percentileValues())
+                    .extracting("percentile")
+                    .containsExactly(0.5, 0.95, 0.99);
+        });
+    }
+
+    @Test
+    void testStatementsReturnDecoratedConnection() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.micrometer.enabled:true",
+                "decorator.datasource.p6spy.enable-logging:false",
+                "decorator.datasource.datasource-proxy.query.enable-logging:false");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            DataSource meteredDataSource = ((DecoratedDataSource) dataSource).getDecoratingChain().stream()
+                    .filter(stage -> stage.getDataSource() instanceof MeteredDataSource)
+                    .findFirst()
+                    .get()
+                    .getDataSource();
+
+            try (Connection connection = meteredDataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                assertThat(connection).isInstanceOf(MeteredConnection.class);
+                assertThat(statement.getConnection()).isSameAs(connection);
+                assertThat(connection.unwrap(DelegatingConnection.class)).isSameAs(connection);
+                assertThat(connection.isWrapperFor(org.h2.jdbc.JdbcConnection.class)).isTrue();
+                assertThat(connection.getMetaData().getConnection()).isSameAs(connection);
+                try (ResultSet resultSet = statement.executeQuery("SELECT 1")) {
+                    assertThat(resultSet.getStatement()).isSameAs(statement);
+                }
+                assertThat(statement.execute("SELECT 1")).isTrue();
+                try (ResultSet resultSet = statement.getResultSet()) {
+                    assertThat(resultSet.getStatement()).isSameAs(statement);
+                }
+            }
+            try (Connection connection = meteredDataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement("SELECT 1");
+                 ResultSet resultSet = statement.executeQuery()) {
+                assertThat(resultSet.getStatement()).isSameAs(statement);
+            }
+        });
+    }
+
+    @Test
+    void testHoldTimeIsRecordedForAbortedConnection() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.micrometer.enabled:true");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            DataSource meteredDataSource = ((DecoratedDataSource) dataSource).getDecoratingChain().stream()
+                    .filter(stage -> stage.getDataSource() instanceof MeteredDataSource)
+                    .findFirst()
+                    .get()
+                    .getDataSource();
+
+            Connection connection = meteredDataSource.getConnection();
+            connection.abort(Runnable::run);
+            connection.close();
+
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+            assertThat(timer(meterRegistry, MicrometerDataSourceDecorator.CONNECTION_HOLD_METRIC_NAME).count()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    void testPercentilesAreConfigurable() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.micrometer.enabled:true",
+                "decorator.datasource.micrometer.percentiles:0.9");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            dataSource.getConnection().close();
+
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+            Timer acquireTimer = timer(meterRegistry, MicrometerDataSourceDecorator.CONNECTION_ACQUIRE_METRIC_NAME);
+            assertThat(acquireTimer.takeSnapshot().percentileValues()).extracting("percentile").containsExactly(0.9);
+        });
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String name) {
+        return meterRegistry.get(name).tag("name", "dataSource").timer();
+    }
+}
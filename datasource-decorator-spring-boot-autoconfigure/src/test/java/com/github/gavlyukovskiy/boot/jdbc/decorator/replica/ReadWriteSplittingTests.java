@@ -0,0 +1,213 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.replica;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecoratorAutoConfiguration;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DecoratedDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadWriteSplittingTests {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(
+                    DataSourceAutoConfiguration.class,
+                    DataSourceDecoratorAutoConfiguration.class,
+                    PropertyPlaceholderAutoConfiguration.class
+            ))
+            .withUserConfiguration(TestReplicaDataSourceConfiguration.class)
+            .withPropertyValues("decorator.datasource.p6spy.enable-logging:false",
+                    "decorator.datasource.datasource-proxy.query.enable-logging:false",
+                    "decorator.datasource.read-write-splitting.enabled:true",
+                    "decorator.datasource.read-write-splitting.replicas:replica1,replica2");
+
+    @Test
+    void testReadWriteSplittingIsDisabledByDefault() {
+        new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(DataSourceAutoConfiguration.class, DataSourceDecoratorAutoConfiguration.class))
+                .withPropertyValues("spring.datasource.url:jdbc:h2:mem:testdb-" + ThreadLocalRandom.current().nextInt())
+                .run(context -> assertThat(context).doesNotHaveBean(ReadWriteSplittingDataSourceDecorator.class));
+    }
+
+    @Test
+    void testOnlyPrimaryIsRouted() {
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean("dataSource", DataSource.class);
+            assertThat(((DecoratedDataSource) dataSource).getDecoratedDataSource()).isInstanceOf(ReadWriteSplittingDataSource.class);
+            DataSource replica = context.getBean("replica1", DataSource.class);
+            assertThat(((DecoratedDataSource) replica).getDecoratedDataSource()).isNotInstanceOf(ReadWriteSplittingDataSource.class);
+        });
+    }
+
+    @Test
+    void testReadOnlyConnectionIsRoutedToReplica() {
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean("dataSource", DataSource.class);
+
+            try (Connection connection = dataSource.getConnection()) {
+                assertThat(node(connection)).isEqualTo("dataSource");
+            }
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setReadOnly(true);
+                assertThat(connection.unwrap(ReadWriteSplittingConnection.class).isTargetAcquired()).isFalse();
+                String node = node(connection);
+                assertThat(node).isIn("replica1", "replica2");
+                assertThat(connection.unwrap(ReadWriteSplittingConnection.class).getReplicaName()).isEqualTo(node);
+            }
+        });
+    }
+
+    @Test
+    void testReadOnlyTransactionIsRoutedToReplica() {
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean("dataSource", DataSource.class);
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+            transactionTemplate.setReadOnly(true);
+            String node = transactionTemplate.execute(status -> jdbcTemplate.queryForObject("SELECT name FROM node", String.class));
+            assertThat(node).isIn("replica1", "replica2");
+            transactionTemplate.setReadOnly(false);
+            node = transactionTemplate.execute(status -> jdbcTemplate.queryForObject("SELECT name FROM node", String.class));
+            assertThat(node).isEqualTo("dataSource");
+        });
+    }
+
+    @Test
+    void testReplicaWithLeastOutstandingConnectionsIsSelected() {
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean("dataSource", DataSource.class);
+
+            Connection first = readOnlyConnection(dataSource);
+            Connection second = readOnlyConnection(dataSource);
+            String firstNode = node(first);
+            String secondNode = node(second);
+            assertThat(firstNode).isNotEqualTo(secondNode);
+
+            first.close();
+            ReplicaBalancer replicaBalancer = ((ReadWriteSplittingDataSource) ((DecoratedDataSource) dataSource).getDecoratedDataSource())
+                    .getReplicaBalancer();
+            assertThat(replicaBalancer.getOutstandingConnections(firstNode)).isEqualTo(0);
+            assertThat(replicaBalancer.getOutstandingConnections(secondNode)).isEqualTo(1);
+            try (Connection third = readOnlyConnection(dataSource)) {
+                assertThat(node(third)).isEqualTo(firstNode);
+            }
+            second.close();
+        });
+    }
+
+    @Test
+    void testFailedReplicaIsSkipped() {
+        ApplicationContextRunner contextRunner = this.contextRunner
+                .withPropertyValues("decorator.datasource.read-write-splitting.replicas:failingReplica,replica1");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean("dataSource", DataSource.class);
+
+            for (int i = 0; i < 3; i++) {
+                try (Connection connection = readOnlyConnection(dataSource)) {
+                    assertThat(node(connection)).isEqualTo("replica1");
+                }
+            }
+        });
+    }
+
+    @Test
+    void testPrimaryIsUsedWhenNoReplicaIsAvailable() {
+        ApplicationContextRunner contextRunner = this.contextRunner
+                .withPropertyValues("decorator.datasource.read-write-splitting.replicas:failingReplica");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean("dataSource", DataSource.class);
+
+            try (Connection connection = readOnlyConnection(dataSource)) {
+                assertThat(node(connection)).isEqualTo("dataSource");
+                assertThat(connection.unwrap(ReadWriteSplittingConnection.class).getReplicaName()).isNull();
+            }
+        });
+    }
+
+    private static Connection readOnlyConnection(DataSource dataSource) throws SQLException {
+        Connection connection = dataSource.getConnection();
+        connection.setReadOnly(true);
+        return connection;
+    }
+
+    private static String node(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT name FROM node")) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+
+    @Configuration
+    static class TestReplicaDataSourceConfiguration {
+
+        @Bean
+        @Primary
+        public DataSource dataSource() throws SQLException {
+            return node("dataSource");
+        }
+
+        @Bean
+        public DataSource replica1() throws SQLException {
+            return node("replica1");
+        }
+
+        @Bean
+        public DataSource replica2() throws SQLException {
+            return node("replica2");
+        }
+
+        @Bean
+        public DataSource failingReplica() {
+            return new DriverManagerDataSource("jdbc:h2:tcp://localhost:1/failing");
+        }
+
+        private static DataSource node(String name) throws SQLException {
+            DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + "-" + ThreadLocalRandom.current().nextInt()
+                    + ";DB_CLOSE_DELAY=-1");
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE node (name VARCHAR(64))");
+                statement.execute("INSERT INTO node VALUES ('" + name + "')");
+            }
+            return dataSource;
+        }
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.resultcache;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecoratorAutoConfiguration;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DecoratedDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResultCacheTests {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(
+                    DataSourceAutoConfiguration.class,
+                    DataSourceDecoratorAutoConfiguration.class,
+                    PropertyPlaceholderAutoConfiguration.class
+            ))
+            .withPropertyValues("spring.datasource.initialization-mode=never",
+                    "spring.datasource.url:jdbc:h2:mem:testdb-" + ThreadLocalRandom.current().nextInt(),
+                    "decorator.datasource.p6spy.enable-logging:false",
+                    "decorator.datasource.datasource-proxy.query.enable-logging:false");
+
+    @Test
+    void testResultCacheIsDisabledByDefault() {
+        contextRunner.run(context -> {
+            assertThat(context).doesNotHaveBean(ResultCacheDataSourceDecorator.class);
+        });
+    }
+
+    @Test
+    void testResultIsServedFromCacheUntilWrite() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.result-cache.enabled:true",
+                "decorator.datasource.result-cache.patterns:(?i)countries");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            DataSource realDataSource = ((DecoratedDataSource) dataSource).getRealDataSource();
+            createCountries(dataSource);
+
+            assertThat(countryName(dataSource, 1)).isEqualTo("Austria");
+            assertThat(countryName(dataSource, 2)).isEqualTo("Belgium");
+            // changed bypassing the decorator, cached result is served
+            execute(realDataSource, "UPDATE countries SET name = 'Albania' WHERE id = 1");
+            assertThat(countryName(dataSource, 1)).isEqualTo("Austria");
+
+            ResultCache cache = resultCache(dataSource);
+            assertThat(cache.getHits()).isEqualTo(1);
+            assertThat(cache.getMisses()).isEqualTo(2);
+
+            // write through the decorator invalidates results of the table
+            execute(dataSource, "UPDATE countries SET name = 'Armenia' WHERE id = 1");
+            assertThat(countryName(dataSource, 1)).isEqualTo("Armenia");
+            assertThat(countryName(dataSource, 2)).isEqualTo("Belgium");
+            assertThat(cache.getHits()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    void testResultExpires() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.result-cache.enabled:true",
+                "decorator.datasource.result-cache.patterns:(?i)countries",
+                "decorator.datasource.result-cache.time-to-live:1ms");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            DataSource realDataSource = ((DecoratedDataSource) dataSource).getRealDataSource();
+            createCountries(dataSource);
+
+            assertThat(countryName(dataSource, 1)).isEqualTo("Austria");
+            execute(realDataSource, "UPDATE countries SET name = 'Albania' WHERE id = 1");
+            Thread.sleep(10);
+            assertThat(countryName(dataSource, 1)).isEqualTo("Albania");
+        });
+    }
+
+    @Test
+    void testTransactionReadsOwnWrites() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.result-cache.enabled:true",
+                "decorator.datasource.result-cache.patterns:(?i)countries");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            createCountries(dataSource);
+            assertThat(countryName(dataSource, 1)).isEqualTo("Austria");
+
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(false);
+                try (Statement statement = connection.createStatement()) {
+                    statement.executeUpdate("UPDATE countries SET name = 'Armenia' WHERE id = 1");
+                }
+                assertThat(countryName(connection, 1)).isEqualTo("Armenia");
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            assertThat(countryName(dataSource, 1)).isEqualTo("Austria");
+        });
+    }
+
+    @Test
+    void testNotMatchingQueriesAreNotCached() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.result-cache.enabled:true",
+                "decorator.datasource.result-cache.patterns:(?i)cities");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            createCountries(dataSource);
+
+            assertThat(countryName(dataSource, 1)).isEqualTo("Austria");
+            assertThat(countryName(dataSource, 1)).isEqualTo("Austria");
+            assertThat(resultCache(dataSource).size()).isZero();
+        });
+    }
+
+    @Test
+    void testAliasedColumnsAndTypedValuesAreReadOnMissAndHit() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.result-cache.enabled:true",
+                "decorator.datasource.result-cache.patterns:(?i)countries");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            createCountries(dataSource);
+            execute(dataSource, "ALTER TABLE countries ADD COLUMN independence DATE");
+            execute(dataSource, "ALTER TABLE countries ADD COLUMN updated_at TIMESTAMP");
+            execute(dataSource, "UPDATE countries SET independence = DATE '1918-11-12', updated_at = TIMESTAMP '2020-01-02 03:04:05.5' WHERE id = 1");
+
+            for (int i = 0; i < 2; i++) {
+                try (Connection connection = dataSource.getConnection();
+                     PreparedStatement statement = connection.prepareStatement(
+                             "SELECT id AS x, name AS country_name, independence AS since, updated_at FROM countries WHERE id = ?")) {
+                    statement.setInt(1, 1);
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        assertThat(resultSet.getStatement()).isNotNull();
+                        assertThat(resultSet.next()).isTrue();
+                        assertThat(resultSet.getInt("x")).isEqualTo(1);
+                        assertThat(resultSet.getObject("x", Long.class)).isEqualTo(1L);
+                        assertThat(resultSet.getString("COUNTRY_NAME")).isEqualTo("Austria");
+                        assertThat(resultSet.getObject("since", LocalDate.class)).isEqualTo(LocalDate.of(1918, 11, 12));
+                        assertThat(resultSet.getObject("updated_at", LocalDateTime.class)).isEqualTo(LocalDateTime.of(2020, 1, 2, 3, 4, 5, 500_000_000));
+                        assertThat(resultSet.getObject(4, Timestamp.class)).isEqualTo(Timestamp.valueOf("2020-01-02 03:04:05.5"));
+                        assertThat(resultSet.getMetaData().getColumnLabel(2)).isEqualToIgnoringCase("country_name");
+                        assertThat(resultSet.next()).isFalse();
+                    }
+                }
+            }
+            ResultCache cache = resultCache(dataSource);
+            assertThat(cache.getMisses()).isEqualTo(1);
+            assertThat(cache.getHits()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    void testResultLimitedByMaxRowsIsNotCached() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.result-cache.enabled:true",
+                "decorator.datasource.result-cache.patterns:(?i)countries");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            createCountries(dataSource);
+
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.setMaxRows(1);
+                try (ResultSet resultSet = statement.executeQuery("SELECT name FROM countries ORDER BY id")) {
+                    assertThat(resultSet.next()).isTrue();
+                    assertThat(resultSet.next()).isFalse();
+                }
+            }
+            assertThat(resultCache(dataSource).size()).isZero();
+
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT name FROM countries ORDER BY id")) {
+                assertThat(resultSet.next()).isTrue();
+                assertThat(resultSet.next()).isTrue();
+                assertThat(resultSet.next()).isFalse();
+            }
+        });
+    }
+
+    @Test
+    void testLargeResultIsReadFromLiveCursorAndNotCached() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.result-cache.enabled:true",
+                "decorator.datasource.result-cache.patterns:(?i)countries",
+                "decorator.datasource.result-cache.max-rows:1");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            createCountries(dataSource);
+            execute(dataSource, "INSERT INTO countries VALUES (3, 'Croatia')");
+
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT name FROM countries ORDER BY id")) {
+                assertThat(resultSet.next()).isTrue();
+                assertThat(resultSet.getString("name")).isEqualTo("Austria");
+                assertThat(resultSet.next()).isTrue();
+                assertThat(resultSet.getString("name")).isEqualTo("Belgium");
+                assertThat(resultSet.next()).isTrue();
+                assertThat(resultSet.getString("name")).isEqualTo("Croatia");
+                assertThat(resultSet.next()).isFalse();
+            }
+            assertThat(resultCache(dataSource).size()).isZero();
+        });
+    }
+
+    @Test
+    void testLeastRecentlyUsedResultIsEvicted() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.result-cache.enabled:true",
+                "decorator.datasource.result-cache.patterns:(?i)countries",
+                "decorator.datasource.result-cache.max-size:2");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            createCountries(dataSource);
+            execute(dataSource, "INSERT INTO countries VALUES (3, 'Croatia')");
+            ResultCache cache = resultCache(dataSource);
+
+            countryName(dataSource, 1);
+            countryName(dataSource, 2);
+            // makes the second result least recently used
+            countryName(dataSource, 1);
+            countryName(dataSource, 3);
+            assertThat(cache.size()).isEqualTo(2);
+            assertThat(cache.getHits()).isEqualTo(1);
+
+            countryName(dataSource, 1);
+            assertThat(cache.getHits()).isEqualTo(2);
+            countryName(dataSource, 2);
+            assertThat(cache.getHits()).isEqualTo(2);
+        });
+    }
+
+    @Test
+    void testInvalidResultIsRemovedBeforeLeastRecentlyUsed() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.result-cache.enabled:true",
+                "decorator.datasource.result-cache.patterns:(?i)countries",
+                "decorator.datasource.result-cache.max-size:2");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            createCountries(dataSource);
+            execute(dataSource, "CREATE TABLE cities_of_countries (id INT PRIMARY KEY, name VARCHAR(255))");
+            execute(dataSource, "INSERT INTO cities_of_countries VALUES (1, 'Vienna')");
+            ResultCache cache = resultCache(dataSource);
+
+            countryName(dataSource, 1);
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.executeQuery("SELECT name FROM cities_of_countries").close();
+            }
+            // invalidates only the result of the cities query, which is more recently used
+            execute(dataSource, "UPDATE cities_of_countries SET name = 'Graz'");
+            countryName(dataSource, 2);
+            assertThat(cache.size()).isEqualTo(2);
+
+            countryName(dataSource, 1);
+            assertThat(cache.getHits()).isEqualTo(1);
+        });
+    }
+
+    private static ResultCache resultCache(DataSource dataSource) {
+        return ((DecoratedDataSource) dataSource).getDecoratingChain().stream()
+                .filter(stage -> stage.getDataSource() instanceof ResultCachingDataSource)
+                .map(stage -> ((ResultCachingDataSource) stage.getDataSource()).getCache())
+                .findFirst()
+                .get();
+    }
+
+    private static void createCountries(DataSource dataSource) throws SQLException {
+        execute(dataSource, "CREATE TABLE countries (id INT PRIMARY KEY, name VARCHAR(255))");
+        execute(dataSource, "INSERT INTO countries VALUES (1, 'Austria'), (2, 'Belgium')");
+    }
+
+    private static void execute(DataSource dataSource, String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static String countryName(DataSource dataSource, int id) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            return countryName(connection, id);
+        }
+    }
+
+    private static String countryName(Connection connection, int id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT name FROM countries WHERE id = ?")) {
+            statement.setInt(1, id);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                assertThat(resultSet.next()).isTrue();
+                return resultSet.getString("name");
+            }
+        }
+    }
+}
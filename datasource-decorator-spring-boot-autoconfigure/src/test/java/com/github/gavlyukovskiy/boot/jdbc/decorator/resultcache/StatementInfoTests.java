@@ -0,0 +1,67 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.resultcache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatementInfoTests {
+
+    private static final List<Pattern> ALL = Collections.singletonList(Pattern.compile(".*"));
+
+    @Test
+    void testReadTablesAreResolved() {
+        StatementInfo info = StatementInfo.analyze("SELECT * FROM public.Countries c JOIN \"Cities\" AS ci ON ci.country_id = c.id, regions r "
+                + "WHERE c.id IN (SELECT country_id FROM capitals)", ALL);
+
+        assertThat(info.isCacheable()).isTrue();
+        assertThat(info.getReadTables()).containsExactlyInAnyOrder("countries", "cities", "regions", "capitals");
+        assertThat(info.getWrittenTables()).isEmpty();
+    }
+
+    @Test
+    void testWrittenTablesAreResolved() {
+        assertThat(StatementInfo.analyze("INSERT INTO countries (id) VALUES (?)", ALL).getWrittenTables()).containsExactly("countries");
+        assertThat(StatementInfo.analyze("update \"public\".\"Countries\" set name = ?", ALL).getWrittenTables()).containsExactly("countries");
+        assertThat(StatementInfo.analyze("DELETE FROM countries WHERE id = 1", ALL).getWrittenTables()).containsExactly("countries");
+        assertThat(StatementInfo.analyze("MERGE INTO countries KEY (id) VALUES (1)", ALL).getWrittenTables()).containsExactly("countries");
+        assertThat(StatementInfo.analyze("TRUNCATE TABLE countries", ALL).getWrittenTables()).containsExactly("countries");
+    }
+
+    @Test
+    void testStatementsWritingToUnknownTables() {
+        assertThat(StatementInfo.analyze("DROP TABLE countries", ALL).getWrittenTables()).isNull();
+        assertThat(StatementInfo.analyze("{call update_countries()}", ALL).getWrittenTables()).isNull();
+        assertThat(StatementInfo.analyze("WITH d AS (DELETE FROM countries RETURNING *) SELECT * FROM d", ALL).getWrittenTables()).isNull();
+    }
+
+    @Test
+    void testNotCacheableQueries() {
+        assertThat(StatementInfo.analyze("SELECT * FROM countries FOR UPDATE", ALL).isCacheable()).isFalse();
+        assertThat(StatementInfo.analyze("SELECT * FROM cities", Collections.singletonList(Pattern.compile("countries"))).isCacheable())
+                .isFalse();
+        assertThat(StatementInfo.analyze("SELECT * FROM countries", Collections.singletonList(Pattern.compile("countries"))).isCacheable())
+                .isTrue();
+        assertThat(StatementInfo.analyze("UPDATE countries SET name = ?", ALL).isCacheable()).isFalse();
+    }
+}
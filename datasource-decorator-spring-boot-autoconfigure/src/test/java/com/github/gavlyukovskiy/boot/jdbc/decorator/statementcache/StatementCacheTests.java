@@ -0,0 +1,262 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.statementcache;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecoratorAutoConfiguration;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DecoratedDataSource;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.metrics.DataSourceDecoratorMetricsConfiguration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatementCacheTests {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(
+                    DataSourceAutoConfiguration.class,
+                    DataSourceDecoratorAutoConfiguration.class,
+                    PropertyPlaceholderAutoConfiguration.class
+            ))
+            .withPropertyValues("spring.datasource.initialization-mode=never",
+                    "spring.datasource.url:jdbc:h2:mem:testdb-" + ThreadLocalRandom.current().nextInt());
+
+    @Test
+    void testStatementCacheIsDisabledByDefault() {
+        contextRunner.run(context -> {
+            assertThat(context).doesNotHaveBean(StatementCacheDataSourceDecorator.class);
+        });
+    }
+
+    @Test
+    void testStatementsAreCachedPerPhysicalConnection() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.statement-cache.enabled:true",
+                "spring.datasource.type:org.apache.tomcat.jdbc.pool.DataSource",
+                "spring.datasource.tomcat.max-active:1");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            assertThat(((DecoratedDataSource) dataSource).getDecoratingChain()).extracting("beanName")
+                    .containsExactly("p6SpyDataSourceDecorator", "proxyDataSourceDecorator", "statementCacheDataSourceDecorator",
+                            "flexyPoolDataSourceDecorator");
+            StatementCachingDataSource cachingDataSource = cachingDataSource(dataSource);
+
+            PreparedStatement firstStatement = selectOne(cachingDataSource);
+            PreparedStatement secondStatement = selectOne(cachingDataSource);
+
+            assertThat(firstStatement.isClosed()).isTrue();
+            assertThat(((CachedPreparedStatement) secondStatement).getDelegate())
+                    .isSameAs(((CachedPreparedStatement) firstStatement).getDelegate());
+            assertThat(((CachedPreparedStatement) secondStatement).getDelegate().isClosed()).isFalse();
+            assertThat(cachingDataSource.getPhysicalConnectionCaches()).isEqualTo(1);
+
+            StatementCacheStatistics statistics = context.getBean(StatementCacheDataSourceDecorator.class).getStatistics("dataSource");
+            assertThat(statistics.getMisses()).isEqualTo(1);
+            assertThat(statistics.getHits()).isEqualTo(1);
+
+            // works through logging decorators
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    assertThat(resultSet.next()).isTrue();
+                }
+            }
+            assertThat(statistics.getHits()).isEqualTo(2);
+        });
+    }
+
+    @Test
+    void testStatementsAreTrackedByPool() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.statement-cache.enabled:true",
+                "spring.datasource.hikari.maximum-pool-size:1");
+
+        contextRunner.run(context -> {
+            StatementCachingDataSource cachingDataSource = cachingDataSource(context.getBean(DataSource.class));
+
+            PreparedStatement firstStatement = selectOne(cachingDataSource);
+            // HikariCP closes statements of the returned connection, they are prepared again
+            assertThat(((CachedPreparedStatement) firstStatement).getDelegate().isClosed()).isTrue();
+            PreparedStatement secondStatement = selectOne(cachingDataSource);
+
+            assertThat(((CachedPreparedStatement) secondStatement).getDelegate())
+                    .isNotSameAs(((CachedPreparedStatement) firstStatement).getDelegate());
+            StatementCacheStatistics statistics = context.getBean(StatementCacheDataSourceDecorator.class).getStatistics("dataSource");
+            assertThat(statistics.getMisses()).isEqualTo(2);
+            assertThat(statistics.getHits()).isEqualTo(0);
+        });
+    }
+
+    @Test
+    void testCachesOfClosedPhysicalConnectionsAreRemoved() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.statement-cache.enabled:true",
+                "spring.datasource.type:org.apache.tomcat.jdbc.pool.DataSource",
+                "spring.datasource.tomcat.max-active:1");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            StatementCachingDataSource cachingDataSource = cachingDataSource(dataSource);
+
+            PreparedStatement firstStatement = selectOne(cachingDataSource);
+            assertThat(cachingDataSource.getPhysicalConnectionCaches()).isEqualTo(1);
+
+            // closes idle physical connections
+            ((org.apache.tomcat.jdbc.pool.DataSource) ((DecoratedDataSource) dataSource).getRealDataSource()).purge();
+            selectOne(cachingDataSource);
+
+            assertThat(((CachedPreparedStatement) firstStatement).getDelegate().isClosed()).isTrue();
+            assertThat(cachingDataSource.getPhysicalConnectionCaches()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    void testStatementInUseIsNotShared() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.statement-cache.enabled:true");
+
+        contextRunner.run(context -> {
+            StatementCachingDataSource cachingDataSource = cachingDataSource(context.getBean(DataSource.class));
+
+            try (Connection connection = cachingDataSource.getConnection();
+                 PreparedStatement first = connection.prepareStatement("SELECT 1");
+                 PreparedStatement second = connection.prepareStatement("SELECT 1")) {
+                assertThat(((CachedPreparedStatement) first).getDelegate()).isNotSameAs(((CachedPreparedStatement) second).getDelegate());
+            }
+
+            StatementCacheStatistics statistics = context.getBean(StatementCacheDataSourceDecorator.class).getStatistics("dataSource");
+            assertThat(statistics.getMisses()).isEqualTo(2);
+            assertThat(statistics.getHits()).isEqualTo(0);
+        });
+    }
+
+    @Test
+    void testLeastRecentlyUsedStatementIsEvicted() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.statement-cache.enabled:true",
+                "decorator.datasource.statement-cache.max-size:1");
+
+        contextRunner.run(context -> {
+            StatementCachingDataSource cachingDataSource = cachingDataSource(context.getBean(DataSource.class));
+
+            PreparedStatement evicted;
+            try (Connection connection = cachingDataSource.getConnection()) {
+                evicted = connection.prepareStatement("SELECT 1");
+                evicted.close();
+                connection.prepareStatement("SELECT 2").close();
+            }
+
+            assertThat(((CachedPreparedStatement) evicted).getDelegate().isClosed()).isTrue();
+            assertThat(context.getBean(StatementCacheDataSourceDecorator.class).getStatistics("dataSource").getEvictions()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    void testStatementsAreClosedWithNotPooledConnection() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.statement-cache.enabled:true",
+                "spring.datasource.type:org.springframework.jdbc.datasource.SimpleDriverDataSource");
+
+        contextRunner.run(context -> {
+            StatementCachingDataSource cachingDataSource = cachingDataSource(context.getBean(DataSource.class));
+
+            PreparedStatement statement;
+            try (Connection connection = cachingDataSource.getConnection()) {
+                statement = connection.prepareStatement("SELECT 1");
+            }
+
+            assertThat(statement.isClosed()).isTrue();
+            assertThat(((CachedPreparedStatement) statement).getDelegate().isClosed()).isTrue();
+            assertThat(cachingDataSource.getPhysicalConnectionCaches()).isZero();
+        });
+    }
+
+    @Test
+    void testUncommittedWorkIsRolledBack() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.statement-cache.enabled:true",
+                "spring.datasource.hikari.maximum-pool-size:1");
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE TEST(ID INT)");
+            }
+
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(false);
+                try (PreparedStatement statement = connection.prepareStatement("INSERT INTO TEST VALUES (?)")) {
+                    statement.setInt(1, 1);
+                    statement.executeUpdate();
+                }
+            }
+
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM TEST");
+                 ResultSet resultSet = statement.executeQuery()) {
+                assertThat(resultSet.next()).isTrue();
+                assertThat(resultSet.getInt(1)).isZero();
+            }
+        });
+    }
+
+    @Test
+    void testCountersAreExportedToMicrometer() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.statement-cache.enabled:true")
+                .withBean(SimpleMeterRegistry.class);
+
+        contextRunner.run(context -> {
+            StatementCachingDataSource cachingDataSource = cachingDataSource(context.getBean(DataSource.class));
+            selectOne(cachingDataSource);
+            selectOne(cachingDataSource);
+
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+            assertThat(meterRegistry.get(DataSourceDecoratorMetricsConfiguration.STATEMENT_CACHE_HITS_METRIC_NAME)
+                    .tag("name", "dataSource").functionCounter().count()).isEqualTo(1);
+            assertThat(meterRegistry.get(DataSourceDecoratorMetricsConfiguration.STATEMENT_CACHE_MISSES_METRIC_NAME)
+                    .tag("name", "dataSource").functionCounter().count()).isEqualTo(1);
+            assertThat(meterRegistry.get(DataSourceDecoratorMetricsConfiguration.STATEMENT_CACHE_EVICTIONS_METRIC_NAME)
+                    .tag("name", "dataSource").functionCounter().count()).isEqualTo(0);
+        });
+    }
+
+    private static StatementCachingDataSource cachingDataSource(DataSource dataSource) {
+        return (StatementCachingDataSource) ((DecoratedDataSource) dataSource).getDecoratingChain().stream()
+                .filter(stage -> stage.getDataSource() instanceof StatementCachingDataSource)
+                .findFirst()
+                .get()
+                .getDataSource();
+    }
+
+    private static PreparedStatement selectOne(DataSource dataSource) throws Exception {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT 1");
+             ResultSet resultSet = statement.executeQuery()) {
+            assertThat(resultSet.next()).isTrue();
+            return statement;
+        }
+    }
+}
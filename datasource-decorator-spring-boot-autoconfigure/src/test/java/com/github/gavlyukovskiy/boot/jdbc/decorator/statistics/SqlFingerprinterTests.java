@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.statistics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlFingerprinterTests {
+
+    @Test
+    void testLiteralsAreReplacedWithPlaceholders() {
+        assertThat(SqlFingerprinter.normalize("SELECT * FROM users WHERE id = 42 AND name = 'O''Brien'"))
+                .isEqualTo("SELECT * FROM users WHERE id = ? AND name = ?");
+        assertThat(SqlFingerprinter.normalize("UPDATE t SET price = -1.5e-3, flags = 0x1F WHERE id = ?"))
+                .isEqualTo("UPDATE t SET price = -?, flags = ? WHERE id = ?");
+    }
+
+    @Test
+    void testIdentifiersAreKept() {
+        assertThat(SqlFingerprinter.normalize("SELECT t1.col2, \"Table 3\".x FROM table1 t1, \"Table 3\""))
+                .isEqualTo("SELECT t1.col2, \"Table 3\".x FROM table1 t1, \"Table 3\"");
+    }
+
+    @Test
+    void testPlaceholderListsAreCollapsed() {
+        assertThat(SqlFingerprinter.normalize("SELECT * FROM t WHERE id IN (1, 2, 3)"))
+                .isEqualTo(SqlFingerprinter.normalize("SELECT * FROM t WHERE id IN (?,?)"))
+                .isEqualTo("SELECT * FROM t WHERE id IN (?)");
+    }
+
+    @Test
+    void testCommentsAndWhitespacesAreRemoved() {
+        assertThat(SqlFingerprinter.normalize("  SELECT /* hint */ a\n\t FROM t -- trailing comment\n WHERE b = 1"))
+                .isEqualTo("SELECT a FROM t WHERE b = ?");
+    }
+
+    @Test
+    void testFingerprintCacheIsBounded() {
+        SqlFingerprinter fingerprinter = new SqlFingerprinter(10);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(fingerprinter.fingerprint("SELECT " + i)).isEqualTo("SELECT ?");
+        }
+        String sql = "SELECT 1";
+        assertThat(fingerprinter.fingerprint(sql)).isSameAs(fingerprinter.fingerprint(sql));
+    }
+
+    @Test
+    void testCachedFingerprintsAreNotEvictedByDynamicSql() {
+        SqlFingerprinter fingerprinter = new SqlFingerprinter(10);
+        String sql = "SELECT * FROM users WHERE id = ?";
+        String fingerprint = fingerprinter.fingerprint(sql);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(fingerprinter.fingerprint("SELECT * FROM users WHERE id = " + i)).isEqualTo(fingerprint);
+        }
+        assertThat(fingerprinter.fingerprint(sql)).isSameAs(fingerprint);
+    }
+}
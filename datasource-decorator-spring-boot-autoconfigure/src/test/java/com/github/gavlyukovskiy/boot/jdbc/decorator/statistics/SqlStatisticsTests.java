@@ -0,0 +1,192 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.statistics;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecoratorAutoConfiguration;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.HidePackagesClassLoader;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.actuate.SqlStatisticsEndpoint;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.actuate.SqlStatisticsEndpoint.SqlStatementDescriptor;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SqlStatisticsTests {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(
+                    DataSourceAutoConfiguration.class,
+                    DataSourceDecoratorAutoConfiguration.class,
+                    PropertyPlaceholderAutoConfiguration.class
+            ))
+            .withPropertyValues("spring.datasource.initialization-mode=never",
+                    "spring.datasource.url:jdbc:h2:mem:testdb-" + ThreadLocalRandom.current().nextInt(),
+                    "decorator.datasource.statistics.enabled:true",
+                    "management.endpoints.web.exposure.include:sqlstatistics");
+
+    @Test
+    void testStatisticsAreDisabledByDefault() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.statistics.enabled:false");
+
+        contextRunner.run(context -> {
+            assertThat(context).doesNotHaveBean(SqlStatistics.class);
+            assertThat(context).doesNotHaveBean(SqlStatisticsEndpoint.class);
+        });
+    }
+
+    @Test
+    void testStatisticsAreCollectedByP6Spy() {
+        contextRunner.run(context -> {
+            assertThat(context).hasSingleBean(SqlStatisticsJdbcEventListener.class);
+            assertThat(context).doesNotHaveBean(SqlStatisticsQueryExecutionListener.class);
+
+            executeQueries(context.getBean(DataSource.class));
+
+            List<SqlStatementDescriptor> statistics = context.getBean(SqlStatisticsEndpoint.class).dataSourceStatistics("dataSource");
+            assertThat(statistics).extracting("fingerprint").containsOnly(
+                    "CREATE TABLE users (id INT, name VARCHAR(?))",
+                    "INSERT INTO users VALUES (?)",
+                    "SELECT name FROM users WHERE id IN (?)",
+                    "SELECT * FROM not_existing_table WHERE id = ?");
+            SqlStatementDescriptor insert = find(statistics, "INSERT INTO users VALUES (?)");
+            assertThat(insert.getCalls()).isEqualTo(3);
+            assertThat(insert.getRows()).isEqualTo(3);
+            assertThat(insert.getTotalTime()).isPositive();
+            assertThat(insert.getMaxTime()).isBetween(insert.getMeanTime(), insert.getTotalTime());
+            SqlStatementDescriptor select = find(statistics, "SELECT name FROM users WHERE id IN (?)");
+            assertThat(select.getCalls()).isEqualTo(2);
+            assertThat(select.getRows()).isEqualTo(3);
+            assertThat(find(statistics, "SELECT * FROM not_existing_table WHERE id = ?").getFailures()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    void testStatisticsAreCollectedByDataSourceProxy() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withClassLoader(new HidePackagesClassLoader("com.p6spy"));
+
+        contextRunner.run(context -> {
+            assertThat(context).hasSingleBean(SqlStatisticsQueryExecutionListener.class);
+
+            executeQueries(context.getBean(DataSource.class));
+
+            List<SqlStatementDescriptor> statistics = context.getBean(SqlStatisticsEndpoint.class).dataSourceStatistics("dataSource");
+            SqlStatementDescriptor insert = find(statistics, "INSERT INTO users VALUES (?)");
+            assertThat(insert.getCalls()).isEqualTo(3);
+            assertThat(insert.getRows()).isEqualTo(3);
+            assertThat(find(statistics, "SELECT name FROM users WHERE id IN (?)").getCalls()).isEqualTo(2);
+            assertThat(find(statistics, "SELECT * FROM not_existing_table WHERE id = ?").getFailures()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    void testStatementsAreBounded() {
+        ApplicationContextRunner contextRunner = this.contextRunner.withPropertyValues("decorator.datasource.statistics.max-statements:2");
+
+        contextRunner.run(context -> {
+            SqlStatistics sqlStatistics = context.getBean(SqlStatistics.class);
+            for (int i = 0; i < 100; i++) {
+                sqlStatistics.record("dataSource", "SELECT a FROM t", 1000, true);
+            }
+            for (int i = 0; i < 100; i++) {
+                sqlStatistics.record("dataSource", "SELECT col" + i + " FROM t", 1000, true);
+            }
+
+            List<SqlStatementStatistics> statistics = sqlStatistics.getStatistics().get("dataSource");
+            assertThat(statistics).hasSize(2);
+            assertThat(statistics).extracting(SqlStatementStatistics::getFingerprint).contains("SELECT a FROM t");
+            SqlStatementStatistics replaced = statistics.stream()
+                    .filter(statement -> !statement.getFingerprint().equals("SELECT a FROM t"))
+                    .findFirst()
+                    .get();
+            assertThat(replaced.getCalls()).isEqualTo(1);
+            assertThat(replaced.getEstimatedCalls()).isEqualTo(100);
+
+            context.getBean(SqlStatisticsEndpoint.class).reset();
+            assertThat(sqlStatistics.getStatistics().get("dataSource")).isEmpty();
+        });
+    }
+
+    @Test
+    void testFrequentStatementIsKeptWithSampledEviction() {
+        SqlStatistics sqlStatistics = new SqlStatistics(new SqlFingerprinter(10), 100);
+        for (int i = 0; i < 1000; i++) {
+            sqlStatistics.record("dataSource", "SELECT a FROM t", 1000, true, 1);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            sqlStatistics.record("dataSource", "SELECT col" + i + " FROM t", 1000, true);
+        }
+
+        List<SqlStatementStatistics> statistics = sqlStatistics.getStatistics().get("dataSource");
+        assertThat(statistics).hasSize(100);
+        SqlStatementStatistics frequent = statistics.stream()
+                .filter(statement -> statement.getFingerprint().equals("SELECT a FROM t"))
+                .findFirst()
+                .get();
+        assertThat(frequent.getCalls()).isEqualTo(1000);
+        assertThat(frequent.getRows()).isEqualTo(1000);
+    }
+
+    private static void executeQueries(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE users (id INT, name VARCHAR(255))");
+                for (int i = 0; i < 3; i++) {
+                    statement.executeUpdate("INSERT INTO users VALUES (" + i + ", 'user" + i + "')");
+                }
+                assertThatThrownBy(() -> statement.executeQuery("SELECT * FROM not_existing_table WHERE id = 1"))
+                        .isInstanceOf(SQLException.class);
+            }
+            for (int i = 0; i < 2; i++) {
+                try (PreparedStatement statement = connection.prepareStatement(i == 0
+                        ? "SELECT name FROM users WHERE id IN (?, ?)"
+                        : "SELECT name FROM users WHERE id IN (2)")) {
+                    if (i == 0) {
+                        statement.setInt(1, 0);
+                        statement.setInt(2, 1);
+                    }
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            assertThat(resultSet.getString(1)).startsWith("user");
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static SqlStatementDescriptor find(List<SqlStatementDescriptor> statistics, String fingerprint) {
+        return statistics.stream()
+                .filter(statement -> statement.getFingerprint().equals(fingerprint))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No statistics of " + fingerprint + " in " + statistics));
+    }
+}
@@ -0,0 +1,448 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.gavlyukovskiy.boot.jdbc.decorator.xa;
+
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecoratorAutoConfiguration;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceDecorator;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DataSourceNameResolver;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.DecoratedDataSource;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.HidePackagesClassLoader;
+import com.github.gavlyukovskiy.boot.jdbc.decorator.xa.XAPhaseListener.Phase;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+import com.p6spy.engine.spy.P6DataSource;
+import com.p6spy.engine.wrapper.ConnectionWrapper;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.jdbc.XADataSourceWrapper;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.ConnectionPoolDataSource;
+import javax.sql.DataSource;
+import javax.sql.PooledConnection;
+import javax.sql.XAConnection;
+import javax.sql.XADataSource;
+import javax.transaction.xa.XAResource;
+import javax.transaction.xa.Xid;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class XADataSourceDecoratingTests {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(
+                    DataSourceDecoratorAutoConfiguration.class,
+                    PropertyPlaceholderAutoConfiguration.class
+            ))
+            .withUserConfiguration(TestXADataSourceConfiguration.class);
+
+    @Test
+    void testXADataSourceIsDecorated() {
+        contextRunner.run(context -> {
+            XADataSource xaDataSource = context.getBean("xaDataSource", XADataSource.class);
+            assertThat(xaDataSource).isInstanceOf(P6DataSource.class);
+
+            XAConnection xaConnection = xaDataSource.getXAConnection();
+            try (Connection connection = xaConnection.getConnection()) {
+                assertThat(connection).isInstanceOf(ConnectionWrapper.class);
+            }
+            finally {
+                xaConnection.close();
+            }
+            DataSourceNameResolver dataSourceNameResolver = context.getBean(DataSourceNameResolver.class);
+            assertThat(dataSourceNameResolver.resolveDataSourceName(xaDataSource)).isEqualTo("xaDataSource");
+        });
+    }
+
+    @Test
+    void testConnectionPoolDataSourceIsDecorated() {
+        contextRunner.run(context -> {
+            ConnectionPoolDataSource connectionPoolDataSource = context.getBean("connectionPoolDataSource", ConnectionPoolDataSource.class);
+            assertThat(connectionPoolDataSource).isInstanceOf(P6DataSource.class);
+
+            PooledConnection pooledConnection = connectionPoolDataSource.getPooledConnection();
+            try (Connection connection = pooledConnection.getConnection()) {
+                assertThat(connection).isInstanceOf(ConnectionWrapper.class);
+            }
+            finally {
+                pooledConnection.close();
+            }
+        });
+    }
+
+    @Test
+    void testXAPhasesAreMeasured() {
+        ApplicationContextRunner contextRunner = this.contextRunner
+                .withBean(CollectingXAPhaseListener.class)
+                .withBean(SimpleMeterRegistry.class);
+
+        contextRunner.run(context -> {
+            XADataSource xaDataSource = context.getBean("xaDataSource", XADataSource.class);
+            commitXATransaction(xaDataSource);
+            commitXATransaction(xaDataSource);
+
+            assertThat(context.getBean(CollectingXAPhaseListener.class).phases)
+                    .containsExactly(Phase.PREPARE, Phase.COMMIT, Phase.PREPARE, Phase.COMMIT);
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+            assertThat(meterRegistry.get("jdbc.xa.phase").tag("name", "xaDataSource").tag("phase", "commit").timer().count()).isEqualTo(2);
+        });
+    }
+
+    @Test
+    void testDataSourceImplementingXADataSourceIsDecoratedAsBoth() {
+        ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(
+                        DataSourceDecoratorAutoConfiguration.class,
+                        PropertyPlaceholderAutoConfiguration.class
+                ))
+                .withUserConfiguration(H2DataSourceConfiguration.class)
+                .withBean(CollectingXAPhaseListener.class);
+
+        for (String proxyTargetClass : new String[] { "true", "false" }) {
+            contextRunner.withPropertyValues("decorator.datasource.proxy-target-class:" + proxyTargetClass).run(context -> {
+                DataSource dataSource = context.getBean("h2DataSource", DataSource.class);
+                assertThat(dataSource).isInstanceOf(DecoratedDataSource.class).isInstanceOf(XADataSource.class);
+                try (Connection connection = dataSource.getConnection()) {
+                    assertThat(connection).isInstanceOf(ConnectionWrapper.class);
+                }
+
+                commitXATransaction((XADataSource) dataSource);
+
+                assertThat(context.getBean(CollectingXAPhaseListener.class).phases).containsExactly(Phase.PREPARE, Phase.COMMIT);
+            });
+        }
+    }
+
+    @Test
+    void testStatementsOfTransactionManagerDataSourceAreReportedOnce() {
+        ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(
+                        DataSourceDecoratorAutoConfiguration.class,
+                        PropertyPlaceholderAutoConfiguration.class
+                ))
+                .withUserConfiguration(TransactionManagerDataSourceConfiguration.class)
+                .withBean(ExecutionCountingListener.class);
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            assertThat(dataSource).isInstanceOf(DecoratedDataSource.class);
+            assertThat(((DecoratedDataSource) dataSource).getRealDataSource()).isInstanceOf(HikariDataSource.class);
+
+            try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+                statement.execute("SELECT 1");
+            }
+
+            assertThat(context.getBean(ExecutionCountingListener.class).executionCount).isEqualTo(1);
+        });
+    }
+
+    @Test
+    void testXAPhasesOfTransactionManagerDataSourceAreMeasured() {
+        ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(
+                        DataSourceDecoratorAutoConfiguration.class,
+                        PropertyPlaceholderAutoConfiguration.class
+                ))
+                .withUserConfiguration(TransactionManagerDataSourceConfiguration.class)
+                .withBean(SimpleMeterRegistry.class);
+
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            XADataSource xaDataSource = ((XAPool) ((DecoratedDataSource) dataSource).getRealDataSource()).xaDataSource;
+            assertThat(xaDataSource).isInstanceOf(TimingXADataSource.class);
+
+            commitXATransaction(xaDataSource);
+
+            MeterRegistry meterRegistry = context.getBean(MeterRegistry.class);
+            assertThat(meterRegistry.get("jdbc.xa.phase").tag("name", "dataSource").tag("phase", "prepare").timer().count()).isEqualTo(1);
+            assertThat(meterRegistry.get("jdbc.xa.phase").tag("name", "dataSource").tag("phase", "commit").timer().count()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    void testXATimingDecoratorIsNotRegisteredWithoutXADataSource() {
+        ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(
+                        DataSourceAutoConfiguration.class,
+                        DataSourceDecoratorAutoConfiguration.class,
+                        PropertyPlaceholderAutoConfiguration.class
+                ))
+                .withPropertyValues("spring.datasource.initialization-mode=never",
+                        "spring.datasource.url:jdbc:h2:mem:testdb-" + ThreadLocalRandom.current().nextInt())
+                .withClassLoader(new HidePackagesClassLoader("com.vladmihalcea.flexypool", "com.p6spy", "net.ttddyy.dsproxy"));
+
+        contextRunner.run(context -> {
+            assertThat(context).doesNotHaveBean(XATimingDataSourceDecorator.class);
+            assertThat(context).doesNotHaveBean(DataSourceDecorator.class);
+            assertThat(context.getBean(DataSource.class)).isNotInstanceOf(DecoratedDataSource.class);
+        });
+    }
+
+    private static void commitXATransaction(XADataSource xaDataSource) throws Exception {
+        XAConnection xaConnection = xaDataSource.getXAConnection();
+        // closing logical connection rolls back current transaction in H2, so it's closed after commit
+        try (Connection connection = xaConnection.getConnection(); Statement statement = connection.createStatement()) {
+            XAResource xaResource = xaConnection.getXAResource();
+            Xid xid = new TestXid(ThreadLocalRandom.current().nextInt());
+            xaResource.start(xid, XAResource.TMNOFLAGS);
+            statement.execute("CREATE TABLE IF NOT EXISTS xa_test (id INT)");
+            xaResource.end(xid, XAResource.TMSUCCESS);
+            xaResource.prepare(xid);
+            xaResource.commit(xid, false);
+        }
+        finally {
+            xaConnection.close();
+        }
+    }
+
+    static class ExecutionCountingListener extends JdbcEventListener {
+
+        int executionCount = 0;
+
+        @Override
+        public void onAfterExecute(StatementInformation statementInformation, long timeElapsedNanos, String sql, SQLException e) {
+            executionCount++;
+        }
+    }
+
+    static class CollectingXAPhaseListener implements XAPhaseListener {
+
+        private final List<Phase> phases = new ArrayList<>();
+
+        @Override
+        public void afterPhase(String dataSourceName, Phase phase, long elapsedNanos, boolean success) {
+            phases.add(phase);
+        }
+    }
+
+    @Configuration
+    static class TestXADataSourceConfiguration {
+
+        @Bean
+        public XADataSource xaDataSource() {
+            return new XADataSourceAdapter(h2DataSource());
+        }
+
+        @Bean
+        public ConnectionPoolDataSource connectionPoolDataSource() {
+            return new ConnectionPoolDataSourceAdapter(h2DataSource());
+        }
+
+        private static JdbcDataSource h2DataSource() {
+            JdbcDataSource dataSource = new JdbcDataSource();
+            dataSource.setURL("jdbc:h2:mem:testdb-" + ThreadLocalRandom.current().nextInt());
+            return dataSource;
+        }
+    }
+
+    @Configuration
+    static class H2DataSourceConfiguration {
+
+        @Bean
+        public JdbcDataSource h2DataSource() {
+            return createH2DataSource();
+        }
+
+        static JdbcDataSource createH2DataSource() {
+            JdbcDataSource dataSource = new JdbcDataSource();
+            dataSource.setURL("jdbc:h2:mem:testdb-" + ThreadLocalRandom.current().nextInt());
+            return dataSource;
+        }
+    }
+
+    /**
+     * Registers data source the same way as Spring Boot does for 'spring.datasource.xa' properties.
+     */
+    @Configuration
+    static class TransactionManagerDataSourceConfiguration {
+
+        @Bean
+        public XADataSourceWrapper xaDataSourceWrapper() {
+            return new PoolingXADataSourceWrapper();
+        }
+
+        @Bean
+        public DataSource dataSource(XADataSourceWrapper xaDataSourceWrapper) throws Exception {
+            return xaDataSourceWrapper.wrapDataSource(new XADataSourceAdapter(H2DataSourceConfiguration.createH2DataSource()));
+        }
+    }
+
+    /**
+     * Transaction manager wrapper that pools connections of {@link XAConnection}s, as Atomikos or Narayana do.
+     */
+    static class PoolingXADataSourceWrapper implements XADataSourceWrapper {
+
+        @Override
+        public DataSource wrapDataSource(XADataSource dataSource) {
+            return new XAPool(dataSource);
+        }
+    }
+
+    static class XAPool extends HikariDataSource {
+
+        private final XADataSource xaDataSource;
+
+        XAPool(XADataSource xaDataSource) {
+            this.xaDataSource = xaDataSource;
+            setMaximumPoolSize(1);
+            setDataSource(new AbstractDataSource() {
+                @Override
+                public Connection getConnection() throws SQLException {
+                    return xaDataSource.getXAConnection().getConnection();
+                }
+
+                @Override
+                public Connection getConnection(String username, String password) throws SQLException {
+                    return xaDataSource.getXAConnection(username, password).getConnection();
+                }
+            });
+        }
+    }
+
+    /**
+     * H2 data source implements {@link javax.sql.DataSource} as well, adapter hides it.
+     */
+    static class XADataSourceAdapter implements XADataSource {
+
+        private final JdbcDataSource delegate;
+
+        XADataSourceAdapter(JdbcDataSource delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public XAConnection getXAConnection() throws SQLException {
+            return delegate.getXAConnection();
+        }
+
+        @Override
+        public XAConnection getXAConnection(String user, String password) throws SQLException {
+            return delegate.getXAConnection(user, password);
+        }
+
+        @Override
+        public PrintWriter getLogWriter() {
+            return delegate.getLogWriter();
+        }
+
+        @Override
+        public void setLogWriter(PrintWriter out) {
+            delegate.setLogWriter(out);
+        }
+
+        @Override
+        public void setLoginTimeout(int seconds) {
+            delegate.setLoginTimeout(seconds);
+        }
+
+        @Override
+        public int getLoginTimeout() {
+            return delegate.getLoginTimeout();
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return null;
+        }
+    }
+
+    static class ConnectionPoolDataSourceAdapter implements ConnectionPoolDataSource {
+
+        private final JdbcDataSource delegate;
+
+        ConnectionPoolDataSourceAdapter(JdbcDataSource delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public PooledConnection getPooledConnection() throws SQLException {
+            return delegate.getPooledConnection();
+        }
+
+        @Override
+        public PooledConnection getPooledConnection(String user, String password) throws SQLException {
+            return delegate.getPooledConnection(user, password);
+        }
+
+        @Override
+        public PrintWriter getLogWriter() {
+            return delegate.getLogWriter();
+        }
+
+        @Override
+        public void setLogWriter(PrintWriter out) {
+            delegate.setLogWriter(out);
+        }
+
+        @Override
+        public void setLoginTimeout(int seconds) {
+            delegate.setLoginTimeout(seconds);
+        }
+
+        @Override
+        public int getLoginTimeout() {
+            return delegate.getLoginTimeout();
+        }
+
+        @Override
+        public Logger getParentLogger() {
+            return null;
+        }
+    }
+
+    static class TestXid implements Xid {
+
+        private final int id;
+
+        TestXid(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int getFormatId() {
+            return 1;
+        }
+
+        @Override
+        public byte[] getGlobalTransactionId() {
+            return new byte[] { (byte) id };
+        }
+
+        @Override
+        public byte[] getBranchQualifier() {
+            return new byte[] { 1 };
+        }
+    }
+}